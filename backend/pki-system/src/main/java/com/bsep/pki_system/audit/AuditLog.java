@@ -1,5 +1,6 @@
 package com.bsep.pki_system.audit;
 
+import com.bsep.pki_system.model.IdSequences;
 import com.google.common.hash.Hashing;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
@@ -16,8 +17,10 @@ import java.time.LocalDateTime;
 @AllArgsConstructor
 public class AuditLog {
 
+    // Sekvenca umesto IDENTITY - INSERT-i iz iste transakcije se salju kao jedan batch
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "audit_logs_seq")
+    @SequenceGenerator(name = "audit_logs_seq", sequenceName = "audit_logs_seq", allocationSize = IdSequences.ALLOCATION_SIZE)
     private Long id;
 
     @Column(nullable = false)
@@ -14,6 +14,7 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
@@ -213,6 +214,10 @@ public class AuditLogService {
     }
 
     private String getClientIp(HttpServletRequest request) {
+        // Dogadjaji iz pozadinskih poslova nemaju HTTP zahtev
+        if (request == null) {
+            return null;
+        }
         String xfHeader = request.getHeader("X-Forwarded-For");
         if (xfHeader != null) {
             return xfHeader.split(",")[0];
@@ -221,10 +226,11 @@ public class AuditLogService {
     }
 
     private String getUserAgent(HttpServletRequest request) {
-        return request.getHeader("User-Agent");
+        return request != null ? request.getHeader("User-Agent") : null;
     }
 
     // Metode za pretragu logova
+    @Transactional(readOnly = true)
     public Page<AuditLog> getAuditLogsWithFilters(Long userId, String eventType, Boolean success,
                                                   LocalDateTime startDate, LocalDateTime endDate,
                                                   Pageable pageable) {
@@ -0,0 +1,53 @@
+package com.bsep.pki_system.config;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.jdbc.support.MetaDataAccessException;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.DatabaseMetaData;
+
+// Indeksi za pretragu sertifikata koje JPA @Index ne moze da opise (samo PostgreSQL):
+// - text_pattern_ops: LIKE 'api.%' (PREFIX) koristi B-tree bez obzira na collation baze,
+// - pg_trgm GIN: LIKE '%example%' (CONTAINS) bez citanja cele tabele.
+// Ako pg_trgm ne moze da se ukljuci (nema prava za CREATE EXTENSION), CONTAINS radi, ali bez indeksa.
+// Zavisi od entityManagerFactory samo zbog redosleda: tabela certificate_names vec postoji.
+@Component
+@DependsOn("entityManagerFactory")
+public class CertificateSearchIndexInitializer {
+
+    private static final Logger logger = LoggerFactory.getLogger(CertificateSearchIndexInitializer.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DataSource dataSource;
+
+    public CertificateSearchIndexInitializer(JdbcTemplate jdbcTemplate, DataSource dataSource) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.dataSource = dataSource;
+    }
+
+    @PostConstruct
+    public void createIndexes() throws MetaDataAccessException {
+        String database = JdbcUtils.extractDatabaseMetaData(dataSource, DatabaseMetaData::getDatabaseProductName);
+        if (!"PostgreSQL".equals(database)) {
+            // H2 (testovi) - dovoljni su indeksi iz entiteta
+            return;
+        }
+
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_certificate_names_value_pattern " +
+                "ON certificate_names (normalized_value text_pattern_ops)");
+
+        try {
+            jdbcTemplate.execute("CREATE EXTENSION IF NOT EXISTS pg_trgm");
+            jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_certificate_names_value_trgm " +
+                    "ON certificate_names USING gin (normalized_value gin_trgm_ops)");
+        } catch (Exception e) {
+            logger.warn("pg_trgm is not available, CONTAINS certificate search will not use an index: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.bsep.pki_system.config;
+
+import com.bsep.pki_system.model.IdSequences;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.jdbc.support.MetaDataAccessException;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.DatabaseMetaData;
+import java.util.Map;
+
+// Tabele iz IdSequences su ranije koristile IDENTITY kolone. ddl-auto=update pravi sekvencu od 1,
+// pa bi prvi novi id-evi udarili u postojece redove. Pre nego sto aplikacija primi prvi zahtev,
+// sekvenca se pomera iza MAX(id). U radu je MAX(id) uvek <= last_value, pa se tada nista ne menja
+// (setval nikad ne vraca sekvencu unazad dok druga instanca vec dodeljuje id-eve).
+// Zavisi od entityManagerFactory samo zbog redosleda: sema (i sekvence) su azurirane pre ovoga
+@Component
+@DependsOn("entityManagerFactory")
+public class IdSequenceInitializer {
+
+    private static final Logger logger = LoggerFactory.getLogger(IdSequenceInitializer.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DataSource dataSource;
+
+    public IdSequenceInitializer(JdbcTemplate jdbcTemplate, DataSource dataSource) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.dataSource = dataSource;
+    }
+
+    @PostConstruct
+    public void alignSequences() throws MetaDataAccessException {
+        String database = JdbcUtils.extractDatabaseMetaData(dataSource, DatabaseMetaData::getDatabaseProductName);
+        if (!"PostgreSQL".equals(database)) {
+            // H2 (testovi) se pravi iz pocetka, sekvence su vec poravnate
+            return;
+        }
+
+        for (Map.Entry<String, String> entry : IdSequences.TABLES.entrySet()) {
+            String table = entry.getKey();
+            String sequence = entry.getValue();
+            // Pooled: sledeci nextval vraca MAX(id) + ALLOCATION_SIZE, a blok pocinje od MAX(id) + 1
+            Long aligned = jdbcTemplate.query(
+                    "SELECT setval('" + sequence + "', m.max_id) " +
+                            "FROM (SELECT MAX(id) AS max_id FROM " + table + ") m, " + sequence + " s " +
+                            "WHERE m.max_id > s.last_value OR (NOT s.is_called AND m.max_id >= s.last_value)",
+                    rs -> rs.next() ? rs.getLong(1) : null);
+            if (aligned != null) {
+                logger.info("Sequence {} moved past existing {} rows (max id {})", sequence, table, aligned);
+            }
+        }
+    }
+}
@@ -19,8 +19,7 @@ public class JacksonConfig {
         // Onemogući timestamp zapis za LocalDateTime
         objectMapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
 
-        // Omogući lep format za JSON
-        objectMapper.enable(SerializationFeature.INDENT_OUTPUT);
+        // Kompaktan JSON (bez INDENT_OUTPUT) - liste sertifikata su velike, a citljivost nije bitna klijentu
 
         return objectMapper;
     }
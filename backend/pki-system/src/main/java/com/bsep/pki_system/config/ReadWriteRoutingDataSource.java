@@ -0,0 +1,89 @@
+package com.bsep.pki_system.config;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.time.Clock;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Read-only transakcije idu na repliku, sve ostalo (i rad bez transakcije) na primarnu bazu.
+// Mora biti iza LazyConnectionDataSourceProxy - konekcija se uzima tek na prvoj naredbi,
+// kad je readOnly oznaka transakcije vec postavljena.
+//
+// Read-your-writes: posle potvrdjene read-write transakcije, citanja istog pozivaoca (korisnik iz
+// SecurityContext-a, inace nit) idu na primarnu bazu jos readYourWritesMillis - replika mozda jos
+// nema upravo izdat ili povucen sertifikat.
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+
+    public enum Target {
+        PRIMARY, REPLICA
+    }
+
+    // Iznad ovoga se pri upisu brisu istekli unosi
+    private static final int MAX_TRACKED_CALLERS = 10_000;
+
+    private final long readYourWritesMillis;
+    private final Clock clock;
+    private final Map<String, Long> lastWrites = new ConcurrentHashMap<>();
+
+    public ReadWriteRoutingDataSource(DataSource primary, DataSource replica, long readYourWritesMillis) {
+        this(primary, replica, readYourWritesMillis, Clock.systemUTC());
+    }
+
+    ReadWriteRoutingDataSource(DataSource primary, DataSource replica, long readYourWritesMillis, Clock clock) {
+        this.readYourWritesMillis = readYourWritesMillis;
+        this.clock = clock;
+        setTargetDataSources(Map.of(Target.PRIMARY, primary, Target.REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            return Target.PRIMARY;
+        }
+        if (TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return canReadFromReplica() ? Target.REPLICA : Target.PRIMARY;
+        }
+
+        // Upis: pozivalac cita sa primarne baze dok replika ne stigne (samo ako je transakcija potvrdjena)
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            String caller = currentCaller();
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    recordWrite(caller);
+                }
+            });
+        }
+        return Target.PRIMARY;
+    }
+
+    // Da li bi read-only transakcija trenutnog pozivaoca isla na repliku
+    public boolean canReadFromReplica() {
+        Long lastWrite = lastWrites.get(currentCaller());
+        return lastWrite == null || clock.millis() - lastWrite >= readYourWritesMillis;
+    }
+
+    private void recordWrite(String caller) {
+        long now = clock.millis();
+        lastWrites.put(caller, now);
+        if (lastWrites.size() > MAX_TRACKED_CALLERS) {
+            lastWrites.values().removeIf(lastWrite -> now - lastWrite >= readYourWritesMillis);
+        }
+    }
+
+    private static String currentCaller() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.isAuthenticated()) {
+            return "user:" + authentication.getName();
+        }
+        return "thread:" + Thread.currentThread().threadId();
+    }
+}
@@ -0,0 +1,34 @@
+package com.bsep.pki_system.config;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceException;
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.springframework.orm.jpa.vendor.HibernateJpaDialect;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionException;
+
+import java.sql.SQLException;
+
+// Sesija koja cita sa replike ne sme da puni second-level i query cache: podaci sa replike koja
+// kasni bi pregazili svez unos (npr. sertifikat bi ponovo bio VALID posle revokacije).
+// Takva sesija cita iz kesa (CacheMode.GET), a kes pune samo sesije na primarnoj bazi.
+// EntityManager je po transakciji (open-in-view=false), pa se CacheMode ne prenosi dalje.
+public class ReplicaAwareJpaDialect extends HibernateJpaDialect {
+
+    private final ReadWriteRoutingDataSource routingDataSource;
+
+    public ReplicaAwareJpaDialect(ReadWriteRoutingDataSource routingDataSource) {
+        this.routingDataSource = routingDataSource;
+    }
+
+    @Override
+    public Object beginTransaction(EntityManager entityManager, TransactionDefinition definition)
+            throws PersistenceException, SQLException, TransactionException {
+        Object transactionData = super.beginTransaction(entityManager, definition);
+        if (definition.isReadOnly() && routingDataSource.canReadFromReplica()) {
+            entityManager.unwrap(Session.class).setCacheMode(CacheMode.GET);
+        }
+        return transactionData;
+    }
+}
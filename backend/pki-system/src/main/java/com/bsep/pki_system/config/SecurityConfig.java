@@ -2,6 +2,7 @@ package com.bsep.pki_system.config;
 
 import com.bsep.pki_system.jwt.JwtAuthFilter;
 import com.warrenstrange.googleauth.GoogleAuthenticator;
+import jakarta.servlet.DispatcherType;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -51,6 +52,8 @@ public class SecurityConfig {
                 .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS)) // 3. Osigurava da je aplikacija stateless
                 .authorizeHttpRequests(auth -> auth
                         // 4. Precizno definisane javne putanje
+                        // Async dispatch posle StreamingResponseBody odgovora (zahtev je vec autorizovan)
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                         .requestMatchers("/auth/**").permitAll()
                         .requestMatchers("/api/test/public").permitAll()
                         .anyRequest().authenticated() // Svi ostali zahtevi zahtevaju autentifikaciju
@@ -1,33 +1,75 @@
 package com.bsep.pki_system.controller;
 
+import com.bsep.pki_system.dto.BatchCsrItemDTO;
+import com.bsep.pki_system.dto.BatchCsrRequestDTO;
+import com.bsep.pki_system.dto.BulkRevocationItemDTO;
+import com.bsep.pki_system.dto.BulkRevocationRequestDTO;
+import com.bsep.pki_system.dto.CacheStatisticsDTO;
+import com.bsep.pki_system.dto.CertificateListFilter;
+import com.bsep.pki_system.dto.CertificatePageDTO;
+import com.bsep.pki_system.dto.CertificateResponseDTO;
+import com.bsep.pki_system.dto.CertificateSearchQuery;
+import com.bsep.pki_system.dto.CertificateValidityDTO;
+import com.bsep.pki_system.dto.CertificateValidityRequestDTO;
 import com.bsep.pki_system.dto.CreateCertificateDTO;
 import com.bsep.pki_system.dto.CreateEECsrRequestDTO;
+import com.bsep.pki_system.dto.KeyPairPoolStatsDTO;
+import com.bsep.pki_system.dto.RevocationSummaryDTO;
 import com.bsep.pki_system.jwt.UserPrincipal;
 import com.bsep.pki_system.model.Certificate;
+import com.bsep.pki_system.model.IssuanceJob;
+import com.bsep.pki_system.model.IssuanceJobType;
+import com.bsep.pki_system.model.CertificateExportFormat;
+import com.bsep.pki_system.model.CertificateListSort;
+import com.bsep.pki_system.model.CertificateNameType;
+import com.bsep.pki_system.model.CertificateSearchMatch;
+import com.bsep.pki_system.model.CertificateStatus;
 import com.bsep.pki_system.model.CertificateType;
 import com.bsep.pki_system.model.User;
 import com.bsep.pki_system.model.UserRole;
+import com.bsep.pki_system.service.AuthenticatedUserResolver;
+import com.bsep.pki_system.service.CacheStatisticsService;
+import com.bsep.pki_system.service.CertificateDerService;
+import com.bsep.pki_system.service.CertificateExportService;
 import com.bsep.pki_system.service.CertificateGeneratorService;
 import com.bsep.pki_system.service.CertificateService;
+import com.bsep.pki_system.service.CertificateValidityService;
+import com.bsep.pki_system.service.EEIssuanceTarget;
+import com.bsep.pki_system.service.IssuanceJobService;
+import com.bsep.pki_system.service.IssuanceQueueFullException;
+import com.bsep.pki_system.service.KeygenIssuanceService;
+import com.bsep.pki_system.service.KeyPairPool;
 import com.bsep.pki_system.service.KeystoreService;
-import com.bsep.pki_system.service.UserService;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
-
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
 import java.security.cert.X509Certificate;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.TimeZone;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 import com.bsep.pki_system.audit.AuditLogService;
 import jakarta.servlet.http.HttpServletRequest;
 import org.slf4j.Logger;
@@ -38,52 +80,167 @@ import org.slf4j.LoggerFactory;
 public class CertificateController {
 
     private final CertificateService certificateService;
-    private final UserService userService;
+    private final AuthenticatedUserResolver userResolver;
     private final CertificateGeneratorService certificateGeneratorService;
     private final KeystoreService keystoreService;
     private final AuditLogService auditLogService;
+    private final CertificateValidityService certificateValidityService;
+    private final KeyPairPool keyPairPool;
+    private final IssuanceJobService issuanceJobService;
+    private final CertificateDerService certificateDerService;
+    private final KeygenIssuanceService keygenIssuanceService;
+    private final CacheStatisticsService cacheStatisticsService;
+    private final CertificateExportService certificateExportService;
+    // NDJSON: jedan JSON objekat po redu (globalni ObjectMapper pise kompaktno)
+    private final ObjectMapper objectMapper;
+
+    public static final String APPLICATION_NDJSON = "application/x-ndjson";
+
+    private static final int ISSUANCE_RETRY_AFTER_SECONDS = 5;
 
     private static final Logger logger = LoggerFactory.getLogger(AuthController.class);
 
-    public CertificateController(CertificateService certificateService, UserService userService,
+    // Gornja granica broja sertifikata u jednom zahtevu za masovnu revokaciju
+    private static final int MAX_BULK_REVOCATION_SIZE = 5000;
+
+    public CertificateController(CertificateService certificateService, AuthenticatedUserResolver userResolver,
                                  CertificateGeneratorService certificateGeneratorService,
                                  KeystoreService keyStoreService,
-                                 AuditLogService auditLogService) {
+                                 AuditLogService auditLogService,
+                                 CertificateValidityService certificateValidityService,
+                                 KeyPairPool keyPairPool,
+                                 IssuanceJobService issuanceJobService,
+                                 CertificateDerService certificateDerService,
+                                 KeygenIssuanceService keygenIssuanceService,
+                                 CacheStatisticsService cacheStatisticsService,
+                                 CertificateExportService certificateExportService,
+                                 ObjectMapper objectMapper) {
         this.certificateService = certificateService;
-        this.userService = userService;
+        this.userResolver = userResolver;
         this.certificateGeneratorService = certificateGeneratorService;
         this.keystoreService = keyStoreService;
         this.auditLogService = auditLogService;
+        this.certificateValidityService = certificateValidityService;
+        this.keyPairPool = keyPairPool;
+        this.issuanceJobService = issuanceJobService;
+        this.certificateDerService = certificateDerService;
+        this.keygenIssuanceService = keygenIssuanceService;
+        this.cacheStatisticsService = cacheStatisticsService;
+        this.certificateExportService = certificateExportService;
+        this.objectMapper = objectMapper;
     }
 
     // GET - Prikaz svih sertifikata (za admina)
     @PreAuthorize("hasRole('ADMIN')")
     @GetMapping
-    public ResponseEntity<List<Certificate>> getAllCertificates() {
-        List<Certificate> certificates = certificateService.findAll();
+    public ResponseEntity<List<CertificateResponseDTO>> getAllCertificates() {
+        List<CertificateResponseDTO> certificates = certificateService.findAllResponses();
         return ResponseEntity.ok(certificates);
     }
 
 
 
+    // GET - Lista sertifikata po stranama (keyset paginacija) sa filterima; nextCursor se salje kao cursor
+    // za sledecu stranu. Sortiranje po id-u ili po (validTo, id). CA vidi svoju organizaciju, BASIC svoje.
+    @PreAuthorize("isAuthenticated()")
+    @GetMapping("/page")
+    public ResponseEntity<?> getCertificatePage(
+            @RequestParam(required = false) CertificateStatus status,
+            @RequestParam(required = false) CertificateType type,
+            @RequestParam(required = false) String organization,
+            @RequestParam(required = false) Long issuerId,
+            @RequestParam(required = false) Long ownerId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Date expiresAfter,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Date expiresBefore,
+            @RequestParam(defaultValue = "ID") CertificateListSort sort,
+            @RequestParam(defaultValue = "asc") String direction,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size,
+            @AuthenticationPrincipal UserPrincipal userPrincipal) {
+        try {
+            UserPrincipal user = userResolver.resolvePrincipal(userPrincipal)
+                    .orElseThrow(() -> new RuntimeException("Authenticated user not found"));
+
+            CertificateListFilter filter = new CertificateListFilter(status, type, organization, issuerId, ownerId,
+                    expiresAfter, expiresBefore, null);
+            CertificatePageDTO page = certificateService.findPage(filter, sort, "desc".equalsIgnoreCase(direction),
+                    cursor, size, user);
+            return ResponseEntity.ok(page);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+        } catch (Exception e) {
+            logger.error("Error message", e);
+            return ResponseEntity.status(500).body(Map.of("message", "Error listing certificates"));
+        }
+    }
+
+    // GET - Pretraga sertifikata po subject-u (CN, O, OU, E), SAN-u (DNS, IP, email, URI) i serijskom broju.
+    // match: EXACT (za DNS pokriva i wildcard, npr. *.example.com), PREFIX ili CONTAINS; field bez vrednosti - sva imena.
+    // Rezultat i stranicenje kao za /page, uz ista ogranicenja vidljivosti.
+    @PreAuthorize("isAuthenticated()")
+    @GetMapping("/search")
+    public ResponseEntity<?> searchCertificates(
+            @RequestParam String q,
+            @RequestParam(required = false) CertificateNameType field,
+            @RequestParam(defaultValue = "EXACT") CertificateSearchMatch match,
+            @RequestParam(required = false) CertificateStatus status,
+            @RequestParam(required = false) CertificateType type,
+            @RequestParam(defaultValue = "ID") CertificateListSort sort,
+            @RequestParam(defaultValue = "asc") String direction,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size,
+            @AuthenticationPrincipal UserPrincipal userPrincipal) {
+        try {
+            UserPrincipal user = userResolver.resolvePrincipal(userPrincipal)
+                    .orElseThrow(() -> new RuntimeException("Authenticated user not found"));
+
+            CertificateListFilter filter = new CertificateListFilter();
+            filter.setStatus(status);
+            filter.setType(type);
+            filter.setSearch(new CertificateSearchQuery(q, field, match));
+            CertificatePageDTO page = certificateService.findPage(filter, sort, "desc".equalsIgnoreCase(direction),
+                    cursor, size, user);
+            return ResponseEntity.ok(page);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+        } catch (Exception e) {
+            logger.error("Error message", e);
+            return ResponseEntity.status(500).body(Map.of("message", "Error searching certificates"));
+        }
+    }
+
+    // GET - Stanje pool-a unapred generisanih ključeva (dubina, pogoci, vreme čekanja)
+    @PreAuthorize("hasRole('ADMIN')")
+    @GetMapping("/key-pool")
+    public ResponseEntity<List<KeyPairPoolStatsDTO>> getKeyPairPoolStats() {
+        return ResponseEntity.ok(keyPairPool.getStats());
+    }
+
+    // GET - Second-level i query cache (sertifikati, korisnici, šabloni): pogoci, promasaji, velicina regija
+    @PreAuthorize("hasRole('ADMIN')")
+    @GetMapping("/cache-stats")
+    public ResponseEntity<CacheStatisticsDTO> getCacheStatistics() {
+        return ResponseEntity.ok(cacheStatisticsService.getStatistics());
+    }
+
     // GET - Sertifikati po tipu
     @PreAuthorize("hasRole('ADMIN')")
     @GetMapping("/type/{type}")
-    public ResponseEntity<List<Certificate>> getCertificatesByType(@PathVariable CertificateType type) {
-        List<Certificate> certificates = certificateService.findByType(type);
+    public ResponseEntity<List<CertificateResponseDTO>> getCertificatesByType(@PathVariable CertificateType type) {
+        List<CertificateResponseDTO> certificates = certificateService.findResponsesByType(type);
         return ResponseEntity.ok(certificates);
     }
 
     // GET - Sertifikati trenutno ulogovanog korisnika
     @PreAuthorize("isAuthenticated()")
     @GetMapping("/my-certificates")
-    public ResponseEntity<List<Certificate>> getMyCertificates(@AuthenticationPrincipal UserPrincipal userPrincipal) {
+    public ResponseEntity<List<CertificateResponseDTO>> getMyCertificates(@AuthenticationPrincipal UserPrincipal userPrincipal) {
         try {
             // Prvo nađi User entitet
-            User user = userService.findByEmail(userPrincipal.getEmail())
+            User user = userResolver.resolve(userPrincipal)
                     .orElseThrow(() -> new RuntimeException("Authenticated user not found"));
 
-            List<Certificate> certificates = certificateService.findByOwner(user); // Sada radi
+            List<CertificateResponseDTO> certificates = certificateService.findResponsesByOwner(user);
             return ResponseEntity.ok(certificates);
         } catch (Exception e) {
             return ResponseEntity.status(404).build();
@@ -98,17 +255,31 @@ public class CertificateController {
         return ResponseEntity.ok(Map.of("valid", isValid));
     }
 
+    // POST - Paketna provera validnosti (id-evi i/ili serijski brojevi)
+    @PreAuthorize("isAuthenticated()")
+    @PostMapping("/validity")
+    public ResponseEntity<?> validateCertificates(@RequestBody CertificateValidityRequestDTO request) {
+        try {
+            Map<String, CertificateValidityDTO> results =
+                    certificateValidityService.validateBatch(request.getIds(), request.getSerialNumbers());
+            return ResponseEntity.ok(Map.of("results", results, "count", results.size()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
     // POST - Revokacija(povlacenje) sertifikata
     @PostMapping("/{id}/revoke")
     @PreAuthorize("isAuthenticated()")
     public ResponseEntity<?> revokeCertificate(
             @PathVariable Long id,
+            @RequestParam(defaultValue = "false") boolean cascade,
             @RequestBody Map<String, String> request,
             @AuthenticationPrincipal UserPrincipal userPrincipal,
             HttpServletRequest httpRequest) {
         try {
-            // Dohvatamo kompletan User objekat iz baze
-            User user = userService.findByEmail(userPrincipal.getEmail())
+            // Id, uloga i organizacija iz tokena (User samo za starije tokene)
+            UserPrincipal user = userResolver.resolvePrincipal(userPrincipal)
                     .orElseThrow(() -> new RuntimeException("Authenticated user not found"));
 
             Certificate certificate = certificateService.findById(id)
@@ -136,6 +307,24 @@ public class CertificateController {
                         .body(Map.of("message", "Invalid revocation reason"));
             }
 
+            if (cascade) {
+                RevocationSummaryDTO summary = certificateService.revokeSubtree(id, reason);
+
+                // AUDIT LOG: Jedan zbirni događaj za celo podstablo
+                auditLogService.logSecurityEvent(AuditLogService.EVENT_CERTIFICATE_REVOKED,
+                        "Certificate subtree revoked successfully", true,
+                        "certificateId=" + id + ", serialNumber=" + certificate.getSerialNumber() +
+                                ", reason=" + reason + ", revokedCount=" + summary.getRevokedCount() +
+                                ", alreadyRevokedCount=" + summary.getAlreadyRevokedCount() +
+                                ", regeneratedCrls=" + summary.getRegeneratedCrlIssuers().size() +
+                                ", revokedBy=" + user.getEmail(), httpRequest);
+
+                return ResponseEntity.ok(Map.of(
+                        "message", "Certificate subtree revoked successfully",
+                        "summary", summary
+                ));
+            }
+
             certificateService.revokeCertificate(id, reason);
 
             // AUDIT LOG: Uspešna revokacija sertifikata
@@ -161,7 +350,115 @@ public class CertificateController {
         }
     }
 
-    private boolean canUserRevokeCertificate(Certificate certificate, User user) {
+    // POST - Masovna revokacija (npr. posle kompromitacije ključa kod klijenta)
+    @PostMapping("/revoke")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<?> revokeCertificates(
+            @RequestBody BulkRevocationRequestDTO request,
+            @AuthenticationPrincipal UserPrincipal userPrincipal,
+            HttpServletRequest httpRequest) {
+        try {
+            // Korisnika dohvatamo jednom za ceo zahtev
+            UserPrincipal user = userResolver.resolvePrincipal(userPrincipal)
+                    .orElseThrow(() -> new RuntimeException("Authenticated user not found"));
+
+            List<Long> ids = request.getIds() != null ? request.getIds() : List.of();
+            List<String> serialNumbers = request.getSerialNumbers() != null ? request.getSerialNumbers() : List.of();
+            if (ids.isEmpty() && serialNumbers.isEmpty()) {
+                return ResponseEntity.badRequest().body(Map.of("message", "No certificates specified"));
+            }
+            if (ids.size() + serialNumbers.size() > MAX_BULK_REVOCATION_SIZE) {
+                return ResponseEntity.badRequest().body(Map.of("message",
+                        "At most " + MAX_BULK_REVOCATION_SIZE + " certificates can be revoked in one request"));
+            }
+
+            String reason = request.getReason();
+            if (!isValidRevocationReason(reason)) {
+                // AUDIT LOG: Nevalidan razlog revokacije
+                auditLogService.logSecurityEvent(AuditLogService.EVENT_CERTIFICATE_REVOKED,
+                        "Invalid bulk revocation reason", false,
+                        "requested=" + (ids.size() + serialNumbers.size()) + ", reason=" + reason, httpRequest);
+
+                return ResponseEntity.badRequest()
+                        .body(Map.of("message", "Invalid revocation reason"));
+            }
+
+            // Svi sertifikati se učitavaju sa dva upita i autorizuju u jednom prolazu
+            Map<Long, Certificate> byId = certificateService.findAllById(ids).stream()
+                    .collect(Collectors.toMap(Certificate::getId, Function.identity(), (a, b) -> a));
+            Map<String, Certificate> bySerial = certificateService.findBySerialNumbers(serialNumbers).stream()
+                    .collect(Collectors.toMap(Certificate::getSerialNumber, Function.identity(), (a, b) -> a));
+
+            Map<String, BulkRevocationItemDTO> results = new LinkedHashMap<>();
+            Map<Long, Certificate> authorized = new LinkedHashMap<>();
+            List<Long> denied = new ArrayList<>();
+            for (Long certificateId : ids) {
+                results.put(String.valueOf(certificateId),
+                        authorizeBulkRevocationItem(byId.get(certificateId), certificateId, null, user, authorized, denied));
+            }
+            for (String serialNumber : serialNumbers) {
+                results.put(serialNumber,
+                        authorizeBulkRevocationItem(bySerial.get(serialNumber), null, serialNumber, user, authorized, denied));
+            }
+
+            if (!denied.isEmpty()) {
+                // AUDIT LOG: Neovlašćen pokušaj revokacije (jedan događaj za sve odbijene stavke)
+                auditLogService.logSecurityEvent(AuditLogService.EVENT_CERTIFICATE_REVOKED,
+                        "Unauthorized bulk revocation attempt", false,
+                        "deniedCount=" + denied.size() + ", certificateIds=" + denied +
+                                ", userId=" + user.getId() + ", userRole=" + user.getRole(), httpRequest);
+            }
+
+            RevocationSummaryDTO summary = certificateService.revokeCertificates(authorized.values(), reason);
+
+            // AUDIT LOG: Zbirni događaj za masovnu revokaciju
+            auditLogService.logSecurityEvent(AuditLogService.EVENT_CERTIFICATE_REVOKED,
+                    "Bulk revocation completed", true,
+                    "requested=" + results.size() + ", revokedCount=" + summary.getRevokedCount() +
+                            ", alreadyRevokedCount=" + summary.getAlreadyRevokedCount() +
+                            ", deniedCount=" + denied.size() + ", reason=" + reason +
+                            ", regeneratedCrls=" + summary.getRegeneratedCrlIssuers().size() +
+                            ", revokedBy=" + user.getEmail(), httpRequest);
+
+            return ResponseEntity.ok(Map.of(
+                    "message", "Bulk revocation completed",
+                    "results", results,
+                    "summary", summary
+            ));
+
+        } catch (Exception e) {
+            // AUDIT LOG: Greška pri masovnoj revokaciji
+            auditLogService.logSecurityEvent(AuditLogService.EVENT_CERTIFICATE_REVOKED,
+                    "Bulk revocation failed", false, "error=" + e.getMessage(), httpRequest);
+
+            logger.error("Error message", e);
+            return ResponseEntity.status(500)
+                    .body(Map.of("message", "Error revoking certificates: " + e.getMessage()));
+        }
+    }
+
+    // Autorizacija jedne stavke masovne revokacije - ista pravila kao za pojedinačnu (canUserRevokeCertificate)
+    private BulkRevocationItemDTO authorizeBulkRevocationItem(Certificate certificate, Long requestedId,
+                                                              String requestedSerialNumber, UserPrincipal user,
+                                                              Map<Long, Certificate> authorized, List<Long> denied) {
+        if (certificate == null) {
+            return new BulkRevocationItemDTO(requestedId, requestedSerialNumber, BulkRevocationItemDTO.RESULT_NOT_FOUND);
+        }
+        if (!canUserRevokeCertificate(certificate, user)) {
+            denied.add(certificate.getId());
+            return new BulkRevocationItemDTO(certificate.getId(), certificate.getSerialNumber(),
+                    BulkRevocationItemDTO.RESULT_FORBIDDEN);
+        }
+        if (certificate.getStatus() == CertificateStatus.REVOKED) {
+            return new BulkRevocationItemDTO(certificate.getId(), certificate.getSerialNumber(),
+                    BulkRevocationItemDTO.RESULT_ALREADY_REVOKED);
+        }
+        authorized.put(certificate.getId(), certificate);
+        return new BulkRevocationItemDTO(certificate.getId(), certificate.getSerialNumber(),
+                BulkRevocationItemDTO.RESULT_REVOKED);
+    }
+
+    private boolean canUserRevokeCertificate(Certificate certificate, UserPrincipal user) {
         // ADMIN može sve
         if (user.getRole() == UserRole.ADMIN) return true;
 
@@ -197,14 +494,13 @@ public class CertificateController {
     // GET - Pojedinačni sertifikat
     @PreAuthorize("isAuthenticated()")
     @GetMapping("/{id}")
-    public ResponseEntity<Certificate> getCertificate(@PathVariable Long id,
+    public ResponseEntity<CertificateResponseDTO> getCertificate(@PathVariable Long id,
                                                       @AuthenticationPrincipal UserPrincipal userPrincipal,
                                                       HttpServletRequest httpRequest) {
         try {
-            // Dohvatamo kompletan User objekat iz baze
-            User user = userService.findByEmail(userPrincipal.getEmail())
+            // Id, uloga i organizacija iz tokena (User samo za starije tokene)
+            UserPrincipal user = userResolver.resolvePrincipal(userPrincipal)
                     .orElseThrow(() -> new RuntimeException("Authenticated user not found"));
-            // Sada provera autorizacije koristi pravi User entitet
             if (!certificateService.canUserAccessCertificate(id, user)) {
                 // AUDIT LOG: Neovlašćen pristup sertifikatu
                 auditLogService.logSecurityEvent(AuditLogService.EVENT_CERTIFICATE_VIEWED,
@@ -213,7 +509,7 @@ public class CertificateController {
 
                 return ResponseEntity.status(403).build();
             }
-            return certificateService.findById(id)
+            return certificateService.findResponseById(id)
                     .map(ResponseEntity::ok)
                     .orElse(ResponseEntity.notFound().build());
         } catch (Exception e) {
@@ -226,11 +522,12 @@ public class CertificateController {
     @PostMapping("/root")
     public ResponseEntity<?> createRootCertificate(
             @Valid @RequestBody CreateCertificateDTO request,
+            @RequestParam(defaultValue = "false") boolean async,
             @AuthenticationPrincipal UserPrincipal userPrincipal,
             HttpServletRequest httpRequest) {
 
         try {
-            User user = userService.findByEmail(userPrincipal.getEmail())
+            User user = userResolver.resolve(userPrincipal)
                     .orElseThrow(() -> new RuntimeException("Authenticated user not found"));
 
             // Validacija datuma
@@ -246,6 +543,11 @@ public class CertificateController {
                 ));
             }
 
+            // Asinhrono izdavanje - zahtev ide u red poslova, odgovor 202 sa id-em posla
+            if (async) {
+                return queueIssuance(IssuanceJobType.ROOT, request, user, httpRequest);
+            }
+
             // Generisanje Root sertifikata
             Certificate certificate = certificateGeneratorService.generateRootCertificate(request, user);
 
@@ -280,6 +582,7 @@ public class CertificateController {
     @PostMapping("/intermediate")
     public ResponseEntity<?> createIntermediateCertificate(
             @Valid @RequestBody CreateCertificateDTO request,
+            @RequestParam(defaultValue = "false") boolean async,
             @AuthenticationPrincipal UserPrincipal userPrincipal,
             HttpServletRequest httpRequest) {
 
@@ -292,7 +595,7 @@ public class CertificateController {
             }
 
             // 2. Pronalazak korisnika koji pravi sertifikat
-            User owner = userService.findByEmail(userPrincipal.getEmail())
+            User owner = userResolver.resolve(userPrincipal)
                     .orElseThrow(() -> new RuntimeException("Authenticated user not found"));
 
             // 3. Validacija datuma
@@ -309,6 +612,10 @@ public class CertificateController {
                 ));
             }
 
+            if (async) {
+                return queueIssuance(IssuanceJobType.INTERMEDIATE, request, owner, httpRequest);
+            }
+
             // 5. Validacija izdavaoca i generisanje sertifikata
             // Ovde pozivamo novu metodu iz CertificateService koja će obaviti sve
             Certificate savedCertificate = certificateService.createAndSaveIntermediateCertificate(request, owner);
@@ -345,11 +652,38 @@ public class CertificateController {
         }
     }
 
+    // Upis zahteva u red poslova za izdavanje; pun red -> 429 sa Retry-After
+    private ResponseEntity<?> queueIssuance(IssuanceJobType type, Object request, User user,
+                                            HttpServletRequest httpRequest) throws Exception {
+        try {
+            IssuanceJob job = issuanceJobService.submit(type, request, user);
+
+            // AUDIT LOG: Zahtev za izdavanje stavljen u red
+            auditLogService.logSecurityEvent(AuditLogService.EVENT_CERTIFICATE_ISSUED,
+                    "Certificate issuance queued", true,
+                    "jobId=" + job.getId() + ", type=" + type, httpRequest);
+
+            return ResponseEntity.accepted().body(Map.of(
+                    "message", "Certificate issuance queued",
+                    "jobId", job.getId(),
+                    "status", job.getStatus()
+            ));
+        } catch (IssuanceQueueFullException e) {
+            auditLogService.logSecurityEvent(AuditLogService.EVENT_CERTIFICATE_ISSUED,
+                    "Certificate issuance rejected", false,
+                    "type=" + type + ", error=" + e.getMessage(), httpRequest);
+
+            return ResponseEntity.status(429)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(ISSUANCE_RETRY_AFTER_SECONDS))
+                    .body(Map.of("message", e.getMessage()));
+        }
+    }
+
     // GET - Svi Root sertifikati
     @PreAuthorize("hasRole('ADMIN')")
     @GetMapping("/root")
-    public ResponseEntity<List<Certificate>> getAllRootCertificates() {
-        List<Certificate> rootCertificates = certificateService.findByType(CertificateType.ROOT);
+    public ResponseEntity<List<CertificateResponseDTO>> getAllRootCertificates() {
+        List<CertificateResponseDTO> rootCertificates = certificateService.findResponsesByType(CertificateType.ROOT);
         return ResponseEntity.ok(rootCertificates);
     }
 
@@ -360,7 +694,7 @@ public class CertificateController {
                                                  @AuthenticationPrincipal UserPrincipal userPrincipal,
                                                  HttpServletRequest httpRequest) {
         try {
-            User user = userService.findByEmail(userPrincipal.getEmail())
+            UserPrincipal user = userResolver.resolvePrincipal(userPrincipal)
                     .orElseThrow(() -> new RuntimeException("Authenticated user not found"));
             
             // Provjera autorizacije
@@ -376,11 +710,10 @@ public class CertificateController {
             Certificate certificate = certificateService.findById(id)
                     .orElseThrow(() -> new RuntimeException("Certificate not found"));
 
-            // 3. Izvlačenje stvarnog X509 sertifikata iz Keystore-a
-            String alias = "CA_" + certificate.getSerialNumber();
-            X509Certificate x509Cert = (X509Certificate) certificateGeneratorService.getKeystoreService().getCertificate(alias);
+            // 3. Izvlačenje stvarnog X509 sertifikata (DER iz baze)
+            X509Certificate x509Cert = certificateDerService.getX509(certificate);
             if (x509Cert == null) {
-                throw new RuntimeException("X509 Certificate not found in keystore for alias: " + alias);
+                throw new RuntimeException("X509 Certificate not found for serial: " + certificate.getSerialNumber());
             }
             // Generisanje PEM formata sertifikata
             String pemContent = generatePemContent(x509Cert);
@@ -436,13 +769,13 @@ public class CertificateController {
 
     @PreAuthorize("hasAnyRole('ADMIN', 'CA', 'BASIC')")
     @GetMapping("/issuers")
-    public ResponseEntity<List<Certificate>> getAvailableIssuers(@AuthenticationPrincipal UserPrincipal userPrincipal) {
+    public ResponseEntity<List<CertificateResponseDTO>> getAvailableIssuers(@AuthenticationPrincipal UserPrincipal userPrincipal) {
         try {
-            // Pronalazimo kompletan User objekat da bismo znali njegovu organizaciju
-            User user = userService.findByEmail(userPrincipal.getEmail())
+            // Organizacija je u tokenu - User se ucitava samo za starije tokene
+            UserPrincipal user = userResolver.resolvePrincipal(userPrincipal)
                     .orElseThrow(() -> new RuntimeException("Authenticated user not found"));
 
-            List<Certificate> issuers = certificateService.findValidIssuersForUser(user);
+            List<CertificateResponseDTO> issuers = certificateService.findValidIssuerResponsesForUser(user);
             return ResponseEntity.ok(issuers);
 
         } catch (Exception e) {
@@ -452,12 +785,12 @@ public class CertificateController {
     //prikaz za CA korisnike
     @PreAuthorize("hasAnyRole('ADMIN', 'CA')")
     @GetMapping("/my-chain")
-    public ResponseEntity<List<Certificate>> getMyCertificateChain(@AuthenticationPrincipal UserPrincipal userPrincipal) {
+    public ResponseEntity<List<CertificateResponseDTO>> getMyCertificateChain(@AuthenticationPrincipal UserPrincipal userPrincipal) {
         try {
-            User user = userService.findByEmail(userPrincipal.getEmail())
+            UserPrincipal user = userResolver.resolvePrincipal(userPrincipal)
                     .orElseThrow(() -> new RuntimeException("Authenticated user not found"));
 
-            List<Certificate> chainCertificates = certificateService.findCertificateChainForUser(user);
+            List<CertificateResponseDTO> chainCertificates = certificateService.findCertificateChainResponsesForUser(user);
             return ResponseEntity.ok(chainCertificates);
 
         } catch (Exception e) {
@@ -465,15 +798,55 @@ public class CertificateController {
         }
     }
 
+    // GET - Izvoz inventara sertifikata (NDJSON ili CSV) kao fajl; isti skup kao /my-chain za CA i ADMIN,
+    // odnosno sopstveni sertifikati za BASIC. Redovi se citaju iz kursora baze i odmah salju klijentu.
+    @PreAuthorize("isAuthenticated()")
+    @GetMapping("/export")
+    public ResponseEntity<?> exportCertificates(@RequestParam(defaultValue = "NDJSON") CertificateExportFormat format,
+                                                @AuthenticationPrincipal UserPrincipal userPrincipal,
+                                                HttpServletRequest httpRequest) {
+        UserPrincipal user;
+        try {
+            user = userResolver.resolvePrincipal(userPrincipal)
+                    .orElseThrow(() -> new RuntimeException("Authenticated user not found"));
+        } catch (Exception e) {
+            return ResponseEntity.status(500).body(Map.of("message", e.getMessage()));
+        }
+
+        StreamingResponseBody body = outputStream -> {
+            try {
+                long exported = certificateExportService.export(user, format, outputStream);
+
+                auditLogService.logSecurityEvent(AuditLogService.EVENT_CERTIFICATE_VIEWED,
+                        "Certificate inventory exported", true,
+                        "format=" + format + ", exported=" + exported, httpRequest);
+            } catch (Exception e) {
+                // Fajl je vec poceo da stize - prekid veze je jedini nacin da klijent vidi gresku
+                auditLogService.logSecurityEvent(AuditLogService.EVENT_CERTIFICATE_VIEWED,
+                        "Certificate inventory export failed", false,
+                        "format=" + format + ", error=" + e.getMessage(), httpRequest);
+                logger.error("Error message", e);
+                throw e instanceof IOException ioException ? ioException : new IOException("Certificate export failed", e);
+            }
+        };
+
+        boolean csv = format == CertificateExportFormat.CSV;
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(csv ? "text/csv" : APPLICATION_NDJSON))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=certificates." + (csv ? "csv" : "ndjson"))
+                .body(body);
+    }
+
     @PreAuthorize("hasAnyRole('ADMIN', 'BASIC', 'CA')")
     @PostMapping("/end-entity/csr")
     public ResponseEntity<?> createEECertificateFromCsr(
             @Valid @RequestBody CreateEECsrRequestDTO request, // 🔥 Korišćenje novog DTO-a
+            @RequestParam(defaultValue = "false") boolean async,
             @AuthenticationPrincipal UserPrincipal userPrincipal,
             HttpServletRequest httpRequest) {
 
         try {
-            User owner = userService.findByEmail(userPrincipal.getEmail())
+            User owner = userResolver.resolve(userPrincipal)
                     .orElseThrow(() -> new RuntimeException("Authenticated user not found"));
 
             // Jackson je automatski parsirao sva polja u ispravne tipove (String, Date, Long)
@@ -492,9 +865,13 @@ public class CertificateController {
                 return ResponseEntity.badRequest().body(Map.of("message", "Valid to date must be after today's date."));
             }
 
+            if (async) {
+                return queueIssuance(IssuanceJobType.END_ENTITY_CSR, request, owner, httpRequest);
+            }
+
             // Poziv servisa za generisanje i čuvanje EE sertifikata
             Certificate savedCertificate = certificateService.createAndSaveEECertificateFromCsr(
-                    csrPem, validFrom, validTo, issuerCertificateId, owner);
+                    csrPem, validFrom, validTo, issuerCertificateId, request.getTemplateId(), owner);
 
             // AUDIT LOG: EE sertifikat kreiran iz CSR-a
             auditLogService.logSecurityEvent(AuditLogService.EVENT_CERTIFICATE_ISSUED,
@@ -531,15 +908,229 @@ public class CertificateController {
         }
     }
 
+    // POST - Paketno izdavanje EE sertifikata iz više CSR-ova (isti izdavalac i datum isteka)
+    @PreAuthorize("hasAnyRole('ADMIN', 'BASIC', 'CA')")
+    @PostMapping("/end-entity/csr/batch")
+    public ResponseEntity<?> createEECertificatesFromCsrs(
+            @Valid @RequestBody BatchCsrRequestDTO request,
+            @AuthenticationPrincipal UserPrincipal userPrincipal,
+            HttpServletRequest httpRequest) {
+
+        try {
+            User owner = userResolver.resolve(userPrincipal)
+                    .orElseThrow(() -> new RuntimeException("Authenticated user not found"));
+
+            Date validFrom = new Date();
+            if (request.getValidTo().before(validFrom)) {
+                return ResponseEntity.badRequest().body(Map.of("message", "Valid to date must be after today's date."));
+            }
+
+            List<BatchCsrItemDTO> results = certificateService.createAndSaveEECertificatesFromCsrs(
+                    request.getCsrPems(), validFrom, request.getValidTo(), request.getIssuerCertificateId(),
+                    request.getTemplateId(), owner);
+            long issuedCount = results.stream().filter(item -> item.getError() == null).count();
+
+            // AUDIT LOG: Jedan zbirni događaj za ceo paket
+            auditLogService.logSecurityEvent(AuditLogService.EVENT_CERTIFICATE_ISSUED,
+                    "End-Entity certificates created from CSR batch", issuedCount > 0,
+                    "issuerId=" + request.getIssuerCertificateId() + ", requested=" + results.size() +
+                            ", issued=" + issuedCount, httpRequest);
+
+            return ResponseEntity.ok(Map.of(
+                    "message", "Issued " + issuedCount + " of " + results.size() + " certificates",
+                    "issuedCount", issuedCount,
+                    "failedCount", results.size() - issuedCount,
+                    "results", results
+            ));
+
+        } catch (IllegalArgumentException e) {
+            auditLogService.logSecurityEvent(AuditLogService.EVENT_CERTIFICATE_ISSUED,
+                    "End-Entity certificate batch failed", false,
+                    "error=" + e.getMessage(), httpRequest);
+
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+        } catch (Exception e) {
+            auditLogService.logSecurityEvent(AuditLogService.EVENT_CERTIFICATE_ISSUED,
+                    "End-Entity certificate batch error", false,
+                    "error=" + e.getMessage(), httpRequest);
+            logger.error("Error message", e);
+
+            return ResponseEntity.status(500).body(Map.of(
+                    "message", "Error creating End-Entity certificates: " + e.getMessage()
+            ));
+        }
+    }
+
+    // POST - Izdavanje iz PEM paketa (hiljade CSR-ova u jednom fajlu, multipart upload).
+    // Paket se cita inkrementalno, a rezultat po CSR-u se vraca kao NDJSON cim je deo paketa izdat;
+    // poslednji red je zbir. Izdavalac i šablon se proveravaju pre citanja paketa (greska -> 400).
+    @PreAuthorize("hasAnyRole('ADMIN', 'BASIC', 'CA')")
+    @PostMapping(value = "/end-entity/csr/bundle", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<?> createEECertificatesFromCsrBundle(
+            @RequestParam("file") MultipartFile file,
+            @RequestParam Long issuerCertificateId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Date validTo,
+            @RequestParam(required = false) Long templateId,
+            @AuthenticationPrincipal UserPrincipal userPrincipal,
+            HttpServletRequest httpRequest) {
+
+        EEIssuanceTarget target;
+        User owner;
+        Date validFrom = new Date();
+        try {
+            owner = userResolver.resolve(userPrincipal)
+                    .orElseThrow(() -> new RuntimeException("Authenticated user not found"));
+
+            if (file.isEmpty()) {
+                return ResponseEntity.badRequest().body(Map.of("message", "CSR bundle file is empty."));
+            }
+            if (validTo.before(validFrom)) {
+                return ResponseEntity.badRequest().body(Map.of("message", "Valid to date must be after today's date."));
+            }
+
+            target = certificateService.resolveEEIssuanceTarget(issuerCertificateId, templateId, validFrom, validTo, owner);
+        } catch (IllegalArgumentException e) {
+            auditLogService.logSecurityEvent(AuditLogService.EVENT_CERTIFICATE_ISSUED,
+                    "End-Entity certificate bundle failed", false,
+                    "error=" + e.getMessage(), httpRequest);
+
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+        }
+
+        StreamingResponseBody body = outputStream -> {
+            long[] counts = new long[2]; // [izdato, neuspesno]
+            Map<String, Object> summary;
+            try (Reader bundle = new InputStreamReader(file.getInputStream(), StandardCharsets.US_ASCII)) {
+                certificateService.createAndSaveEECertificatesFromCsrBundle(bundle, validFrom, validTo, target, owner,
+                        results -> {
+                            try {
+                                for (BatchCsrItemDTO item : results) {
+                                    counts[item.getError() == null ? 0 : 1]++;
+                                    writeNdjson(outputStream, item);
+                                }
+                                outputStream.flush();
+                            } catch (IOException e) {
+                                throw new UncheckedIOException(e);
+                            }
+                        });
+                summary = Map.of(
+                        "message", "Issued " + counts[0] + " of " + (counts[0] + counts[1]) + " certificates",
+                        "issuedCount", counts[0],
+                        "failedCount", counts[1]);
+            } catch (UncheckedIOException e) {
+                // Klijent je prekinuo vezu - nema kome da se javi
+                logger.error("Error message", e);
+                throw e.getCause();
+            } catch (Exception e) {
+                logger.error("Error message", e);
+                summary = Map.of(
+                        "message", "CSR bundle processing stopped: " + e.getMessage(),
+                        "issuedCount", counts[0],
+                        "failedCount", counts[1],
+                        "error", String.valueOf(e.getMessage()));
+            }
+
+            // AUDIT LOG: Jedan zbirni događaj za ceo paket
+            auditLogService.logSecurityEvent(AuditLogService.EVENT_CERTIFICATE_ISSUED,
+                    "End-Entity certificates created from CSR bundle", counts[0] > 0,
+                    "issuerId=" + issuerCertificateId + ", file=" + file.getOriginalFilename() +
+                            ", issued=" + counts[0] + ", failed=" + counts[1], httpRequest);
+
+            writeNdjson(outputStream, summary);
+            outputStream.flush();
+        };
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(APPLICATION_NDJSON))
+                .body(body);
+    }
+
+    // POST - Masovno izdavanje sa kljucevima generisanim na serveru (IoT provizionisanje), po šablonu.
+    // Telo zahteva je CSV (text/csv) ili JSON niz / NDJSON subjekata; odgovor je ZIP sa PKCS#12 fajlom
+    // po sertifikatu, manifest.csv (serijski broj, fajl ili greska po stavci) i passwords.csv.p7m sa
+    // generisanim lozinkama, sifrovan tajnom iz X-Keygen-Secret zaglavlja (lozinke nikad nisu otvorene u ZIP-u).
+    // Izdavalac je CA iz šablona; šablon mora pripadati CA korisniku.
+    @PreAuthorize("hasRole('CA')")
+    @PostMapping(value = "/end-entity/keygen/bulk", consumes = {"text/csv", MediaType.APPLICATION_JSON_VALUE, APPLICATION_NDJSON})
+    public ResponseEntity<?> createEECertificatesWithServerKeys(
+            @RequestParam Long templateId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Date validTo,
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+            @RequestHeader(value = "X-Keygen-Secret", required = false) String passwordsSecret,
+            @AuthenticationPrincipal UserPrincipal userPrincipal,
+            HttpServletRequest httpRequest) {
+
+        if (passwordsSecret == null || passwordsSecret.length() < KeygenIssuanceService.MIN_PASSWORDS_SECRET_LENGTH) {
+            return ResponseEntity.badRequest().body(Map.of("message",
+                    "X-Keygen-Secret header must have at least " + KeygenIssuanceService.MIN_PASSWORDS_SECRET_LENGTH +
+                            " characters."));
+        }
+
+        EEIssuanceTarget target;
+        User owner;
+        Date validFrom = new Date();
+        try {
+            owner = userResolver.resolve(userPrincipal)
+                    .orElseThrow(() -> new RuntimeException("Authenticated user not found"));
+
+            if (validTo.before(validFrom)) {
+                return ResponseEntity.badRequest().body(Map.of("message", "Valid to date must be after today's date."));
+            }
+
+            target = certificateService.resolveTemplateIssuanceTarget(templateId, validFrom, validTo, owner);
+        } catch (IllegalArgumentException e) {
+            auditLogService.logSecurityEvent(AuditLogService.EVENT_CERTIFICATE_ISSUED,
+                    "Server-side keygen issuance failed", false,
+                    "templateId=" + templateId + ", error=" + e.getMessage(), httpRequest);
+
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+        }
+
+        boolean csv = MediaType.parseMediaType(contentType).isCompatibleWith(MediaType.parseMediaType("text/csv"));
+        StreamingResponseBody body = outputStream -> {
+            try {
+                KeygenIssuanceService.KeygenSummary summary = keygenIssuanceService.writeZip(
+                        keygenIssuanceService.readSubjects(httpRequest.getInputStream(), csv),
+                        validFrom, validTo, target, owner, passwordsSecret.toCharArray(), outputStream);
+
+                // AUDIT LOG: Jedan zbirni događaj za ceo zahtev
+                auditLogService.logSecurityEvent(AuditLogService.EVENT_CERTIFICATE_ISSUED,
+                        "End-Entity certificates created with server-side keys", summary.issuedCount() > 0,
+                        "templateId=" + templateId + ", issuerId=" + target.issuerCertificate().getId() +
+                                ", issued=" + summary.issuedCount() + ", failed=" + summary.failedCount(), httpRequest);
+            } catch (IOException e) {
+                logger.error("Error message", e);
+                throw e;
+            } catch (Exception e) {
+                // ZIP je vec poceo da stize - prekid veze je jedini nacin da klijent vidi gresku
+                auditLogService.logSecurityEvent(AuditLogService.EVENT_CERTIFICATE_ISSUED,
+                        "Server-side keygen issuance error", false,
+                        "templateId=" + templateId + ", error=" + e.getMessage(), httpRequest);
+                logger.error("Error message", e);
+                throw new IOException("Server-side keygen issuance failed", e);
+            }
+        };
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/zip"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=certificates.zip")
+                .body(body);
+    }
+
+    private void writeNdjson(OutputStream outputStream, Object value) throws IOException {
+        outputStream.write(objectMapper.writeValueAsBytes(value));
+        outputStream.write('\n');
+    }
+
     @PreAuthorize("hasAnyRole('BASIC')")
     @GetMapping("/end-entity")
-    public ResponseEntity<List<Certificate>> getMyEESertificates(@AuthenticationPrincipal UserPrincipal userPrincipal) {
-        User user = userService.findByEmail(userPrincipal.getEmail())
+    public ResponseEntity<List<CertificateResponseDTO>> getMyEESertificates(@AuthenticationPrincipal UserPrincipal userPrincipal) {
+        User user = userResolver.resolve(userPrincipal)
                 .orElseThrow(() -> new RuntimeException("Authenticated user not found"));
 
         // Vraća sve sertifikate gde je 'owner' trenutni korisnik i tip je END_ENTITY
-        // Pretpostavljamo da CertificateService ima findByOwnerIdAndType metodu.
-        List<Certificate> certificates = certificateService.findByOwnerIdAndType(user.getId(), CertificateType.END_ENTITY);
+        List<CertificateResponseDTO> certificates =
+                certificateService.findResponsesByOwnerIdAndType(user.getId(), CertificateType.END_ENTITY);
         return ResponseEntity.ok(certificates);
     }
 
@@ -549,7 +1140,7 @@ public class CertificateController {
                                                         @AuthenticationPrincipal UserPrincipal userPrincipal,
                                                         HttpServletRequest httpRequest) {
         try {
-            User user = userService.findByEmail(userPrincipal.getEmail())
+            User user = userResolver.resolve(userPrincipal)
                     .orElseThrow(() -> new RuntimeException("Authenticated user not found"));
 
             Certificate eeCertificate = certificateService.findBySerialNumber(serialNumber)
@@ -566,7 +1157,7 @@ public class CertificateController {
             }
 
             // Učitavanje i vraćanje X.509 sertifikata
-            byte[] certBytes = keystoreService.getCertificateBytes("EE_" + serialNumber);
+            byte[] certBytes = certificateDerService.getDer(eeCertificate);
 
             // AUDIT LOG: Uspešan download EE sertifikata
             auditLogService.logSecurityEvent(AuditLogService.EVENT_CERTIFICATE_VIEWED,
@@ -4,9 +4,10 @@ import com.bsep.pki_system.dto.CreateTemplateDTO;
 import com.bsep.pki_system.dto.TemplateResponseDTO;
 import com.bsep.pki_system.jwt.UserPrincipal;
 import com.bsep.pki_system.model.CertificateTemplate;
+import com.bsep.pki_system.model.KeyAlgorithm;
 import com.bsep.pki_system.model.User;
+import com.bsep.pki_system.service.AuthenticatedUserResolver;
 import com.bsep.pki_system.service.CertificateTemplateService;
-import com.bsep.pki_system.service.UserService;
 import jakarta.validation.Valid;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -24,14 +25,14 @@ import jakarta.servlet.http.HttpServletRequest;
 public class CertificateTemplateController {
 
     private final CertificateTemplateService templateService;
-    private final UserService userService;
+    private final AuthenticatedUserResolver userResolver;
     private final AuditLogService auditLogService;
 
     public CertificateTemplateController(CertificateTemplateService templateService,
-                                         UserService userService,
+                                         AuthenticatedUserResolver userResolver,
                                          AuditLogService auditLogService) {
         this.templateService = templateService;
-        this.userService = userService;
+        this.userResolver = userResolver;
         this.auditLogService = auditLogService;
     }
 
@@ -44,7 +45,7 @@ public class CertificateTemplateController {
             HttpServletRequest httpRequest) {
         try {
             // Pronalazimo kompletan User objekat da bismo znali njegovu organizaciju
-            User user = userService.findByEmail(userPrincipal.getEmail())
+            User user = userResolver.resolve(userPrincipal)
                     .orElseThrow(() -> new RuntimeException("Authenticated user not found"));
 
             var template = templateService.createTemplate(templateDTO, user);
@@ -83,7 +84,7 @@ public class CertificateTemplateController {
     @GetMapping
     public ResponseEntity<List<TemplateResponseDTO>> getMyTemplates(@AuthenticationPrincipal UserPrincipal userPrincipal) {
         // Pronalazimo kompletan User objekat da bismo znali njegovu organizaciju
-        User user = userService.findByEmail(userPrincipal.getEmail())
+        User user = userResolver.resolve(userPrincipal)
                 .orElseThrow(() -> new RuntimeException("Authenticated user not found"));
 
         List<TemplateResponseDTO> templates = templateService.getTemplatesForUser(user);
@@ -97,7 +98,7 @@ public class CertificateTemplateController {
             @PathVariable Long caIssuerId,
             @AuthenticationPrincipal UserPrincipal userPrincipal) {
         try {
-            User user = userService.findByEmail(userPrincipal.getEmail())
+            User user = userResolver.resolve(userPrincipal)
                     .orElseThrow(() -> new RuntimeException("Authenticated user not found"));
 
             List<TemplateResponseDTO> templates = templateService.getTemplatesForCaIssuer(caIssuerId, user);
@@ -115,7 +116,7 @@ public class CertificateTemplateController {
             @AuthenticationPrincipal UserPrincipal userPrincipal,
             HttpServletRequest httpRequest) {
         try {
-            User user = userService.findByEmail(userPrincipal.getEmail())
+            User user = userResolver.resolve(userPrincipal)
                     .orElseThrow(() -> new RuntimeException("Authenticated user not found"));
 
             var template = templateService.findById(templateId, user);
@@ -145,7 +146,7 @@ public class CertificateTemplateController {
             @AuthenticationPrincipal UserPrincipal userPrincipal,
             HttpServletRequest httpRequest) {
         try {
-            User user = userService.findByEmail(userPrincipal.getEmail())
+            User user = userResolver.resolve(userPrincipal)
                     .orElseThrow(() -> new RuntimeException("Authenticated user not found"));
 
             // Dohvati šablon pre brisanja za audit log
@@ -183,7 +184,7 @@ public class CertificateTemplateController {
             @RequestBody Map<String, String> request,
             @AuthenticationPrincipal UserPrincipal userPrincipal) {
         try {
-            User user = userService.findByEmail(userPrincipal.getEmail())
+            User user = userResolver.resolve(userPrincipal)
                     .orElseThrow(() -> new RuntimeException("Authenticated user not found"));
 
             String commonName = request.get("commonName");
@@ -208,7 +209,7 @@ public class CertificateTemplateController {
             HttpServletRequest httpRequest) {
 
         try {
-            User user = userService.findByEmail(userPrincipal.getEmail())
+            User user = userResolver.resolve(userPrincipal)
                     .orElseThrow(() -> new RuntimeException("Authenticated user not found"));
 
             CertificateTemplate template = templateService.findById(templateId, user);
@@ -251,7 +252,7 @@ public class CertificateTemplateController {
             @AuthenticationPrincipal UserPrincipal userPrincipal,
             HttpServletRequest httpRequest) {
         try {
-            User user = userService.findByEmail(userPrincipal.getEmail())
+            User user = userResolver.resolve(userPrincipal)
                     .orElseThrow(() -> new RuntimeException("Authenticated user not found"));
 
             // Pozovi update metodu iz servisa
@@ -293,6 +294,7 @@ public class CertificateTemplateController {
         prefilledData.put("keyUsage", template.getKeyUsage());
         prefilledData.put("extendedKeyUsage", template.getExtendedKeyUsage());
         prefilledData.put("basicConstraints", template.getBasicConstraints());
+        prefilledData.put("keyAlgorithm", KeyAlgorithm.orDefault(template.getKeyAlgorithm()));
         prefilledData.put("commonNameRegex", template.getCommonNameRegex());
         prefilledData.put("sansRegex", template.getSansRegex());
 
@@ -312,6 +314,7 @@ public class CertificateTemplateController {
         dto.setKeyUsage(template.getKeyUsage());
         dto.setExtendedKeyUsage(template.getExtendedKeyUsage());
         dto.setBasicConstraints(template.getBasicConstraints());
+        dto.setKeyAlgorithm(template.getKeyAlgorithm());
         dto.setCreatedAt(template.getCreatedAt());
         dto.setCreatedBy(template.getCreatedBy().getEmail());
 
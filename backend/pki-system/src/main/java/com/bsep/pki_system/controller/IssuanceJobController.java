@@ -0,0 +1,45 @@
+package com.bsep.pki_system.controller;
+
+import com.bsep.pki_system.jwt.UserPrincipal;
+import com.bsep.pki_system.model.User;
+import com.bsep.pki_system.service.AuthenticatedUserResolver;
+import com.bsep.pki_system.service.IssuanceJobService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+// Status poslova za asinhrono izdavanje sertifikata (?async=true na /root, /intermediate, /end-entity/csr)
+@RestController
+@RequestMapping("/api/issuance-jobs")
+public class IssuanceJobController {
+
+    private final IssuanceJobService issuanceJobService;
+    private final AuthenticatedUserResolver userResolver;
+
+    public IssuanceJobController(IssuanceJobService issuanceJobService, AuthenticatedUserResolver userResolver) {
+        this.issuanceJobService = issuanceJobService;
+        this.userResolver = userResolver;
+    }
+
+    // GET - Status i rezultat posla (certificateId/serialNumber kad je COMPLETED, error kad je FAILED)
+    @PreAuthorize("hasAnyRole('ADMIN', 'CA', 'BASIC')")
+    @GetMapping("/{id}")
+    public ResponseEntity<?> getJob(@PathVariable Long id, @AuthenticationPrincipal UserPrincipal userPrincipal) {
+        User user = userResolver.resolve(userPrincipal)
+                .orElseThrow(() -> new RuntimeException("Authenticated user not found"));
+
+        return issuanceJobService.findForUser(id, user)
+                .<ResponseEntity<?>>map(job -> ResponseEntity.ok(issuanceJobService.toDTO(job)))
+                .orElseGet(() -> ResponseEntity.status(404).body(Map.of("message", "Issuance job not found")));
+    }
+
+    // GET - Broj poslova koji cekaju ili se obradjuju
+    @PreAuthorize("hasRole('ADMIN')")
+    @GetMapping("/queue")
+    public ResponseEntity<?> getQueueDepth() {
+        return ResponseEntity.ok(Map.of("queueDepth", issuanceJobService.getQueueDepth()));
+    }
+}
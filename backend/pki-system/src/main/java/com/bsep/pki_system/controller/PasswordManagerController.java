@@ -5,8 +5,8 @@ import com.bsep.pki_system.jwt.UserPrincipal;
 import com.bsep.pki_system.model.PasswordShare;
 import com.bsep.pki_system.model.User;
 import com.bsep.pki_system.repository.PasswordShareRepository;
+import com.bsep.pki_system.service.AuthenticatedUserResolver;
 import com.bsep.pki_system.service.PasswordManagerService;
-import com.bsep.pki_system.service.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -26,17 +26,17 @@ public class PasswordManagerController {
     private PasswordManagerService passwordManagerService;
 
     @Autowired
-    private UserService userService;
+    private AuthenticatedUserResolver userResolver;
     private PasswordShareRepository passwordShareRepository;
 
     private final AuditLogService auditLogService;
 
     public PasswordManagerController(PasswordManagerService passwordManagerService,
-                                     UserService userService,
+                                     AuthenticatedUserResolver userResolver,
                                      PasswordShareRepository passwordShareRepository,
                                      AuditLogService auditLogService) {
         this.passwordManagerService = passwordManagerService;
-        this.userService = userService;
+        this.userResolver = userResolver;
         this.passwordShareRepository = passwordShareRepository;
         this.auditLogService = auditLogService;
     }
@@ -48,7 +48,7 @@ public class PasswordManagerController {
             @AuthenticationPrincipal UserPrincipal userPrincipal,
             HttpServletRequest httpRequest) {
 
-        User currentUser = userService.findByEmail(userPrincipal.getEmail())
+        User currentUser = userResolver.resolve(userPrincipal)
                 .orElseThrow(() -> new RuntimeException("User not found"));
 
         // Provera da li korisnik ima EE sertifikat
@@ -69,7 +69,7 @@ public class PasswordManagerController {
             @AuthenticationPrincipal UserPrincipal userPrincipal,
             HttpServletRequest httpRequest) {
 
-        User currentUser = userService.findByEmail(userPrincipal.getEmail())
+        User currentUser = userResolver.resolve(userPrincipal)
                 .orElseThrow(() -> new RuntimeException("User not found"));
 
         List<PasswordEntryDTO> entries = passwordManagerService.getUserPasswordEntries(currentUser);
@@ -89,7 +89,7 @@ public class PasswordManagerController {
             @AuthenticationPrincipal UserPrincipal userPrincipal,
             HttpServletRequest httpRequest) {
 
-        User currentUser = userService.findByEmail(userPrincipal.getEmail())
+        User currentUser = userResolver.resolve(userPrincipal)
                 .orElseThrow(() -> new RuntimeException("User not found"));
 
         passwordManagerService.sharePasswordEntry(shareRequest, currentUser);
@@ -110,7 +110,7 @@ public class PasswordManagerController {
             @AuthenticationPrincipal UserPrincipal userPrincipal,
             HttpServletRequest httpRequest) {
 
-        User currentUser = userService.findByEmail(userPrincipal.getEmail())
+        User currentUser = userResolver.resolve(userPrincipal)
                 .orElseThrow(() -> new RuntimeException("User not found"));
 
         passwordManagerService.deletePasswordEntry(id, currentUser);
@@ -131,7 +131,7 @@ public class PasswordManagerController {
             @AuthenticationPrincipal UserPrincipal userPrincipal,
             HttpServletRequest httpRequest) {
 
-        User currentUser = userService.findByEmail(userPrincipal.getEmail())
+        User currentUser = userResolver.resolve(userPrincipal)
                 .orElseThrow(() -> new RuntimeException("User not found"));
 
         PasswordEntryDTO updatedEntry = passwordManagerService.updatePasswordEntry(id, updateDto, currentUser);
@@ -150,7 +150,7 @@ public class PasswordManagerController {
             @PathVariable Long id,
             @AuthenticationPrincipal UserPrincipal userPrincipal) {
 
-        User currentUser = userService.findByEmail(userPrincipal.getEmail())
+        User currentUser = userResolver.resolve(userPrincipal)
                 .orElseThrow(() -> new RuntimeException("User not found"));
 
         List<User> sharedUsers = passwordManagerService.getSharedUsersForEntry(id, currentUser);
@@ -163,7 +163,7 @@ public class PasswordManagerController {
             @AuthenticationPrincipal UserPrincipal userPrincipal,
             HttpServletRequest httpRequest) {
 
-        User currentUser = userService.findByEmail(userPrincipal.getEmail())
+        User currentUser = userResolver.resolve(userPrincipal)
                 .orElseThrow(() -> new RuntimeException("User not found"));
 
         // Pronađi password share za ovog korisnika
@@ -0,0 +1,16 @@
+package com.bsep.pki_system.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchCsrItemDTO {
+    private int index; // Pozicija CSR-a u zahtevu
+    private Long certificateId;
+    private String serialNumber;
+    private String subject;
+    private String error; // null ako je sertifikat izdat
+}
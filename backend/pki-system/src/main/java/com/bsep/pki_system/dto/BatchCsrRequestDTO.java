@@ -0,0 +1,30 @@
+package com.bsep.pki_system.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Date;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchCsrRequestDTO {
+
+    @NotEmpty(message = "At least one CSR is required")
+    private List<String> csrPems;
+
+    @NotNull(message = "Valid To date is required")
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd'T'HH:mm:ss.SSS'Z'", timezone = "UTC")
+    private Date validTo;
+
+    @NotNull(message = "Issuer Certificate ID is required")
+    private Long issuerCertificateId;
+
+    // Opciono: šablon po kome se izdaju svi sertifikati iz paketa
+    private Long templateId;
+}
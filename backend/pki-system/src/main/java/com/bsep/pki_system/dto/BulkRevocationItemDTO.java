@@ -0,0 +1,19 @@
+package com.bsep.pki_system.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkRevocationItemDTO {
+    public static final String RESULT_REVOKED = "REVOKED";
+    public static final String RESULT_ALREADY_REVOKED = "ALREADY_REVOKED";
+    public static final String RESULT_NOT_FOUND = "NOT_FOUND";
+    public static final String RESULT_FORBIDDEN = "FORBIDDEN";
+
+    private Long certificateId;
+    private String serialNumber;
+    private String result;
+}
@@ -0,0 +1,16 @@
+package com.bsep.pki_system.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkRevocationRequestDTO {
+    private List<Long> ids;
+    private List<String> serialNumbers; // Moze se poslati i samo jedna od dve liste
+    private String reason; // Isti skup razloga kao kod pojedinačne revokacije
+}
@@ -0,0 +1,16 @@
+package com.bsep.pki_system.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CacheRegionStatsDTO {
+    private String region; // Entitet ili regija rezultata upita
+    private long hits;
+    private long misses;
+    private long puts;
+    private long size; // Broj unosa u memoriji (-1 ako provajder to ne prijavljuje)
+}
@@ -0,0 +1,16 @@
+package com.bsep.pki_system.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CacheStatisticsDTO {
+    private boolean statisticsEnabled; // hibernate.generate_statistics; bez njega su svi brojaci 0
+    private List<CacheRegionStatsDTO> regions;
+    private List<QueryCacheStatsDTO> queries;
+}
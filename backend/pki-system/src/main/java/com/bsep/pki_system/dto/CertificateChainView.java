@@ -0,0 +1,24 @@
+package com.bsep.pki_system.dto;
+
+import com.bsep.pki_system.model.CertificateStatus;
+import com.bsep.pki_system.model.CertificateType;
+
+import java.util.Date;
+
+// Projekcija jednog cvora u lancu/podstablu sertifikata (bez pemData LOB-a).
+// depth = udaljenost od polaznog sertifikata (0 = sam sertifikat).
+public interface CertificateChainView {
+    Long getId();
+    String getSerialNumber();
+    String getSubject();
+    String getIssuer();
+    CertificateType getType();
+    CertificateStatus getStatus();
+    Date getValidFrom();
+    Date getValidTo();
+    String getPublicKey();
+    Boolean getIsCA();
+    Long getIssuerCertificateId();
+    Long getOwnerId();
+    Integer getDepth();
+}
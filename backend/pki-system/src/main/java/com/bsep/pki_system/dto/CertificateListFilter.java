@@ -0,0 +1,41 @@
+package com.bsep.pki_system.dto;
+
+import com.bsep.pki_system.model.CertificateStatus;
+import com.bsep.pki_system.model.CertificateType;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Collection;
+import java.util.Date;
+
+// Filteri liste sertifikata; null znaci "bez filtera"
+@Data
+@NoArgsConstructor
+public class CertificateListFilter {
+    private CertificateStatus status;
+    private CertificateType type;
+    private String organization; // Organizacija vlasnika sertifikata
+    private Long issuerId;
+    private Long ownerId;
+    private Date expiresAfter; // validTo >= expiresAfter
+    private Date expiresBefore; // validTo < expiresBefore
+    private CertificateSearchQuery search; // Subject, SAN, serijski broj
+
+    // Opseg lanca za CA korisnika (namece ga servis, ne dolazi iz zahteva): sertifikat je vidljiv ako je
+    // organizacija u njegovom subject-u (normalizovana kao u certificate_names) ili ako mu je izdavalac
+    // CA iz lanca te organizacije - isto kao /my-chain i /export
+    private String chainOrganization;
+    private Collection<Long> chainIssuerIds;
+
+    public CertificateListFilter(CertificateStatus status, CertificateType type, String organization, Long issuerId,
+                                 Long ownerId, Date expiresAfter, Date expiresBefore, CertificateSearchQuery search) {
+        this.status = status;
+        this.type = type;
+        this.organization = organization;
+        this.issuerId = issuerId;
+        this.ownerId = ownerId;
+        this.expiresAfter = expiresAfter;
+        this.expiresBefore = expiresBefore;
+        this.search = search;
+    }
+}
@@ -0,0 +1,28 @@
+package com.bsep.pki_system.dto;
+
+import com.bsep.pki_system.model.CertificateStatus;
+import com.bsep.pki_system.model.CertificateType;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Date;
+
+// Jedan red liste sertifikata - samo kolone za prikaz (bez pem_data, javnog kljuca i ugnjezdenih entiteta)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CertificateListItemDTO {
+    private Long id;
+    private String serialNumber;
+    private String subject;
+    private String issuer;
+    private CertificateType type;
+    private CertificateStatus status;
+    private Date validFrom;
+    private Date validTo;
+    private Boolean isCA;
+    private Long issuerCertificateId;
+    private Long ownerId;
+    private String revocationReason;
+}
@@ -0,0 +1,15 @@
+package com.bsep.pki_system.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CertificatePageDTO {
+    private List<CertificateListItemDTO> items;
+    private String nextCursor; // null ako nema sledece strane
+}
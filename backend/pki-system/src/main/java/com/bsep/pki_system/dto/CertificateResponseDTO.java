@@ -0,0 +1,36 @@
+package com.bsep.pki_system.dto;
+
+import com.bsep.pki_system.model.CertificateStatus;
+import com.bsep.pki_system.model.CertificateType;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.Date;
+
+// Sertifikat kakav se vraca klijentu: samo skalarne kolone i id-evi povezanih entiteta.
+// Bez pem_data, javnog kljuca, vlasnika (User sa hesom lozinke i 2FA tajnom) i lanca izdavalaca.
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CertificateResponseDTO {
+    private Long id;
+    private String serialNumber;
+    private String subject;
+    private String issuer;
+    private CertificateType type;
+    private CertificateStatus status;
+    private Date validFrom;
+    private Date validTo;
+    private Boolean isCA;
+    private String pathLengthConstraint;
+    private String keyUsage;
+    private String extendedKeyUsage;
+    private String basicConstraints;
+    private String revocationReason;
+    private LocalDateTime revokedAt;
+    private Long issuerId;
+    private String issuerSerialNumber; // Za preuzimanje CRL liste izdavaoca
+    private Long ownerId;
+}
@@ -0,0 +1,17 @@
+package com.bsep.pki_system.dto;
+
+import com.bsep.pki_system.model.CertificateNameType;
+import com.bsep.pki_system.model.CertificateSearchMatch;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Pretraga po indeksu imena (certificate_names); term je vec normalizovan (CertificateNameIndexer.normalize)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CertificateSearchQuery {
+    private String term;
+    private CertificateNameType field; // null - bilo koja vrsta imena
+    private CertificateSearchMatch match;
+}
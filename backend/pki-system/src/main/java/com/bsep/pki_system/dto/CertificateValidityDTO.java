@@ -0,0 +1,17 @@
+package com.bsep.pki_system.dto;
+
+import com.bsep.pki_system.model.CertificateStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CertificateValidityDTO {
+    private Long certificateId;
+    private String serialNumber;
+    private CertificateStatus status; // Status iz baze (null ako sertifikat ne postoji)
+    private boolean valid;
+    private String reason; // null kada je sertifikat validan
+}
@@ -1,5 +1,6 @@
 package com.bsep.pki_system.dto;
 
+import com.bsep.pki_system.model.KeyAlgorithm;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import lombok.Getter;
@@ -36,4 +37,6 @@ public class CreateCertificateDTO {
     private String extendedKeyUsage; // "serverAuth, clientAuth"
 
     private Long issuerCertificateId; // Za Root će biti null (samopotpisani)
+
+    private KeyAlgorithm keyAlgorithm; // Ako nije zadat, RSA_2048
 }
\ No newline at end of file
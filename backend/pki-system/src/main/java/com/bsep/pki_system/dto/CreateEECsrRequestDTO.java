@@ -19,6 +19,9 @@ public class CreateEECsrRequestDTO {
     @NotNull(message = "Issuer Certificate ID is required")
     private Long issuerCertificateId;
 
+    // Opciono: šablon po kome se izdaje (provera CN/SAN, važenja i ekstenzije iz šablona)
+    private Long templateId;
+
     // --- Getteri i Setteri ---
 
     public String getCsrPem() {
@@ -44,4 +47,12 @@ public class CreateEECsrRequestDTO {
     public void setIssuerCertificateId(Long issuerCertificateId) {
         this.issuerCertificateId = issuerCertificateId;
     }
+
+    public Long getTemplateId() {
+        return templateId;
+    }
+
+    public void setTemplateId(Long templateId) {
+        this.templateId = templateId;
+    }
 }
\ No newline at end of file
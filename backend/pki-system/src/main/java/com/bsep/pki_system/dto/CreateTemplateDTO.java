@@ -1,5 +1,6 @@
 package com.bsep.pki_system.dto;
 
+import com.bsep.pki_system.model.KeyAlgorithm;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Positive;
@@ -38,4 +39,6 @@ public class CreateTemplateDTO {
     private String extendedKeyUsage;
 
     private String basicConstraints = "CA:TRUE";
+
+    private KeyAlgorithm keyAlgorithm;
 }
\ No newline at end of file
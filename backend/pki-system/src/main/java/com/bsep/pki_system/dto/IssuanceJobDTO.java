@@ -0,0 +1,24 @@
+package com.bsep.pki_system.dto;
+
+import com.bsep.pki_system.model.IssuanceJobStatus;
+import com.bsep.pki_system.model.IssuanceJobType;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class IssuanceJobDTO {
+    private Long id;
+    private IssuanceJobType type;
+    private IssuanceJobStatus status;
+    private Long certificateId;
+    private String serialNumber;
+    private String error;
+    private LocalDateTime createdAt;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+}
@@ -0,0 +1,19 @@
+package com.bsep.pki_system.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class KeyPairPoolStatsDTO {
+    private String keyAlgorithm; // npr. RSA_2048
+    private int capacity;
+    private int available; // Trenutna dubina pool-a
+    private long hits; // Zahtevi posluzeni iz pool-a
+    private long misses; // Zahtevi kod kojih je pool bio prazan (sinhrono generisanje)
+    private long generated; // Parovi generisani u pozadini
+    private long averageWaitMicros;
+    private long maxWaitMicros;
+}
@@ -0,0 +1,21 @@
+package com.bsep.pki_system.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// Jedan subjekat za izdavanje sa kljucem generisanim na serveru (red CSV-a ili JSON objekat)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class KeygenSubjectDTO {
+    private String commonName;
+    private String organization;
+    private String organizationalUnit;
+    private String country;
+    private String email;
+    private List<String> sans; // DNS imena, IP adrese ili email adrese
+    private String password; // Opciono: lozinka za PKCS#12; ako je nema, generise se
+}
@@ -0,0 +1,16 @@
+package com.bsep.pki_system.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class QueryCacheStatsDTO {
+    private String query; // HQL upita sa QueryHint-om cacheable
+    private long hits;
+    private long misses;
+    private long puts;
+    private long executions; // Izvrsavanja nad bazom (promasaji + upiti bez kesa)
+}
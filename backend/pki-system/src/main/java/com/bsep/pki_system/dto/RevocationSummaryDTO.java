@@ -0,0 +1,17 @@
+package com.bsep.pki_system.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RevocationSummaryDTO {
+    private Long certificateId;
+    private int revokedCount; // Broj sertifikata koji su ovim zahtevom prešli u REVOKED
+    private int alreadyRevokedCount;
+    private List<String> regeneratedCrlIssuers; // Serijski brojevi CA čije su CRL liste regenerisane
+}
@@ -1,5 +1,6 @@
 package com.bsep.pki_system.dto;
 
+import com.bsep.pki_system.model.KeyAlgorithm;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
@@ -24,6 +25,7 @@ public class TemplateResponseDTO {
     private List<Boolean> keyUsage;
     private String extendedKeyUsage;
     private String basicConstraints;
+    private KeyAlgorithm keyAlgorithm;
     private LocalDateTime createdAt;
     private String createdBy;
 }
\ No newline at end of file
@@ -39,38 +39,39 @@ public class JwtAuthFilter extends OncePerRequestFilter {
 
         String token = authHeader.substring(7);
 
-        // 1. Provera da li je token privremen
+        // Token se parsira jednom - getClaims proverava potpis i rok vazenja
+        Claims claims;
         try {
-            Claims claims = jwtService.getClaims(token);
-            Boolean temporary = claims.get("temporary", Boolean.class);
-            if (temporary != null && temporary) {
-                // Preskoči standardnu autentifikaciju
-                filterChain.doFilter(request, response);
-                return;
-            }
+            claims = jwtService.getClaims(token);
         } catch (Exception e) {
             // Ako token nije validan, samo nastavi dalje, filter će ga ignorisati
             filterChain.doFilter(request, response);
             return;
         }
 
-        if (jwtService.validateToken(token)) {
-            Claims claims = jwtService.getClaims(token);
-            String email = claims.getSubject();
-            Long userId = claims.get("userId", Long.class);
-            UserRole role = UserRole.valueOf(claims.get("role", String.class));
+        // 1. Provera da li je token privremen
+        Boolean temporary = claims.get("temporary", Boolean.class);
+        if (temporary != null && temporary) {
+            // Preskoči standardnu autentifikaciju
+            filterChain.doFilter(request, response);
+            return;
+        }
 
-            UserPrincipal principal = new UserPrincipal(userId, email, role);
+        String email = claims.getSubject();
+        Long userId = claims.get("userId", Long.class);
+        UserRole role = UserRole.valueOf(claims.get("role", String.class));
+        String organization = claims.get("organization", String.class);
 
-            List<SimpleGrantedAuthority> authorities = Collections.singletonList(
-                    new SimpleGrantedAuthority("ROLE_" + role.name())
-            );
+        UserPrincipal principal = new UserPrincipal(userId, email, role, organization);
 
-            UsernamePasswordAuthenticationToken authToken =
-                    new UsernamePasswordAuthenticationToken(principal, null, authorities);
-            authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-            SecurityContextHolder.getContext().setAuthentication(authToken);
-        }
+        List<SimpleGrantedAuthority> authorities = Collections.singletonList(
+                new SimpleGrantedAuthority("ROLE_" + role.name())
+        );
+
+        UsernamePasswordAuthenticationToken authToken =
+                new UsernamePasswordAuthenticationToken(principal, null, authorities);
+        authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+        SecurityContextHolder.getContext().setAuthentication(authToken);
 
         filterChain.doFilter(request, response);
     }
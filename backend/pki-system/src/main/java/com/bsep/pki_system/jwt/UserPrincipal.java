@@ -1,19 +1,34 @@
 package com.bsep.pki_system.jwt;
 
+import com.bsep.pki_system.model.User;
 import com.bsep.pki_system.model.UserRole;
 
 public class UserPrincipal {
     private Long id;
     private String email;
     private UserRole role;
+    // Iz tokena - null za tokene izdate pre nego sto je claim dodat. Kao i uloga, vazi do isteka tokena;
+    // provere po organizaciji (CA filteri) ga citaju odavde umesto da ucitavaju User.
+    private String organization;
 
     public UserPrincipal(Long id, String email, UserRole role) {
+        this(id, email, role, null);
+    }
+
+    public UserPrincipal(Long id, String email, UserRole role, String organization) {
         this.id = id;
         this.email = email;
         this.role = role;
+        this.organization = organization;
+    }
+
+    // Za starije tokene (bez userId / organization claim-a) - popunjava se iz ucitanog korisnika
+    public static UserPrincipal from(User user) {
+        return new UserPrincipal(user.getId(), user.getEmail(), user.getRole(), user.getOrganization());
     }
 
     public Long getId() { return id; }
     public String getEmail() { return email; }
     public UserRole getRole() { return role; }
+    public String getOrganization() { return organization; }
 }
@@ -5,20 +5,52 @@ import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.security.PublicKey;
 import java.time.LocalDateTime;
 import java.util.Date;
 
+// Sve veze su LAZY; sta se ucitava odjednom odredjuju grafovi ispod (po slucaju upotrebe).
+// Lanac do Root-a se ne ucitava preko entiteta nego rekurzivnim upitom (CertificateRepository.findAncestorChain/Closure).
+// Second-level cache: sertifikat se posle izdavanja menja samo pri revokaciji/isteku i CRL-u (READ_WRITE).
+// Masovni UPDATE (revokeAllByIdIn, markExpired) Hibernate sam prati izbacivanjem cele regije.
 @Entity
-@Table(name = "certificates")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "certificates")
+@NamedEntityGraph(name = Certificate.GRAPH_DETAIL, attributeNodes = {
+        @NamedAttributeNode("issuerCertificate"),
+        @NamedAttributeNode("owner")
+})
+@NamedEntityGraph(name = Certificate.GRAPH_WITH_ISSUER, attributeNodes = @NamedAttributeNode("issuerCertificate"))
+@NamedEntityGraph(name = Certificate.GRAPH_WITH_OWNER, attributeNodes = @NamedAttributeNode("owner"))
+@Table(name = "certificates", indexes = {
+        // "Trenutno validni" upiti i CertificateExpirySweeper (status = VALID, redom po valid_to)
+        @Index(name = "idx_certificates_status_valid_to", columnList = "status, valid_to"),
+        // Keyset paginacija liste sertifikata (id je poslednji kljuc svakog redosleda)
+        @Index(name = "idx_certificates_valid_to_id", columnList = "valid_to, id"),
+        @Index(name = "idx_certificates_type_id", columnList = "type, id"),
+        @Index(name = "idx_certificates_owner_id", columnList = "owner_id, id"),
+        @Index(name = "idx_certificates_issuer_id", columnList = "issuer_certificate_id, id")
+})
 @Getter
 @Setter
 @NoArgsConstructor
 @AllArgsConstructor
 public class Certificate {
+
+    // Jedan sertifikat (autorizacija, revokacija, šabloni): neposredni izdavalac i vlasnik
+    public static final String GRAPH_DETAIL = "Certificate.detail";
+    // Liste izdavalaca: serijski broj izdavaoca i pocetak provere lanca organizacije
+    public static final String GRAPH_WITH_ISSUER = "Certificate.withIssuer";
+    // Masovna revokacija: organizacija vlasnika za autorizaciju
+    public static final String GRAPH_WITH_OWNER = "Certificate.withOwner";
+
+    // Sekvenca umesto IDENTITY: paketno izdavanje (saveEndEntityCertificates) ide u JDBC batch-evima
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "certificates_seq")
+    @SequenceGenerator(name = "certificates_seq", sequenceName = "certificates_seq", allocationSize = IdSequences.ALLOCATION_SIZE)
     private Long id;
 
     @Column(unique = true, nullable = false)
@@ -55,11 +87,11 @@ public class Certificate {
     private String revocationReason;
     private LocalDateTime revokedAt;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "issuer_certificate_id")
     private Certificate issuerCertificate; // Referenca na sertifikat izdavaoca
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "owner_id")
     private User owner; // Koji korisnik je kreirao/vlasnik je sertifikata
 
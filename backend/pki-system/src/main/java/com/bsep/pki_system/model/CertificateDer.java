@@ -0,0 +1,49 @@
+package com.bsep.pki_system.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.data.domain.Persistable;
+
+// DER kodiran X.509 sertifikat (CA i EE), u posebnoj tabeli da se ne ucitava uz svaki red iz "certificates".
+// Kljuc je id sertifikata; lanci, preuzimanja i validacija citaju odavde umesto iz keystore-a.
+@Entity
+@Table(name = "certificate_der")
+@Getter
+@Setter
+@NoArgsConstructor
+public class CertificateDer implements Persistable<Long> {
+
+    @Id
+    @Column(name = "certificate_id")
+    private Long certificateId;
+
+    @Column(name = "der", nullable = false, length = 16384)
+    private byte[] der;
+
+    // Id je dodeljen (id sertifikata), pa bez ovoga save() radi merge - SELECT pre svakog INSERT-a
+    @Transient
+    private boolean newEntity = true;
+
+    public CertificateDer(Long certificateId, byte[] der) {
+        this.certificateId = certificateId;
+        this.der = der;
+    }
+
+    @Override
+    public Long getId() {
+        return certificateId;
+    }
+
+    @Override
+    public boolean isNew() {
+        return newEntity;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markNotNew() {
+        this.newEntity = false;
+    }
+}
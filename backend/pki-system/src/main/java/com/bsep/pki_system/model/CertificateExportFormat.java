@@ -0,0 +1,7 @@
+package com.bsep.pki_system.model;
+
+// Formati izvoza inventara sertifikata
+public enum CertificateExportFormat {
+    NDJSON, // jedan JSON objekat (CertificateResponseDTO) po redu
+    CSV     // prvi red su nazivi kolona
+}
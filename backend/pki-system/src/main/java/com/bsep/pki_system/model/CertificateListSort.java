@@ -0,0 +1,7 @@
+package com.bsep.pki_system.model;
+
+// Redosledi liste sertifikata koje indeksi pokrivaju (id je uvek poslednji kljuc, pa je redosled jednoznacan)
+public enum CertificateListSort {
+    ID,      // primarni kljuc
+    VALID_TO // (valid_to, id), odnosno (status, valid_to) kada se filtrira po statusu
+}
@@ -0,0 +1,49 @@
+package com.bsep.pki_system.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+// Normalizovana imena sertifikata za pretragu: komponente subject-a, SAN unosi i serijski broj,
+// jedan red po imenu. Upisuju se pri izdavanju (zajedno sa DER-om), stariji sertifikati se dopunjuju
+// u pozadini (CertificateNameIndexer). Pored indeksa ispod, na PostgreSQL-u postoje i indeksi za
+// prefiks (text_pattern_ops) i trigram pretragu (CertificateSearchIndexInitializer).
+@Entity
+@Table(name = "certificate_names", indexes = {
+        // Tacno poklapanje (sa ili bez vrste imena); certificate_id je u indeksu pa nema citanja tabele
+        @Index(name = "idx_certificate_names_value_type", columnList = "normalized_value, type, certificate_id"),
+        @Index(name = "idx_certificate_names_certificate_id", columnList = "certificate_id")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+public class CertificateName {
+
+    // Najduza vrednost koja se indeksira (duzi URI-ji se preskacu)
+    public static final int MAX_VALUE_LENGTH = 512;
+
+    // Sekvenca: imena svih sertifikata iz paketa idu u JDBC batch-eve
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "certificate_names_seq")
+    @SequenceGenerator(name = "certificate_names_seq", sequenceName = "certificate_names_seq", allocationSize = IdSequences.ALLOCATION_SIZE)
+    private Long id;
+
+    // Samo FK kolona (kao certificate_der) - pretraga ide podupitom, bez ucitavanja sertifikata
+    @Column(name = "certificate_id", nullable = false)
+    private Long certificateId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 32)
+    private CertificateNameType type;
+
+    // "value" je rezervisana rec u H2
+    @Column(name = "normalized_value", nullable = false, length = MAX_VALUE_LENGTH)
+    private String value;
+
+    public CertificateName(Long certificateId, CertificateNameType type, String value) {
+        this.certificateId = certificateId;
+        this.type = type;
+        this.value = value;
+    }
+}
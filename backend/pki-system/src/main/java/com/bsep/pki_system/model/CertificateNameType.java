@@ -0,0 +1,13 @@
+package com.bsep.pki_system.model;
+
+// Vrsta imena u indeksu pretrage (tabela certificate_names)
+public enum CertificateNameType {
+    SERIAL,              // serijski broj (decimalno, kao u certificates.serial_number)
+    COMMON_NAME,         // CN iz subject-a
+    ORGANIZATION,        // O iz subject-a
+    ORGANIZATIONAL_UNIT, // OU iz subject-a
+    EMAIL,               // E iz subject-a i rfc822Name iz SAN-a
+    DNS,                 // dNSName iz SAN-a
+    IP,                  // iPAddress iz SAN-a
+    URI                  // uniformResourceIdentifier iz SAN-a
+}
@@ -0,0 +1,8 @@
+package com.bsep.pki_system.model;
+
+// Nacin poredjenja u pretrazi sertifikata; vrednosti u indeksu i upit su normalizovani (mala slova)
+public enum CertificateSearchMatch {
+    EXACT,   // vrednost = upit (za DNS i wildcard roditelj, npr. *.example.com za api.example.com)
+    PREFIX,  // vrednost pocinje upitom
+    CONTAINS // vrednost sadrzi upit; na PostgreSQL-u ga sluzi pg_trgm (trigram) GIN indeks
+}
@@ -5,11 +5,19 @@ import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.time.LocalDateTime;
 import java.util.List;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "certificate-templates")
+@NamedEntityGraph(name = CertificateTemplate.GRAPH_DETAIL, attributeNodes = {
+        @NamedAttributeNode("caIssuer"),
+        @NamedAttributeNode("createdBy")
+})
 @Table(name = "certificate_templates")
 @Getter
 @Setter
@@ -17,6 +25,9 @@ import java.util.List;
 @AllArgsConstructor
 public class CertificateTemplate {
 
+    // Prikaz i provera šablona: CA izdavalac (naziv) i kreator (email)
+    public static final String GRAPH_DETAIL = "CertificateTemplate.detail";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -28,7 +39,7 @@ public class CertificateTemplate {
     private String description;
 
     // Koji CA može da koristi ovaj šablon
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "ca_issuer_id", nullable = false)
     private Certificate caIssuer;
 
@@ -54,11 +65,16 @@ public class CertificateTemplate {
     @Column(name = "basic_constraints")
     private String basicConstraints = "CA:TRUE";
 
+    // Algoritam ključa za sertifikate izdate po ovom šablonu
+    @Enumerated(EnumType.STRING)
+    @Column(name = "key_algorithm")
+    private KeyAlgorithm keyAlgorithm = KeyAlgorithm.DEFAULT;
+
     // Dodatna polja po potrebi
     @Column(name = "created_at")
     private LocalDateTime createdAt = LocalDateTime.now();
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "created_by_id")
     private User createdBy;
 }
\ No newline at end of file
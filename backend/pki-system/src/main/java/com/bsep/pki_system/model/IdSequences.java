@@ -0,0 +1,21 @@
+package com.bsep.pki_system.model;
+
+import java.util.Map;
+
+// Sekvence za tabele sa mnogo INSERT-a. Hibernate koristi pooled optimizator: jedan nextval rezervise
+// ALLOCATION_SIZE id-eva, pa se id dodeljuje bez odlaska u bazu i INSERT-i mogu da idu u JDBC batch
+// (hibernate.jdbc.batch_size). Sa IDENTITY kolonom svaki INSERT mora odmah da se izvrsi da bi se dobio id.
+public final class IdSequences {
+
+    // Mora da odgovara INCREMENT BY vrednosti sekvence u bazi
+    public static final int ALLOCATION_SIZE = 50;
+
+    // Tabela -> sekvenca; IdSequenceInitializer ih poravnava sa postojecim podacima (ranije IDENTITY)
+    public static final Map<String, String> TABLES = Map.of(
+            "certificates", "certificates_seq",
+            "audit_logs", "audit_logs_seq",
+            "password_shares", "password_shares_seq");
+
+    private IdSequences() {
+    }
+}
@@ -0,0 +1,68 @@
+package com.bsep.pki_system.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+// Zahtev za izdavanje sertifikata koji se obradjuje asinhrono (red poslova u bazi)
+@Entity
+@NamedEntityGraph(name = IssuanceJob.GRAPH_WITH_REQUESTER, attributeNodes = @NamedAttributeNode("requestedBy"))
+@Table(name = "issuance_jobs", indexes = @Index(name = "idx_issuance_jobs_status", columnList = "status, id"))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class IssuanceJob {
+
+    public static final String GRAPH_WITH_REQUESTER = "IssuanceJob.withRequester";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private IssuanceJobType type;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private IssuanceJobStatus status = IssuanceJobStatus.QUEUED;
+
+    // Originalni zahtev (JSON) - CreateCertificateDTO ili CreateEECsrRequestDTO
+    @Lob
+    @Column(name = "payload", nullable = false)
+    private String payload;
+
+    // LAZY: provera statusa poredi samo id (bez JOIN-a), a radnik ucitava posao sa podnosiocem (GRAPH_WITH_REQUESTER)
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "requested_by_id", nullable = false)
+    private User requestedBy;
+
+    // Oznaka preuzimanja (claim) - zavrsetak posla se upisuje samo ako je posao i dalje preuzet istom oznakom,
+    // pa radnik ciji je posao u medjuvremenu vracen u red i preuzet ponovo ne moze da ga zavrsi
+    @Column(name = "claim_token", length = 36)
+    private String claimToken;
+
+    // Rezultat
+    @Column(name = "certificate_id")
+    private Long certificateId;
+
+    @Column(name = "serial_number")
+    private String serialNumber;
+
+    @Column(length = 1000)
+    private String error;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt = LocalDateTime.now();
+
+    @Column(name = "started_at")
+    private LocalDateTime startedAt;
+
+    @Column(name = "finished_at")
+    private LocalDateTime finishedAt;
+}
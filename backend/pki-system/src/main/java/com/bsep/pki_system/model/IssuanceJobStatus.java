@@ -0,0 +1,8 @@
+package com.bsep.pki_system.model;
+
+public enum IssuanceJobStatus {
+    QUEUED,
+    RUNNING,
+    COMPLETED,
+    FAILED
+}
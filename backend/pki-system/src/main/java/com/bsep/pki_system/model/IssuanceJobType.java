@@ -0,0 +1,7 @@
+package com.bsep.pki_system.model;
+
+public enum IssuanceJobType {
+    ROOT,
+    INTERMEDIATE,
+    END_ENTITY_CSR
+}
@@ -0,0 +1,80 @@
+package com.bsep.pki_system.model;
+
+import org.bouncycastle.asn1.x509.SubjectPublicKeyInfo;
+import org.bouncycastle.openssl.jcajce.JcaPEMKeyConverter;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.interfaces.ECKey;
+import java.security.spec.ECGenParameterSpec;
+import java.util.Base64;
+
+// Algoritam i parametri ključa za nove sertifikate (RSA, EC P-256/P-384, Ed25519)
+public enum KeyAlgorithm {
+    RSA_2048("RSA", 2048, null),
+    RSA_4096("RSA", 4096, null),
+    EC_P256("EC", 256, "secp256r1"),
+    EC_P384("EC", 384, "secp384r1"),
+    ED25519("Ed25519", 255, null);
+
+    public static final KeyAlgorithm DEFAULT = RSA_2048;
+
+    private final String jcaName;
+    private final int keySize;
+    private final String curve;
+
+    KeyAlgorithm(String jcaName, int keySize, String curve) {
+        this.jcaName = jcaName;
+        this.keySize = keySize;
+        this.curve = curve;
+    }
+
+    public KeyPair generateKeyPair() throws Exception {
+        KeyPairGenerator keyGen = KeyPairGenerator.getInstance(jcaName);
+        if (curve != null) {
+            keyGen.initialize(new ECGenParameterSpec(curve));
+        } else if (this != ED25519) {
+            keyGen.initialize(keySize);
+        }
+        return keyGen.generateKeyPair();
+    }
+
+    // Generisanje RSA ključa je najskuplje - samo RSA ide kroz KeyPairPool pri masovnom izdavanju
+    public boolean isRsa() {
+        return "RSA".equals(jcaName);
+    }
+
+    // Pitanje upotrebe ključa, ne porekla: danas je RSA jedini podrzan algoritam za keyEncipherment
+    // (EC i Ed25519 samo za potpis), ali novi algoritam (npr. ECDH) bi menjao samo ovu metodu
+    public boolean supportsEncryption() {
+        return isRsa();
+    }
+
+    public static KeyAlgorithm orDefault(KeyAlgorithm keyAlgorithm) {
+        return keyAlgorithm != null ? keyAlgorithm : DEFAULT;
+    }
+
+    // Algoritam potpisa određuje ključ izdavaoca (ne ključ sertifikata koji se potpisuje)
+    public static String signatureAlgorithm(PrivateKey signingKey) {
+        String algorithm = signingKey.getAlgorithm();
+        if ("RSA".equals(algorithm)) {
+            return "SHA256WithRSAEncryption";
+        }
+        if ("EC".equals(algorithm) || "ECDSA".equals(algorithm)) {
+            int fieldSize = ((ECKey) signingKey).getParams().getCurve().getField().getFieldSize();
+            return fieldSize > 256 ? "SHA384withECDSA" : "SHA256withECDSA";
+        }
+        if ("Ed25519".equals(algorithm) || "EdDSA".equals(algorithm)) {
+            return "Ed25519";
+        }
+        throw new IllegalArgumentException("Unsupported signing key algorithm: " + algorithm);
+    }
+
+    // Javni ključ iz baze (Base64 SubjectPublicKeyInfo) - algoritam se čita iz samog ključa
+    public static PublicKey decodePublicKey(String base64PublicKey) throws Exception {
+        byte[] encoded = Base64.getDecoder().decode(base64PublicKey);
+        return new JcaPEMKeyConverter().getPublicKey(SubjectPublicKeyInfo.getInstance(encoded));
+    }
+}
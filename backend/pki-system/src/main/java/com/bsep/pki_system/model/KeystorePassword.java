@@ -18,7 +18,7 @@ public class KeystorePassword {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
-    @OneToOne
+    @OneToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "certificate_id", nullable = false, unique = true)
     private Certificate certificate;
 
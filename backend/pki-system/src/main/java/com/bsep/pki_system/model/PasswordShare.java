@@ -9,21 +9,28 @@ import lombok.Setter;
 import java.time.LocalDateTime;
 
 @Entity
+@NamedEntityGraph(name = PasswordShare.GRAPH_WITH_USER, attributeNodes = @NamedAttributeNode("user"))
 @Table(name = "password_shares")
 @Getter
 @Setter
 @NoArgsConstructor
 @AllArgsConstructor
 public class PasswordShare {
+
+    // Ponovno sifrovanje za sve deljene korisnike: korisnik (email) uz svako deljenje
+    public static final String GRAPH_WITH_USER = "PasswordShare.withUser";
+
+    // Sekvenca umesto IDENTITY: deljenje sa vise korisnika je jedan batch INSERT
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "password_shares_seq")
+    @SequenceGenerator(name = "password_shares_seq", sequenceName = "password_shares_seq", allocationSize = IdSequences.ALLOCATION_SIZE)
     private Long id;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "password_entry_id", nullable = false)
     private PasswordEntry passwordEntry;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id", nullable = false)
     private User user; // Korisnik sa kojim je dijeljeno
 
@@ -33,7 +40,7 @@ public class PasswordShare {
     @Column(nullable = false)
     private LocalDateTime sharedAt;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "shared_by_id", nullable = false)
     private User sharedBy; // Ko je podijelio lozinku
 
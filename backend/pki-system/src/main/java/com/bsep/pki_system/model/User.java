@@ -5,11 +5,19 @@ import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.time.LocalDateTime;
 
+// Second-level cache: citanje korisnika (JWT filter, vlasnik sertifikata) je cesto, izmene retke
 @Entity
-@Table(name = "app_user")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "users")
+@Table(name = "app_user", indexes = {
+        // Filter liste sertifikata po organizaciji vlasnika
+        @Index(name = "idx_app_user_organization", columnList = "organization")
+})
 @Getter
 @Setter
 @NoArgsConstructor
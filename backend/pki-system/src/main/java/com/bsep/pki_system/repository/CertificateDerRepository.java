@@ -0,0 +1,9 @@
+package com.bsep.pki_system.repository;
+
+import com.bsep.pki_system.model.CertificateDer;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface CertificateDerRepository extends JpaRepository<CertificateDer, Long> {
+}
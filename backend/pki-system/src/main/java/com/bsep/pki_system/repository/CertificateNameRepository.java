@@ -0,0 +1,9 @@
+package com.bsep.pki_system.repository;
+
+import com.bsep.pki_system.model.CertificateName;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface CertificateNameRepository extends JpaRepository<CertificateName, Long> {
+}
@@ -1,19 +1,38 @@
 package com.bsep.pki_system.repository;
 
+import com.bsep.pki_system.dto.CertificateChainView;
+import com.bsep.pki_system.dto.CertificateResponseDTO;
 import com.bsep.pki_system.model.Certificate;
 import com.bsep.pki_system.model.CertificateStatus;
 import com.bsep.pki_system.model.CertificateType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.AvailableHints;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
-public interface CertificateRepository extends JpaRepository<Certificate, Long> {
+public interface CertificateRepository extends JpaRepository<Certificate, Long>, CertificateRepositoryCustom {
+    // Pojedinacni sertifikat sa neposrednim izdavaocem i vlasnikom (jedan upit; dalji preci ostaju LAZY)
+    @Override
+    @EntityGraph(Certificate.GRAPH_DETAIL)
+    Optional<Certificate> findById(Long id);
+
+    // Query cache: serijski broj -> id, sam entitet iz second-level cache-a (CRL, OCSP, preuzimanje)
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_CACHEABLE, value = "true"))
     Optional<Certificate> findBySerialNumber(String serialNumber);
     List<Certificate> findByType(CertificateType type);
     List<Certificate> findByOwnerId(Long ownerId);
@@ -21,8 +40,139 @@ public interface CertificateRepository extends JpaRepository<Certificate, Long>
     boolean existsBySerialNumber(String serialNumber);
 
     // Pronalazi sve sertifikate koji su CA, validni su i nisu istekli
+    @EntityGraph(Certificate.GRAPH_WITH_ISSUER)
     @Query("SELECT c FROM Certificate c WHERE c.isCA = true AND c.status = :status AND c.validTo > :currentDate")
     List<Certificate> findValidIssuers(@Param("status") CertificateStatus status, @Param("currentDate") Date currentDate);
 
     List<Certificate> findByOwnerIdAndType(Long ownerId, CertificateType type);
-}
\ No newline at end of file
+
+    // Projekcija CertificateResponseDTO: skalarne kolone + id-evi izdavaoca i vlasnika, bez ucitavanja entiteta.
+    // Izdavalac je LEFT JOIN (Root ga nema) samo zbog serijskog broja; vlasnik se cita iz FK kolone.
+    String RESPONSE_SELECT =
+            "SELECT new com.bsep.pki_system.dto.CertificateResponseDTO(c.id, c.serialNumber, c.subject, c.issuer, " +
+            "c.type, c.status, c.validFrom, c.validTo, c.isCA, c.pathLengthConstraint, c.keyUsage, " +
+            "c.extendedKeyUsage, c.basicConstraints, c.revocationReason, c.revokedAt, " +
+            "ic.id, ic.serialNumber, c.owner.id) " +
+            "FROM Certificate c LEFT JOIN c.issuerCertificate ic ";
+
+    @Query(RESPONSE_SELECT + "ORDER BY c.id")
+    List<CertificateResponseDTO> findAllResponses();
+
+    @Query(RESPONSE_SELECT + "WHERE c.id = :id")
+    Optional<CertificateResponseDTO> findResponseById(@Param("id") Long id);
+
+    @Query(RESPONSE_SELECT + "WHERE c.type = :type ORDER BY c.id")
+    List<CertificateResponseDTO> findResponsesByType(@Param("type") CertificateType type);
+
+    @Query(RESPONSE_SELECT + "WHERE c.owner.id = :ownerId ORDER BY c.id")
+    List<CertificateResponseDTO> findResponsesByOwnerId(@Param("ownerId") Long ownerId);
+
+    @Query(RESPONSE_SELECT + "WHERE c.owner.id = :ownerId AND c.type = :type ORDER BY c.id")
+    List<CertificateResponseDTO> findResponsesByOwnerIdAndType(@Param("ownerId") Long ownerId,
+                                                               @Param("type") CertificateType type);
+
+    // Izvoz inventara: redovi se citaju iz kursora baze po EXPORT_FETCH_SIZE, umesto cele liste odjednom.
+    // Stream mora da se zatvori i da se cita u transakciji (PostgreSQL drzi kursor samo van autocommit-a).
+    int EXPORT_FETCH_SIZE = 1000;
+
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = "" + EXPORT_FETCH_SIZE))
+    @Query(RESPONSE_SELECT + "ORDER BY c.id")
+    Stream<CertificateResponseDTO> streamAllResponses();
+
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = "" + EXPORT_FETCH_SIZE))
+    @Query(RESPONSE_SELECT + "WHERE c.owner.id = :ownerId ORDER BY c.id")
+    Stream<CertificateResponseDTO> streamResponsesByOwnerId(@Param("ownerId") Long ownerId);
+
+    // Kolone koje projekcija CertificateChainView cita (bez pem_data)
+    String CHAIN_VIEW_COLUMNS =
+            "c.id AS \"id\", c.serial_number AS \"serialNumber\", c.subject AS \"subject\", " +
+            "c.issuer AS \"issuer\", c.type AS \"type\", c.status AS \"status\", " +
+            "c.valid_from AS \"validFrom\", c.valid_to AS \"validTo\", c.public_key AS \"publicKey\", " +
+            "c.isca AS \"isCA\", c.issuer_certificate_id AS \"issuerCertificateId\", " +
+            "c.owner_id AS \"ownerId\" ";
+
+    // Zastita od ciklusa u losim podacima; stvarne hijerarhije imaju 5-6 nivoa
+    int MAX_CHAIN_DEPTH = 64;
+
+    // Ceo lanac od datog sertifikata do Root-a u jednom upitu (depth 0 = sam sertifikat).
+    // WITH RECURSIVE radi i na PostgreSQL-u i na H2 (testovi).
+    @Query(value = "WITH RECURSIVE t (id, issuer_certificate_id, depth) AS (" +
+            "SELECT c.id, c.issuer_certificate_id, 0 FROM certificates c WHERE c.id = :certificateId " +
+            "UNION ALL " +
+            "SELECT p.id, p.issuer_certificate_id, t.depth + 1 FROM certificates p " +
+            "JOIN t ON p.id = t.issuer_certificate_id WHERE t.depth < " + MAX_CHAIN_DEPTH + ") " +
+            "SELECT " + CHAIN_VIEW_COLUMNS + ", t.depth AS \"depth\" " +
+            "FROM t JOIN certificates c ON c.id = t.id ORDER BY t.depth",
+            nativeQuery = true)
+    List<CertificateChainView> findAncestorChain(@Param("certificateId") Long certificateId);
+
+    // Celo podstablo ispod datog sertifikata (ukljucujuci njega) sa dubinom, u jednom upitu.
+    @Query(value = "WITH RECURSIVE t (id, depth) AS (" +
+            "SELECT c.id, 0 FROM certificates c WHERE c.id = :certificateId " +
+            "UNION ALL " +
+            "SELECT ch.id, t.depth + 1 FROM certificates ch " +
+            "JOIN t ON ch.issuer_certificate_id = t.id WHERE t.depth < " + MAX_CHAIN_DEPTH + ") " +
+            "SELECT " + CHAIN_VIEW_COLUMNS + ", t.depth AS \"depth\" " +
+            "FROM t JOIN certificates c ON c.id = t.id ORDER BY t.depth, c.id",
+            nativeQuery = true)
+    List<CertificateChainView> findSubtree(@Param("certificateId") Long certificateId);
+
+    // Unija lanaca za vise sertifikata odjednom: svaki zajednicki predak se vraca samo jednom
+    // (UNION bez ALL; DISTINCT jer H2 ne uklanja duplikate iz rekurzivnog dela),
+    // pa se hijerarhija moze rekonstruisati preko issuerCertificateId.
+    // depth ovde nema smisla i uvek je null.
+    @Query(value = "WITH RECURSIVE t (id, issuer_certificate_id) AS (" +
+            "SELECT c.id, c.issuer_certificate_id FROM certificates c WHERE c.id IN (:certificateIds) " +
+            "UNION " +
+            "SELECT p.id, p.issuer_certificate_id FROM certificates p " +
+            "JOIN t ON p.id = t.issuer_certificate_id) " +
+            "SELECT DISTINCT " + CHAIN_VIEW_COLUMNS +
+            "FROM t JOIN certificates c ON c.id = t.id",
+            nativeQuery = true)
+    List<CertificateChainView> findAncestorClosure(@Param("certificateIds") Collection<Long> certificateIds);
+
+    // Samo CA sertifikati (Root i Intermediate) - jedini mogu biti izdavaoci, pa lanac organizacije
+    // za izvoz moze da se odredi bez citanja End-Entity sertifikata (indeks type, id)
+    @Query(value = "SELECT " + CHAIN_VIEW_COLUMNS + "FROM certificates c WHERE c.type IN ('ROOT', 'INTERMEDIATE')",
+            nativeQuery = true)
+    List<CertificateChainView> findCaChainViews();
+
+    List<Certificate> findBySerialNumberIn(Collection<String> serialNumbers);
+
+    // Masovna revokacija: sertifikati zajedno sa vlasnikom (autorizacija po organizaciji) u jednom upitu
+    @EntityGraph(Certificate.GRAPH_WITH_OWNER)
+    List<Certificate> findWithOwnerByIdIn(Collection<Long> ids);
+
+    @EntityGraph(Certificate.GRAPH_WITH_OWNER)
+    List<Certificate> findWithOwnerBySerialNumberIn(Collection<String> serialNumbers);
+
+    // Masovna revokacija jednim UPDATE-om; svaki poziv je zasebna (kratka) transakcija.
+    // Vec povuceni sertifikati zadrzavaju originalni razlog i vreme povlacenja.
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE Certificate c SET c.status = com.bsep.pki_system.model.CertificateStatus.REVOKED, " +
+            "c.revocationReason = :reason, c.revokedAt = :revokedAt " +
+            "WHERE c.id IN :ids AND c.status <> com.bsep.pki_system.model.CertificateStatus.REVOKED")
+    int revokeAllByIdIn(@Param("ids") Collection<Long> ids, @Param("reason") String reason,
+                        @Param("revokedAt") LocalDateTime revokedAt);
+
+    // VALID sertifikati kojima je validTo prosao, redom po validTo (indeks status, valid_to)
+    @Query("SELECT c.id FROM Certificate c WHERE c.status = com.bsep.pki_system.model.CertificateStatus.VALID " +
+            "AND c.validTo <= :now ORDER BY c.validTo")
+    List<Long> findExpiredIds(@Param("now") Date now, Pageable pageable);
+
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE Certificate c SET c.status = com.bsep.pki_system.model.CertificateStatus.EXPIRED " +
+            "WHERE c.id IN :ids AND c.status = com.bsep.pki_system.model.CertificateStatus.VALID")
+    int markExpired(@Param("ids") Collection<Long> ids);
+
+    // Najraniji trenutak isteka medju VALID sertifikatima (null ako ih nema)
+    @Query("SELECT MIN(c.validTo) FROM Certificate c WHERE c.status = com.bsep.pki_system.model.CertificateStatus.VALID")
+    Date findNextExpiry();
+
+    // Sertifikati bez imena u indeksu pretrage (izdati pre uvodjenja certificate_names), redom po id-u
+    @Query("SELECT c.id FROM Certificate c WHERE NOT EXISTS " +
+            "(SELECT 1 FROM CertificateName n WHERE n.certificateId = c.id) ORDER BY c.id")
+    List<Long> findIdsWithoutNames(Pageable pageable);
+}
@@ -0,0 +1,16 @@
+package com.bsep.pki_system.repository;
+
+import com.bsep.pki_system.dto.CertificateListFilter;
+import com.bsep.pki_system.dto.CertificateListItemDTO;
+import com.bsep.pki_system.model.CertificateListSort;
+
+import java.util.Date;
+import java.util.List;
+
+public interface CertificateRepositoryCustom {
+
+    // Jedna strana liste (keyset): redovi posle (afterValidTo, afterId) u zadatom redosledu.
+    // afterId == null znaci prva strana; afterValidTo se koristi samo za VALID_TO redosled.
+    List<CertificateListItemDTO> findPage(CertificateListFilter filter, CertificateListSort sort, boolean descending,
+                                          Date afterValidTo, Long afterId, int limit);
+}
@@ -0,0 +1,156 @@
+package com.bsep.pki_system.repository;
+
+import com.bsep.pki_system.dto.CertificateListFilter;
+import com.bsep.pki_system.dto.CertificateListItemDTO;
+import com.bsep.pki_system.dto.CertificateSearchQuery;
+import com.bsep.pki_system.model.Certificate;
+import com.bsep.pki_system.model.CertificateListSort;
+import com.bsep.pki_system.model.CertificateName;
+import com.bsep.pki_system.model.CertificateNameType;
+import com.bsep.pki_system.model.User;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.Order;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Subquery;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+// Lista sertifikata sa keyset (seek) paginacijom: umesto OFFSET-a, sledeca strana pocinje posle
+// poslednjeg reda prethodne, pa je svaka strana jedan opseg po indeksu bez obzira koliko je duboko.
+public class CertificateRepositoryImpl implements CertificateRepositoryCustom {
+
+    private final EntityManager entityManager;
+
+    public CertificateRepositoryImpl(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    @Override
+    public List<CertificateListItemDTO> findPage(CertificateListFilter filter, CertificateListSort sort,
+                                                 boolean descending, Date afterValidTo, Long afterId, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<CertificateListItemDTO> query = cb.createQuery(CertificateListItemDTO.class);
+        Root<Certificate> c = query.from(Certificate.class);
+        Path<Long> id = c.get("id");
+        Path<Date> validTo = c.get("validTo");
+        // Samo FK kolone - bez join-a na izdavaoca i vlasnika
+        Path<Long> issuerId = c.get("issuerCertificate").get("id");
+        Path<Long> ownerId = c.get("owner").get("id");
+
+        query.select(cb.construct(CertificateListItemDTO.class,
+                id, c.get("serialNumber"), c.get("subject"), c.get("issuer"), c.get("type"), c.get("status"),
+                c.get("validFrom"), validTo, c.get("isCA"), issuerId, ownerId, c.get("revocationReason")));
+
+        List<Predicate> predicates = new ArrayList<>();
+        if (filter.getStatus() != null) {
+            predicates.add(cb.equal(c.get("status"), filter.getStatus()));
+        }
+        if (filter.getType() != null) {
+            predicates.add(cb.equal(c.get("type"), filter.getType()));
+        }
+        if (filter.getIssuerId() != null) {
+            predicates.add(cb.equal(issuerId, filter.getIssuerId()));
+        }
+        if (filter.getOwnerId() != null) {
+            predicates.add(cb.equal(ownerId, filter.getOwnerId()));
+        }
+        if (filter.getOrganization() != null) {
+            Join<Certificate, User> owner = c.join("owner");
+            predicates.add(cb.equal(owner.get("organization"), filter.getOrganization()));
+        }
+        if (filter.getSearch() != null) {
+            predicates.add(id.in(matchingCertificateIds(cb, query, filter.getSearch())));
+        }
+        if (filter.getChainOrganization() != null) {
+            predicates.add(inOrganizationChain(cb, query, id, issuerId, filter));
+        }
+        if (filter.getExpiresAfter() != null) {
+            predicates.add(cb.greaterThanOrEqualTo(validTo, filter.getExpiresAfter()));
+        }
+        if (filter.getExpiresBefore() != null) {
+            predicates.add(cb.lessThan(validTo, filter.getExpiresBefore()));
+        }
+
+        // Keyset uslov: (validTo, id) > (poslednji validTo, poslednji id), odnosno < za opadajuci redosled
+        if (afterId != null) {
+            if (sort == CertificateListSort.VALID_TO) {
+                predicates.add(cb.or(
+                        after(cb, validTo, afterValidTo, descending),
+                        cb.and(cb.equal(validTo, afterValidTo), after(cb, id, afterId, descending))));
+            } else {
+                predicates.add(after(cb, id, afterId, descending));
+            }
+        }
+        query.where(predicates.toArray(new Predicate[0]));
+
+        List<Order> orders = new ArrayList<>();
+        if (sort == CertificateListSort.VALID_TO) {
+            orders.add(descending ? cb.desc(validTo) : cb.asc(validTo));
+        }
+        orders.add(descending ? cb.desc(id) : cb.asc(id));
+        query.orderBy(orders);
+
+        return entityManager.createQuery(query).setMaxResults(limit).getResultList();
+    }
+
+    // Id-evi sertifikata cije ime odgovara upitu (indeks certificate_names; term je vec normalizovan)
+    private static Subquery<Long> matchingCertificateIds(CriteriaBuilder cb, CriteriaQuery<?> query,
+                                                         CertificateSearchQuery search) {
+        Subquery<Long> names = query.subquery(Long.class);
+        Root<CertificateName> n = names.from(CertificateName.class);
+        Path<String> value = n.get("value");
+        String term = search.getTerm();
+
+        List<Predicate> predicates = new ArrayList<>();
+        switch (search.getMatch()) {
+            case PREFIX -> predicates.add(cb.like(value, escapeLike(term) + "%", '\\'));
+            case CONTAINS -> predicates.add(cb.like(value, "%" + escapeLike(term) + "%", '\\'));
+            default -> {
+                // "Koji sertifikati pokrivaju api.example.com": tacno ime ili wildcard roditeljskog domena
+                int dot = term.indexOf('.');
+                boolean wildcard = dot > 0 && dot < term.length() - 1
+                        && (search.getField() == null || search.getField() == CertificateNameType.DNS);
+                predicates.add(wildcard ? value.in(term, "*" + term.substring(dot)) : cb.equal(value, term));
+            }
+        }
+        if (search.getField() != null) {
+            predicates.add(cb.equal(n.get("type"), search.getField()));
+        }
+        return names.select(n.get("certificateId")).where(predicates.toArray(new Predicate[0]));
+    }
+
+    // Organizacija u subject-u (indeks certificate_names) ili izdavalac iz lanca organizacije.
+    // Izdavaoci su uvek CA, pa je ovo isti skup kao lanac do Root-a, bez rekurzije po svakom redu.
+    private static Predicate inOrganizationChain(CriteriaBuilder cb, CriteriaQuery<?> query, Path<Long> id,
+                                                 Path<Long> issuerId, CertificateListFilter filter) {
+        Subquery<Long> names = query.subquery(Long.class);
+        Root<CertificateName> n = names.from(CertificateName.class);
+        names.select(n.get("certificateId")).where(
+                cb.equal(n.get("type"), CertificateNameType.ORGANIZATION),
+                cb.equal(n.get("value"), filter.getChainOrganization()));
+
+        Predicate ownOrganization = id.in(names);
+        Collection<Long> chainIssuerIds = filter.getChainIssuerIds();
+        return chainIssuerIds == null || chainIssuerIds.isEmpty()
+                ? ownOrganization
+                : cb.or(ownOrganization, issuerId.in(chainIssuerIds));
+    }
+
+    // %, _ i \ iz upita se traze doslovno
+    private static String escapeLike(String term) {
+        return term.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    private static <T extends Comparable<? super T>> Predicate after(CriteriaBuilder cb, Path<T> path, T value,
+                                                                   boolean descending) {
+        return descending ? cb.lessThan(path, value) : cb.greaterThan(path, value);
+    }
+}
@@ -1,8 +1,12 @@
 package com.bsep.pki_system.repository;
 
 import com.bsep.pki_system.model.CertificateTemplate;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.AvailableHints;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
@@ -12,23 +16,34 @@ import java.util.Optional;
 @Repository
 public interface CertificateTemplateRepository extends JpaRepository<CertificateTemplate, Long> {
 
+    // Sabloni se uvek prikazuju/proveravaju sa CA izdavaocem i kreatorom - jedan upit umesto 1 + 2N
+    @Override
+    @EntityGraph(CertificateTemplate.GRAPH_DETAIL)
+    Optional<CertificateTemplate> findById(Long id);
+
     // Pronalazi šablone po nazivu
     Optional<CertificateTemplate> findByName(String name);
 
     // Pronalazi sve šablone za određenog CA issuer-a
+    @EntityGraph(CertificateTemplate.GRAPH_DETAIL)
     List<CertificateTemplate> findByCaIssuerId(Long caIssuerId);
 
     // Pronalazi šablone po CA issuer-u i organizaciji
+    @EntityGraph(CertificateTemplate.GRAPH_DETAIL)
     @Query("SELECT ct FROM CertificateTemplate ct WHERE ct.caIssuer.owner.organization = :organization")
     List<CertificateTemplate> findByOrganization(@Param("organization") String organization);
 
     // Pronalazi šablone koje je kreirao određeni korisnik
+    @EntityGraph(CertificateTemplate.GRAPH_DETAIL)
     List<CertificateTemplate> findByCreatedById(Long userId);
 
     // Proverava da li šablon sa datim nazivom već postoji
     boolean existsByName(String name);
 
     // Pronalazi sve šablone za CA issuer-e iz određene organizacije
+    // Svaki izbor sablona pri izdavanju - rezultat ide u query cache
+    @EntityGraph(CertificateTemplate.GRAPH_DETAIL)
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_CACHEABLE, value = "true"))
     @Query("SELECT ct FROM CertificateTemplate ct WHERE ct.caIssuer.owner.organization = :organization AND ct.caIssuer.isCA = true")
     List<CertificateTemplate> findTemplatesForOrganizationCAs(@Param("organization") String organization);
 
@@ -0,0 +1,68 @@
+package com.bsep.pki_system.repository;
+
+import com.bsep.pki_system.model.IssuanceJob;
+import com.bsep.pki_system.model.IssuanceJobStatus;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface IssuanceJobRepository extends JpaRepository<IssuanceJob, Long> {
+
+    // Radnik: posao zajedno sa podnosiocem (vlasnik sertifikata i audit log) u jednom upitu
+    @EntityGraph(IssuanceJob.GRAPH_WITH_REQUESTER)
+    Optional<IssuanceJob> findWithRequesterById(Long id);
+
+    long countByStatusIn(Collection<IssuanceJobStatus> statuses);
+
+    @Query("SELECT j.id FROM IssuanceJob j WHERE j.status = :status ORDER BY j.id")
+    List<Long> findIdsByStatus(@Param("status") IssuanceJobStatus status, Pageable pageable);
+
+    // Atomsko preuzimanje posla - uspeva samo jednom radniku (i na vise instanci aplikacije)
+    @Transactional
+    @Modifying
+    @Query("UPDATE IssuanceJob j SET j.status = com.bsep.pki_system.model.IssuanceJobStatus.RUNNING, " +
+            "j.startedAt = :now, j.claimToken = :claimToken " +
+            "WHERE j.id = :id AND j.status = com.bsep.pki_system.model.IssuanceJobStatus.QUEUED")
+    int claim(@Param("id") Long id, @Param("now") LocalDateTime now, @Param("claimToken") String claimToken);
+
+    // Zavrsetak posla u istoj transakciji kao i izdavanje sertifikata; 0 = posao vise nije preuzet ovom oznakom
+    @Transactional
+    @Modifying
+    @Query("UPDATE IssuanceJob j SET j.status = com.bsep.pki_system.model.IssuanceJobStatus.COMPLETED, " +
+            "j.certificateId = :certificateId, j.serialNumber = :serialNumber, j.finishedAt = :finishedAt " +
+            "WHERE j.id = :id AND j.claimToken = :claimToken " +
+            "AND j.status = com.bsep.pki_system.model.IssuanceJobStatus.RUNNING")
+    int complete(@Param("id") Long id, @Param("claimToken") String claimToken,
+                 @Param("certificateId") Long certificateId, @Param("serialNumber") String serialNumber,
+                 @Param("finishedAt") LocalDateTime finishedAt);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE IssuanceJob j SET j.status = com.bsep.pki_system.model.IssuanceJobStatus.FAILED, " +
+            "j.error = :error, j.finishedAt = :finishedAt " +
+            "WHERE j.id = :id AND j.claimToken = :claimToken " +
+            "AND j.status = com.bsep.pki_system.model.IssuanceJobStatus.RUNNING")
+    int fail(@Param("id") Long id, @Param("claimToken") String claimToken, @Param("error") String error,
+             @Param("finishedAt") LocalDateTime finishedAt);
+
+    // Poslovi ostali u RUNNING posle pada instance vracaju se u red. Posao koji vec ima sertifikat se ne vraca
+    // (izdavanje i zavrsetak su u istoj transakciji, pa je to samo dodatna zastita od duplog izdavanja).
+    @Transactional
+    @Modifying
+    @Query("UPDATE IssuanceJob j SET j.status = com.bsep.pki_system.model.IssuanceJobStatus.QUEUED, " +
+            "j.startedAt = null, j.claimToken = null " +
+            "WHERE j.status = com.bsep.pki_system.model.IssuanceJobStatus.RUNNING AND j.startedAt < :startedBefore " +
+            "AND j.certificateId IS NULL")
+    int requeueStale(@Param("startedBefore") LocalDateTime startedBefore);
+}
@@ -3,6 +3,7 @@ package com.bsep.pki_system.repository;
 import com.bsep.pki_system.model.PasswordEntry;
 import com.bsep.pki_system.model.PasswordShare;
 import com.bsep.pki_system.model.User;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -17,7 +18,8 @@ public interface PasswordShareRepository extends JpaRepository<PasswordShare, Lo
     // Pronađi sva dijeljenja za određenog korisnika
     List<PasswordShare> findByUser(User user);
 
-    // Pronađi sva dijeljenja za određeni password entry
+    // Pronađi sva dijeljenja za određeni password entry (sa korisnikom - bez upita po deljenju)
+    @EntityGraph(PasswordShare.GRAPH_WITH_USER)
     List<PasswordShare> findByPasswordEntry(PasswordEntry passwordEntry);
 
     // Pronađi specifično dijeljenje za korisnika i password entry
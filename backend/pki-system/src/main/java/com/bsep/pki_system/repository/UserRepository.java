@@ -1,12 +1,17 @@
 package com.bsep.pki_system.repository;
 import com.bsep.pki_system.model.User;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.AvailableHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
 
 import java.util.Optional;
 
 
 public interface UserRepository extends JpaRepository<User, Long> {
 
+    // Poziva se za svaki autentifikovan zahtev - rezultat ide u query cache
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_CACHEABLE, value = "true"))
     Optional<User> findByEmail(String email);
     boolean existsByEmail(String email);
     Optional<User> findByVerificationToken(String token);
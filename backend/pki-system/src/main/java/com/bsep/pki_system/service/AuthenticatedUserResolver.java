@@ -0,0 +1,117 @@
+package com.bsep.pki_system.service;
+
+import com.bsep.pki_system.jwt.UserPrincipal;
+import com.bsep.pki_system.model.User;
+import com.bsep.pki_system.repository.UserRepository;
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.Optional;
+
+// Pretvara UserPrincipal iz JWT-a u User entitet bez upita za (skoro) svaki zahtev:
+// 1. memoizacija u okviru HTTP zahteva - ceo zahtev vidi istog korisnika,
+// 2. mali TTL kes po id-u korisnika, koji UserService prazni preko UserChangedEvent.
+// Na vise instanci aplikacije izmena sa druge instance se vidi najkasnije posle TTL-a.
+// Vraceni User je deljen izmedju zahteva - koristi se samo za citanje (vlasnik, organizacija, uloga);
+// tokovi koji menjaju korisnika (AuthController) ga i dalje ucitavaju preko UserService.
+@Service
+public class AuthenticatedUserResolver {
+
+    private static final String REQUEST_ATTRIBUTE = AuthenticatedUserResolver.class.getName() + ".user";
+
+    private final UserRepository userRepository;
+    private final Cache<Long, User> users;
+
+    @Autowired
+    public AuthenticatedUserResolver(UserRepository userRepository,
+                                     @Value("${user-resolver.ttl-ms:30000}") long ttlMillis,
+                                     @Value("${user-resolver.max-size:10000}") long maxSize) {
+        this(userRepository, ttlMillis, maxSize, Ticker.systemTicker());
+    }
+
+    AuthenticatedUserResolver(UserRepository userRepository, long ttlMillis, long maxSize, Ticker ticker) {
+        this.userRepository = userRepository;
+        this.users = CacheBuilder.newBuilder()
+                .expireAfterWrite(Duration.ofMillis(ttlMillis))
+                .maximumSize(maxSize)
+                .ticker(ticker)
+                .build();
+    }
+
+    public Optional<User> resolve(UserPrincipal principal) {
+        if (principal == null) {
+            return Optional.empty();
+        }
+
+        RequestAttributes request = RequestContextHolder.getRequestAttributes();
+        if (request != null
+                && request.getAttribute(REQUEST_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST) instanceof User user
+                && Objects.equals(user.getEmail(), principal.getEmail())) {
+            return Optional.of(user);
+        }
+
+        Optional<User> user = lookup(principal);
+        if (request != null) {
+            user.ifPresent(u -> request.setAttribute(REQUEST_ATTRIBUTE, u, RequestAttributes.SCOPE_REQUEST));
+        }
+        return user;
+    }
+
+    // Za provere koje traze samo id, ulogu i organizaciju (vidljivost, CA filteri): token vec nosi sve,
+    // pa se User ucitava samo za starije tokene bez userId ili organization claim-a
+    public Optional<UserPrincipal> resolvePrincipal(UserPrincipal principal) {
+        if (principal == null) {
+            return Optional.empty();
+        }
+        if (principal.getId() != null && principal.getOrganization() != null) {
+            return Optional.of(principal);
+        }
+        return resolve(principal).map(UserPrincipal::from);
+    }
+
+    private Optional<User> lookup(UserPrincipal principal) {
+        if (principal.getId() == null) {
+            // Stariji token bez userId claim-a
+            return userRepository.findByEmail(principal.getEmail());
+        }
+
+        User cached = users.getIfPresent(principal.getId());
+        if (cached != null && Objects.equals(cached.getEmail(), principal.getEmail())) {
+            return Optional.of(cached);
+        }
+
+        // Id i email iz tokena moraju da se poklope - token obrisanog korisnika ne sme da pokupi novi nalog sa istim id-em
+        Optional<User> user = userRepository.findById(principal.getId())
+                .filter(u -> Objects.equals(u.getEmail(), principal.getEmail()));
+        user.ifPresent(u -> users.put(u.getId(), u));
+        return user;
+    }
+
+    public void invalidate(Long userId) {
+        if (userId != null) {
+            users.invalidate(userId);
+        }
+    }
+
+    public void invalidateAll() {
+        users.invalidateAll();
+    }
+
+    public long size() {
+        return users.size();
+    }
+
+    @EventListener
+    public void onUserChanged(UserChangedEvent event) {
+        invalidate(event.getUserId());
+    }
+}
@@ -3,13 +3,12 @@ package com.bsep.pki_system.service;
 import com.bsep.pki_system.controller.AuthController;
 import com.bsep.pki_system.model.Certificate;
 import com.bsep.pki_system.model.CertificateStatus;
+import com.bsep.pki_system.model.KeyAlgorithm;
 import com.bsep.pki_system.repository.CertificateRepository;
 import org.bouncycastle.asn1.x500.X500Name;
 import org.bouncycastle.asn1.x509.CRLReason;
 import org.bouncycastle.cert.X509CRLHolder;
 import org.bouncycastle.cert.X509v2CRLBuilder;
-import org.bouncycastle.operator.ContentSigner;
-import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -17,12 +16,9 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.Map;
 import java.io.ByteArrayInputStream;
 import java.math.BigInteger;
-import java.security.KeyFactory;
-import java.security.PrivateKey;
 import java.security.PublicKey;
 import java.security.cert.CertificateFactory;
 import java.security.cert.X509CRL;
-import java.security.spec.X509EncodedKeySpec;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.util.Date;
@@ -35,14 +31,14 @@ import org.slf4j.LoggerFactory;
 public class CRLService {
 
     private final CertificateRepository certificateRepository;
-    private final KeystoreService keystoreService;
+    private final SigningContextCache signingContextCache;
     private final Map<String, byte[]> crlCache = new ConcurrentHashMap<>();
 
     private static final Logger logger = LoggerFactory.getLogger(AuthController.class);
 
-    public CRLService(CertificateRepository certificateRepository, KeystoreService keystoreService) {
+    public CRLService(CertificateRepository certificateRepository, SigningContextCache signingContextCache) {
         this.certificateRepository = certificateRepository;
-        this.keystoreService = keystoreService;
+        this.signingContextCache = signingContextCache;
     }
 
     //Generiše CRL listu za dati CA sertifikat
@@ -55,16 +51,11 @@ public class CRLService {
                 .filter(cert -> cert.getStatus() == CertificateStatus.REVOKED)
                 .toList();
 
-        // 2. Učitaj privatni ključ CA-a
-        String alias = "CA_" + caCertificate.getSerialNumber();
-        PrivateKey caPrivateKey = keystoreService.getPrivateKey(alias, caCertificate.getSerialNumber());
-
-        if (caPrivateKey == null) {
-            throw new RuntimeException("Private key not found for CA: " + caCertificate.getSerialNumber());
-        }
+        // 2. Potpisni kontekst CA-a (privatni ključ se otključava samo pri prvom korišćenju, isti kao za izdavanje)
+        SigningContext signingContext = signingContextCache.get(caCertificate);
 
         // 3. Kreiraj CRL builder
-        X500Name issuer = new X500Name(caCertificate.getSubject());
+        X500Name issuer = signingContext.getIssuerName();
         Date now = new Date();
         Date nextUpdate = Date.from(LocalDateTime.now().plusDays(7).atZone(ZoneId.systemDefault()).toInstant());
 
@@ -89,8 +80,7 @@ public class CRLService {
         }
 
         // 5. Potpiši CRL
-        ContentSigner signer = new JcaContentSignerBuilder("SHA256WithRSAEncryption").build(caPrivateKey);
-        X509CRLHolder crlHolder = crlBuilder.build(signer);
+        X509CRLHolder crlHolder = signingContext.sign(crlBuilder);
 
         // 6. Ažuriraj CRL broj u bazi
         caCertificate.setCrlNumber(crlNumber.longValue());
@@ -116,8 +106,22 @@ public class CRLService {
             default -> CRLReason.unspecified;
         };
     }
-    @Transactional(readOnly = true)
+    // Nije readOnly: ako CRL nije u kesu, generise se i upisuje crlNumber - uvek sa primarne baze,
+    // replika koja kasni bi dala listu bez upravo povucenih sertifikata
+    @Transactional
     public boolean isCertificateRevoked(Certificate certificateToCheck, Certificate issuer) {
+        BigInteger serialToCheck;
+        try {
+            serialToCheck = new BigInteger(certificateToCheck.getSerialNumber());
+        } catch (Exception e) {
+            logger.error("Error message", e);
+            return true;
+        }
+        return isSerialRevoked(serialToCheck, issuer);
+    }
+
+    // Provera po serijskom broju (koristi je i PKIX revocation checker, koji ima samo X509 objekat)
+    public boolean isSerialRevoked(BigInteger serialToCheck, Certificate issuer) {
         try {
             // 1. Generiši (ili dohvati) najnoviju CRL listu za izdavaoca
             byte[] crlBytes = getOrGenerateCRL(issuer);
@@ -127,15 +131,11 @@ public class CRLService {
             X509CRL crl = (X509CRL) cf.generateCRL(new ByteArrayInputStream(crlBytes));
 
             // 3. Verifikuj potpis CRL liste (da li ju je zaista potpisao izdavalac)
-            byte[] issuerPublicKeyBytes = java.util.Base64.getDecoder().decode(issuer.getPublicKey());
-            KeyFactory keyFactory = KeyFactory.getInstance("RSA");
-            PublicKey issuerPublicKey = keyFactory.generatePublic(new X509EncodedKeySpec(issuerPublicKeyBytes));
+            PublicKey issuerPublicKey = KeyAlgorithm.decodePublicKey(issuer.getPublicKey());
 
             crl.verify(issuerPublicKey); // Baciće izuzetak ako potpis nije validan
 
             // 4. proveri da li je serijski broj sertifikata na listi
-            BigInteger serialToCheck = new BigInteger(certificateToCheck.getSerialNumber());
-
             // crl.getRevokedCertificate() vraća non-null ako je serijski broj na listi
             return crl.getRevokedCertificate(serialToCheck) != null;
 
@@ -167,6 +167,14 @@ public class CRLService {
         // Kesirana lista je validna i sveza. Vracam je.
         return crlCache.get(issuerSerial);
     }
+    // Odmah generise novu CRL listu i menja kesiranu (npr. posle masovne revokacije),
+    // umesto da se ceka sledeci zahtev za CRL
+    public byte[] regenerateCRL(Certificate caCertificate) throws Exception {
+        byte[] newCrl = generateCRL(caCertificate);
+        crlCache.put(caCertificate.getSerialNumber(), newCrl);
+        return newCrl;
+    }
+
     public void clearCache(String issuerSerialNumber) {
         if (issuerSerialNumber != null) {
             crlCache.remove(issuerSerialNumber);
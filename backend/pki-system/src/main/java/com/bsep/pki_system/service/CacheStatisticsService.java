@@ -0,0 +1,57 @@
+package com.bsep.pki_system.service;
+
+import com.bsep.pki_system.dto.CacheRegionStatsDTO;
+import com.bsep.pki_system.dto.CacheStatisticsDTO;
+import com.bsep.pki_system.dto.QueryCacheStatsDTO;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.QueryStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Pregled Hibernate second-level i query cache-a po regiji (pogoci, promasaji, velicina)
+// i po upitu koji koristi query cache. Brojaci postoje samo uz hibernate.generate_statistics=true.
+@Service
+public class CacheStatisticsService {
+
+    private final SessionFactory sessionFactory;
+
+    public CacheStatisticsService(EntityManagerFactory entityManagerFactory) {
+        this.sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+    }
+
+    public CacheStatisticsDTO getStatistics() {
+        Statistics statistics = sessionFactory.getStatistics();
+
+        List<CacheRegionStatsDTO> regions = new ArrayList<>();
+        String[] regionNames = statistics.getSecondLevelCacheRegionNames();
+        Arrays.sort(regionNames);
+        for (String regionName : regionNames) {
+            CacheRegionStatistics region = statistics.getCacheRegionStatistics(regionName);
+            if (region != null) {
+                regions.add(new CacheRegionStatsDTO(regionName, region.getHitCount(), region.getMissCount(),
+                        region.getPutCount(), region.getElementCountInMemory()));
+            }
+        }
+
+        List<QueryCacheStatsDTO> queries = new ArrayList<>();
+        for (String query : statistics.getQueries()) {
+            QueryStatistics queryStatistics = statistics.getQueryStatistics(query);
+            long hits = queryStatistics.getCacheHitCount();
+            long misses = queryStatistics.getCacheMissCount();
+            // Ostali upiti ne idu kroz query cache
+            if (hits + misses > 0) {
+                queries.add(new QueryCacheStatsDTO(query, hits, misses, queryStatistics.getCachePutCount(),
+                        queryStatistics.getExecutionCount()));
+            }
+        }
+
+        return new CacheStatisticsDTO(statistics.isStatisticsEnabled(), regions, queries);
+    }
+
+}
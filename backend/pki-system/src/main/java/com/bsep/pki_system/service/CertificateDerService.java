@@ -0,0 +1,185 @@
+package com.bsep.pki_system.service;
+
+import com.bsep.pki_system.controller.AuthController;
+import com.bsep.pki_system.model.Certificate;
+import com.bsep.pki_system.model.CertificateDer;
+import com.bsep.pki_system.model.CertificateType;
+import com.bsep.pki_system.repository.CertificateDerRepository;
+import com.google.common.collect.Lists;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayInputStream;
+import java.security.cert.CertificateEncodingException;
+import java.security.cert.CertificateException;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// DER kodirani sertifikati iz baze (tabela certificate_der), sa malim LRU kesom za CA sertifikate
+// koji se citaju pri svakom sklapanju lanca i validaciji. Keystore se cita samo za sertifikate
+// izdate pre uvodjenja tabele - tada se DER odmah upisuje u bazu, pa je sledece citanje iz baze.
+@Service
+public class CertificateDerService {
+
+    private static final int INSERT_BATCH_SIZE = 500;
+
+    private final CertificateDerRepository certificateDerRepository;
+    private final KeystoreService keystoreService;
+    private final CertificateNameIndexer certificateNameIndexer;
+
+    @Value("${certificate-der.ca-cache-size:256}")
+    private int caCacheSize = 256;
+
+    // Pristupni redosled (LRU); izbacuje se najduze nekorisceni CA
+    private final Map<Long, X509Certificate> caCache = Collections.synchronizedMap(
+            new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Long, X509Certificate> eldest) {
+                    return size() > caCacheSize;
+                }
+            });
+
+    private static final Logger logger = LoggerFactory.getLogger(AuthController.class);
+
+    public CertificateDerService(CertificateDerRepository certificateDerRepository, KeystoreService keystoreService,
+                                 CertificateNameIndexer certificateNameIndexer) {
+        this.certificateDerRepository = certificateDerRepository;
+        this.keystoreService = keystoreService;
+        this.certificateNameIndexer = certificateNameIndexer;
+    }
+
+    // save/saveAll se pozivaju za svaki izdat sertifikat, pa se tu upisuju i imena za pretragu
+    @Transactional(rollbackFor = Exception.class)
+    public void save(Certificate certificate, X509Certificate x509) throws CertificateEncodingException {
+        certificateDerRepository.save(new CertificateDer(certificate.getId(), x509.getEncoded()));
+        certificateNameIndexer.index(certificate, x509);
+        if (Boolean.TRUE.equals(certificate.getIsCA())) {
+            caCache.put(certificate.getId(), x509);
+        }
+    }
+
+    // Paketni insert (isti paketi kao za same sertifikate)
+    @Transactional(rollbackFor = Exception.class)
+    public void saveAll(List<Certificate> certificates, List<X509Certificate> x509Certs) throws CertificateEncodingException {
+        List<CertificateDer> ders = new ArrayList<>();
+        for (int i = 0; i < certificates.size(); i++) {
+            ders.add(new CertificateDer(certificates.get(i).getId(), x509Certs.get(i).getEncoded()));
+        }
+        for (List<CertificateDer> batch : Lists.partition(ders, INSERT_BATCH_SIZE)) {
+            certificateDerRepository.saveAll(batch);
+            certificateDerRepository.flush();
+        }
+        certificateNameIndexer.indexAll(certificates, x509Certs);
+    }
+
+    public X509Certificate getX509(Certificate certificate) throws Exception {
+        return getX509(certificate.getId(), keystoreAlias(certificate), Boolean.TRUE.equals(certificate.getIsCA()));
+    }
+
+    // CA sertifikat po id-u (npr. cvor iz CertificateChainView)
+    public X509Certificate getCaX509(Long certificateId, String serialNumber) throws Exception {
+        return getX509(certificateId, "CA_" + serialNumber, true);
+    }
+
+    public byte[] getDer(Certificate certificate) throws Exception {
+        X509Certificate x509 = getX509(certificate);
+        return x509 != null ? x509.getEncoded() : null;
+    }
+
+    // Vise sertifikata odjednom: kes, pa jedan upit za ostale, pa (samo za stare) jedno ucitavanje keystore-a
+    public Map<Long, X509Certificate> getX509s(List<Certificate> certificates) throws Exception {
+        Map<Long, X509Certificate> result = new HashMap<>();
+        List<Certificate> missing = new ArrayList<>();
+        for (Certificate certificate : certificates) {
+            X509Certificate cached = Boolean.TRUE.equals(certificate.getIsCA()) ? caCache.get(certificate.getId()) : null;
+            if (cached != null) {
+                result.put(certificate.getId(), cached);
+            } else {
+                missing.add(certificate);
+            }
+        }
+        if (missing.isEmpty()) {
+            return result;
+        }
+
+        Map<Long, Certificate> byId = new HashMap<>();
+        missing.forEach(certificate -> byId.put(certificate.getId(), certificate));
+        for (CertificateDer der : certificateDerRepository.findAllById(byId.keySet())) {
+            Certificate certificate = byId.remove(der.getCertificateId());
+            result.put(certificate.getId(), remember(certificate.getId(), parse(der.getDer()),
+                    Boolean.TRUE.equals(certificate.getIsCA())));
+        }
+
+        if (!byId.isEmpty()) {
+            List<Certificate> legacy = missing.stream().filter(certificate -> byId.containsKey(certificate.getId())).toList();
+            Map<String, java.security.cert.Certificate> fromKeystore =
+                    keystoreService.getCertificates(legacy.stream().map(this::keystoreAlias).toList());
+            for (Certificate certificate : legacy) {
+                X509Certificate x509 = (X509Certificate) fromKeystore.get(keystoreAlias(certificate));
+                if (x509 != null) {
+                    backfill(certificate.getId(), x509);
+                    result.put(certificate.getId(), remember(certificate.getId(), x509,
+                            Boolean.TRUE.equals(certificate.getIsCA())));
+                }
+            }
+        }
+        return result;
+    }
+
+    private X509Certificate getX509(Long certificateId, String keystoreAlias, boolean ca) throws Exception {
+        if (ca) {
+            X509Certificate cached = caCache.get(certificateId);
+            if (cached != null) {
+                return cached;
+            }
+        }
+
+        CertificateDer der = certificateDerRepository.findById(certificateId).orElse(null);
+        if (der != null) {
+            return remember(certificateId, parse(der.getDer()), ca);
+        }
+
+        // Sertifikat izdat pre uvodjenja tabele - jednom iz keystore-a, pa u bazu
+        X509Certificate x509 = (X509Certificate) keystoreService.getCertificate(keystoreAlias);
+        if (x509 != null) {
+            backfill(certificateId, x509);
+            remember(certificateId, x509, ca);
+        }
+        return x509;
+    }
+
+    private X509Certificate remember(Long certificateId, X509Certificate x509, boolean ca) {
+        if (ca) {
+            caCache.put(certificateId, x509);
+        }
+        return x509;
+    }
+
+    private void backfill(Long certificateId, X509Certificate x509) {
+        try {
+            certificateDerRepository.save(new CertificateDer(certificateId, x509.getEncoded()));
+        } catch (Exception e) {
+            // Nije kriticno - sledece citanje ce ponovo ici u keystore
+            logger.error("Error message", e);
+        }
+    }
+
+    private static X509Certificate parse(byte[] der) throws CertificateException {
+        return (X509Certificate) CertificateFactory.getInstance("X.509").generateCertificate(new ByteArrayInputStream(der));
+    }
+
+    // EE sertifikati su u keystore-u pod EE_ prefiksom, CA sertifikati pod CA_
+    private String keystoreAlias(Certificate certificate) {
+        String prefix = certificate.getType() == CertificateType.END_ENTITY ? "EE_" : "CA_";
+        return prefix + certificate.getSerialNumber();
+    }
+}
@@ -0,0 +1,115 @@
+package com.bsep.pki_system.service;
+
+import com.bsep.pki_system.controller.AuthController;
+import com.bsep.pki_system.repository.CertificateRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ScheduledFuture;
+
+// Prebacuje sertifikate u EXPIRED u trenutku isteka, pa "trenutno validni" upiti
+// mogu da se oslone na status (indeks status, valid_to) umesto da racunaju datume.
+// Sledece pokretanje se zakazuje za najraniji validTo medju VALID sertifikatima
+// (jedan indeksni upit), ali najkasnije posle maxDelay - da bi se uhvatili i tek izdati sertifikati.
+@Service
+public class CertificateExpirySweeper {
+
+    private final CertificateRepository certificateRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TaskScheduler taskScheduler;
+
+    @Value("${certificate.expiry-sweeper.enabled:true}")
+    private boolean enabled;
+
+    @Value("${certificate.expiry-sweeper.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${certificate.expiry-sweeper.max-delay-ms:60000}")
+    private long maxDelayMs;
+
+    private ScheduledFuture<?> nextRun;
+
+    private static final Logger logger = LoggerFactory.getLogger(AuthController.class);
+
+    public CertificateExpirySweeper(CertificateRepository certificateRepository,
+                                    ApplicationEventPublisher eventPublisher,
+                                    TaskScheduler taskScheduler) {
+        this.certificateRepository = certificateRepository;
+        this.eventPublisher = eventPublisher;
+        this.taskScheduler = taskScheduler;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (enabled) {
+            schedule(Instant.now());
+        }
+    }
+
+    // Prebacuje sve istekle VALID sertifikate u EXPIRED, u paketima po batchSize (redom po validTo).
+    // Vraca ukupan broj izmenjenih sertifikata.
+    public synchronized int sweep() {
+        Date now = new Date();
+        int total = 0;
+        while (true) {
+            List<Long> expiredIds = certificateRepository.findExpiredIds(now, PageRequest.of(0, batchSize));
+            if (expiredIds.isEmpty()) {
+                break;
+            }
+
+            total += certificateRepository.markExpired(expiredIds);
+            eventPublisher.publishEvent(new CertificatesExpiredEvent(expiredIds));
+
+            if (expiredIds.size() < batchSize) {
+                break;
+            }
+        }
+        if (total > 0) {
+            logger.info("Marked {} certificates as EXPIRED", total);
+        }
+        return total;
+    }
+
+    // Sledece pokretanje: najraniji validTo medju VALID sertifikatima, ali ne kasnije od now + maxDelay
+    public Instant nextRunAfter(Instant now) {
+        Instant latest = now.plusMillis(maxDelayMs);
+        Date nextExpiry = certificateRepository.findNextExpiry();
+        if (nextExpiry == null || nextExpiry.toInstant().isAfter(latest)) {
+            return latest;
+        }
+        return nextExpiry.toInstant().isBefore(now) ? now : nextExpiry.toInstant();
+    }
+
+    private void runAndReschedule() {
+        try {
+            sweep();
+        } catch (Exception e) {
+            logger.error("Error message", e);
+        } finally {
+            Instant next = Instant.now().plusMillis(maxDelayMs);
+            try {
+                next = nextRunAfter(Instant.now());
+            } catch (Exception e) {
+                logger.error("Error message", e);
+            }
+            schedule(next);
+        }
+    }
+
+    private synchronized void schedule(Instant when) {
+        if (nextRun != null) {
+            nextRun.cancel(false);
+        }
+        nextRun = taskScheduler.schedule(this::runAndReschedule, when);
+    }
+}
@@ -0,0 +1,89 @@
+package com.bsep.pki_system.service;
+
+import com.bsep.pki_system.dto.CertificateResponseDTO;
+import com.bsep.pki_system.jwt.UserPrincipal;
+import com.bsep.pki_system.model.CertificateExportFormat;
+import com.bsep.pki_system.util.CsvUtil;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
+
+// Izvoz inventara sertifikata (NDJSON ili CSV) direktno u odgovor: svaki red iz kursora baze se odmah
+// upisuje u izlaz, pa potrosnja memorije ne zavisi od broja sertifikata. Vidljivost kao za /my-chain.
+@Service
+public class CertificateExportService {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final List<String> CSV_COLUMNS = List.of(
+            "id", "serialNumber", "subject", "issuer", "type", "status", "validFrom", "validTo", "isCA",
+            "pathLengthConstraint", "keyUsage", "extendedKeyUsage", "basicConstraints", "revocationReason",
+            "revokedAt", "issuerId", "issuerSerialNumber", "ownerId");
+
+    private final CertificateService certificateService;
+    private final ObjectMapper objectMapper;
+
+    public CertificateExportService(CertificateService certificateService, ObjectMapper objectMapper) {
+        this.certificateService = certificateService;
+        this.objectMapper = objectMapper;
+    }
+
+    // Vraca broj izvezenih sertifikata. Izlazni stream se ne zatvara (pripada pozivaocu).
+    public long export(UserPrincipal user, CertificateExportFormat format, OutputStream outputStream) throws IOException {
+        BufferedOutputStream out = new BufferedOutputStream(outputStream, BUFFER_SIZE);
+        if (format == CertificateExportFormat.CSV) {
+            out.write(csvLine(CSV_COLUMNS));
+        }
+
+        long count;
+        try {
+            count = certificateService.streamCertificateChainResponsesForUser(user, response -> {
+                try {
+                    out.write(format == CertificateExportFormat.CSV ? csvRow(response) : ndjsonRow(response));
+                } catch (IOException e) {
+                    // Klijent je prekinuo vezu - zatvara se i kursor baze
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        out.flush();
+        return count;
+    }
+
+    private byte[] ndjsonRow(CertificateResponseDTO response) throws IOException {
+        byte[] json = objectMapper.writeValueAsBytes(response);
+        byte[] row = Arrays.copyOf(json, json.length + 1);
+        row[json.length] = '\n';
+        return row;
+    }
+
+    private static byte[] csvRow(CertificateResponseDTO response) {
+        return csvLine(Arrays.asList(response.getId(), response.getSerialNumber(), response.getSubject(),
+                response.getIssuer(), response.getType(), response.getStatus(), date(response.getValidFrom()),
+                date(response.getValidTo()), response.getIsCA(), response.getPathLengthConstraint(),
+                response.getKeyUsage(), response.getExtendedKeyUsage(), response.getBasicConstraints(),
+                response.getRevocationReason(), response.getRevokedAt(), response.getIssuerId(),
+                response.getIssuerSerialNumber(), response.getOwnerId()));
+    }
+
+    private static byte[] csvLine(List<?> values) {
+        return (values.stream().map(CsvUtil::escape).collect(Collectors.joining(",")) + "\n")
+                .getBytes(StandardCharsets.UTF_8);
+    }
+
+    // ISO-8601 (UTC), npr. 2025-01-31T10:15:30Z
+    private static Object date(Date date) {
+        return date != null ? date.toInstant() : null;
+    }
+}
@@ -1,11 +1,17 @@
 package com.bsep.pki_system.service;
 
+import com.bsep.pki_system.controller.AuthController;
+import com.bsep.pki_system.dto.BatchCsrItemDTO;
 import com.bsep.pki_system.dto.CreateCertificateDTO;
+import com.bsep.pki_system.dto.KeygenSubjectDTO;
 import com.bsep.pki_system.model.Certificate;
 import com.bsep.pki_system.model.CertificateType;
+import com.bsep.pki_system.model.KeyAlgorithm;
 import com.bsep.pki_system.model.User;
 import com.bsep.pki_system.service.CertificateService;
+import com.google.common.net.InetAddresses;
 import org.apache.commons.codec.DecoderException;
+import org.bouncycastle.asn1.DERSet;
 import org.bouncycastle.asn1.pkcs.PKCSObjectIdentifiers;
 import org.bouncycastle.asn1.x500.X500Name;
 import org.bouncycastle.asn1.x500.X500NameBuilder;
@@ -18,10 +24,13 @@ import org.bouncycastle.cert.jcajce.JcaX509v3CertificateBuilder;
 import org.bouncycastle.jce.provider.BouncyCastleProvider;
 import org.bouncycastle.operator.ContentSigner;
 import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+import org.bouncycastle.operator.jcajce.JcaContentVerifierProviderBuilder;
 import org.bouncycastle.pkcs.PKCS10CertificationRequest;
 import org.bouncycastle.pkcs.jcajce.JcaPKCS10CertificationRequest;
 import org.bouncycastle.util.io.pem.PemObject;
 import org.bouncycastle.util.io.pem.PemReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 import org.bouncycastle.asn1.x509.AuthorityKeyIdentifier;
 import org.bouncycastle.asn1.x509.SubjectKeyIdentifier;
@@ -33,25 +42,42 @@ import java.io.StringReader;
 import java.math.BigInteger;
 import java.security.*;
 import java.security.cert.X509Certificate;
-import java.security.spec.X509EncodedKeySpec;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 @Service
 public class CertificateGeneratorService {
 
     private final KeystoreService keystoreService;
     private final CertificateService certificateService;
+    private final KeyPairPool keyPairPool;
+    private final SigningContextCache signingContextCache;
+    private final CertificateDerService certificateDerService;
+
+    private static final Logger logger = LoggerFactory.getLogger(AuthController.class);
 
     static {
         Security.addProvider(new BouncyCastleProvider());
     }
 
     public CertificateGeneratorService(KeystoreService keystoreService,
-                                       CertificateService certificateService) {
+                                       CertificateService certificateService,
+                                       KeyPairPool keyPairPool,
+                                       SigningContextCache signingContextCache,
+                                       CertificateDerService certificateDerService) {
         this.keystoreService = keystoreService;
         this.certificateService = certificateService;
+        this.keyPairPool = keyPairPool;
+        this.signingContextCache = signingContextCache;
+        this.certificateDerService = certificateDerService;
     }
 
     public KeystoreService getKeystoreService() {
@@ -61,7 +87,7 @@ public class CertificateGeneratorService {
     @Transactional(rollbackFor = Exception.class)
     public Certificate generateRootCertificate(CreateCertificateDTO request, User owner) throws Exception {
         // 1. Generisanje para ključeva
-        KeyPair keyPair = generateKeyPair();
+        KeyPair keyPair = generateKeyPair(request.getKeyAlgorithm());
 
         // 2. Kreiranje X500Name za subject i issuer (isti za root)
         X500Name subject = createX500Name(request);
@@ -93,7 +119,8 @@ public class CertificateGeneratorService {
         certBuilder.addExtension(Extension.authorityKeyIdentifier, false, aki);
 
         // 6. Potpisivanje sertifikata
-        ContentSigner signer = new JcaContentSignerBuilder("SHA256WithRSAEncryption").build(keyPair.getPrivate());
+        ContentSigner signer = new JcaContentSignerBuilder(KeyAlgorithm.signatureAlgorithm(keyPair.getPrivate()))
+                .build(keyPair.getPrivate());
         X509CertificateHolder certHolder = certBuilder.build(signer);
         X509Certificate x509Cert = new JcaX509CertificateConverter().getCertificate(certHolder);
 
@@ -118,14 +145,15 @@ public class CertificateGeneratorService {
         String alias = "CA_" + serialNumber.toString(); // isti prefiks za sve CA sertifikate (i root i intermediate)
         keystoreService.savePrivateKey(alias, keyPair.getPrivate(), x509Cert, serialNumber.toString());
 
+        // 9. DER u bazu - lanci i preuzimanja vise ne citaju keystore
+        certificateDerService.save(savedCertificate, x509Cert);
 
         return savedCertificate;
     }
 
-    private KeyPair generateKeyPair() throws NoSuchAlgorithmException {
-        KeyPairGenerator keyGen = KeyPairGenerator.getInstance("RSA");
-        keyGen.initialize(2048);
-        return keyGen.generateKeyPair();
+    // Par kljuceva iz pozadinski popunjavanog pool-a (sinhrono generisanje ako je pool prazan)
+    private KeyPair generateKeyPair(KeyAlgorithm keyAlgorithm) throws Exception {
+        return keyPairPool.acquire(KeyAlgorithm.orDefault(keyAlgorithm));
     }
 
     private X500Name createX500Name(CreateCertificateDTO request) {
@@ -167,28 +195,17 @@ public class CertificateGeneratorService {
     @Transactional(rollbackFor = Exception.class)
     public Certificate generateIntermediateCertificate(CreateCertificateDTO request, User owner, Certificate issuerCertificate) throws Exception {
         // 1. Generisanje para ključeva za novi, intermediate sertifikat
-        KeyPair keyPair = generateKeyPair();
+        KeyPair keyPair = generateKeyPair(request.getKeyAlgorithm());
 
         // 2. Kreiranje X500Name za subject
         X500Name subject = createX500Name(request);
 
-        // 3. Uzimanje podataka o izdavaocu (issueru)
-        PrivateKey issuerPrivateKey = keystoreService.getPrivateKey("CA_" + issuerCertificate.getSerialNumber(), issuerCertificate.getSerialNumber());
-        X500Name issuer = new X500Name(issuerCertificate.getSubject());
-
-        // Priprema za SKI i AKI
-        JcaX509ExtensionUtils extensionUtils = new JcaX509ExtensionUtils();
+        // 3. Uzimanje podataka o izdavaocu (issueru) - kljuc, X500Name i AKI iz kesiranog konteksta
+        SigningContext issuerContext = signingContextCache.get(issuerCertificate);
+        X500Name issuer = issuerContext.getIssuerName();
 
         // Kreiraj SKI od javnog ključa NOVOG sertifikata
-        SubjectKeyIdentifier ski = extensionUtils.createSubjectKeyIdentifier(keyPair.getPublic());
-
-        // Kreiraj AKI od javnog ključa IZDAVAOCA (issuer-a)
-        byte[] issuerPublicKeyBytes = java.util.Base64.getDecoder().decode(issuerCertificate.getPublicKey());
-        KeyFactory keyFactory = KeyFactory.getInstance("RSA");
-        X509EncodedKeySpec issuerPublicKeySpec = new X509EncodedKeySpec(issuerPublicKeyBytes);
-        PublicKey issuerPublicKey = keyFactory.generatePublic(issuerPublicKeySpec);
-        AuthorityKeyIdentifier aki = extensionUtils.createAuthorityKeyIdentifier(issuerPublicKey);
-        // ====================================================================
+        SubjectKeyIdentifier ski = new JcaX509ExtensionUtils().createSubjectKeyIdentifier(keyPair.getPublic());
 
         // 4. Generisanje serijskog broja
         BigInteger serialNumber = generateSerialNumber();
@@ -209,13 +226,12 @@ public class CertificateGeneratorService {
 
         // DODATO: Postavljanje SKI i AKI ekstenzija
         certBuilder.addExtension(Extension.subjectKeyIdentifier, false, ski);
-        certBuilder.addExtension(Extension.authorityKeyIdentifier, false, aki);
+        certBuilder.addExtension(Extension.authorityKeyIdentifier, false, issuerContext.getAuthorityKeyIdentifier());
         //CRL Distribution Point
-        addCRLDistributionPoint(certBuilder, issuerCertificate.getSerialNumber());
+        certBuilder.addExtension(Extension.cRLDistributionPoints, false, issuerContext.getCrlDistributionPoint());
 
         // 7. POTPISIVANJE SERTIFIKATA
-        ContentSigner signer = new JcaContentSignerBuilder("SHA256WithRSAEncryption").build(issuerPrivateKey);
-        X509CertificateHolder certHolder = certBuilder.build(signer);
+        X509CertificateHolder certHolder = issuerContext.sign(certBuilder);
         X509Certificate x509Cert = new JcaX509CertificateConverter().getCertificate(certHolder);
 
         // 8. Kreiranje našeg modela za čuvanje u bazi
@@ -238,54 +254,308 @@ public class CertificateGeneratorService {
 
         // 9. Čuvanje privatnog ključa sa lancem u keystore
         String alias = "CA_" + serialNumber.toString();
-        java.security.cert.Certificate[] chain = buildCertificateChain(issuerCertificate, x509Cert);
+        java.security.cert.Certificate[] chain = buildCertificateChain(issuerContext, x509Cert);
         keystoreService.savePrivateKeyWithChain(alias, keyPair.getPrivate(), chain, serialNumber.toString());
 
+        // 10. DER u bazu - lanci i preuzimanja vise ne citaju keystore
+        certificateDerService.save(savedCertificate, x509Cert);
+
         return savedCertificate;
     }
-    private void addCRLDistributionPoint(X509v3CertificateBuilder builder, String issuerSerialNumber) throws Exception {
-        // URL gde će biti dostupna CRL lista
-        String crlUrl = "http://localhost:8080/api/crl/" + issuerSerialNumber + ".crl";
+    private java.security.cert.Certificate[] buildCertificateChain(SigningContext issuerContext, X509Certificate newCert) throws Exception {
+        java.security.cert.Certificate[] issuerChain = issuerContext.getChain();
+        java.security.cert.Certificate[] chain = new java.security.cert.Certificate[issuerChain.length + 1];
+        chain[0] = newCert; // Novi sertifikat ide prvi, pa lanac izdavaoca do root-a (kesiran u kontekstu)
+        System.arraycopy(issuerChain, 0, chain, 1, issuerChain.length);
+        return chain;
+    }
 
-        GeneralName generalName = new GeneralName(GeneralName.uniformResourceIdentifier, crlUrl);
-        GeneralNames generalNames = new GeneralNames(generalName);
-        DistributionPointName dpn = new DistributionPointName(generalNames);
-        DistributionPoint dp = new DistributionPoint(dpn, null, null);
+    @Transactional(rollbackFor = Exception.class)
+    public Certificate generateEECertificateFromCsr(String csrPem, Date validFrom, Date validTo,
+                                                    Certificate issuerCertificate, User owner) throws Exception {
+        return generateEECertificateFromCsr(csrPem, validFrom, validTo, issuerCertificate, owner, null);
+    }
 
-        builder.addExtension(
-                Extension.cRLDistributionPoints,
-                false,
-                new CRLDistPoint(new DistributionPoint[]{dp})
-        );
+    // Izdavanje po šablonu: ekstenzije i provera imena dolaze iz prevedenog (kesiranog) šablona
+    @Transactional(rollbackFor = Exception.class)
+    public Certificate generateEECertificateFromCsr(String csrPem, Date validFrom, Date validTo,
+                                                    Certificate issuerCertificate, User owner,
+                                                    CompiledTemplate template) throws Exception {
+
+        // 1. Parsiranje CSR-a
+        PKCS10CertificationRequest csr = parseCsr(csrPem);
+        if (template != null) {
+            String templateError = template.validateNames(csr.getSubject(), requestedSans(csr.getAttributes()));
+            if (templateError != null) {
+                throw new IllegalArgumentException(templateError);
+            }
+        }
+
+        // 2. Izdavalac (Issuer): kljuc, X500Name i AKI iz kesiranog konteksta
+        SigningContext issuerContext = signingContextCache.get(issuerCertificate);
+        PublicKey subjectPublicKey = new JcaPKCS10CertificationRequest(csr).getPublicKey();
+
+        // 3-7. Izgradnja i potpisivanje sertifikata, model za bazu
+        IssuedCertificate issued = buildEECertificate(csr.getSubject(), csr.getAttributes(), subjectPublicKey, validFrom, validTo,
+                issuerCertificate, issuerContext, new JcaX509ExtensionUtils(), template, owner);
+
+        // 8. Čuvanje EE sertifikata u keystore-u kao TrustedCertificateEntry
+        String alias = "EE_" + issued.certificate().getSerialNumber();
+        keystoreService.saveTrustedCertificate(alias, issued.x509());
+
+        // 9. Čuvanje modela sertifikata u bazi SA PEM sadržajem.
+        // OVA METODA ĆE DODATI PEM PODATKE U 'certificate' OBJEKAT I SAČUVATI GA.
+        Certificate savedCertificate = certificateService.saveEndEntityCertificate(issued.certificate(), issued.x509());
+
+        return savedCertificate;
     }
 
+    // Paketno izdavanje EE sertifikata iz vise CSR-ova istim izdavaocem.
+    // CSR-ovi se parsiraju i proveravaju (potpis CSR-a) paralelno; kljuc izdavaoca se otkljucava jednom,
+    // svi sertifikati se potpisuju istim (kesiranim) ContentSigner-om, upisuju u keystore jednim snimanjem
+    // i cuvaju u bazi paketnim insert-ima. Neispravan CSR ne prekida ostale - dobija gresku u rezultatu.
+    @Transactional(rollbackFor = Exception.class)
+    public List<BatchCsrItemDTO> generateEECertificatesFromCsrs(List<String> csrPems, Date validFrom, Date validTo,
+                                                                Certificate issuerCertificate, User owner) throws Exception {
+        return generateEECertificatesFromCsrs(csrPems, validFrom, validTo, issuerCertificate, owner, null);
+    }
+
+    @Transactional(rollbackFor = Exception.class)
+    public List<BatchCsrItemDTO> generateEECertificatesFromCsrs(List<String> csrPems, Date validFrom, Date validTo,
+                                                                Certificate issuerCertificate, User owner,
+                                                                CompiledTemplate template) throws Exception {
+        // 1. Paralelno parsiranje i provera CSR-ova (i imena prema šablonu, ako je zadat)
+        List<ParsedCsr> parsed = parseCsrs(csrPems.stream()
+                .<Callable<ParsedCsr>>map(csrPem -> () -> parseAndVerifyCsr(() -> parseCsr(csrPem), template))
+                .toList());
+
+        return issueParsedCsrs(parsed, 0, validFrom, validTo, issuerCertificate, owner, template);
+    }
+
+    // Jedan deo (chunk) PEM paketa koji se cita iz stream-a: PEM objekti su vec izdvojeni PemReader-om,
+    // indeksi u rezultatu nastavljaju se od firstIndex. Svaki deo je zasebna transakcija.
+    @Transactional(rollbackFor = Exception.class)
+    public List<BatchCsrItemDTO> generateEECertificatesFromPemObjects(List<PemObject> csrObjects, int firstIndex,
+                                                                      Date validFrom, Date validTo,
+                                                                      Certificate issuerCertificate, User owner,
+                                                                      CompiledTemplate template) throws Exception {
+        List<ParsedCsr> parsed = parseCsrs(csrObjects.stream()
+                .<Callable<ParsedCsr>>map(pemObject -> () -> parseAndVerifyCsr(() -> toCsr(pemObject), template))
+                .toList());
+
+        return issueParsedCsrs(parsed, firstIndex, validFrom, validTo, issuerCertificate, owner, template);
+    }
 
-    private java.security.cert.Certificate[] buildCertificateChain(Certificate issuerCert, X509Certificate newCert) throws Exception {
-        List<java.security.cert.Certificate> chain = new ArrayList<>();
-        chain.add(newCert); // Novi sertifikat ide prvi
+    private List<BatchCsrItemDTO> issueParsedCsrs(List<ParsedCsr> parsed, int firstIndex, Date validFrom, Date validTo,
+                                                  Certificate issuerCertificate, User owner,
+                                                  CompiledTemplate template) throws Exception {
+        // 2. Izdavalac: kljuc, AKI i signer iz kesiranog konteksta, jednom za ceo paket
+        SigningContext issuerContext = signingContextCache.get(issuerCertificate);
+        JcaX509ExtensionUtils extensionUtils = new JcaX509ExtensionUtils();
+
+        // 3. Potpisivanje (ContentSigner nije thread-safe, pa sekvencijalno)
+        List<IssuedCertificate> issued = new ArrayList<>();
+        List<Integer> issuedIndexes = new ArrayList<>();
+        for (int i = 0; i < parsed.size(); i++) {
+            ParsedCsr item = parsed.get(i);
+            if (item.error() == null) {
+                issued.add(buildEECertificate(item.csr().getSubject(), item.csr().getAttributes(), item.publicKey(),
+                        validFrom, validTo,
+                        issuerCertificate, issuerContext, extensionUtils, template, owner));
+                issuedIndexes.add(i);
+            }
+        }
+
+        // 4. Baza (paketni insert), pa keystore jednim snimanjem - greska keystore-a ponistava transakciju
+        List<Certificate> saved = certificateService.saveEndEntityCertificates(
+                issued.stream().map(IssuedCertificate::certificate).toList(),
+                issued.stream().map(IssuedCertificate::x509).toList());
+
+        Map<String, java.security.cert.Certificate> entries = new LinkedHashMap<>();
+        issued.forEach(item -> entries.put("EE_" + item.certificate().getSerialNumber(), item.x509()));
+        keystoreService.saveTrustedCertificates(entries);
+
+        // 5. Rezultat po redosledu iz zahteva
+        BatchCsrItemDTO[] results = new BatchCsrItemDTO[parsed.size()];
+        for (int i = 0; i < issuedIndexes.size(); i++) {
+            Certificate certificate = saved.get(i);
+            int index = issuedIndexes.get(i);
+            results[index] = new BatchCsrItemDTO(firstIndex + index, certificate.getId(), certificate.getSerialNumber(),
+                    certificate.getSubject(), null);
+        }
+        for (int i = 0; i < parsed.size(); i++) {
+            if (results[i] == null) {
+                results[i] = new BatchCsrItemDTO(firstIndex + i, null, null, null, parsed.get(i).error());
+            }
+        }
+        return List.of(results);
+    }
 
-        // Rekurzivno dodaj sve roditelje do root-a
-        Certificate current = issuerCert;
-        while (current != null) {
-            X509Certificate x509 = (X509Certificate) keystoreService.getCertificate("CA_" + current.getSerialNumber());            chain.add(x509);
-            current = current.getIssuerCertificate(); // Idemo gore po lancu
+    private List<ParsedCsr> parseCsrs(List<Callable<ParsedCsr>> tasks) throws InterruptedException {
+        List<ParsedCsr> parsed = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (Future<ParsedCsr> future : executor.invokeAll(tasks)) {
+                try {
+                    parsed.add(future.get());
+                } catch (ExecutionException e) {
+                    logger.error("Error message", e);
+                    parsed.add(new ParsedCsr(null, null, "Failed to parse CSR"));
+                }
+            }
         }
+        return parsed;
+    }
 
-        return chain.toArray(new java.security.cert.Certificate[0]);
+    // Parsiranje CSR-a (iz PEM stringa ili vec izdvojenog PEM objekta) i provera da ga je potpisao
+    // vlasnik privatnog kljuca (proof of possession)
+    private ParsedCsr parseAndVerifyCsr(Callable<PKCS10CertificationRequest> parser, CompiledTemplate template) {
+        try {
+            PKCS10CertificationRequest csr = parser.call();
+            if (!csr.isSignatureValid(new JcaContentVerifierProviderBuilder().build(csr.getSubjectPublicKeyInfo()))) {
+                return new ParsedCsr(null, null, "CSR signature is not valid.");
+            }
+            if (template != null) {
+                String templateError = template.validateNames(csr.getSubject(), requestedSans(csr.getAttributes()));
+                if (templateError != null) {
+                    return new ParsedCsr(null, null, templateError);
+                }
+            }
+            return new ParsedCsr(csr, new JcaPKCS10CertificationRequest(csr).getPublicKey(), null);
+        } catch (Exception e) {
+            return new ParsedCsr(null, null, e.getMessage() != null ? e.getMessage() : "Failed to parse CSR");
+        }
     }
 
+    // Izdavanje sa kljucevima generisanim na serveru (masovno provizionisanje uredjaja) po šablonu.
+    // Imena se proveravaju prema šablonu, parovi kljuceva generisu paralelno (EC/Ed25519 odmah, RSA iz
+    // KeyPairPool-a), sertifikati potpisuju kesiranim kontekstom i cuvaju paketno. U keystore ide samo
+    // sertifikat - privatni kljuc se vraca pozivaocu (za PKCS#12) i ne cuva se na serveru.
     @Transactional(rollbackFor = Exception.class)
-    public Certificate generateEECertificateFromCsr(String csrPem, Date validFrom, Date validTo,
-                                                    Certificate issuerCertificate, User owner) throws Exception {
+    public List<GeneratedKeyCertificate> generateEECertificatesWithKeys(List<KeygenSubjectDTO> subjects, int firstIndex,
+                                                                        Date validFrom, Date validTo,
+                                                                        Certificate issuerCertificate, User owner,
+                                                                        CompiledTemplate template) throws Exception {
+        KeyAlgorithm keyAlgorithm = template.getKeyAlgorithm();
+
+        // 1. Imena iz zahteva i provera prema šablonu; ispravne stavke dobijaju zadatak za generisanje kljuca
+        X500Name[] names = new X500Name[subjects.size()];
+        org.bouncycastle.asn1.pkcs.Attribute[][] attributes = new org.bouncycastle.asn1.pkcs.Attribute[subjects.size()][];
+        GeneratedKeyCertificate[] results = new GeneratedKeyCertificate[subjects.size()];
+        List<Callable<KeyPair>> keyTasks = new ArrayList<>();
+        List<Integer> keyIndexes = new ArrayList<>();
+        for (int i = 0; i < subjects.size(); i++) {
+            try {
+                names[i] = subjectName(subjects.get(i));
+                GeneralNames sans = subjectAlternativeNames(subjects.get(i).getSans());
+                String templateError = template.validateNames(names[i], sans);
+                if (templateError != null) {
+                    results[i] = GeneratedKeyCertificate.failed(firstIndex + i, templateError);
+                    continue;
+                }
+                attributes[i] = sansAsExtensionRequest(sans);
+                keyTasks.add(() -> keyAlgorithm.isRsa() ? keyPairPool.acquire(keyAlgorithm) : keyAlgorithm.generateKeyPair());
+                keyIndexes.add(i);
+            } catch (IllegalArgumentException e) {
+                results[i] = GeneratedKeyCertificate.failed(firstIndex + i, e.getMessage());
+            }
+        }
 
-        // 1. Parsiranje CSR-a
-        PKCS10CertificationRequest csr = parseCsr(csrPem);
+        // 2. Paralelno generisanje parova kljuceva
+        List<KeyPair> keyPairs = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (Future<KeyPair> future : executor.invokeAll(keyTasks)) {
+                keyPairs.add(future.get());
+            }
+        }
 
-        // 2. Izdavalac (Issuer) i privatni ključ izdavaoca
-        PrivateKey issuerPrivateKey = keystoreService.getPrivateKey("CA_" + issuerCertificate.getSerialNumber(), issuerCertificate.getSerialNumber());
-        X500Name issuer = new X500Name(issuerCertificate.getSubject());
-        PublicKey subjectPublicKey = new JcaPKCS10CertificationRequest(csr).getPublicKey();
-        X500Name subject = csr.getSubject();
+        // 3. Potpisivanje (ContentSigner nije thread-safe, pa sekvencijalno)
+        SigningContext issuerContext = signingContextCache.get(issuerCertificate);
+        JcaX509ExtensionUtils extensionUtils = new JcaX509ExtensionUtils();
+        List<IssuedCertificate> issued = new ArrayList<>();
+        for (int k = 0; k < keyIndexes.size(); k++) {
+            int i = keyIndexes.get(k);
+            issued.add(buildEECertificate(names[i], attributes[i], keyPairs.get(k).getPublic(), validFrom, validTo,
+                    issuerCertificate, issuerContext, extensionUtils, template, owner));
+        }
+
+        // 4. Baza (paketni insert), pa keystore (samo sertifikati) jednim snimanjem
+        List<Certificate> saved = certificateService.saveEndEntityCertificates(
+                issued.stream().map(IssuedCertificate::certificate).toList(),
+                issued.stream().map(IssuedCertificate::x509).toList());
+
+        Map<String, java.security.cert.Certificate> entries = new LinkedHashMap<>();
+        issued.forEach(item -> entries.put("EE_" + item.certificate().getSerialNumber(), item.x509()));
+        keystoreService.saveTrustedCertificates(entries);
+
+        // 5. Rezultat po redosledu iz zahteva
+        java.security.cert.Certificate[] issuerChain = issuerContext.getChain();
+        for (int k = 0; k < keyIndexes.size(); k++) {
+            int i = keyIndexes.get(k);
+            results[i] = new GeneratedKeyCertificate(firstIndex + i, saved.get(k), issued.get(k).x509(),
+                    keyPairs.get(k).getPrivate(), issuerChain, null);
+        }
+        return List.of(results);
+    }
+
+    private X500Name subjectName(KeygenSubjectDTO subject) {
+        if (subject.getCommonName() == null || subject.getCommonName().isBlank()) {
+            throw new IllegalArgumentException("Common Name is required.");
+        }
+        X500NameBuilder nameBuilder = new X500NameBuilder(BCStyle.INSTANCE);
+        nameBuilder.addRDN(BCStyle.CN, subject.getCommonName().trim());
+        addRdn(nameBuilder, BCStyle.OU, subject.getOrganizationalUnit());
+        addRdn(nameBuilder, BCStyle.O, subject.getOrganization());
+        addRdn(nameBuilder, BCStyle.C, subject.getCountry());
+        addRdn(nameBuilder, BCStyle.E, subject.getEmail());
+        return nameBuilder.build();
+    }
+
+    private void addRdn(X500NameBuilder nameBuilder, org.bouncycastle.asn1.ASN1ObjectIdentifier type, String value) {
+        if (value != null && !value.isBlank()) {
+            nameBuilder.addRDN(type, value.trim());
+        }
+    }
+
+    // SAN vrednosti iz zahteva: IP adresa, email (sadrzi @) ili DNS ime
+    private GeneralNames subjectAlternativeNames(List<String> sans) {
+        if (sans == null || sans.isEmpty()) {
+            return null;
+        }
+        List<GeneralName> names = new ArrayList<>();
+        for (String san : sans) {
+            String value = san.trim();
+            if (value.isEmpty()) {
+                continue;
+            }
+            if (InetAddresses.isInetAddress(value)) {
+                names.add(new GeneralName(GeneralName.iPAddress, value));
+            } else if (value.contains("@")) {
+                names.add(new GeneralName(GeneralName.rfc822Name, value));
+            } else {
+                names.add(new GeneralName(GeneralName.dNSName, value));
+            }
+        }
+        return names.isEmpty() ? null : new GeneralNames(names.toArray(new GeneralName[0]));
+    }
+
+    // SAN-ovi u istom obliku kao u CSR-u (extensionRequest), da ih buildEECertificate obradi istim putem
+    private org.bouncycastle.asn1.pkcs.Attribute[] sansAsExtensionRequest(GeneralNames sans) throws IOException {
+        if (sans == null) {
+            return new org.bouncycastle.asn1.pkcs.Attribute[0];
+        }
+        Extensions extensions = new Extensions(new Extension(Extension.subjectAlternativeName, false, sans.getEncoded()));
+        return new org.bouncycastle.asn1.pkcs.Attribute[]{
+                new org.bouncycastle.asn1.pkcs.Attribute(PKCSObjectIdentifiers.pkcs_9_at_extensionRequest,
+                        new DERSet(extensions))
+        };
+    }
+
+    private IssuedCertificate buildEECertificate(X500Name subject, org.bouncycastle.asn1.pkcs.Attribute[] pkcsAttributes,
+                                                 PublicKey subjectPublicKey,
+                                                 Date validFrom, Date validTo, Certificate issuerCertificate,
+                                                 SigningContext issuerContext, JcaX509ExtensionUtils extensionUtils,
+                                                 CompiledTemplate template, User owner) throws Exception {
+        X500Name issuer = issuerContext.getIssuerName();
 
         // 3. Generisanje serijskog broja
         BigInteger serialNumber = generateSerialNumber();
@@ -301,35 +571,35 @@ public class CertificateGeneratorService {
         );
 
         // 5. DODAVANJE EKSTENZIJA
-        JcaX509ExtensionUtils extensionUtils = new JcaX509ExtensionUtils();
 
         // Subject Key Identifier (SKI) za EE sertifikat
         SubjectKeyIdentifier ski = extensionUtils.createSubjectKeyIdentifier(subjectPublicKey);
         certBuilder.addExtension(Extension.subjectKeyIdentifier, false, ski);
+        certBuilder.addExtension(Extension.authorityKeyIdentifier, false, issuerContext.getAuthorityKeyIdentifier());
 
-        // Authority Key Identifier (AKI) - javni ključ IZDAVAOCA (issuer-a)
-        byte[] issuerPublicKeyBytes = java.util.Base64.getDecoder().decode(issuerCertificate.getPublicKey());
-        KeyFactory keyFactory = KeyFactory.getInstance("RSA");
-        X509EncodedKeySpec issuerPublicKeySpec = new X509EncodedKeySpec(issuerPublicKeyBytes);
-        PublicKey issuerPublicKey = keyFactory.generatePublic(issuerPublicKeySpec);
-        AuthorityKeyIdentifier aki = extensionUtils.createAuthorityKeyIdentifier(issuerPublicKey);
-        certBuilder.addExtension(Extension.authorityKeyIdentifier, false, aki);
+        boolean encryptionKey = "RSA".equals(subjectPublicKey.getAlgorithm());
+        boolean templateKeyUsage = template != null && template.hasKeyUsage();
 
-        // Basic Constraints: CA:FALSE (EE sertifikat)
-        certBuilder.addExtension(Extension.basicConstraints, true, new BasicConstraints(false));
-        org.bouncycastle.asn1.pkcs.Attribute[] pkcsAttributes = csr.getAttributes();
+        if (template != null) {
+            // Basic Constraints, Key Usage i EKU - gotovi objekti iz prevedenog šablona
+            template.applyExtensions(certBuilder);
+        } else {
+            // Basic Constraints: CA:FALSE (EE sertifikat)
+            certBuilder.addExtension(Extension.basicConstraints, true, new BasicConstraints(false));
+        }
 
-        // Key Usage i SANs
-        addKeyUsageFromCsrAttributes(certBuilder, pkcsAttributes);
+        // Key Usage (ako ga šablon ne propisuje) i SANs
+        if (!templateKeyUsage) {
+            addKeyUsageFromCsrAttributes(certBuilder, pkcsAttributes, encryptionKey);
+        }
         addSansFromCsrAttributes(certBuilder, pkcsAttributes);
 
         // CRL Distribution Point
-        addCRLDistributionPoint(certBuilder, issuerCertificate.getSerialNumber());
+        certBuilder.addExtension(Extension.cRLDistributionPoints, false, issuerContext.getCrlDistributionPoint());
 
 
         // 6. Potpisivanje sertifikata
-        ContentSigner signer = new JcaContentSignerBuilder("SHA256WithRSAEncryption").build(issuerPrivateKey);
-        X509CertificateHolder certHolder = certBuilder.build(signer);
+        X509CertificateHolder certHolder = issuerContext.sign(certBuilder);
         X509Certificate x509Cert = new JcaX509CertificateConverter().getCertificate(certHolder);
 
         // 7. Kreiranje modela za bazu (Bez PEM podataka)
@@ -345,17 +615,22 @@ public class CertificateGeneratorService {
         certificate.setBasicConstraints("CA:FALSE");
         certificate.setOwner(owner);
         certificate.setIssuerCertificate(issuerCertificate);
-        certificate.setKeyUsage("digitalSignature, keyEncipherment"); // Default EE KeyUsage
+        if (templateKeyUsage) {
+            certificate.setKeyUsage(template.getKeyUsageDescription());
+        } else {
+            certificate.setKeyUsage(encryptionKey ? "digitalSignature, keyEncipherment" : "digitalSignature"); // Default EE KeyUsage
+        }
+        if (template != null) {
+            certificate.setExtendedKeyUsage(template.getExtendedKeyUsageDescription());
+        }
 
-        // 8. Čuvanje EE sertifikata u keystore-u kao TrustedCertificateEntry
-        String alias = "EE_" + serialNumber.toString();
-        keystoreService.saveTrustedCertificate(alias, x509Cert);
+        return new IssuedCertificate(certificate, x509Cert);
+    }
 
-        // 9. Čuvanje modela sertifikata u bazi SA PEM sadržajem.
-        // OVA METODA ĆE DODATI PEM PODATKE U 'certificate' OBJEKAT I SAČUVATI GA.
-        Certificate savedCertificate = certificateService.saveEndEntityCertificate(certificate, x509Cert);
+    private record ParsedCsr(PKCS10CertificationRequest csr, PublicKey publicKey, String error) {
+    }
 
-        return savedCertificate;
+    private record IssuedCertificate(Certificate certificate, X509Certificate x509) {
     }
 
     // U CertificateGeneratorService.java, unutar generateEECertificateFromCsr ili parseCsr metode
@@ -368,13 +643,8 @@ public class CertificateGeneratorService {
             throw new IllegalArgumentException("CSR content cannot be empty.");
         }
 
-        // 1. Agresivno čišćenje stringa
-        csrPem = csrPem.trim();
-        // Normalizacija novih linija, što pomaže PemReader-u da pravilno segmentira Base64 blok
-        csrPem = csrPem.replaceAll("\r\n", "\n").replaceAll("\r", "\n");
-
-
-        try (PemReader pemReader = new PemReader(new StringReader(csrPem))) {
+        // 1. PemReader cita red po red (BufferedReader.readLine), pa \r\n i \r prepoznaje sam - bez normalizacije stringa
+        try (PemReader pemReader = new PemReader(new StringReader(csrPem.trim()))) {
             PemObject pemObject = pemReader.readPemObject();
 
             if (pemObject == null) {
@@ -382,34 +652,45 @@ public class CertificateGeneratorService {
                 throw new IllegalArgumentException("Invalid PEM format: Could not read PEM object. Is the CSR wrapped with BEGIN/END tags?");
             }
 
-            String type = pemObject.getType();
-            if (!"CERTIFICATE REQUEST".equals(type) && !"NEW CERTIFICATE REQUEST".equals(type)) {
-                throw new IllegalArgumentException("Invalid PEM type: Expected 'CERTIFICATE REQUEST' but found '" + type + "'.");
-            }
-
             // 2. Kreiranje CSR objekta iz dekodiranog DER sadržaja
-            byte[] content = pemObject.getContent();
-
-            // Pokušaj parsiranja DER bajtova. Ovdje se dešava greška 'corrupted stream'.
-            return new PKCS10CertificationRequest(content);
+            return toCsr(pemObject);
 
         } catch (IOException e) {
-            // Rukovodi IOException, što je roditelj za 'corrupted stream' grešku Bouncy Castle-a
+            throw csrParseError(e);
+        }
+    }
 
-            // Opcionalno: Izdvajanje specifične poruke za bolje logovanje
-            String errorMessage = e.getMessage() != null ? e.getMessage() : "Unknown I/O Error";
-            System.err.println("--- ASN.1 PARSING ERROR ---");
-            System.err.println("Bouncy Castle failed to parse the DER content (ASN.1 structure).");
-            System.err.println("Caused by: " + errorMessage);
-            System.err.println("-------------------------");
+    // CSR iz jednog PEM objekta (pojedinacni CSR ili stavka iz PEM paketa)
+    public PKCS10CertificationRequest toCsr(PemObject pemObject) throws Exception {
+        String type = pemObject.getType();
+        if (!"CERTIFICATE REQUEST".equals(type) && !"NEW CERTIFICATE REQUEST".equals(type)) {
+            throw new IllegalArgumentException("Invalid PEM type: Expected 'CERTIFICATE REQUEST' but found '" + type + "'.");
+        }
 
-            // Baca se jasna poruka koju će frontend prikazati
-            throw new Exception("Error creating End-Entity certificate: Failed to parse the CSR's internal structure. Please ensure the CSR is correctly generated and complete.", e);
+        try {
+            // Pokušaj parsiranja DER bajtova. Ovdje se dešava greška 'corrupted stream'.
+            return new PKCS10CertificationRequest(pemObject.getContent());
+        } catch (IOException e) {
+            throw csrParseError(e);
         }
     }
 
+    // Rukovodi IOException, što je roditelj za 'corrupted stream' grešku Bouncy Castle-a
+    private Exception csrParseError(IOException e) {
+        // Opcionalno: Izdvajanje specifične poruke za bolje logovanje
+        String errorMessage = e.getMessage() != null ? e.getMessage() : "Unknown I/O Error";
+        System.err.println("--- ASN.1 PARSING ERROR ---");
+        System.err.println("Bouncy Castle failed to parse the DER content (ASN.1 structure).");
+        System.err.println("Caused by: " + errorMessage);
+        System.err.println("-------------------------");
+
+        // Jasna poruka koju će frontend prikazati
+        return new Exception("Error creating End-Entity certificate: Failed to parse the CSR's internal structure. Please ensure the CSR is correctly generated and complete.", e);
+    }
+
 
-    private void addKeyUsageFromCsrAttributes(X509v3CertificateBuilder builder, org.bouncycastle.asn1.pkcs.Attribute[] attributes) throws Exception {
+    private void addKeyUsageFromCsrAttributes(X509v3CertificateBuilder builder, org.bouncycastle.asn1.pkcs.Attribute[] attributes,
+                                              boolean encryptionKey) throws Exception {
 
         KeyUsage requestedKeyUsage = null;
 
@@ -435,11 +716,28 @@ public class CertificateGeneratorService {
             builder.addExtension(Extension.keyUsage, true, requestedKeyUsage);
         } else {
             // 4. Ako Key Usage nije zatražen u CSR-u, koristi podrazumevane EE vrednosti
-            KeyUsage defaultKu = new KeyUsage(KeyUsage.digitalSignature | KeyUsage.keyEncipherment);
+            // (EC i Ed25519 ključevi ne mogu da se koriste za keyEncipherment)
+            KeyUsage defaultKu = encryptionKey
+                    ? new KeyUsage(KeyUsage.digitalSignature | KeyUsage.keyEncipherment)
+                    : new KeyUsage(KeyUsage.digitalSignature);
             builder.addExtension(Extension.keyUsage, true, defaultKu);
         }
     }
 
+    // SAN-ovi zatraženi u CSR-u (za proveru prema šablonu), ili null ako ih nema
+    private GeneralNames requestedSans(org.bouncycastle.asn1.pkcs.Attribute[] attributes) {
+        for (org.bouncycastle.asn1.pkcs.Attribute attr : attributes) {
+            if (attr.getAttrType().equals(PKCSObjectIdentifiers.pkcs_9_at_extensionRequest)) {
+                Extensions extensions = Extensions.getInstance(attr.getAttrValues().getObjectAt(0));
+                GeneralNames sans = GeneralNames.fromExtensions(extensions, Extension.subjectAlternativeName);
+                if (sans != null) {
+                    return sans;
+                }
+            }
+        }
+        return null;
+    }
+
     private void addSansFromCsrAttributes(X509v3CertificateBuilder builder, org.bouncycastle.asn1.pkcs.Attribute[] attributes) throws Exception {
         // Logika za pronalaženje Subject Alternative Name (SAN) u CSR atributima
         // Standardno se nalazi pod OID-om ExtensionRequest (1.2.840.113549.1.9.14)
@@ -0,0 +1,240 @@
+package com.bsep.pki_system.service;
+
+import com.bsep.pki_system.model.Certificate;
+import com.bsep.pki_system.model.CertificateName;
+import com.bsep.pki_system.model.CertificateNameType;
+import com.bsep.pki_system.repository.CertificateNameRepository;
+import com.bsep.pki_system.repository.CertificateRepository;
+import com.google.common.collect.Lists;
+import com.google.common.net.InetAddresses;
+import org.bouncycastle.asn1.ASN1Encodable;
+import org.bouncycastle.asn1.ASN1ObjectIdentifier;
+import org.bouncycastle.asn1.ASN1OctetString;
+import org.bouncycastle.asn1.ASN1String;
+import org.bouncycastle.asn1.x500.AttributeTypeAndValue;
+import org.bouncycastle.asn1.x500.RDN;
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.asn1.x500.style.BCStyle;
+import org.bouncycastle.asn1.x509.Extension;
+import org.bouncycastle.asn1.x509.Extensions;
+import org.bouncycastle.asn1.x509.GeneralName;
+import org.bouncycastle.asn1.x509.GeneralNames;
+import org.bouncycastle.cert.X509CertificateHolder;
+import org.bouncycastle.cert.jcajce.JcaX509CertificateHolder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.net.InetAddress;
+import java.security.cert.CertificateEncodingException;
+import java.security.cert.X509Certificate;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+// Indeks pretrage sertifikata (tabela certificate_names): komponente subject-a (CN, O, OU, E),
+// SAN unosi (DNS, IP, email, URI) i serijski broj, normalizovani na mala slova.
+// Imena se upisuju pri izdavanju, uz DER (CertificateDerService.save/saveAll), iz samog X509 sertifikata.
+// Sertifikati izdati pre uvodjenja tabele se dopunjuju u pozadini posle pokretanja, u paketima.
+@Service
+public class CertificateNameIndexer {
+
+    private static final int INSERT_BATCH_SIZE = 500;
+
+    private static final Map<ASN1ObjectIdentifier, CertificateNameType> SUBJECT_TYPES = Map.of(
+            BCStyle.CN, CertificateNameType.COMMON_NAME,
+            BCStyle.O, CertificateNameType.ORGANIZATION,
+            BCStyle.OU, CertificateNameType.ORGANIZATIONAL_UNIT,
+            BCStyle.EmailAddress, CertificateNameType.EMAIL);
+
+    private final CertificateNameRepository certificateNameRepository;
+    private final CertificateRepository certificateRepository;
+    private final CertificateDerService certificateDerService;
+    private final TaskScheduler taskScheduler;
+
+    @Value("${certificate-search.backfill.enabled:true}")
+    private boolean backfillEnabled;
+
+    @Value("${certificate-search.backfill.batch-size:500}")
+    private int backfillBatchSize = 500;
+
+    private static final Logger logger = LoggerFactory.getLogger(CertificateNameIndexer.class);
+
+    public CertificateNameIndexer(CertificateNameRepository certificateNameRepository,
+                                  CertificateRepository certificateRepository,
+                                  @Lazy CertificateDerService certificateDerService,
+                                  TaskScheduler taskScheduler) {
+        this.certificateNameRepository = certificateNameRepository;
+        this.certificateRepository = certificateRepository;
+        this.certificateDerService = certificateDerService;
+        this.taskScheduler = taskScheduler;
+    }
+
+    @Transactional(rollbackFor = Exception.class)
+    public void index(Certificate certificate, X509Certificate x509) throws CertificateEncodingException {
+        certificateNameRepository.saveAll(extractNames(certificate, x509));
+    }
+
+    // Paketni insert (isti paketi kao za same sertifikate)
+    @Transactional(rollbackFor = Exception.class)
+    public void indexAll(List<Certificate> certificates, List<X509Certificate> x509Certs) throws CertificateEncodingException {
+        List<CertificateName> names = new ArrayList<>();
+        for (int i = 0; i < certificates.size(); i++) {
+            names.addAll(extractNames(certificates.get(i), x509Certs.get(i)));
+        }
+        for (List<CertificateName> batch : Lists.partition(names, INSERT_BATCH_SIZE)) {
+            certificateNameRepository.saveAll(batch);
+            certificateNameRepository.flush();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startBackfill() {
+        if (backfillEnabled) {
+            // Van glavne niti - na velikoj bazi dopuna traje, a aplikacija vec prima zahteve
+            taskScheduler.schedule(this::runBackfill, Instant.now());
+        }
+    }
+
+    private void runBackfill() {
+        try {
+            int indexed = backfill();
+            if (indexed > 0) {
+                logger.info("Indexed names of {} existing certificates for search", indexed);
+            }
+        } catch (Exception e) {
+            logger.error("Error message", e);
+        }
+    }
+
+    // Upisuje imena za sve sertifikate koji ih nemaju; vraca broj obradjenih sertifikata.
+    // Svaki sertifikat dobija bar SERIAL red, pa sledeci paket ne vraca iste sertifikate.
+    public int backfill() throws Exception {
+        int total = 0;
+        while (true) {
+            List<Long> ids = certificateRepository.findIdsWithoutNames(PageRequest.of(0, backfillBatchSize));
+            if (ids.isEmpty()) {
+                break;
+            }
+
+            List<Certificate> certificates = certificateRepository.findAllById(ids);
+            Map<Long, X509Certificate> x509s = certificateDerService.getX509s(certificates);
+            List<CertificateName> names = new ArrayList<>();
+            for (Certificate certificate : certificates) {
+                names.addAll(backfillNames(certificate, x509s.get(certificate.getId())));
+            }
+            certificateNameRepository.saveAll(names);
+            total += certificates.size();
+
+            if (ids.size() < backfillBatchSize) {
+                break;
+            }
+        }
+        return total;
+    }
+
+    private List<CertificateName> backfillNames(Certificate certificate, X509Certificate x509) {
+        try {
+            if (x509 != null) {
+                return extractNames(certificate, x509);
+            }
+            // Nema X509 ni u bazi ni u keystore-u - bar subject iz reda sertifikata (bez SAN-ova)
+            return extractNames(certificate.getId(), certificate.getSerialNumber(), new X500Name(certificate.getSubject()), null);
+        } catch (Exception e) {
+            logger.error("Error message", e);
+            return extractNames(certificate.getId(), certificate.getSerialNumber(), null, null);
+        }
+    }
+
+    public static List<CertificateName> extractNames(Certificate certificate, X509Certificate x509)
+            throws CertificateEncodingException {
+        X509CertificateHolder holder = new JcaX509CertificateHolder(x509);
+        Extensions extensions = holder.getExtensions();
+        GeneralNames sans = extensions != null
+                ? GeneralNames.fromExtensions(extensions, Extension.subjectAlternativeName)
+                : null;
+        return extractNames(certificate.getId(), certificate.getSerialNumber(), holder.getSubject(), sans);
+    }
+
+    public static List<CertificateName> extractNames(Long certificateId, String serialNumber, X500Name subject,
+                                                     GeneralNames sans) {
+        // Kljuc "vrsta:vrednost" - isto ime iz subject-a i SAN-a (npr. email) samo jednom
+        Map<String, CertificateName> names = new LinkedHashMap<>();
+        add(names, certificateId, CertificateNameType.SERIAL, serialNumber);
+
+        if (subject != null) {
+            for (RDN rdn : subject.getRDNs()) {
+                for (AttributeTypeAndValue attribute : rdn.getTypesAndValues()) {
+                    CertificateNameType type = SUBJECT_TYPES.get(attribute.getType());
+                    if (type != null) {
+                        add(names, certificateId, type, stringValue(attribute.getValue()));
+                    }
+                }
+            }
+        }
+
+        if (sans != null) {
+            for (GeneralName san : sans.getNames()) {
+                switch (san.getTagNo()) {
+                    case GeneralName.dNSName -> add(names, certificateId, CertificateNameType.DNS, stringValue(san.getName()));
+                    case GeneralName.rfc822Name -> add(names, certificateId, CertificateNameType.EMAIL, stringValue(san.getName()));
+                    case GeneralName.uniformResourceIdentifier -> add(names, certificateId, CertificateNameType.URI, stringValue(san.getName()));
+                    case GeneralName.iPAddress -> add(names, certificateId, CertificateNameType.IP, ipAddress(san.getName()));
+                    default -> {
+                        // Ostale vrste (directoryName, otherName...) se ne pretrazuju
+                    }
+                }
+            }
+        }
+        return new ArrayList<>(names.values());
+    }
+
+    // Ista normalizacija za upis i za upit pretrage. type == null: upit bez zadate vrste imena.
+    // Vraca null za praznu ili predugu vrednost.
+    public static String normalize(CertificateNameType type, String value) {
+        if (value == null) {
+            return null;
+        }
+        String normalized = value.trim().toLowerCase(Locale.ROOT);
+        if (type == CertificateNameType.DNS && normalized.endsWith(".")) {
+            normalized = normalized.substring(0, normalized.length() - 1); // FQDN sa tackom na kraju
+        }
+        if ((type == CertificateNameType.IP || type == null) && InetAddresses.isInetAddress(normalized)) {
+            normalized = InetAddresses.toAddrString(InetAddresses.forString(normalized)); // npr. skraceni IPv6
+        }
+        return normalized.isEmpty() || normalized.length() > CertificateName.MAX_VALUE_LENGTH ? null : normalized;
+    }
+
+    private static void add(Map<String, CertificateName> names, Long certificateId, CertificateNameType type, String value) {
+        String normalized = normalize(type, value);
+        if (normalized != null) {
+            names.putIfAbsent(type + ":" + normalized, new CertificateName(certificateId, type, normalized));
+        }
+    }
+
+    private static String stringValue(ASN1Encodable value) {
+        return value instanceof ASN1String string ? string.getString() : value.toString();
+    }
+
+    private static String ipAddress(ASN1Encodable value) {
+        byte[] address = ASN1OctetString.getInstance(value).getOctets();
+        if (address.length != 4 && address.length != 16) {
+            return null; // adresa sa maskom (name constraints), ne pojedinacna adresa
+        }
+        try {
+            return InetAddress.getByAddress(address).getHostAddress();
+        } catch (Exception e) {
+            return null;
+        }
+    }
+}
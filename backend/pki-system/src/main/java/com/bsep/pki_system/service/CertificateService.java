@@ -1,28 +1,57 @@
 package com.bsep.pki_system.service;
 
 import com.bsep.pki_system.controller.AuthController;
+import com.bsep.pki_system.dto.BatchCsrItemDTO;
+import com.bsep.pki_system.dto.CertificateChainView;
+import com.bsep.pki_system.dto.CertificateListFilter;
+import com.bsep.pki_system.dto.CertificateListItemDTO;
+import com.bsep.pki_system.dto.CertificatePageDTO;
+import com.bsep.pki_system.dto.CertificateResponseDTO;
+import com.bsep.pki_system.dto.CertificateSearchQuery;
+import com.bsep.pki_system.dto.CertificateValidityDTO;
 import com.bsep.pki_system.dto.CreateCertificateDTO;
+import com.bsep.pki_system.dto.RevocationSummaryDTO;
+import com.bsep.pki_system.jwt.UserPrincipal;
 import com.bsep.pki_system.model.*;
 import com.bsep.pki_system.repository.CertificateRepository;
 import com.bsep.pki_system.util.CertificateUtil;
+import com.google.common.collect.Lists;
+import org.bouncycastle.util.io.pem.PemObject;
+import org.bouncycastle.util.io.pem.PemReader;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.hibernate.Hibernate;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.context.annotation.Lazy;
 import org.bouncycastle.cert.X509CRLHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.Reader;
 import java.math.BigInteger;
-import java.security.KeyFactory;
-import java.security.PublicKey;
+import java.nio.charset.StandardCharsets;
 import java.security.cert.CertificateEncodingException;
 import java.security.cert.X509Certificate;
-import java.security.spec.X509EncodedKeySpec;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -38,20 +67,57 @@ public class CertificateService {
     private final CertificateGeneratorService certificateGeneratorService;
     private final KeystoreService keystoreService;
     private final CRLService crlService;
+    private final CertificateValidityService certificateValidityService;
+    private final PkixValidationService pkixValidationService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final CertificateTemplateService certificateTemplateService;
+    private final CertificateDerService certificateDerService;
+
+    // Padajuca lista izdavalaca je na kriticnoj putanji forme za izdavanje
+    private static final Duration ISSUER_VALIDATION_DEADLINE = Duration.ofSeconds(5);
+
+    // Broj id-eva u jednom UPDATE ... WHERE id IN (...) pri masovnoj revokaciji
+    private static final int REVOCATION_BATCH_SIZE = 1000;
+    // Najveci broj CSR-ova u jednom paketnom zahtevu i velicina paketa za insert (= hibernate.jdbc.batch_size)
+    public static final int MAX_CSR_BATCH_SIZE = 20000;
+    private static final int INSERT_BATCH_SIZE = 500;
+    // PEM paket se izdaje u delovima ove velicine - u memoriji je samo jedan deo, bez obzira na velicinu paketa
+    private static final int CSR_BUNDLE_CHUNK_SIZE = INSERT_BATCH_SIZE;
+
+    // Velicina strane liste sertifikata (keyset paginacija)
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    public static final int MAX_PAGE_SIZE = 500;
+    // Najkraci CONTAINS upit (trigram = 3 znaka)
+    private static final int MIN_CONTAINS_SEARCH_LENGTH = 3;
 
     private static final Logger logger = LoggerFactory.getLogger(AuthController.class);
 
     public CertificateService(CertificateRepository certificateRepository,
                               @Lazy CertificateGeneratorService certificateGeneratorService,
-                              KeystoreService keystoreService, CRLService crlService) {
+                              KeystoreService keystoreService, CRLService crlService,
+                              @Lazy CertificateValidityService certificateValidityService,
+                              PkixValidationService pkixValidationService,
+                              ApplicationEventPublisher eventPublisher,
+                              @Lazy CertificateTemplateService certificateTemplateService,
+                              CertificateDerService certificateDerService) {
         this.certificateRepository = certificateRepository;
         this.certificateGeneratorService = certificateGeneratorService;
         this.keystoreService = keystoreService;
         this.crlService = crlService;
+        this.certificateValidityService = certificateValidityService;
+        this.pkixValidationService = pkixValidationService;
+        this.eventPublisher = eventPublisher;
+        this.certificateTemplateService = certificateTemplateService;
+        this.certificateDerService = certificateDerService;
     }
 
     public Certificate saveCertificate(Certificate certificate) {
-        return certificateRepository.save(certificate);
+        Certificate saved = certificateRepository.save(certificate);
+        if (Boolean.TRUE.equals(certificate.getIsCA())) {
+            // Novi CA mora da se pojavi medju trust anchor-ima / u CertStore-u
+            pkixValidationService.invalidate();
+        }
+        return saved;
     }
 
     public Optional<Certificate> findById(Long id) {
@@ -63,10 +129,102 @@ public class CertificateService {
         return certificateRepository.findBySerialNumber(serialNumber);
     }
 
+    // Sertifikati za masovnu revokaciju - ucitani zajedno sa vlasnikom (autorizacija)
+    public List<Certificate> findAllById(Collection<Long> ids) {
+        return ids.isEmpty() ? List.of() : certificateRepository.findWithOwnerByIdIn(ids);
+    }
+
+    public List<Certificate> findBySerialNumbers(Collection<String> serialNumbers) {
+        return serialNumbers.isEmpty() ? List.of() : certificateRepository.findWithOwnerBySerialNumberIn(serialNumbers);
+    }
+
     public List<Certificate> findAll() {
         return certificateRepository.findAll();
     }
 
+    // Jedna strana liste sertifikata. ADMIN vidi sve, CA sertifikate iz lanca svoje organizacije (isti skup
+    // kao /my-chain i /export), a BASIC samo svoje - ti filteri se namecu bez obzira na to sta je trazeno.
+    // Kursor je poslednji red prethodne strane (vidi encodeCursor), pa svaka strana kosta isto.
+    @Transactional(readOnly = true)
+    public CertificatePageDTO findPage(CertificateListFilter filter, CertificateListSort sort, boolean descending,
+                                       String cursor, Integer size, UserPrincipal user) {
+        if (user.getRole() == UserRole.CA) {
+            String organization = user.getOrganization() == null ? null
+                    : CertificateNameIndexer.normalize(CertificateNameType.ORGANIZATION, user.getOrganization());
+            if (organization == null) {
+                return new CertificatePageDTO(List.of(), null); // Bez organizacije nema ni lanca
+            }
+            filter.setChainOrganization(organization);
+            filter.setChainIssuerIds(findOrganizationIssuerIds(user.getOrganization()));
+        } else if (user.getRole() != UserRole.ADMIN) {
+            filter.setOwnerId(user.getId());
+        }
+
+        if (filter.getSearch() != null) {
+            filter.setSearch(normalizeSearch(filter.getSearch()));
+        }
+
+        int limit = size == null ? DEFAULT_PAGE_SIZE : Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        Date afterValidTo = null;
+        Long afterId = null;
+        if (cursor != null && !cursor.isBlank()) {
+            String[] parts = decodeCursor(cursor, sort);
+            afterId = Long.parseLong(parts[parts.length - 1]);
+            if (sort == CertificateListSort.VALID_TO) {
+                afterValidTo = new Date(Long.parseLong(parts[1]));
+            }
+        }
+
+        // Red vise od trazenog govori da postoji sledeca strana (bez COUNT upita)
+        List<CertificateListItemDTO> items = new ArrayList<>(
+                certificateRepository.findPage(filter, sort, descending, afterValidTo, afterId, limit + 1));
+        String nextCursor = null;
+        if (items.size() > limit) {
+            items.remove(limit);
+            nextCursor = encodeCursor(items.get(limit - 1), sort);
+        }
+        return new CertificatePageDTO(items, nextCursor);
+    }
+
+    // Upit se normalizuje isto kao imena u indeksu (mala slova, IP u kanonskom obliku...)
+    private static CertificateSearchQuery normalizeSearch(CertificateSearchQuery search) {
+        String term = CertificateNameIndexer.normalize(search.getField(), search.getTerm());
+        if (term == null) {
+            throw new IllegalArgumentException("Search term must not be empty.");
+        }
+        CertificateSearchMatch match = search.getMatch() != null ? search.getMatch() : CertificateSearchMatch.EXACT;
+        // Za krace upite trigram indeks ne pomaze - to bi bilo citanje cele tabele
+        if (match == CertificateSearchMatch.CONTAINS && term.length() < MIN_CONTAINS_SEARCH_LENGTH) {
+            throw new IllegalArgumentException("CONTAINS search needs at least " + MIN_CONTAINS_SEARCH_LENGTH + " characters.");
+        }
+        return new CertificateSearchQuery(term, search.getField(), match);
+    }
+
+    // "I:<id>" za ID redosled, "V:<validTo u ms>:<id>" za VALID_TO; base64url da bi bio neproziran
+    private static String encodeCursor(CertificateListItemDTO last, CertificateListSort sort) {
+        String value = sort == CertificateListSort.VALID_TO
+                ? "V:" + last.getValidTo().getTime() + ":" + last.getId()
+                : "I:" + last.getId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String[] decodeCursor(String cursor, CertificateListSort sort) {
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split(":");
+            boolean validTo = sort == CertificateListSort.VALID_TO;
+            if (parts.length != (validTo ? 3 : 2) || !parts[0].equals(validTo ? "V" : "I")) {
+                throw new IllegalArgumentException("Cursor does not match the requested sort.");
+            }
+            for (int i = 1; i < parts.length; i++) {
+                Long.parseLong(parts[i]);
+            }
+            return parts;
+        } catch (IllegalArgumentException e) {
+            // NumberFormatException i neispravan base64 su takodje IllegalArgumentException
+            throw new IllegalArgumentException("Invalid cursor.", e);
+        }
+    }
+
     public List<Certificate> findByType(CertificateType type) {
         return certificateRepository.findByType(type);
     }
@@ -79,6 +237,122 @@ public class CertificateService {
         return certificateRepository.findByIssuerCertificateId(issuer.getId());
     }
 
+    // Odgovori za klijenta (CertificateResponseDTO) - projekcija direktno iz upita, bez ucitavanja entiteta
+    @Transactional(readOnly = true)
+    public List<CertificateResponseDTO> findAllResponses() {
+        return certificateRepository.findAllResponses();
+    }
+
+    @Transactional(readOnly = true)
+    public Optional<CertificateResponseDTO> findResponseById(Long id) {
+        return certificateRepository.findResponseById(id);
+    }
+
+    @Transactional(readOnly = true)
+    public List<CertificateResponseDTO> findResponsesByType(CertificateType type) {
+        return certificateRepository.findResponsesByType(type);
+    }
+
+    @Transactional(readOnly = true)
+    public List<CertificateResponseDTO> findResponsesByOwner(User owner) {
+        return certificateRepository.findResponsesByOwnerId(owner.getId());
+    }
+
+    @Transactional(readOnly = true)
+    public List<CertificateResponseDTO> findResponsesByOwnerIdAndType(Long ownerId, CertificateType type) {
+        return certificateRepository.findResponsesByOwnerIdAndType(ownerId, type);
+    }
+
+    @Transactional(readOnly = true)
+    public List<CertificateResponseDTO> findValidIssuerResponsesForUser(UserPrincipal user) {
+        return findValidIssuersForUser(user).stream().map(this::convertToDTO).collect(Collectors.toList());
+    }
+
+    @Transactional(readOnly = true)
+    public List<CertificateResponseDTO> findCertificateChainResponsesForUser(UserPrincipal user) {
+        if (user.getRole() == UserRole.ADMIN) {
+            return findAllResponses();
+        }
+        if (user.getRole() == UserRole.CA) {
+            // Svi sertifikati su u projekciji, pa se lanac organizacije prati kroz mapu (bez dodatnih upita)
+            List<CertificateResponseDTO> all = findAllResponses();
+            Map<Long, CertificateResponseDTO> byId = new HashMap<>();
+            all.forEach(response -> byId.put(response.getId(), response));
+            return all.stream()
+                    .filter(response -> isInOrganizationChain(response.getId(),
+                            id -> byId.containsKey(id) ? byId.get(id).getSubject() : null,
+                            id -> byId.containsKey(id) ? byId.get(id).getIssuerId() : null,
+                            user.getOrganization()))
+                    .collect(Collectors.toList());
+        }
+        return certificateRepository.findResponsesByOwnerId(user.getId());
+    }
+
+    // Isti skup kao findCertificateChainResponsesForUser, ali red po red iz kursora baze - za izvoz inventara.
+    // U memoriji su samo CA sertifikati: sertifikat je u lancu organizacije ako je organizacija u njegovom
+    // subject-u ili ako je u lancu njegov izdavalac (izdavaoci su uvek CA). Vraca broj predatih redova.
+    @Transactional(readOnly = true)
+    public long streamCertificateChainResponsesForUser(UserPrincipal user, Consumer<CertificateResponseDTO> consumer) {
+        Predicate<CertificateResponseDTO> visible = response -> true;
+        if (user.getRole() == UserRole.CA) {
+            String organization = user.getOrganization();
+            Set<Long> organizationIssuers = findOrganizationIssuerIds(organization);
+            visible = response -> (organization != null && organization.equals(getOrganizationFromSubject(response.getSubject())))
+                    || organizationIssuers.contains(response.getIssuerId());
+        }
+
+        try (Stream<CertificateResponseDTO> responses = user.getRole() == UserRole.ADMIN || user.getRole() == UserRole.CA
+                ? certificateRepository.streamAllResponses()
+                : certificateRepository.streamResponsesByOwnerId(user.getId())) {
+            long count = 0;
+            Iterator<CertificateResponseDTO> iterator = responses.iterator();
+            while (iterator.hasNext()) {
+                CertificateResponseDTO response = iterator.next();
+                if (visible.test(response)) {
+                    consumer.accept(response);
+                    count++;
+                }
+            }
+            return count;
+        }
+    }
+
+    // Id-evi CA sertifikata ciji lanac (do Root-a) sadrzi datu organizaciju
+    private Set<Long> findOrganizationIssuerIds(String userOrganization) {
+        Map<Long, CertificateChainView> caById = new HashMap<>();
+        certificateRepository.findCaChainViews().forEach(view -> caById.put(view.getId(), view));
+        return caById.keySet().stream()
+                .filter(id -> isInOrganizationChain(id,
+                        caId -> caById.containsKey(caId) ? caById.get(caId).getSubject() : null,
+                        caId -> caById.containsKey(caId) ? caById.get(caId).getIssuerCertificateId() : null,
+                        userOrganization))
+                .collect(Collectors.toSet());
+    }
+
+    private CertificateResponseDTO convertToDTO(Certificate certificate) {
+        Certificate issuerCertificate = certificate.getIssuerCertificate();
+        return new CertificateResponseDTO(certificate.getId(), certificate.getSerialNumber(),
+                certificate.getSubject(), certificate.getIssuer(), certificate.getType(), certificate.getStatus(),
+                certificate.getValidFrom(), certificate.getValidTo(), certificate.getIsCA(),
+                certificate.getPathLengthConstraint(), certificate.getKeyUsage(), certificate.getExtendedKeyUsage(),
+                certificate.getBasicConstraints(), certificate.getRevocationReason(), certificate.getRevokedAt(),
+                issuerCertificate != null ? issuerCertificate.getId() : null,
+                issuerCertificate != null ? issuerCertificate.getSerialNumber() : null,
+                certificate.getOwner() != null ? certificate.getOwner().getId() : null);
+    }
+
+    // Ceo lanac od sertifikata do Root-a (jedan upit, bez pemData)
+    @Transactional(readOnly = true)
+    public List<CertificateChainView> findAncestorChain(Long certificateId) {
+        return certificateRepository.findAncestorChain(certificateId);
+    }
+
+    // Celo podstablo ispod sertifikata sa dubinom (jedan upit, bez pemData)
+    @Transactional(readOnly = true)
+    public List<CertificateChainView> findSubtree(Long certificateId) {
+        return certificateRepository.findSubtree(certificateId);
+    }
+
     public boolean isCertificateValid(Long certificateId) {
         Optional<Certificate> certificateOpt = certificateRepository.findById(certificateId);
         if (certificateOpt.isEmpty()) {
@@ -104,6 +378,7 @@ public class CertificateService {
             certificate.setRevocationReason(reason);
             certificate.setRevokedAt(LocalDateTime.now());
             certificateRepository.save(certificate);
+            eventPublisher.publishEvent(new CertificatesRevokedEvent(List.of(certificate.getId())));
             try {
                 if (certificate.getIssuerCertificate() != null) {
                     // Ovo je Intermediate ili EE sertifikat. Obrisi kes njegovog IZDAVAOCA.
@@ -118,10 +393,95 @@ public class CertificateService {
         }
     }
 
+    // Povlaci sertifikat i celo podstablo ispod njega.
+    // Potomci se dobavljaju jednim rekurzivnim upitom, status se menja masovnim UPDATE-om u paketima,
+    // a CRL svakog pogodjenog izdavaoca se regenerise tacno jednom.
+    public RevocationSummaryDTO revokeSubtree(Long certificateId, String reason) {
+        List<CertificateChainView> subtree = certificateRepository.findSubtree(certificateId);
+        if (subtree.isEmpty()) {
+            throw new IllegalArgumentException("Certificate not found");
+        }
+
+        List<CertificateChainView> toRevoke = subtree.stream()
+                .filter(view -> view.getStatus() != CertificateStatus.REVOKED)
+                .toList();
+        List<Long> revokedIds = toRevoke.stream().map(CertificateChainView::getId).toList();
+        int revoked = revokeInBatches(revokedIds, reason);
+        eventPublisher.publishEvent(new CertificatesRevokedEvent(revokedIds));
+
+        // Pogodjeni izdavaoci: roditelji svih povucenih sertifikata (svaki samo jednom).
+        // Za Root, kao i u revokeCertificate, osvezava se njegova sopstvena lista.
+        Set<Long> affectedIssuerIds = new LinkedHashSet<>();
+        CertificateChainView top = subtree.get(0);
+        if (top.getIssuerCertificateId() == null) {
+            affectedIssuerIds.add(top.getId());
+        }
+        toRevoke.stream()
+                .map(CertificateChainView::getIssuerCertificateId)
+                .filter(Objects::nonNull)
+                .forEach(affectedIssuerIds::add);
+
+        List<String> regenerated = regenerateCrls(affectedIssuerIds);
+        return new RevocationSummaryDTO(certificateId, revoked, subtree.size() - toRevoke.size(), regenerated);
+    }
+
+    // Povlaci vise (vec ucitanih i autorizovanih) sertifikata odjednom: grupisano po izdavaocu,
+    // masovni UPDATE u paketima i jedna regeneracija CRL-a po pogodjenom izdavaocu.
+    public RevocationSummaryDTO revokeCertificates(Collection<Certificate> certificates, String reason) {
+        Map<Long, List<Long>> idsByIssuer = new LinkedHashMap<>();
+        int alreadyRevoked = 0;
+        for (Certificate certificate : certificates) {
+            if (certificate.getStatus() == CertificateStatus.REVOKED) {
+                alreadyRevoked++;
+                continue;
+            }
+            // Root nema izdavaoca - osvezava se njegova sopstvena lista (kao u revokeCertificate)
+            Long issuerId = certificate.getIssuerCertificate() != null
+                    ? certificate.getIssuerCertificate().getId()
+                    : certificate.getId();
+            idsByIssuer.computeIfAbsent(issuerId, key -> new ArrayList<>()).add(certificate.getId());
+        }
+
+        List<Long> ids = idsByIssuer.values().stream().flatMap(List::stream).toList();
+        int revoked = revokeInBatches(ids, reason);
+        eventPublisher.publishEvent(new CertificatesRevokedEvent(ids));
+        List<String> regenerated = regenerateCrls(idsByIssuer.keySet());
+        return new RevocationSummaryDTO(null, revoked, alreadyRevoked, regenerated);
+    }
+
+    // Masovni UPDATE u paketima - svaki paket je zasebna kratka transakcija, pa se tabela ne zakljucava dugo
+    private int revokeInBatches(List<Long> ids, String reason) {
+        LocalDateTime revokedAt = LocalDateTime.now();
+        int revoked = 0;
+        for (List<Long> batch : Lists.partition(ids, REVOCATION_BATCH_SIZE)) {
+            revoked += certificateRepository.revokeAllByIdIn(batch, reason, revokedAt);
+        }
+        return revoked;
+    }
+
+    // Regenerise CRL za svakog datog izdavaoca jednom; vraca serijske brojeve uspesno regenerisanih
+    private List<String> regenerateCrls(Collection<Long> issuerIds) {
+        List<String> regenerated = new ArrayList<>();
+        if (issuerIds.isEmpty()) {
+            return regenerated;
+        }
+        for (Certificate issuer : certificateRepository.findAllById(issuerIds)) {
+            try {
+                crlService.regenerateCRL(issuer);
+                regenerated.add(issuer.getSerialNumber());
+            } catch (Exception e) {
+                // Lista ce biti generisana pri sledecem zahtevu za CRL
+                crlService.clearCache(issuer.getSerialNumber());
+                logger.error("Error message", e);
+            }
+        }
+        return regenerated;
+    }
+
     /**
      * Provjerava da li korisnik može da pristupi sertifikatu
      */
-    public boolean canUserAccessCertificate(Long certificateId, User user) {
+    public boolean canUserAccessCertificate(Long certificateId, UserPrincipal user) {
         Optional<Certificate> certificateOpt = certificateRepository.findById(certificateId);
         if (certificateOpt.isEmpty()) {
             return false;
@@ -188,28 +548,29 @@ public class CertificateService {
 
 
     //Pronalazi listu validnih sertifikata za potpisivanje (issuers) na osnovu uloge ulogovanog korisnika
-    public List<Certificate> findValidIssuersForUser(User user) {
+    public List<Certificate> findValidIssuersForUser(UserPrincipal user) {
         Date now = new Date();
 
-        // 1. Dobavi SVE potencijalne izdavaoce (CA=true, status=VALID, datum OK)
+        // 1. Dobavi SVE potencijalne izdavaoce (CA=true, status=VALID, datum OK) - jedan upit
         List<Certificate> potentialIssuers = certificateRepository.findValidIssuers(CertificateStatus.VALID, now);
 
-        // 2. Kreiraj Stream za dalje filtriranje
-        Stream<Certificate> filteredStream = potentialIssuers.stream();
-
-        // 3. Filtriranje po ulozi korisnika (CA I USER moraju da vide samo sertifikate svoje organizacije)
+        // 2. Filtriranje po ulozi korisnika (CA I USER moraju da vide samo sertifikate svoje organizacije)
         if (user.getRole() == UserRole.CA || user.getRole() == UserRole.BASIC) {
             // CA i USER mogu da koriste samo validne CA sertifikate iz svoje organizacije.
             // Filtriramo sertifikate čiji lanac pripada organizaciji korisnika.
-            filteredStream = filteredStream.filter(cert -> isCertificateInUserOrganizationChain(cert, user.getOrganization()));
+            potentialIssuers = filterByOrganizationChain(potentialIssuers, user.getOrganization());
         }
         // Ako je uloga ADMIN, filtriranje po organizaciji se NE RADI (vidi sve organizacije).
 
-        // 4. Filtriraj SAMO one čiji je CEO LANAC validan
-        // Koristimo 'isCertificateValid' koja interno poziva 'isChainValid'
-        filteredStream = filteredStream.filter(cert -> this.isCertificateValid(cert.getId()));
+        // 3. Zadrži SAMO one čiji je CEO LANAC validan.
+        // Lanci se dobavljaju zajedno, svaki zajednicki predak se proverava jednom, a razlicita
+        // stabla paralelno na virtuelnim nitima. Sta ne stigne do roka ne ulazi u listu.
+        Map<Long, CertificateValidityDTO> validity =
+                certificateValidityService.validate(potentialIssuers, ISSUER_VALIDATION_DEADLINE);
 
-        return filteredStream.collect(Collectors.toList());
+        return potentialIssuers.stream()
+                .filter(cert -> validity.containsKey(cert.getId()) && validity.get(cert.getId()).isValid())
+                .collect(Collectors.toList());
     }
 
     //Pronalazi sve sertifikate koji pripadaju "lancu" ulogovanog korisnika.
@@ -225,9 +586,7 @@ public class CertificateService {
             List<Certificate> allCertificates = findAll();
 
             // 2. Filtriraj listu: zadrži samo one koji pripadaju lancu organizacije CA korisnika.
-            return allCertificates.stream()
-                    .filter(cert -> isCertificateInUserOrganizationChain(cert, user.getOrganization()))
-                    .collect(Collectors.toList());
+            return filterByOrganizationChain(allCertificates, user.getOrganization());
         }
 
         // Basic korisnik vidi samo sertifikate čiji je on vlasnik (owner).
@@ -236,19 +595,60 @@ public class CertificateService {
 
     // proverava da li sertifikat pripada lancu određene organizacije.Prolazi uz lanac od datog sertifikata sve do Root-a.
     public boolean isCertificateInUserOrganizationChain(Certificate certificate, String userOrganization) {
-        Certificate current = certificate;
-        while (current != null) {
-            // Izvlači organizaciju iz Subject polja trenutnog sertifikata u lancu.
-            String certOrganization = getOrganizationFromSubject(current.getSubject());
+        return !filterByOrganizationChain(List.of(certificate), userOrganization).isEmpty();
+    }
+
+    // Zadrzava sertifikate ciji lanac (do Root-a) sadrzi datu organizaciju.
+    // Vec ucitani deo lanca se proverava u memoriji; izdavaoci su LAZY, pa se za sve sertifikate ciji
+    // lanac dalje nije ucitan ostatak dobija jednim rekurzivnim upitom (umesto upita po karici).
+    public List<Certificate> filterByOrganizationChain(List<Certificate> certificates, String userOrganization) {
+        Set<Certificate> matched = new HashSet<>();
+        Map<Certificate, Long> unloadedAncestor = new LinkedHashMap<>();
+        for (Certificate certificate : certificates) {
+            Certificate current = certificate;
+            while (current != null) {
+                if (!Hibernate.isInitialized(current)) {
+                    // Id neucitanog proxy-ja je poznat bez upita
+                    unloadedAncestor.put(certificate, current.getId());
+                    break;
+                }
+                if (userOrganization != null && userOrganization.equals(getOrganizationFromSubject(current.getSubject()))) {
+                    matched.add(certificate);
+                    break;
+                }
+                current = current.getIssuerCertificate();
+            }
+        }
+
+        if (!unloadedAncestor.isEmpty()) {
+            Map<Long, CertificateChainView> closure = new HashMap<>();
+            for (CertificateChainView view : certificateRepository.findAncestorClosure(new HashSet<>(unloadedAncestor.values()))) {
+                closure.put(view.getId(), view);
+            }
+            unloadedAncestor.forEach((certificate, ancestorId) -> {
+                if (isInOrganizationChain(ancestorId,
+                        id -> closure.containsKey(id) ? closure.get(id).getSubject() : null,
+                        id -> closure.containsKey(id) ? closure.get(id).getIssuerCertificateId() : null,
+                        userOrganization)) {
+                    matched.add(certificate);
+                }
+            });
+        }
 
-            // Ako se organizacije poklapaju, sertifikat je deo lanca.
-            if (userOrganization != null && userOrganization.equals(certOrganization)) {
+        return certificates.stream().filter(matched::contains).collect(Collectors.toList());
+    }
+
+    // Penje se kroz lanac preko id-eva (subjectOf/issuerIdOf citaju vec ucitane podatke)
+    private boolean isInOrganizationChain(Long certificateId, Function<Long, String> subjectOf,
+                                          Function<Long, Long> issuerIdOf, String userOrganization) {
+        Long current = certificateId;
+        for (int depth = 0; current != null && depth <= CertificateRepository.MAX_CHAIN_DEPTH; depth++) {
+            if (userOrganization != null && userOrganization.equals(getOrganizationFromSubject(subjectOf.apply(current)))) {
                 return true;
             }
-            // Pređi na sledeći sertifikat u lancu (roditelja).
-            current = current.getIssuerCertificate();
+            current = issuerIdOf.apply(current);
         }
-        return false; // Nismo našli poklapanje u celom lancu.
+        return false;
     }
 
     //izvlači vrednost organizacije (O=) iz Subject stringa.
@@ -266,49 +666,19 @@ public class CertificateService {
     }
 
     private boolean isChainValid(Certificate certificate) {
-        Certificate current = certificate;
-
-        // Idemo uz lanac sve dok ne dođemo do Root-a (koji nema issuera)
-        while (current.getIssuerCertificate() != null) {
-            Certificate issuer = current.getIssuerCertificate();
-
-            // Provera #1: Status i datum važenja roditelja
-            if (issuer.getStatus() != CertificateStatus.VALID || issuer.getValidTo().before(new Date())) {
-                return false;
-            }
-
-            // Provera #2: Ispravnost digitalnog potpisa
-            try {
-                // 1. Uzmi stvarni X509 objekat za "dete" iz keystore-a
-                X509Certificate currentX509 = (X509Certificate) keystoreService.getCertificate("CA_" + current.getSerialNumber());
-
-                // 2. Rekonstruiši javni ključ "roditelja" (izdavaoca) iz stringa u bazi
-                byte[] issuerPublicKeyBytes = java.util.Base64.getDecoder().decode(issuer.getPublicKey());
-                KeyFactory keyFactory = KeyFactory.getInstance("RSA");
-                PublicKey issuerPublicKey = keyFactory.generatePublic(new X509EncodedKeySpec(issuerPublicKeyBytes));
-
-                // 3. Verifikuj potpis deteta koristeći javni ključ roditelja
-                //    Ako potpis nije ispravan, ova linija će baciti izuzetak
-                currentX509.verify(issuerPublicKey);
-            } catch (Exception e) {
-                // to znači da potpis nije validan.
-                e.printStackTrace();
-                return false;
-            }
-            if (crlService.isCertificateRevoked(current, issuer)) {
-                // Ako JESTE na listi, lanac NIJE validan
-                return false;
-            }
-            // Predji na sledeci sertifikat u lancu
-            current = issuer;
-        }
-
-        // Stigli smo do Root-a i svi potpisi u lancu su bili ispravni.
-        return true;
+        // Standardna PKIX validacija (CertPathValidator) sa trust anchor-ima i CertStore-om
+        // koji se drze u memoriji, i revokacijom preko nasih CRL lista.
+        return pkixValidationService.isChainValid(certificate);
     }
 
     public Certificate createAndSaveEECertificateFromCsr(
             String csrPem, Date validFrom, Date validTo, Long issuerCertificateId, User owner) throws Exception {
+        return createAndSaveEECertificateFromCsr(csrPem, validFrom, validTo, issuerCertificateId, null, owner);
+    }
+
+    public Certificate createAndSaveEECertificateFromCsr(
+            String csrPem, Date validFrom, Date validTo, Long issuerCertificateId, Long templateId,
+            User owner) throws Exception {
 
         // 1. Pronađi sertifikat izdavaoca (issuer)
         Certificate issuerCertificate = certificateRepository.findById(issuerCertificateId)
@@ -318,15 +688,108 @@ public class CertificateService {
 
         // 3. Validacija izdavaoca (CA, važenje, status)
         validateIssuerForSigning(issuerCertificate, validFrom, validTo);
+        CompiledTemplate template = resolveTemplate(templateId, issuerCertificateId, validFrom, validTo, owner);
 
         // 4. Generiši sertifikat koristeći GeneratorService
         Certificate eeCert = certificateGeneratorService.generateEECertificateFromCsr(
-                csrPem, validFrom, validTo, issuerCertificate, owner);
+                csrPem, validFrom, validTo, issuerCertificate, owner, template);
 
         // 5. Sačuvaj ga u bazi
         return saveCertificate(eeCert);
     }
 
+    // Paketno izdavanje EE sertifikata iz CSR-ova (isti izdavalac i period vazenja za sve)
+    public List<BatchCsrItemDTO> createAndSaveEECertificatesFromCsrs(
+            List<String> csrPems, Date validFrom, Date validTo, Long issuerCertificateId, User owner) throws Exception {
+        return createAndSaveEECertificatesFromCsrs(csrPems, validFrom, validTo, issuerCertificateId, null, owner);
+    }
+
+    public List<BatchCsrItemDTO> createAndSaveEECertificatesFromCsrs(
+            List<String> csrPems, Date validFrom, Date validTo, Long issuerCertificateId, Long templateId,
+            User owner) throws Exception {
+        if (csrPems.size() > MAX_CSR_BATCH_SIZE) {
+            throw new IllegalArgumentException("At most " + MAX_CSR_BATCH_SIZE + " CSRs can be submitted in one request");
+        }
+
+        Certificate issuerCertificate = certificateRepository.findById(issuerCertificateId)
+                .orElseThrow(() -> new IllegalArgumentException("Issuer certificate with ID " + issuerCertificateId + " not found."));
+
+        validateIssuerForSigning(issuerCertificate, validFrom, validTo);
+        CompiledTemplate template = resolveTemplate(templateId, issuerCertificateId, validFrom, validTo, owner);
+
+        return certificateGeneratorService.generateEECertificatesFromCsrs(
+                csrPems, validFrom, validTo, issuerCertificate, owner, template);
+    }
+
+    public EEIssuanceTarget resolveEEIssuanceTarget(Long issuerCertificateId, Long templateId, Date validFrom,
+                                                    Date validTo, User owner) {
+        Certificate issuerCertificate = certificateRepository.findById(issuerCertificateId)
+                .orElseThrow(() -> new IllegalArgumentException("Issuer certificate with ID " + issuerCertificateId + " not found."));
+
+        validateIssuerForSigning(issuerCertificate, validFrom, validTo);
+        return new EEIssuanceTarget(issuerCertificate,
+                resolveTemplate(templateId, issuerCertificateId, validFrom, validTo, owner));
+    }
+
+    // Izdavalac je CA za koji je šablon vezan (izdavanje sa kljucevima generisanim na serveru)
+    public EEIssuanceTarget resolveTemplateIssuanceTarget(Long templateId, Date validFrom, Date validTo, User owner) {
+        CompiledTemplate template = certificateTemplateService.getCompiledTemplate(templateId, owner);
+        return resolveEEIssuanceTarget(template.getCaIssuerId(), templateId, validFrom, validTo, owner);
+    }
+
+    // Izdavanje iz PEM paketa (vise CSR-ova u jednom fajlu) koji se cita inkrementalno PemReader-om.
+    // CSR-ovi se skupljaju u delove od CSR_BUNDLE_CHUNK_SIZE; svaki deo se izdaje u svojoj transakciji,
+    // a rezultati dela idu pozivaocu cim je deo gotov. Neispravan PEM (npr. los Base64) prekida citanje.
+    public void createAndSaveEECertificatesFromCsrBundle(Reader bundle, Date validFrom, Date validTo,
+                                                         EEIssuanceTarget target, User owner,
+                                                         Consumer<List<BatchCsrItemDTO>> results) throws Exception {
+        try (PemReader pemReader = new PemReader(bundle)) {
+            List<PemObject> chunk = new ArrayList<>(CSR_BUNDLE_CHUNK_SIZE);
+            int nextIndex = 0;
+            PemObject pemObject;
+            while ((pemObject = pemReader.readPemObject()) != null) {
+                chunk.add(pemObject);
+                if (chunk.size() == CSR_BUNDLE_CHUNK_SIZE) {
+                    issueCsrBundleChunk(chunk, nextIndex, validFrom, validTo, target, owner, results);
+                    nextIndex += chunk.size();
+                    chunk.clear();
+                }
+            }
+            if (!chunk.isEmpty()) {
+                issueCsrBundleChunk(chunk, nextIndex, validFrom, validTo, target, owner, results);
+            }
+        }
+    }
+
+    private void issueCsrBundleChunk(List<PemObject> chunk, int firstIndex, Date validFrom, Date validTo,
+                                     EEIssuanceTarget target, User owner,
+                                     Consumer<List<BatchCsrItemDTO>> results) throws Exception {
+        results.accept(certificateGeneratorService.generateEECertificatesFromPemObjects(chunk, firstIndex,
+                validFrom, validTo, target.issuerCertificate(), owner, target.template()));
+    }
+
+    // Prevedeni šablon za izdavanje (null ako zahtev nije po šablonu); pravila koja ne zavise od CSR-a
+    // (izdavalac, tip i maksimalno važenje) proveravaju se jednom za ceo zahtev
+    private CompiledTemplate resolveTemplate(Long templateId, Long issuerCertificateId, Date validFrom, Date validTo,
+                                             User owner) {
+        if (templateId == null) {
+            return null;
+        }
+        CompiledTemplate template = certificateTemplateService.getCompiledTemplate(templateId, owner);
+        if (!issuerCertificateId.equals(template.getCaIssuerId())) {
+            throw new IllegalArgumentException("Template '" + template.getName() + "' is bound to a different CA issuer");
+        }
+        if (template.isCa()) {
+            throw new IllegalArgumentException("Template '" + template.getName() +
+                    "' issues CA certificates and cannot be used for end-entity issuance");
+        }
+        String validityError = template.validateValidity(validFrom, validTo);
+        if (validityError != null) {
+            throw new IllegalArgumentException(validityError);
+        }
+        return template;
+    }
+
     public List<Certificate> findByOwnerIdAndType(Long ownerId, CertificateType type) {
         // Pretpostavljam da je ova metoda dodata u CertificateRepository kao:
         // List<Certificate> findByOwnerIdAndType(Long ownerId, CertificateType type);
@@ -369,11 +832,30 @@ public class CertificateService {
         // Ovo čuva sertifikat u bazi bez privatnog ključa, ispunjavajući zahtev.
         certificate.setPemData(pemData);
 
-        // 3. Sačuvaj model u bazi
-        return certificateRepository.save(certificate);
+        // 3. Sačuvaj model u bazi, zajedno sa DER kodiranim sertifikatom
+        Certificate saved = certificateRepository.save(certificate);
+        certificateDerService.save(saved, x509Cert);
+        return saved;
     }
 
 
+    // Paketni insert EE sertifikata (hibernate.jdbc.batch_size), flush po paketu
+    @Transactional(rollbackFor = Exception.class)
+    public List<Certificate> saveEndEntityCertificates(List<Certificate> certificates, List<X509Certificate> x509Certs)
+            throws CertificateEncodingException {
+        for (int i = 0; i < certificates.size(); i++) {
+            certificates.get(i).setPemData(CertificateUtil.toPem(x509Certs.get(i)));
+        }
+
+        List<Certificate> saved = new ArrayList<>();
+        for (List<Certificate> batch : Lists.partition(certificates, INSERT_BATCH_SIZE)) {
+            saved.addAll(certificateRepository.saveAll(batch));
+            certificateRepository.flush();
+        }
+        certificateDerService.saveAll(saved, x509Certs);
+        return saved;
+    }
+
     // Pronalazi validan End Entity sertifikat za korisnika
     public Optional<Certificate> findValidEndEntityCertificateByOwner(User owner) {
         List<Certificate> userCertificates = findByOwner(owner);
@@ -4,13 +4,18 @@ import com.bsep.pki_system.dto.CreateTemplateDTO;
 import com.bsep.pki_system.dto.TemplateResponseDTO;
 import com.bsep.pki_system.model.Certificate;
 import com.bsep.pki_system.model.CertificateTemplate;
+import com.bsep.pki_system.model.KeyAlgorithm;
 import com.bsep.pki_system.model.User;
 import com.bsep.pki_system.model.UserRole;
 import com.bsep.pki_system.repository.CertificateTemplateRepository;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 @Service
@@ -35,6 +40,13 @@ public class CertificateTemplateService {
             "^[a-zA-Z0-9-]+\\.bsep\\.com$"
     );
 
+    // Dozvoljeni patterni kompajlirani jednom (String.matches kompajlira regex pri svakom pozivu)
+    private final Map<String, Pattern> compiledPatterns = allowedPatterns.stream()
+            .collect(Collectors.toUnmodifiableMap(Function.identity(), Pattern::compile));
+
+    // Prevedeni sabloni za izdavanje, po id-u; izbacuju se pri izmeni i brisanju sablona
+    private final Map<Long, CompiledTemplate> compiledTemplates = new ConcurrentHashMap<>();
+
     public CertificateTemplateService(CertificateTemplateRepository templateRepository,
                                       CertificateService certificateService) {
         this.templateRepository = templateRepository;
@@ -90,6 +102,7 @@ public class CertificateTemplateService {
         template.setKeyUsage(templateDTO.getKeyUsage());
         template.setExtendedKeyUsage(templateDTO.getExtendedKeyUsage());
         template.setBasicConstraints(templateDTO.getBasicConstraints());
+        template.setKeyAlgorithm(KeyAlgorithm.orDefault(templateDTO.getKeyAlgorithm()));
         template.setCreatedBy(createdBy);
 
         return templateRepository.save(template);
@@ -150,6 +163,7 @@ public class CertificateTemplateService {
         }
 
         templateRepository.delete(template);
+        compiledTemplates.remove(templateId);
     }
 
     public CertificateTemplate updateTemplate(Long templateId, CreateTemplateDTO templateDTO, User updatedBy) {
@@ -209,8 +223,28 @@ public class CertificateTemplateService {
         existingTemplate.setKeyUsage(templateDTO.getKeyUsage());
         existingTemplate.setExtendedKeyUsage(templateDTO.getExtendedKeyUsage());
         existingTemplate.setBasicConstraints(templateDTO.getBasicConstraints());
+        existingTemplate.setKeyAlgorithm(KeyAlgorithm.orDefault(templateDTO.getKeyAlgorithm()));
+
+        CertificateTemplate saved = templateRepository.save(existingTemplate);
+        compiledTemplates.remove(templateId);
+        return saved;
+    }
 
-        return templateRepository.save(existingTemplate);
+    // Sablon spreman za izdavanje (regex-i i ekstenzije se prevode samo pri prvom korišćenju).
+    // Isto pravilo pristupa kao findById: samo CA korisnik koji je kreirao šablon.
+    public CompiledTemplate getCompiledTemplate(Long templateId, User user) {
+        CompiledTemplate compiled = compiledTemplates.get(templateId);
+        if (compiled == null) {
+            CertificateTemplate template = templateRepository.findById(templateId)
+                    .orElseThrow(() -> new IllegalArgumentException("Template not found with ID: " + templateId));
+            compiled = CompiledTemplate.compile(template, compiledPatterns);
+            compiledTemplates.put(templateId, compiled);
+        }
+
+        if (user.getRole() != UserRole.CA || !user.getId().equals(compiled.getCreatedById())) {
+            throw new IllegalArgumentException("Not authorized to access this template");
+        }
+        return compiled;
     }
 
     private TemplateResponseDTO convertToDTO(CertificateTemplate template) {
@@ -226,6 +260,7 @@ public class CertificateTemplateService {
         dto.setKeyUsage(template.getKeyUsage());
         dto.setExtendedKeyUsage(template.getExtendedKeyUsage());
         dto.setBasicConstraints(template.getBasicConstraints());
+        dto.setKeyAlgorithm(template.getKeyAlgorithm());
         dto.setCreatedAt(template.getCreatedAt());
         dto.setCreatedBy(template.getCreatedBy().getEmail());
 
@@ -244,7 +279,7 @@ public class CertificateTemplateService {
                     ". Pattern is not in the allowed list for security reasons.");
         }
 
-        return commonName != null && commonName.matches(regexPattern);
+        return commonName != null && compiledPatterns.get(regexPattern).matcher(commonName).matches();
     }
 
     // METODA ZA VALIDACIJU SANs
@@ -259,7 +294,7 @@ public class CertificateTemplateService {
                     ". Pattern is not in the allowed list for security reasons.");
         }
 
-        return sans.matches(regexPattern);
+        return compiledPatterns.get(regexPattern).matcher(sans).matches();
     }
 
     // METODA ZA PROVERU DOZVOLJENIH PATTERNA
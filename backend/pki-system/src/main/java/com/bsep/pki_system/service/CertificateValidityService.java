@@ -0,0 +1,199 @@
+package com.bsep.pki_system.service;
+
+import com.bsep.pki_system.controller.AuthController;
+import com.bsep.pki_system.dto.CertificateChainView;
+import com.bsep.pki_system.dto.CertificateValidityDTO;
+import com.bsep.pki_system.model.Certificate;
+import com.bsep.pki_system.model.CertificateStatus;
+import com.bsep.pki_system.repository.CertificateRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// Paketna provera validnosti sertifikata.
+// Lanac se proverava istim PKIX validatorom kao /{id}/valid (PkixValidationService), sa zajednickim
+// trust anchor-ima i CertStore-om; svaki zajednicki predak se u jednoj grupi proverava samo jednom.
+// Stabla (razliciti Root-ovi) se odredjuju jednim rekurzivnim upitom i proveravaju paralelno na virtuelnim nitima.
+@Service
+public class CertificateValidityService {
+
+    // Gornja granica broja sertifikata u jednom zahtevu
+    public static final int MAX_BATCH_SIZE = 5000;
+    public static final Duration DEFAULT_DEADLINE = Duration.ofSeconds(60);
+
+    public static final String REASON_NOT_FOUND = "NOT_FOUND";
+    public static final String REASON_REVOKED = "REVOKED";
+    public static final String REASON_EXPIRED = "EXPIRED";
+    public static final String REASON_NOT_YET_VALID = "NOT_YET_VALID";
+    public static final String REASON_TIMEOUT = "TIMEOUT";
+    public static final String REASON_ERROR = "VALIDATION_ERROR";
+
+    private final CertificateRepository certificateRepository;
+    private final PkixValidationService pkixValidationService;
+
+    private static final Logger logger = LoggerFactory.getLogger(AuthController.class);
+
+    public CertificateValidityService(CertificateRepository certificateRepository,
+                                      PkixValidationService pkixValidationService) {
+        this.certificateRepository = certificateRepository;
+        this.pkixValidationService = pkixValidationService;
+    }
+
+    // Rezultat je mapiran po kljucu iz zahteva: id (kao string) ili serijski broj, redosledom iz zahteva
+    public Map<String, CertificateValidityDTO> validateBatch(List<Long> ids, List<String> serialNumbers) {
+        List<Long> requestedIds = ids != null ? ids : List.of();
+        List<String> requestedSerials = serialNumbers != null ? serialNumbers : List.of();
+
+        if (requestedIds.size() + requestedSerials.size() > MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException("At most " + MAX_BATCH_SIZE + " certificates can be validated in one request");
+        }
+
+        Map<Long, Certificate> byId = requestedIds.isEmpty() ? Map.of() :
+                certificateRepository.findAllById(requestedIds).stream()
+                        .collect(Collectors.toMap(Certificate::getId, Function.identity(), (a, b) -> a));
+        Map<String, Certificate> bySerial = requestedSerials.isEmpty() ? Map.of() :
+                certificateRepository.findBySerialNumberIn(requestedSerials).stream()
+                        .collect(Collectors.toMap(Certificate::getSerialNumber, Function.identity(), (a, b) -> a));
+
+        Map<Long, Certificate> found = new HashMap<>(byId);
+        bySerial.values().forEach(cert -> found.putIfAbsent(cert.getId(), cert));
+
+        Map<Long, CertificateValidityDTO> validated = validate(found.values(), DEFAULT_DEADLINE);
+
+        Map<String, CertificateValidityDTO> results = new LinkedHashMap<>();
+        for (Long id : requestedIds) {
+            Certificate cert = byId.get(id);
+            results.put(String.valueOf(id), cert != null ? validated.get(cert.getId()) : notFound(id, null));
+        }
+        for (String serial : requestedSerials) {
+            Certificate cert = bySerial.get(serial);
+            results.put(serial, cert != null ? validated.get(cert.getId()) : notFound(null, serial));
+        }
+        return results;
+    }
+
+    // Proverava date sertifikate (vec ucitane) i vraca rezultat po id-u.
+    // Sertifikati cija provera ne stigne da se zavrsi do roka dobijaju razlog TIMEOUT.
+    public Map<Long, CertificateValidityDTO> validate(Collection<Certificate> certificates, Duration deadline) {
+        if (certificates.isEmpty()) {
+            return Map.of();
+        }
+
+        Set<Long> ids = certificates.stream().map(Certificate::getId).collect(Collectors.toSet());
+
+        // 1. Jedan upit za sve lance: id -> id izdavaoca (null za Root)
+        Map<Long, Long> parentOf = new HashMap<>();
+        for (CertificateChainView view : certificateRepository.findAncestorClosure(ids)) {
+            parentOf.put(view.getId(), view.getIssuerCertificateId());
+        }
+
+        // 2. Grupisanje po Root-u - grupe nemaju zajednickih predaka pa se mogu proveravati paralelno
+        Map<Long, List<Certificate>> groups = new LinkedHashMap<>();
+        for (Certificate cert : certificates) {
+            groups.computeIfAbsent(findRootId(cert.getId(), parentOf), root -> new ArrayList<>()).add(cert);
+        }
+
+        Date now = new Date();
+        List<List<Certificate>> groupList = new ArrayList<>(groups.values());
+        List<Callable<Map<Long, CertificateValidityDTO>>> tasks = groupList.stream()
+                .<Callable<Map<Long, CertificateValidityDTO>>>map(group -> () -> validateGroup(group, now))
+                .toList();
+
+        Map<Long, CertificateValidityDTO> results = new HashMap<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<Map<Long, CertificateValidityDTO>>> futures =
+                    executor.invokeAll(tasks, deadline.toMillis(), TimeUnit.MILLISECONDS);
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    results.putAll(futures.get(i).get());
+                } catch (CancellationException e) {
+                    groupList.get(i).forEach(cert -> results.put(cert.getId(), failed(cert, REASON_TIMEOUT)));
+                } catch (ExecutionException e) {
+                    logger.error("Error message", e);
+                    groupList.get(i).forEach(cert -> results.put(cert.getId(), failed(cert, REASON_ERROR)));
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            certificates.forEach(cert -> results.putIfAbsent(cert.getId(), failed(cert, REASON_TIMEOUT)));
+        }
+        return results;
+    }
+
+    // Provera jedne grupe (jednog stabla): prvo status i period vazenja, pa PKIX provera lanca
+    private Map<Long, CertificateValidityDTO> validateGroup(List<Certificate> group, Date now) {
+        Map<Long, String> reasons = new HashMap<>();
+        List<Certificate> chainChecks = new ArrayList<>();
+        for (Certificate cert : group) {
+            String reason = ownReason(cert, now);
+            reasons.put(cert.getId(), reason);
+            if (reason == null) {
+                chainChecks.add(cert);
+            }
+        }
+        if (!chainChecks.isEmpty()) {
+            reasons.putAll(pkixValidationService.validateAll(chainChecks));
+        }
+
+        Map<Long, CertificateValidityDTO> results = new HashMap<>();
+        for (Certificate cert : group) {
+            String reason = reasons.get(cert.getId());
+            results.put(cert.getId(), new CertificateValidityDTO(
+                    cert.getId(), cert.getSerialNumber(), cert.getStatus(), reason == null, reason));
+        }
+        return results;
+    }
+
+    // Status i period vazenja samog sertifikata (isto kao isCertificateValid)
+    private String ownReason(Certificate cert, Date now) {
+        if (cert.getStatus() == CertificateStatus.REVOKED) {
+            return REASON_REVOKED;
+        }
+        if (cert.getStatus() == CertificateStatus.EXPIRED || cert.getValidTo().before(now)) {
+            return REASON_EXPIRED;
+        }
+        if (cert.getValidFrom().after(now)) {
+            return REASON_NOT_YET_VALID;
+        }
+        return null;
+    }
+
+    private Long findRootId(Long id, Map<Long, Long> parentOf) {
+        Long current = id;
+        for (int depth = 0; depth < CertificateRepository.MAX_CHAIN_DEPTH; depth++) {
+            Long parentId = parentOf.get(current);
+            if (parentId == null) {
+                return current;
+            }
+            current = parentId;
+        }
+        return current;
+    }
+
+    private CertificateValidityDTO failed(Certificate cert, String reason) {
+        return new CertificateValidityDTO(cert.getId(), cert.getSerialNumber(), cert.getStatus(), false, reason);
+    }
+
+    private CertificateValidityDTO notFound(Long id, String serialNumber) {
+        return new CertificateValidityDTO(id, serialNumber, null, false, REASON_NOT_FOUND);
+    }
+}
@@ -0,0 +1,14 @@
+package com.bsep.pki_system.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+// Objavljuje ga CertificateExpirySweeper posle svakog paketa sertifikata prebacenih u EXPIRED,
+// da bi kesevi koji drze stanje sertifikata mogli da izbace te zapise.
+@Getter
+@AllArgsConstructor
+public class CertificatesExpiredEvent {
+    private final List<Long> certificateIds;
+}
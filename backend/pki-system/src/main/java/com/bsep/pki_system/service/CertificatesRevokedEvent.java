@@ -0,0 +1,14 @@
+package com.bsep.pki_system.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+// Objavljuje ga CertificateService posle svake revokacije (pojedinacne, kaskadne ili masovne),
+// da bi kesevi koji drze stanje sertifikata mogli da izbace te zapise.
+@Getter
+@AllArgsConstructor
+public class CertificatesRevokedEvent {
+    private final List<Long> certificateIds;
+}
@@ -0,0 +1,240 @@
+package com.bsep.pki_system.service;
+
+import com.bsep.pki_system.model.CertificateTemplate;
+import com.bsep.pki_system.model.KeyAlgorithm;
+import org.bouncycastle.asn1.ASN1ObjectIdentifier;
+import org.bouncycastle.asn1.x500.RDN;
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.asn1.x500.style.BCStyle;
+import org.bouncycastle.asn1.x500.style.IETFUtils;
+import org.bouncycastle.asn1.x509.BasicConstraints;
+import org.bouncycastle.asn1.x509.ExtendedKeyUsage;
+import org.bouncycastle.asn1.x509.Extension;
+import org.bouncycastle.asn1.x509.GeneralName;
+import org.bouncycastle.asn1.x509.GeneralNames;
+import org.bouncycastle.asn1.x509.KeyPurposeId;
+import org.bouncycastle.asn1.x509.KeyUsage;
+import org.bouncycastle.cert.X509v3CertificateBuilder;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Sablon preveden jednom u oblik spreman za izdavanje: kompajlirani regex-i, gotove BouncyCastle
+// ekstenzije (KeyUsage, ExtendedKeyUsage, BasicConstraints) i pravilo maksimalnog vazenja.
+// Nepromenljiv je i deli se izmedju zahteva; kesira ga CertificateTemplateService.
+public class CompiledTemplate {
+
+    // Redosled bitova u CertificateTemplate.keyUsage (isti kao u formi za sablone)
+    private static final int[] KEY_USAGE_BITS = {
+            KeyUsage.digitalSignature, KeyUsage.nonRepudiation, KeyUsage.keyEncipherment,
+            KeyUsage.dataEncipherment, KeyUsage.keyAgreement, KeyUsage.keyCertSign,
+            KeyUsage.cRLSign, KeyUsage.encipherOnly, KeyUsage.decipherOnly
+    };
+    private static final String[] KEY_USAGE_NAMES = {
+            "digitalSignature", "nonRepudiation", "keyEncipherment", "dataEncipherment", "keyAgreement",
+            "keyCertSign", "cRLSign", "encipherOnly", "decipherOnly"
+    };
+
+    private static final Map<String, KeyPurposeId> KEY_PURPOSES = Map.of(
+            "serverauth", KeyPurposeId.id_kp_serverAuth,
+            "clientauth", KeyPurposeId.id_kp_clientAuth,
+            "codesigning", KeyPurposeId.id_kp_codeSigning,
+            "emailprotection", KeyPurposeId.id_kp_emailProtection,
+            "timestamping", KeyPurposeId.id_kp_timeStamping,
+            "ocspsigning", KeyPurposeId.id_kp_OCSPSigning
+    );
+
+    private static final Pattern PATH_LEN = Pattern.compile("pathlen\\s*:\\s*(\\d+)", Pattern.CASE_INSENSITIVE);
+    private static final Pattern CA_TRUE = Pattern.compile("CA\\s*:\\s*TRUE", Pattern.CASE_INSENSITIVE);
+
+    private final Long templateId;
+    private final String name;
+    private final Long caIssuerId;
+    private final Long createdById;
+    private final Pattern commonNamePattern;
+    private final Pattern sansPattern;
+    private final Integer maxValidityDays;
+    private final KeyUsage keyUsage;
+    private final String keyUsageDescription;
+    private final ExtendedKeyUsage extendedKeyUsage;
+    private final String extendedKeyUsageDescription;
+    private final BasicConstraints basicConstraints;
+    private final String basicConstraintsDescription;
+    private final KeyAlgorithm keyAlgorithm;
+
+    private CompiledTemplate(CertificateTemplate template, Pattern commonNamePattern, Pattern sansPattern) {
+        this.templateId = template.getId();
+        this.name = template.getName();
+        this.caIssuerId = template.getCaIssuer() != null ? template.getCaIssuer().getId() : null;
+        this.createdById = template.getCreatedBy() != null ? template.getCreatedBy().getId() : null;
+        this.commonNamePattern = commonNamePattern;
+        this.sansPattern = sansPattern;
+        this.maxValidityDays = template.getMaxValidityDays();
+        this.keyAlgorithm = KeyAlgorithm.orDefault(template.getKeyAlgorithm());
+
+        // Key Usage iz liste bool vrednosti
+        int bits = 0;
+        List<String> usageNames = new ArrayList<>();
+        List<Boolean> flags = template.getKeyUsage() != null ? template.getKeyUsage() : List.of();
+        for (int i = 0; i < Math.min(flags.size(), KEY_USAGE_BITS.length); i++) {
+            if (Boolean.TRUE.equals(flags.get(i))) {
+                bits |= KEY_USAGE_BITS[i];
+                usageNames.add(KEY_USAGE_NAMES[i]);
+            }
+        }
+        this.keyUsage = bits != 0 ? new KeyUsage(bits) : null;
+        this.keyUsageDescription = bits != 0 ? String.join(", ", usageNames) : null;
+
+        // Extended Key Usage iz liste imena ("serverAuth,clientAuth") ili OID-ova
+        List<KeyPurposeId> purposes = new ArrayList<>();
+        if (template.getExtendedKeyUsage() != null) {
+            for (String purpose : template.getExtendedKeyUsage().split(",")) {
+                String trimmed = purpose.trim();
+                if (!trimmed.isEmpty()) {
+                    purposes.add(keyPurpose(trimmed));
+                }
+            }
+        }
+        this.extendedKeyUsage = purposes.isEmpty() ? null : new ExtendedKeyUsage(purposes.toArray(new KeyPurposeId[0]));
+        this.extendedKeyUsageDescription = purposes.isEmpty() ? null : template.getExtendedKeyUsage().trim();
+
+        // Basic Constraints ("CA:TRUE", "CA:FALSE", "CA:TRUE, pathlen:0")
+        String constraints = template.getBasicConstraints();
+        boolean ca = constraints != null && CA_TRUE.matcher(constraints).find();
+        Matcher pathLen = constraints != null ? PATH_LEN.matcher(constraints) : null;
+        if (ca && pathLen != null && pathLen.find()) {
+            this.basicConstraints = new BasicConstraints(Integer.parseInt(pathLen.group(1)));
+        } else {
+            this.basicConstraints = new BasicConstraints(ca);
+        }
+        this.basicConstraintsDescription = ca ? "CA:TRUE" : "CA:FALSE";
+    }
+
+    // Regex-i dolaze vec kompajlirani iz liste dozvoljenih patterna
+    static CompiledTemplate compile(CertificateTemplate template, Map<String, Pattern> allowedPatterns) {
+        return new CompiledTemplate(template,
+                pattern(template.getCommonNameRegex(), allowedPatterns),
+                pattern(template.getSansRegex(), allowedPatterns));
+    }
+
+    private static Pattern pattern(String regex, Map<String, Pattern> allowedPatterns) {
+        if (regex == null || regex.trim().isEmpty()) {
+            return null;
+        }
+        Pattern pattern = allowedPatterns.get(regex);
+        if (pattern == null) {
+            throw new IllegalArgumentException("Invalid regex pattern: " + regex +
+                    ". Pattern is not in the allowed list for security reasons.");
+        }
+        return pattern;
+    }
+
+    private static KeyPurposeId keyPurpose(String purpose) {
+        KeyPurposeId known = KEY_PURPOSES.get(purpose.toLowerCase());
+        if (known != null) {
+            return known;
+        }
+        try {
+            return KeyPurposeId.getInstance(new ASN1ObjectIdentifier(purpose));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown extended key usage: " + purpose);
+        }
+    }
+
+    public boolean matchesCommonName(String commonName) {
+        return commonNamePattern == null || (commonName != null && commonNamePattern.matcher(commonName).matches());
+    }
+
+    public boolean matchesSan(String san) {
+        return sansPattern == null || san == null || sansPattern.matcher(san).matches();
+    }
+
+    // Provera imena iz zahteva prema sablonu; vraca poruku greske ili null ako zahtev odgovara
+    public String validateNames(X500Name subject, GeneralNames sans) {
+        if (!matchesCommonName(commonName(subject))) {
+            return "Common Name does not match template '" + name + "'";
+        }
+        if (sans != null) {
+            for (GeneralName san : sans.getNames()) {
+                if (!matchesSan(san.getName().toString())) {
+                    return "Subject alternative name '" + san.getName() + "' does not match template '" + name + "'";
+                }
+            }
+        }
+        return null;
+    }
+
+    // Provera perioda vazenja prema maksimumu iz sablona; vraca poruku greske ili null
+    public String validateValidity(Date validFrom, Date validTo) {
+        if (maxValidityDays != null
+                && validTo.getTime() > validFrom.getTime() + TimeUnit.DAYS.toMillis(maxValidityDays)) {
+            return "Validity exceeds template maximum of " + maxValidityDays + " days";
+        }
+        return null;
+    }
+
+    // Dodaje unapred napravljene ekstenzije sablona u builder sertifikata
+    public void applyExtensions(X509v3CertificateBuilder builder) throws Exception {
+        builder.addExtension(Extension.basicConstraints, true, basicConstraints);
+        if (keyUsage != null) {
+            builder.addExtension(Extension.keyUsage, true, keyUsage);
+        }
+        if (extendedKeyUsage != null) {
+            builder.addExtension(Extension.extendedKeyUsage, false, extendedKeyUsage);
+        }
+    }
+
+    private static String commonName(X500Name subject) {
+        RDN[] cn = subject.getRDNs(BCStyle.CN);
+        return cn.length > 0 ? IETFUtils.valueToString(cn[0].getFirst().getValue()) : null;
+    }
+
+    public Long getTemplateId() {
+        return templateId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Long getCaIssuerId() {
+        return caIssuerId;
+    }
+
+    public Long getCreatedById() {
+        return createdById;
+    }
+
+    public boolean isCa() {
+        return basicConstraints.isCA();
+    }
+
+    public Integer getMaxValidityDays() {
+        return maxValidityDays;
+    }
+
+    public boolean hasKeyUsage() {
+        return keyUsage != null;
+    }
+
+    public String getKeyUsageDescription() {
+        return keyUsageDescription;
+    }
+
+    public String getExtendedKeyUsageDescription() {
+        return extendedKeyUsageDescription;
+    }
+
+    public String getBasicConstraintsDescription() {
+        return basicConstraintsDescription;
+    }
+
+    public KeyAlgorithm getKeyAlgorithm() {
+        return keyAlgorithm;
+    }
+}
@@ -0,0 +1,8 @@
+package com.bsep.pki_system.service;
+
+import com.bsep.pki_system.model.Certificate;
+
+// Proveren izdavalac i (opciono) preveden šablon za izdavanje EE sertifikata; proverava se jednom,
+// pre citanja PEM paketa, da bi greska stigla kao 400 odgovor umesto usred stream-a
+public record EEIssuanceTarget(Certificate issuerCertificate, CompiledTemplate template) {
+}
@@ -0,0 +1,17 @@
+package com.bsep.pki_system.service;
+
+import com.bsep.pki_system.model.Certificate;
+
+import java.security.PrivateKey;
+import java.security.cert.X509Certificate;
+
+// Rezultat izdavanja sa kljucem generisanim na serveru: sacuvan sertifikat, privatni kljuc i lanac
+// izdavaoca (za PKCS#12), ili greska ako stavka nije izdata. Privatni kljuc se ne cuva na serveru.
+public record GeneratedKeyCertificate(int index, Certificate certificate, X509Certificate x509,
+                                      PrivateKey privateKey, java.security.cert.Certificate[] issuerChain,
+                                      String error) {
+
+    static GeneratedKeyCertificate failed(int index, String error) {
+        return new GeneratedKeyCertificate(index, null, null, null, null, error);
+    }
+}
@@ -0,0 +1,236 @@
+package com.bsep.pki_system.service;
+
+import com.bsep.pki_system.audit.AuditLogService;
+import com.bsep.pki_system.dto.CreateCertificateDTO;
+import com.bsep.pki_system.dto.CreateEECsrRequestDTO;
+import com.bsep.pki_system.dto.IssuanceJobDTO;
+import com.bsep.pki_system.model.Certificate;
+import com.bsep.pki_system.model.IssuanceJob;
+import com.bsep.pki_system.model.IssuanceJobStatus;
+import com.bsep.pki_system.model.IssuanceJobType;
+import com.bsep.pki_system.model.User;
+import com.bsep.pki_system.model.UserRole;
+import com.bsep.pki_system.repository.IssuanceJobRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.Semaphore;
+
+// Asinhrono izdavanje sertifikata: zahtevi se upisuju u red (tabela issuance_jobs) i odmah se vraca id posla,
+// a obradjuju ih virtuelne niti ograniceno (max-concurrency) - keygen, otkljucavanje kljuca i upis u keystore
+// vise ne drze Tomcat niti. Kada je u redu previse poslova, novi zahtevi se odbijaju (429).
+@Service
+public class IssuanceJobService {
+
+    private static final List<IssuanceJobStatus> PENDING_STATUSES =
+            List.of(IssuanceJobStatus.QUEUED, IssuanceJobStatus.RUNNING);
+    private static final int CLAIM_PAGE_SIZE = 20;
+
+    @Value("${issuance.jobs.max-concurrency:4}")
+    private int maxConcurrency;
+
+    @Value("${issuance.jobs.max-queue-depth:1000}")
+    private int maxQueueDepth;
+
+    // RUNNING posao stariji od ovoga smatra se napustenim (pad instance) i vraca se u red.
+    // Ako je originalni radnik ipak ziv, njegov zavrsetak se odbacuje (claim_token) i izdavanje ponistava.
+    @Value("${issuance.jobs.stale-after-minutes:10}")
+    private long staleAfterMinutes;
+
+    private final IssuanceJobRepository issuanceJobRepository;
+    private final CertificateService certificateService;
+    private final CertificateGeneratorService certificateGeneratorService;
+    private final AuditLogService auditLogService;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+
+    private volatile Semaphore workers;
+
+    private static final Logger logger = LoggerFactory.getLogger(IssuanceJobService.class);
+
+    public IssuanceJobService(IssuanceJobRepository issuanceJobRepository,
+                              CertificateService certificateService,
+                              CertificateGeneratorService certificateGeneratorService,
+                              AuditLogService auditLogService,
+                              ObjectMapper objectMapper,
+                              PlatformTransactionManager transactionManager) {
+        this.issuanceJobRepository = issuanceJobRepository;
+        this.certificateService = certificateService;
+        this.certificateGeneratorService = certificateGeneratorService;
+        this.auditLogService = auditLogService;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        workers = new Semaphore(maxConcurrency);
+        int requeued = issuanceJobRepository.requeueStale(LocalDateTime.now().minusMinutes(staleAfterMinutes));
+        if (requeued > 0) {
+            logger.warn("Requeued {} stale issuance jobs", requeued);
+        }
+        dispatch();
+    }
+
+    public IssuanceJob submit(IssuanceJobType type, Object request, User requestedBy) throws Exception {
+        long depth = issuanceJobRepository.countByStatusIn(PENDING_STATUSES);
+        if (depth >= maxQueueDepth) {
+            throw new IssuanceQueueFullException("Issuance queue is full (" + depth + " pending jobs). Try again later.");
+        }
+
+        IssuanceJob job = new IssuanceJob();
+        job.setType(type);
+        job.setStatus(IssuanceJobStatus.QUEUED);
+        job.setPayload(objectMapper.writeValueAsString(request));
+        job.setRequestedBy(requestedBy);
+        IssuanceJob saved = issuanceJobRepository.save(job);
+
+        dispatch();
+        return saved;
+    }
+
+    // Posao je vidljiv samo onome ko ga je poslao i administratoru
+    public Optional<IssuanceJob> findForUser(Long jobId, User user) {
+        return issuanceJobRepository.findById(jobId)
+                .filter(job -> job.getRequestedBy().getId().equals(user.getId())
+                        || user.getRole() == UserRole.ADMIN);
+    }
+
+    public long getQueueDepth() {
+        return issuanceJobRepository.countByStatusIn(PENDING_STATUSES);
+    }
+
+    // Preuzima poslove iz reda dok ima slobodnih radnika; periodicno pokretanje hvata poslove
+    // koji su upisani na drugoj instanci ili ostali posle restarta
+    @Scheduled(fixedDelayString = "${issuance.jobs.poll-interval-ms:2000}")
+    public void dispatch() {
+        Semaphore current = workers;
+        if (current == null) {
+            return;
+        }
+        while (current.tryAcquire()) {
+            Long jobId;
+            try {
+                jobId = claimNext();
+            } catch (Exception e) {
+                current.release();
+                logger.error("Error message", e);
+                return;
+            }
+            if (jobId == null) {
+                current.release();
+                return;
+            }
+            Thread.ofVirtual().name("issuance-job-" + jobId).start(() -> {
+                try {
+                    process(jobId);
+                } finally {
+                    current.release();
+                    dispatch();
+                }
+            });
+        }
+    }
+
+    private Long claimNext() {
+        for (Long id : issuanceJobRepository.findIdsByStatus(IssuanceJobStatus.QUEUED, PageRequest.of(0, CLAIM_PAGE_SIZE))) {
+            if (issuanceJobRepository.claim(id, LocalDateTime.now(), UUID.randomUUID().toString()) == 1) {
+                return id;
+            }
+        }
+        return null;
+    }
+
+    // Obrada jednog (vec preuzetog) posla
+    void process(Long jobId) {
+        IssuanceJob job = issuanceJobRepository.findWithRequesterById(jobId).orElse(null);
+        if (job == null) {
+            return;
+        }
+
+        try {
+            // Sertifikat i zavrsetak posla u jednoj transakciji: pad izmedju njih ne ostavlja izdat sertifikat
+            // uz posao u RUNNING stanju (koji bi se posle restarta izdao ponovo)
+            Certificate certificate = transactionTemplate.execute(status -> {
+                Certificate issued = executeUnchecked(job);
+                if (issuanceJobRepository.complete(jobId, job.getClaimToken(), issued.getId(),
+                        issued.getSerialNumber(), LocalDateTime.now()) != 1) {
+                    throw new IllegalStateException("Issuance job " + jobId + " is no longer claimed by this worker");
+                }
+                return issued;
+            });
+
+            // AUDIT LOG: Sertifikat izdat iz reda poslova
+            auditLogService.logSecurityEvent(AuditLogService.EVENT_CERTIFICATE_ISSUED,
+                    "Certificate created by issuance job", true,
+                    "jobId=" + jobId + ", type=" + job.getType() + ", certificateId=" + certificate.getId() +
+                            ", serialNumber=" + certificate.getSerialNumber(), null, job.getRequestedBy());
+        } catch (Exception e) {
+            Exception cause = e instanceof IssuanceExecutionException ? (Exception) e.getCause() : e;
+            String error = cause.getMessage() != null && cause.getMessage().length() > 1000
+                    ? cause.getMessage().substring(0, 1000) : cause.getMessage();
+            if (issuanceJobRepository.fail(jobId, job.getClaimToken(), error, LocalDateTime.now()) != 1) {
+                // Posao je vracen u red i preuzet ponovo - izdavanje je ponisteno, zavrsice ga drugi radnik
+                logger.warn("Issuance job {} was reclaimed, discarding this attempt", jobId);
+                return;
+            }
+            logger.error("Error message", cause);
+
+            auditLogService.logSecurityEvent(AuditLogService.EVENT_CERTIFICATE_ISSUED,
+                    "Issuance job failed", false,
+                    "jobId=" + jobId + ", type=" + job.getType() + ", error=" + cause.getMessage(), null, job.getRequestedBy());
+        }
+    }
+
+    private Certificate executeUnchecked(IssuanceJob job) {
+        try {
+            return execute(job);
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IssuanceExecutionException(e);
+        }
+    }
+
+    private Certificate execute(IssuanceJob job) throws Exception {
+        User owner = job.getRequestedBy();
+        return switch (job.getType()) {
+            case ROOT -> certificateGeneratorService.generateRootCertificate(
+                    objectMapper.readValue(job.getPayload(), CreateCertificateDTO.class), owner);
+            case INTERMEDIATE -> certificateService.createAndSaveIntermediateCertificate(
+                    objectMapper.readValue(job.getPayload(), CreateCertificateDTO.class), owner);
+            case END_ENTITY_CSR -> {
+                CreateEECsrRequestDTO request = objectMapper.readValue(job.getPayload(), CreateEECsrRequestDTO.class);
+                yield certificateService.createAndSaveEECertificateFromCsr(
+                        request.getCsrPem(), new Date(), request.getValidTo(), request.getIssuerCertificateId(),
+                        request.getTemplateId(), owner);
+            }
+        };
+    }
+
+    public IssuanceJobDTO toDTO(IssuanceJob job) {
+        return new IssuanceJobDTO(job.getId(), job.getType(), job.getStatus(), job.getCertificateId(),
+                job.getSerialNumber(), job.getError(), job.getCreatedAt(), job.getStartedAt(), job.getFinishedAt());
+    }
+
+    // Checked izuzetak iz izdavanja, prenet kroz TransactionTemplate (koji ga ne propusta)
+    private static class IssuanceExecutionException extends RuntimeException {
+        IssuanceExecutionException(Exception cause) {
+            super(cause);
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package com.bsep.pki_system.service;
+
+// Red poslova za izdavanje je pun - kontroler odgovara sa 429
+public class IssuanceQueueFullException extends RuntimeException {
+
+    public IssuanceQueueFullException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,125 @@
+package com.bsep.pki_system.service;
+
+import com.bsep.pki_system.controller.AuthController;
+import com.bsep.pki_system.dto.KeyPairPoolStatsDTO;
+import com.bsep.pki_system.model.KeyAlgorithm;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.security.KeyPair;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// Ograniceni pool unapred generisanih parova kljuceva (generisanje RSA kljuca je najskuplji korak izdavanja).
+// Svaki algoritam (npr. RSA_2048, EC_P256) ima svoj red; puni ga jedna pozadinska virtuelna nit,
+// a kad je red prazan zahtev sinhrono generise par kao ranije.
+// Konfiguracija: key-pair-pool.capacities=RSA_2048=8,EC_P256=8 (nazivi iz KeyAlgorithm)
+@Service
+public class KeyPairPool {
+
+    @Value("${key-pair-pool.enabled:true}")
+    private boolean enabled;
+
+    @Value("${key-pair-pool.capacities:RSA_2048=8}")
+    private String capacities;
+
+    private final Map<KeyAlgorithm, Pool> pools = new ConcurrentHashMap<>();
+
+    private static final Logger logger = LoggerFactory.getLogger(AuthController.class);
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled || capacities == null || capacities.isBlank()) {
+            return;
+        }
+        for (String entry : capacities.split(",")) {
+            String[] parts = entry.trim().split("=");
+            KeyAlgorithm keyAlgorithm = KeyAlgorithm.valueOf(parts[0].trim());
+            pools.put(keyAlgorithm, new Pool(keyAlgorithm, Integer.parseInt(parts[1].trim())));
+        }
+        pools.values().forEach(this::refill);
+    }
+
+    // Uzima par iz pool-a ili ga, ako je pool prazan (ili nije konfigurisan), generise sinhrono
+    public KeyPair acquire(KeyAlgorithm keyAlgorithm) throws Exception {
+        long start = System.nanoTime();
+        Pool pool = pools.get(keyAlgorithm);
+        if (pool == null) {
+            return keyAlgorithm.generateKeyPair();
+        }
+
+        KeyPair keyPair = pool.queue.poll();
+        if (keyPair != null) {
+            pool.hits.increment();
+        } else {
+            pool.misses.increment();
+            keyPair = keyAlgorithm.generateKeyPair();
+        }
+        pool.recordWait(System.nanoTime() - start);
+        refill(pool);
+        return keyPair;
+    }
+
+    public List<KeyPairPoolStatsDTO> getStats() {
+        return pools.values().stream().map(Pool::toStats).toList();
+    }
+
+    // Najvise jedna nit za dopunjavanje po algoritmu, da pozadinsko generisanje ne zauzme sva jezgra
+    private void refill(Pool pool) {
+        if (pool.queue.remainingCapacity() == 0 || !pool.refilling.compareAndSet(false, true)) {
+            return;
+        }
+        Thread.ofVirtual().name("key-pair-refill-" + pool.keyAlgorithm).start(() -> {
+            try {
+                while (pool.queue.remainingCapacity() > 0) {
+                    pool.queue.offer(pool.keyAlgorithm.generateKeyPair());
+                    pool.generated.increment();
+                }
+            } catch (Exception e) {
+                logger.error("Error message", e);
+            } finally {
+                pool.refilling.set(false);
+            }
+        });
+    }
+
+    private static class Pool {
+        private final KeyAlgorithm keyAlgorithm;
+        private final int capacity;
+        private final BlockingQueue<KeyPair> queue;
+        private final AtomicBoolean refilling = new AtomicBoolean(false);
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+        private final LongAdder generated = new LongAdder();
+        private final LongAdder totalWaitNanos = new LongAdder();
+        private final AtomicLong maxWaitNanos = new AtomicLong();
+
+        Pool(KeyAlgorithm keyAlgorithm, int capacity) {
+            this.keyAlgorithm = keyAlgorithm;
+            this.capacity = capacity;
+            this.queue = new ArrayBlockingQueue<>(capacity);
+        }
+
+        void recordWait(long nanos) {
+            totalWaitNanos.add(nanos);
+            maxWaitNanos.accumulateAndGet(nanos, Math::max);
+        }
+
+        KeyPairPoolStatsDTO toStats() {
+            long requests = hits.sum() + misses.sum();
+            long averageWait = requests == 0 ? 0 : totalWaitNanos.sum() / requests;
+            return new KeyPairPoolStatsDTO(keyAlgorithm.name(), capacity, queue.size(), hits.sum(), misses.sum(),
+                    generated.sum(), averageWait / 1000, maxWaitNanos.get() / 1000);
+        }
+    }
+}
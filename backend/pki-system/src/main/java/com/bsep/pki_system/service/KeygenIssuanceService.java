@@ -0,0 +1,317 @@
+package com.bsep.pki_system.service;
+
+import com.bsep.pki_system.dto.KeygenSubjectDTO;
+import com.bsep.pki_system.model.User;
+import com.bsep.pki_system.util.CsvUtil;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.bouncycastle.cms.CMSAlgorithm;
+import org.bouncycastle.cms.CMSEnvelopedDataStreamGenerator;
+import org.bouncycastle.cms.PasswordRecipient;
+import org.bouncycastle.cms.jcajce.JceCMSContentEncryptorBuilder;
+import org.bouncycastle.cms.jcajce.JcePasswordRecipientInfoGenerator;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.KeyStore;
+import java.security.SecureRandom;
+import java.security.cert.Certificate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+// Masovno izdavanje sa kljucevima generisanim na serveru (IoT provizionisanje).
+// Subjekti se citaju iz CSV-a ili JSON-a (niz ili NDJSON) kao stream, izdaju u delovima po šablonu
+// i vracaju kao ZIP: jedan PKCS#12 po sertifikatu, svaki sa svojom lozinkom, i manifest.csv na kraju.
+// Generisane lozinke nisu u manifestu: idu u passwords.csv.p7m, CMS EnvelopedData sifrovan tajnom koju
+// zadaje pozivalac (PBKDF2 + AES-256), pa sam ZIP ne otkljucava kljuceve. Desifrovanje npr.:
+// openssl cms -decrypt -inform DER -in passwords.csv.p7m -pwri_password <tajna>
+// U memoriji je samo jedan deo; manifest i sifrovane lozinke se do kraja pisu u privremene fajlove.
+@Service
+public class KeygenIssuanceService {
+
+    // Manji deo nego za CSR paket - svaka stavka drzi i privatni kljuc dok se ne upise u ZIP
+    private static final int KEYGEN_CHUNK_SIZE = 100;
+    private static final int GENERATED_PASSWORD_BYTES = 18;
+    public static final int MIN_PASSWORDS_SECRET_LENGTH = 12;
+    private static final int PASSWORDS_PBKDF2_ITERATIONS = 210_000;
+    private static final BouncyCastleProvider BC_PROVIDER = new BouncyCastleProvider();
+    private static final List<String> CSV_COLUMNS = List.of(
+            "commonname", "organization", "organizationalunit", "country", "email", "sans", "password");
+
+    private final CertificateGeneratorService certificateGeneratorService;
+    private final ObjectMapper objectMapper;
+    private final SecureRandom secureRandom = new SecureRandom();
+
+    public KeygenIssuanceService(CertificateGeneratorService certificateGeneratorService, ObjectMapper objectMapper) {
+        this.certificateGeneratorService = certificateGeneratorService;
+        this.objectMapper = objectMapper;
+    }
+
+    public record KeygenSummary(long issuedCount, long failedCount) {
+    }
+
+    // CSV (prvi red su nazivi kolona) ili JSON (niz objekata ili jedan objekat po redu)
+    public Iterator<KeygenSubjectDTO> readSubjects(InputStream input, boolean csv) throws IOException {
+        if (csv) {
+            return new CsvSubjectIterator(new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8)));
+        }
+        return objectMapper.readerFor(KeygenSubjectDTO.class).readValues(input);
+    }
+
+    public KeygenSummary writeZip(Iterator<KeygenSubjectDTO> subjects, Date validFrom, Date validTo,
+                                  EEIssuanceTarget target, User owner, char[] passwordsSecret,
+                                  OutputStream output) throws Exception {
+        if (passwordsSecret == null || passwordsSecret.length < MIN_PASSWORDS_SECRET_LENGTH) {
+            throw new IllegalArgumentException("Passwords secret must have at least " + MIN_PASSWORDS_SECRET_LENGTH +
+                    " characters.");
+        }
+
+        long issued = 0;
+        long failed = 0;
+        Path manifest = Files.createTempFile("keygen-manifest", ".csv");
+        Path passwords = Files.createTempFile("keygen-passwords", ".p7m");
+        // ZIP se zavrsava sa finish(), bez zatvaranja - izlazni stream pripada pozivaocu
+        ZipOutputStream zip = new ZipOutputStream(output);
+        try {
+            try (BufferedWriter manifestWriter = Files.newBufferedWriter(manifest, StandardCharsets.UTF_8);
+                 BufferedWriter passwordsWriter = encryptedWriter(passwords, passwordsSecret)) {
+                manifestWriter.write("index,serialNumber,file,error\n");
+                passwordsWriter.write("index,serialNumber,file,password\n");
+
+                int nextIndex = 0;
+                while (true) {
+                    List<KeygenSubjectDTO> chunk = new ArrayList<>(KEYGEN_CHUNK_SIZE);
+                    while (chunk.size() < KEYGEN_CHUNK_SIZE && subjects.hasNext()) {
+                        chunk.add(subjects.next());
+                    }
+                    if (chunk.isEmpty()) {
+                        break;
+                    }
+
+                    // 1. Kljucevi + sertifikati za ceo deo (jedna transakcija)
+                    List<GeneratedKeyCertificate> results = certificateGeneratorService.generateEECertificatesWithKeys(
+                            chunk, nextIndex, validFrom, validTo, target.issuerCertificate(), owner, target.template());
+
+                    // 2. PKCS#12 paralelno (PBE sifrovanje je skupo), pa upis u ZIP po redosledu
+                    List<Pkcs12Entry> entries = packageAll(results, chunk);
+                    for (int i = 0; i < results.size(); i++) {
+                        GeneratedKeyCertificate result = results.get(i);
+                        Pkcs12Entry entry = entries.get(i);
+                        if (entry == null) {
+                            failed++;
+                            manifestWriter.write(csvLine(result.index(), "", "", result.error()));
+                            continue;
+                        }
+                        issued++;
+                        zip.putNextEntry(new ZipEntry(entry.fileName()));
+                        zip.write(entry.content());
+                        zip.closeEntry();
+                        String serialNumber = result.certificate().getSerialNumber();
+                        manifestWriter.write(csvLine(result.index(), serialNumber, entry.fileName(), ""));
+                        if (entry.generatedPassword() != null) {
+                            passwordsWriter.write(csvLine(result.index(), serialNumber, entry.fileName(),
+                                    entry.generatedPassword()));
+                        }
+                    }
+                    zip.flush();
+                    nextIndex += chunk.size();
+                }
+            }
+
+            zip.putNextEntry(new ZipEntry("manifest.csv"));
+            Files.copy(manifest, zip);
+            zip.closeEntry();
+            zip.putNextEntry(new ZipEntry("passwords.csv.p7m"));
+            Files.copy(passwords, zip);
+            zip.closeEntry();
+            zip.finish();
+        } finally {
+            Files.deleteIfExists(manifest);
+            Files.deleteIfExists(passwords);
+        }
+        return new KeygenSummary(issued, failed);
+    }
+
+    // Lozinke se sifruju u toku pisanja - ni privremeni fajl ne sadrzi otvoren tekst
+    private BufferedWriter encryptedWriter(Path file, char[] secret) throws Exception {
+        byte[] salt = new byte[16];
+        secureRandom.nextBytes(salt);
+        CMSEnvelopedDataStreamGenerator generator = new CMSEnvelopedDataStreamGenerator();
+        generator.addRecipientInfoGenerator(new JcePasswordRecipientInfoGenerator(CMSAlgorithm.AES256_CBC, secret)
+                .setProvider(BC_PROVIDER)
+                .setPasswordConversionScheme(PasswordRecipient.PKCS5_SCHEME2_UTF8)
+                .setPRF(PasswordRecipient.PRF.HMacSHA256)
+                .setSaltAndIterationCount(salt, PASSWORDS_PBKDF2_ITERATIONS));
+        OutputStream encrypted = generator.open(Files.newOutputStream(file),
+                new JceCMSContentEncryptorBuilder(CMSAlgorithm.AES256_CBC).setProvider(BC_PROVIDER).build());
+        return new BufferedWriter(new OutputStreamWriter(encrypted, StandardCharsets.UTF_8));
+    }
+
+    private List<Pkcs12Entry> packageAll(List<GeneratedKeyCertificate> results, List<KeygenSubjectDTO> chunk)
+            throws Exception {
+        List<Callable<Pkcs12Entry>> tasks = new ArrayList<>();
+        for (int i = 0; i < results.size(); i++) {
+            GeneratedKeyCertificate result = results.get(i);
+            String requestedPassword = chunk.get(i).getPassword();
+            tasks.add(() -> result.error() == null ? toPkcs12(result, requestedPassword) : null);
+        }
+
+        List<Pkcs12Entry> entries = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (Future<Pkcs12Entry> future : executor.invokeAll(tasks)) {
+                entries.add(future.get());
+            }
+        }
+        return entries;
+    }
+
+    private Pkcs12Entry toPkcs12(GeneratedKeyCertificate result, String requestedPassword) throws Exception {
+        boolean generated = requestedPassword == null || requestedPassword.isEmpty();
+        char[] password = (generated ? generatePassword() : requestedPassword).toCharArray();
+
+        Certificate[] chain = new Certificate[result.issuerChain().length + 1];
+        chain[0] = result.x509();
+        System.arraycopy(result.issuerChain(), 0, chain, 1, result.issuerChain().length);
+
+        KeyStore pkcs12 = KeyStore.getInstance("PKCS12");
+        pkcs12.load(null, null);
+        String serialNumber = result.certificate().getSerialNumber();
+        pkcs12.setKeyEntry(serialNumber, result.privateKey(), password, chain);
+
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        pkcs12.store(content, password);
+        String fileName = String.format("%06d-%s.p12", result.index(), serialNumber);
+        String generatedPassword = generated ? new String(password) : null;
+        Arrays.fill(password, '\0');
+        return new Pkcs12Entry(fileName, content.toByteArray(), generatedPassword);
+    }
+
+    private String generatePassword() {
+        byte[] bytes = new byte[GENERATED_PASSWORD_BYTES];
+        secureRandom.nextBytes(bytes);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    private static String csvLine(int index, String serialNumber, String file, String last) {
+        return index + "," + serialNumber + "," + file + "," + CsvUtil.escape(last) + "\n";
+    }
+
+    private record Pkcs12Entry(String fileName, byte[] content, String generatedPassword) {
+    }
+
+    // Citanje CSV-a red po red. Kolone po nazivu iz zaglavlja (bez obzira na velika/mala slova);
+    // vise SAN vrednosti u koloni "sans" odvaja se sa ';'. Podrzana su polja pod navodnicima.
+    private static class CsvSubjectIterator implements Iterator<KeygenSubjectDTO> {
+
+        private final BufferedReader reader;
+        private final int[] columns = new int[CSV_COLUMNS.size()];
+        private String nextLine;
+
+        CsvSubjectIterator(BufferedReader reader) throws IOException {
+            this.reader = reader;
+            String header = reader.readLine();
+            if (header == null) {
+                throw new IllegalArgumentException("CSV header is missing.");
+            }
+            Arrays.fill(columns, -1);
+            List<String> names = splitLine(header.replace("\uFEFF", ""));
+            for (int i = 0; i < names.size(); i++) {
+                int column = CSV_COLUMNS.indexOf(names.get(i).trim().toLowerCase(Locale.ROOT));
+                if (column >= 0) {
+                    columns[column] = i;
+                }
+            }
+            if (columns[0] < 0) {
+                throw new IllegalArgumentException("CSV header must contain a 'commonName' column.");
+            }
+            advance();
+        }
+
+        private void advance() throws IOException {
+            do {
+                nextLine = reader.readLine();
+            } while (nextLine != null && nextLine.isBlank());
+        }
+
+        @Override
+        public boolean hasNext() {
+            return nextLine != null;
+        }
+
+        @Override
+        public KeygenSubjectDTO next() {
+            if (nextLine == null) {
+                throw new NoSuchElementException();
+            }
+            List<String> values = splitLine(nextLine);
+            try {
+                advance();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            String sans = value(values, 5);
+            return new KeygenSubjectDTO(value(values, 0), value(values, 1), value(values, 2), value(values, 3),
+                    value(values, 4), sans != null ? List.of(sans.split(";")) : null, value(values, 6));
+        }
+
+        private String value(List<String> values, int column) {
+            int index = columns[column];
+            if (index < 0 || index >= values.size()) {
+                return null;
+            }
+            String value = values.get(index).trim();
+            return value.isEmpty() ? null : value;
+        }
+
+        private static List<String> splitLine(String line) {
+            List<String> values = new ArrayList<>();
+            StringBuilder current = new StringBuilder();
+            boolean quoted = false;
+            for (int i = 0; i < line.length(); i++) {
+                char c = line.charAt(i);
+                if (quoted) {
+                    if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                        current.append('"');
+                        i++;
+                    } else if (c == '"') {
+                        quoted = false;
+                    } else {
+                        current.append(c);
+                    }
+                } else if (c == '"') {
+                    quoted = true;
+                } else if (c == ',') {
+                    values.add(current.toString());
+                    current.setLength(0);
+                } else {
+                    current.append(c);
+                }
+            }
+            values.add(current.toString());
+            return values;
+        }
+    }
+}
@@ -12,6 +12,9 @@ import java.io.*;
 import java.security.*;
 import java.security.cert.Certificate;
 import java.util.Base64;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
 
 @Service
 public class KeystoreService {
@@ -63,6 +66,19 @@ public class KeystoreService {
         return keyStore.getCertificate(alias);
     }
 
+    // Vise sertifikata uz jedno ucitavanje keystore fajla; aliasi kojih nema se preskacu
+    public Map<String, Certificate> getCertificates(Collection<String> aliases) throws Exception {
+        KeyStore keyStore = loadKeystore();
+        Map<String, Certificate> certificates = new HashMap<>();
+        for (String alias : aliases) {
+            Certificate certificate = keyStore.getCertificate(alias);
+            if (certificate != null) {
+                certificates.put(alias, certificate);
+            }
+        }
+        return certificates;
+    }
+
     private KeyStore loadOrCreateKeystore() throws Exception {
         File keystoreFile = new File(KEYSTORE_PATH);
         if (keystoreFile.exists()) {
@@ -151,6 +167,21 @@ public class KeystoreService {
         saveKeystore(keyStore);
     }
 
+    // Vise trusted sertifikata jednim ucitavanjem i jednim snimanjem keystore-a (paketno izdavanje)
+    public void saveTrustedCertificates(Map<String, Certificate> certificates) throws Exception {
+        if (certificates.isEmpty()) {
+            return;
+        }
+        KeyStore keyStore = loadOrCreateKeystore();
+        for (Map.Entry<String, Certificate> entry : certificates.entrySet()) {
+            if (keyStore.containsAlias(entry.getKey())) {
+                keyStore.deleteEntry(entry.getKey());
+            }
+            keyStore.setCertificateEntry(entry.getKey(), entry.getValue());
+        }
+        saveKeystore(keyStore);
+    }
+
     public byte[] getCertificateBytes(String alias) throws Exception {
         Certificate cert = getCertificate(alias);
         if (cert == null) {
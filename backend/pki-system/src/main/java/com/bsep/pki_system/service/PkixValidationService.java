@@ -0,0 +1,435 @@
+package com.bsep.pki_system.service;
+
+import com.bsep.pki_system.controller.AuthController;
+import com.bsep.pki_system.model.Certificate;
+import com.bsep.pki_system.model.CertificateStatus;
+import com.bsep.pki_system.model.CertificateType;
+import com.bsep.pki_system.repository.CertificateRepository;
+import org.bouncycastle.asn1.DEROctetString;
+import org.bouncycastle.asn1.x509.AuthorityKeyIdentifier;
+import org.bouncycastle.asn1.x509.Extension;
+import org.bouncycastle.cert.jcajce.JcaX509ExtensionUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import javax.security.auth.x500.X500Principal;
+import java.security.cert.CertPath;
+import java.security.cert.CertPathValidator;
+import java.security.cert.CertPathValidatorException;
+import java.security.cert.CertStore;
+import java.security.cert.CertificateFactory;
+import java.security.cert.CollectionCertStoreParameters;
+import java.security.cert.PKIXParameters;
+import java.security.cert.PKIXReason;
+import java.security.cert.PKIXRevocationChecker;
+import java.security.cert.TrustAnchor;
+import java.security.cert.X509CertSelector;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Validacija lanca preko standardnog PKIX CertPathValidator-a (potpisi, periodi vazenja,
+// basic constraints / path length, key usage, name constraints).
+// Trust anchor-i (Root CA) i CertStore sa intermediate CA sertifikatima se grade jednom i drze u memoriji;
+// osvezavaju se posle revokacije, isteka, izdavanja novog CA ili najkasnije posle REFRESH_INTERVAL.
+// Revokacija se proverava preko CRL lista iz CRLService (kesirane), bez mreznih poziva.
+@Service
+public class PkixValidationService {
+
+    public static final String REASON_CERTIFICATE_NOT_FOUND = "CERTIFICATE_NOT_FOUND";
+    public static final String REASON_PATH_NOT_FOUND = "PATH_NOT_FOUND";
+    public static final String REASON_ERROR = "VALIDATION_ERROR";
+
+    private static final Duration REFRESH_INTERVAL = Duration.ofMinutes(10);
+    private static final int MAX_PATH_LENGTH = 64;
+    private static final int KEY_CERT_SIGN = 5;
+
+    private final CertificateRepository certificateRepository;
+    private final CertificateDerService certificateDerService;
+    private final CRLService crlService;
+
+    private volatile PkixMaterial material;
+
+    private static final Logger logger = LoggerFactory.getLogger(AuthController.class);
+
+    public PkixValidationService(CertificateRepository certificateRepository,
+                                 CertificateDerService certificateDerService, CRLService crlService) {
+        this.certificateRepository = certificateRepository;
+        this.certificateDerService = certificateDerService;
+        this.crlService = crlService;
+    }
+
+    public boolean isChainValid(Certificate certificate) {
+        return validate(certificate) == null;
+    }
+
+    // Vraca razlog neuspeha (npr. REVOKED, EXPIRED, INVALID_SIGNATURE, PATH_TOO_LONG) ili null ako je lanac validan
+    public String validate(Certificate certificate) {
+        // Root - nema roditelja za proveru (isto kao ranija rucna provera lanca)
+        if (certificate.getIssuerCertificate() == null) {
+            return null;
+        }
+
+        try {
+            PkixMaterial current = material();
+            if (current.anchors().isEmpty()) {
+                return REASON_PATH_NOT_FOUND;
+            }
+            return validatePath(certificateDerService.getX509(certificate), current);
+        } catch (Exception e) {
+            logger.error("Error message", e);
+            return REASON_ERROR;
+        }
+    }
+
+    // Paketna provera (POST /validity, lista izdavalaca): isti trust materijal za sve sertifikate,
+    // X509 objekti jednim upitom. Zajednicki deo lanca se proverava jednom po pozivu: svaki predak (CA)
+    // dobija PKIX proveru svoje karike ka roditelju i CA uslove koje bi PKIX proverio za njega kao
+    // medjusertifikat (basic constraints, keyCertSign, path length). Trazeni sertifikat posle toga
+    // proverava samo svoju kariku ka vec proverenom roditelju. Vraca id -> razlog neuspeha (null = validan).
+    public Map<Long, String> validateAll(List<Certificate> certificates) {
+        Map<Long, String> reasons = new HashMap<>();
+        List<Certificate> withIssuer = new ArrayList<>();
+        for (Certificate certificate : certificates) {
+            if (certificate.getIssuerCertificate() == null) {
+                reasons.put(certificate.getId(), null);
+            } else {
+                withIssuer.add(certificate);
+            }
+        }
+        if (withIssuer.isEmpty()) {
+            return reasons;
+        }
+
+        try {
+            PkixMaterial current = material();
+            if (current.anchors().isEmpty()) {
+                withIssuer.forEach(certificate -> reasons.put(certificate.getId(), REASON_PATH_NOT_FOUND));
+                return reasons;
+            }
+            Map<Long, X509Certificate> x509ById = certificateDerService.getX509s(withIssuer);
+            Batch batch = new Batch(current, new HashMap<>(), new HashMap<>());
+            for (Certificate certificate : withIssuer) {
+                reasons.put(certificate.getId(), validateInBatch(x509ById.get(certificate.getId()), batch));
+            }
+        } catch (Exception e) {
+            logger.error("Error message", e);
+            withIssuer.forEach(certificate -> reasons.putIfAbsent(certificate.getId(), REASON_ERROR));
+        }
+        return reasons;
+    }
+
+    private String validateInBatch(X509Certificate target, Batch batch) {
+        if (target == null) {
+            return REASON_CERTIFICATE_NOT_FOUND;
+        }
+
+        try {
+            List<X509Certificate> path = buildPath(target, batch.material());
+            if (path == null) {
+                return REASON_PATH_NOT_FOUND;
+            }
+
+            // Od vrha ka cilju: stanje svakog pretka se racuna jednom i pamti za ostatak paketa
+            IssuerState parent = IssuerState.anchor(batch.material().findAnchor(path.get(path.size() - 1)));
+            for (int i = path.size() - 1; i > 0; i--) {
+                X509Certificate ancestor = path.get(i);
+                IssuerState state = batch.issuers().get(ancestor);
+                if (state == null) {
+                    state = checkIssuer(ancestor, parent, batch);
+                    batch.issuers().put(ancestor, state);
+                }
+                parent = state;
+            }
+            return parent.reason() != null ? parent.reason() : checkLink(target, parent.x509(), batch);
+        } catch (Exception e) {
+            logger.error("Error message", e);
+            return REASON_ERROR;
+        }
+    }
+
+    // Predak kao izdavalac: njegova karika + uslovi za CA u sredini puta (RFC 5280, 6.1.4 (k), (l), (m), (n))
+    private IssuerState checkIssuer(X509Certificate ancestor, IssuerState parent, Batch batch) throws Exception {
+        if (parent.reason() != null) {
+            return new IssuerState(ancestor, parent.reason(), 0);
+        }
+
+        boolean selfIssued = ancestor.getSubjectX500Principal().equals(ancestor.getIssuerX500Principal());
+        String reason = checkLink(ancestor, parent.x509(), batch);
+        if (reason == null && ancestor.getBasicConstraints() < 0) {
+            reason = PKIXReason.NOT_CA_CERT.toString();
+        }
+        if (reason == null && !selfIssued && parent.remainingPathLength() <= 0) {
+            reason = PKIXReason.PATH_TOO_LONG.toString();
+        }
+        boolean[] keyUsage = ancestor.getKeyUsage();
+        if (reason == null && keyUsage != null && !keyUsage[KEY_CERT_SIGN]) {
+            reason = PKIXReason.INVALID_KEY_USAGE.toString();
+        }
+
+        int remaining = selfIssued ? parent.remainingPathLength()
+                : Math.min(parent.remainingPathLength() - 1, ancestor.getBasicConstraints());
+        return new IssuerState(ancestor, reason, remaining);
+    }
+
+    // Jedna karika kroz PKIX: roditelj je trust anchor, pa se proveravaju potpis, period vazenja,
+    // kriticne ekstenzije i CRL samo za dete. Rezultat se pamti (trazeni CA moze biti i predak drugog).
+    private String checkLink(X509Certificate child, X509Certificate issuer, Batch batch) throws Exception {
+        String cached = batch.links().get(child);
+        if (cached != null || batch.links().containsKey(child)) {
+            return cached;
+        }
+
+        String reason;
+        try {
+            CertPath certPath = CertificateFactory.getInstance("X.509").generateCertPath(List.of(child));
+            CertPathValidator.getInstance("PKIX").validate(certPath,
+                    parameters(Set.of(new TrustAnchor(issuer, null)), batch.material()));
+            reason = null;
+        } catch (CertPathValidatorException e) {
+            reason = e.getReason().toString();
+        }
+        batch.links().put(child, reason);
+        return reason;
+    }
+
+    private String validatePath(X509Certificate target, PkixMaterial current) {
+        if (target == null) {
+            return REASON_CERTIFICATE_NOT_FOUND;
+        }
+
+        try {
+            List<X509Certificate> path = buildPath(target, current);
+            if (path == null) {
+                return REASON_PATH_NOT_FOUND;
+            }
+
+            CertPath certPath = CertificateFactory.getInstance("X.509").generateCertPath(path);
+            CertPathValidator.getInstance("PKIX").validate(certPath, parameters(current.anchors(), current));
+            return null;
+        } catch (CertPathValidatorException e) {
+            return e.getReason().toString();
+        } catch (Exception e) {
+            logger.error("Error message", e);
+            return REASON_ERROR;
+        }
+    }
+
+    private PKIXParameters parameters(Set<TrustAnchor> anchors, PkixMaterial current) throws Exception {
+        PKIXParameters params = new PKIXParameters(anchors);
+        params.setDate(new Date());
+        params.addCertStore(current.store());
+        params.setRevocationEnabled(true);
+        params.addCertPathChecker(new CrlRevocationChecker(current));
+        return params;
+    }
+
+    // Sledeca validacija ce ponovo izgraditi trust anchor-e i CertStore
+    public void invalidate() {
+        material = null;
+    }
+
+    @EventListener
+    public void onCertificatesRevoked(CertificatesRevokedEvent event) {
+        invalidate();
+    }
+
+    @EventListener
+    public void onCertificatesExpired(CertificatesExpiredEvent event) {
+        invalidate();
+    }
+
+    private PkixMaterial material() throws Exception {
+        PkixMaterial current = material;
+        if (current != null && current.builtAt().plus(REFRESH_INTERVAL).isAfter(Instant.now())) {
+            return current;
+        }
+        synchronized (this) {
+            current = material;
+            if (current == null || !current.builtAt().plus(REFRESH_INTERVAL).isAfter(Instant.now())) {
+                current = buildMaterial();
+                material = current;
+            }
+            return current;
+        }
+    }
+
+    private PkixMaterial buildMaterial() throws Exception {
+        // Svi validni CA sertifikati jednim upitom, X509 objekti iz DER kesa / jednim upitom nad certificate_der
+        List<Certificate> authorities = certificateRepository.findValidIssuers(CertificateStatus.VALID, new Date());
+        Map<Long, X509Certificate> x509ById = certificateDerService.getX509s(authorities);
+
+        Set<TrustAnchor> anchors = new HashSet<>();
+        List<X509Certificate> intermediates = new ArrayList<>();
+        Map<X500Principal, List<Authority>> bySubject = new HashMap<>();
+        for (Certificate ca : authorities) {
+            X509Certificate x509 = x509ById.get(ca.getId());
+            if (x509 == null) {
+                continue;
+            }
+            bySubject.computeIfAbsent(x509.getSubjectX500Principal(), key -> new ArrayList<>())
+                    .add(new Authority(x509, ca));
+            if (ca.getType() == CertificateType.ROOT) {
+                anchors.add(new TrustAnchor(x509, null));
+            } else {
+                intermediates.add(x509);
+            }
+        }
+
+        CertStore store = CertStore.getInstance("Collection", new CollectionCertStoreParameters(intermediates));
+        return new PkixMaterial(anchors, store, bySubject, Instant.now());
+    }
+
+    // Put od ciljnog sertifikata do (ne ukljucujuci) trust anchor-a, sklopljen iz CertStore-a po subject-u i AKI
+    private List<X509Certificate> buildPath(X509Certificate target, PkixMaterial current) throws Exception {
+        List<X509Certificate> path = new ArrayList<>();
+        path.add(target);
+        X509Certificate last = target;
+        for (int i = 0; i < MAX_PATH_LENGTH; i++) {
+            if (current.isIssuedByAnchor(last)) {
+                return path;
+            }
+
+            X509CertSelector selector = new X509CertSelector();
+            selector.setSubject(last.getIssuerX500Principal());
+            byte[] authorityKeyId = authorityKeyId(last);
+            if (authorityKeyId != null) {
+                selector.setSubjectKeyIdentifier(new DEROctetString(authorityKeyId).getEncoded());
+            }
+
+            Collection<? extends java.security.cert.Certificate> found = current.store().getCertificates(selector);
+            if (found.isEmpty()) {
+                return null;
+            }
+            last = (X509Certificate) found.iterator().next();
+            path.add(last);
+        }
+        return null;
+    }
+
+    private static byte[] authorityKeyId(X509Certificate certificate) throws Exception {
+        byte[] extension = certificate.getExtensionValue(Extension.authorityKeyIdentifier.getId());
+        if (extension == null) {
+            return null;
+        }
+        return AuthorityKeyIdentifier.getInstance(JcaX509ExtensionUtils.parseExtensionValue(extension)).getKeyIdentifier();
+    }
+
+    private record Authority(X509Certificate x509, Certificate entity) {
+    }
+
+    // Memo jednog validateAll poziva: rezultat karike po sertifikatu i stanje svakog vec proverenog pretka
+    private record Batch(PkixMaterial material, Map<X509Certificate, String> links,
+                         Map<X509Certificate, IssuerState> issuers) {
+    }
+
+    // Predak proveren kao izdavalac: razlog neuspeha lanca do njega (null = validan) i koliko jos
+    // medjusertifikata sme da bude ispod njega (path length)
+    private record IssuerState(X509Certificate x509, String reason, int remainingPathLength) {
+
+        // Kao i kod pune PKIX provere, ogranicenja samog trust anchor-a se ne primenjuju
+        static IssuerState anchor(X509Certificate anchor) {
+            return new IssuerState(anchor, null, Integer.MAX_VALUE);
+        }
+    }
+
+    // Staticki materijal za validaciju - gradi se jednom i deli izmedju svih poziva
+    private record PkixMaterial(Set<TrustAnchor> anchors, CertStore store,
+                                Map<X500Principal, List<Authority>> bySubject, Instant builtAt) {
+
+        boolean isIssuedByAnchor(X509Certificate certificate) {
+            return findAnchor(certificate) != null;
+        }
+
+        X509Certificate findAnchor(X509Certificate certificate) {
+            for (TrustAnchor anchor : anchors) {
+                X509Certificate anchorCert = anchor.getTrustedCert();
+                if (anchorCert.getSubjectX500Principal().equals(certificate.getIssuerX500Principal())
+                        && verifies(certificate, anchorCert)) {
+                    return anchorCert;
+                }
+            }
+            return null;
+        }
+
+        // CA (entitet iz baze) koji je izdao dati sertifikat; potrebno za CRL proveru
+        Certificate findIssuer(X509Certificate certificate) {
+            List<Authority> candidates = bySubject.getOrDefault(certificate.getIssuerX500Principal(), List.of());
+            if (candidates.size() == 1) {
+                return candidates.get(0).entity();
+            }
+            for (Authority candidate : candidates) {
+                if (verifies(certificate, candidate.x509())) {
+                    return candidate.entity();
+                }
+            }
+            return null;
+        }
+
+        private static boolean verifies(X509Certificate certificate, X509Certificate issuer) {
+            try {
+                certificate.verify(issuer.getPublicKey());
+                return true;
+            } catch (Exception e) {
+                return false;
+            }
+        }
+    }
+
+    // Revokacija iz nasih CRL lista (kesiranih u CRLService) umesto podrazumevane OCSP/CRL provere preko mreze
+    private class CrlRevocationChecker extends PKIXRevocationChecker {
+
+        private final PkixMaterial current;
+
+        CrlRevocationChecker(PkixMaterial current) {
+            this.current = current;
+        }
+
+        @Override
+        public void init(boolean forward) throws CertPathValidatorException {
+            if (forward) {
+                throw new CertPathValidatorException("Forward checking not supported");
+            }
+        }
+
+        @Override
+        public boolean isForwardCheckingSupported() {
+            return false;
+        }
+
+        @Override
+        public Set<String> getSupportedExtensions() {
+            return null;
+        }
+
+        @Override
+        public List<CertPathValidatorException> getSoftFailExceptions() {
+            return List.of();
+        }
+
+        @Override
+        public void check(java.security.cert.Certificate certificate, Collection<String> unresolvedCritExts)
+                throws CertPathValidatorException {
+            X509Certificate x509 = (X509Certificate) certificate;
+            Certificate issuer = current.findIssuer(x509);
+            if (issuer == null) {
+                throw new CertPathValidatorException("Issuer not found for revocation check", null, null, -1,
+                        CertPathValidatorException.BasicReason.UNDETERMINED_REVOCATION_STATUS);
+            }
+            if (crlService.isSerialRevoked(x509.getSerialNumber(), issuer)) {
+                throw new CertPathValidatorException("Certificate revoked", null, null, -1,
+                        CertPathValidatorException.BasicReason.REVOKED);
+            }
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.bsep.pki_system.service;
+
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.asn1.x509.AuthorityKeyIdentifier;
+import org.bouncycastle.asn1.x509.CRLDistPoint;
+import org.bouncycastle.cert.X509CRLHolder;
+import org.bouncycastle.cert.X509CertificateHolder;
+import org.bouncycastle.cert.X509v2CRLBuilder;
+import org.bouncycastle.cert.X509v3CertificateBuilder;
+import org.bouncycastle.operator.ContentSigner;
+
+import java.security.cert.Certificate;
+import java.util.concurrent.Callable;
+
+// Sve sto je za jedan CA isto pri svakom izdavanju: otkljucan kljuc (kroz ContentSigner), issuer X500Name,
+// AKI, CRL Distribution Point i lanac do root-a. Gradi ga i cuva SigningContextCache.
+public class SigningContext {
+
+    private final Long caId;
+    private final String serialNumber;
+    private final String publicKey;
+    private final X500Name issuerName;
+    private final AuthorityKeyIdentifier authorityKeyIdentifier;
+    private final CRLDistPoint crlDistributionPoint;
+    private final ContentSigner signer;
+    private final Callable<Certificate[]> chainLoader;
+
+    // Lanac se ucitava tek kad zatreba (samo za izdavanje intermediate CA)
+    private volatile Certificate[] chain;
+
+    SigningContext(Long caId, String serialNumber, String publicKey, X500Name issuerName,
+                   AuthorityKeyIdentifier authorityKeyIdentifier, CRLDistPoint crlDistributionPoint,
+                   ContentSigner signer, Callable<Certificate[]> chainLoader) {
+        this.caId = caId;
+        this.serialNumber = serialNumber;
+        this.publicKey = publicKey;
+        this.issuerName = issuerName;
+        this.authorityKeyIdentifier = authorityKeyIdentifier;
+        this.crlDistributionPoint = crlDistributionPoint;
+        this.signer = signer;
+        this.chainLoader = chainLoader;
+    }
+
+    public Long getCaId() {
+        return caId;
+    }
+
+    public String getSerialNumber() {
+        return serialNumber;
+    }
+
+    public String getPublicKey() {
+        return publicKey;
+    }
+
+    public X500Name getIssuerName() {
+        return issuerName;
+    }
+
+    public AuthorityKeyIdentifier getAuthorityKeyIdentifier() {
+        return authorityKeyIdentifier;
+    }
+
+    public CRLDistPoint getCrlDistributionPoint() {
+        return crlDistributionPoint;
+    }
+
+    // ContentSigner nije thread-safe (drzi Signature i izlazni stream), pa se potpisivanje za isti CA serijalizuje
+    public X509CertificateHolder sign(X509v3CertificateBuilder builder) {
+        synchronized (signer) {
+            return builder.build(signer);
+        }
+    }
+
+    public X509CRLHolder sign(X509v2CRLBuilder builder) {
+        synchronized (signer) {
+            return builder.build(signer);
+        }
+    }
+
+    // Lanac CA sertifikata: ovaj CA na prvom mestu, pa roditelji do root-a
+    public Certificate[] getChain() throws Exception {
+        Certificate[] current = chain;
+        if (current == null) {
+            synchronized (this) {
+                current = chain;
+                if (current == null) {
+                    current = chainLoader.call();
+                    chain = current;
+                }
+            }
+        }
+        return current;
+    }
+}
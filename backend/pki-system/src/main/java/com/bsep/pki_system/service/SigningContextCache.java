@@ -0,0 +1,126 @@
+package com.bsep.pki_system.service;
+
+import com.bsep.pki_system.dto.CertificateChainView;
+import com.bsep.pki_system.model.Certificate;
+import com.bsep.pki_system.model.KeyAlgorithm;
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.asn1.x509.AuthorityKeyIdentifier;
+import org.bouncycastle.asn1.x509.CRLDistPoint;
+import org.bouncycastle.asn1.x509.DistributionPoint;
+import org.bouncycastle.asn1.x509.DistributionPointName;
+import org.bouncycastle.asn1.x509.GeneralName;
+import org.bouncycastle.asn1.x509.GeneralNames;
+import org.bouncycastle.cert.jcajce.JcaX509ExtensionUtils;
+import org.bouncycastle.operator.ContentSigner;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.security.PrivateKey;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Kes potpisnog konteksta po CA (kljuc: serijski broj CA). Otkljucavanje kljuca iz keystore-a,
+// issuer X500Name, AKI i CRL Distribution Point se rade jednom, pa izdavanje sertifikata i CRL listi
+// kosta samo potpis. Deli ga CertificateGeneratorService i CRLService.
+// Kontekst se izbacuje posle revokacije ili isteka CA, a ponovo gradi ako se javni kljuc CA promenio.
+@Service
+public class SigningContextCache {
+
+    private final KeystoreService keystoreService;
+    private final CertificateService certificateService;
+    private final CertificateDerService certificateDerService;
+    private final Map<String, SigningContext> contexts = new ConcurrentHashMap<>();
+
+    public SigningContextCache(KeystoreService keystoreService, @Lazy CertificateService certificateService,
+                               CertificateDerService certificateDerService) {
+        this.keystoreService = keystoreService;
+        this.certificateService = certificateService;
+        this.certificateDerService = certificateDerService;
+    }
+
+    public SigningContext get(Certificate caCertificate) throws Exception {
+        SigningContext context = contexts.get(caCertificate.getSerialNumber());
+        if (context != null && Objects.equals(context.getPublicKey(), caCertificate.getPublicKey())) {
+            return context;
+        }
+
+        // Nema ga u kesu ili je kljuc CA promenjen - gradi se iznova
+        context = build(caCertificate);
+        contexts.put(caCertificate.getSerialNumber(), context);
+        return context;
+    }
+
+    public void invalidate(String serialNumber) {
+        if (serialNumber != null) {
+            contexts.remove(serialNumber);
+        }
+    }
+
+    public void invalidateAll() {
+        contexts.clear();
+    }
+
+    public int size() {
+        return contexts.size();
+    }
+
+    @EventListener
+    public void onCertificatesRevoked(CertificatesRevokedEvent event) {
+        invalidateIds(event.getCertificateIds());
+    }
+
+    @EventListener
+    public void onCertificatesExpired(CertificatesExpiredEvent event) {
+        invalidateIds(event.getCertificateIds());
+    }
+
+    private void invalidateIds(List<Long> certificateIds) {
+        Set<Long> ids = new HashSet<>(certificateIds);
+        contexts.values().removeIf(context -> ids.contains(context.getCaId()));
+    }
+
+    private SigningContext build(Certificate caCertificate) throws Exception {
+        String serialNumber = caCertificate.getSerialNumber();
+
+        // 1. Otkljucavanje privatnog kljuca CA (desifrovanje lozinke + ucitavanje keystore-a)
+        PrivateKey privateKey = keystoreService.getPrivateKey("CA_" + serialNumber, serialNumber);
+        if (privateKey == null) {
+            throw new RuntimeException("Private key not found for CA: " + serialNumber);
+        }
+        ContentSigner signer = new JcaContentSignerBuilder(KeyAlgorithm.signatureAlgorithm(privateKey))
+                .build(privateKey);
+
+        // 2. Podaci o izdavaocu koji idu u svaki izdati sertifikat
+        X500Name issuerName = new X500Name(caCertificate.getSubject());
+        AuthorityKeyIdentifier aki = new JcaX509ExtensionUtils().createAuthorityKeyIdentifier(
+                KeyAlgorithm.decodePublicKey(caCertificate.getPublicKey()));
+
+        return new SigningContext(caCertificate.getId(), serialNumber, caCertificate.getPublicKey(), issuerName,
+                aki, crlDistributionPoint(serialNumber), signer, () -> loadChain(caCertificate));
+    }
+
+    private CRLDistPoint crlDistributionPoint(String issuerSerialNumber) {
+        // URL gde će biti dostupna CRL lista
+        String crlUrl = "http://localhost:8080/api/crl/" + issuerSerialNumber + ".crl";
+
+        GeneralName generalName = new GeneralName(GeneralName.uniformResourceIdentifier, crlUrl);
+        DistributionPointName dpn = new DistributionPointName(new GeneralNames(generalName));
+        return new CRLDistPoint(new DistributionPoint[]{new DistributionPoint(dpn, null, null)});
+    }
+
+    private java.security.cert.Certificate[] loadChain(Certificate caCertificate) throws Exception {
+        // Svi roditelji do root-a dobijeni jednim rekurzivnim upitom (CA je na depth 0)
+        List<java.security.cert.Certificate> chain = new ArrayList<>();
+        for (CertificateChainView ancestor : certificateService.findAncestorChain(caCertificate.getId())) {
+            chain.add(certificateDerService.getCaX509(ancestor.getId(), ancestor.getSerialNumber()));
+        }
+        return chain.toArray(new java.security.cert.Certificate[0]);
+    }
+}
@@ -0,0 +1,12 @@
+package com.bsep.pki_system.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+// Objavljuje ga UserService posle svake izmene ili brisanja korisnika,
+// da AuthenticatedUserResolver ne bi vracao zastarelog korisnika iz kesa.
+@Getter
+@AllArgsConstructor
+public class UserChangedEvent {
+    private final Long userId;
+}
@@ -2,8 +2,10 @@ package com.bsep.pki_system.service;
 
 import com.bsep.pki_system.model.User;
 import com.bsep.pki_system.repository.UserRepository;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.Optional;
@@ -16,10 +18,13 @@ public class UserService {
 
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
+    private final ApplicationEventPublisher eventPublisher;
 
-    public UserService(UserRepository userRepository, PasswordEncoder passwordEncoder) {
+    public UserService(UserRepository userRepository, PasswordEncoder passwordEncoder,
+                       ApplicationEventPublisher eventPublisher) {
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
+        this.eventPublisher = eventPublisher;
     }
 
     public User registerUser(User user) {
@@ -40,6 +45,9 @@ public class UserService {
     public Optional<User> findByVerificationToken(String token) {
         return userRepository.findByVerificationToken(token);
     }
+
+    // Poziva se skoro za svaki zahtev - cita sa replike kad je podesena
+    @Transactional(readOnly = true)
     public Optional<User> findByEmail(String email) {
         return userRepository.findByEmail(email);
     }
@@ -56,6 +64,7 @@ public class UserService {
         }
 
         User savedUser = userRepository.save(user);
+        userChanged(savedUser.getId());
         System.out.println("User saved with ID: " + savedUser.getId());
         System.out.println("=== USER UPDATED ===");
 
@@ -98,11 +107,13 @@ public class UserService {
 
     public void deleteUser(Long userId) {
         userRepository.deleteById(userId);
+        userChanged(userId);
     }
 
     public void changePassword(User user, String newPassword) {
         user.setPassword(passwordEncoder.encode(newPassword));
         userRepository.save(user);
+        userChanged(user.getId());
     }
 
     public Optional<User> findByPasswordResetToken(String token) {
@@ -120,6 +131,7 @@ public class UserService {
         user.setPasswordResetTokenExpiryDate(LocalDateTime.now().plusHours(1));
 
         User savedUser = userRepository.save(user);
+        userChanged(savedUser.getId());
         System.out.println("Saved token: " + savedUser.getPasswordResetToken());
         System.out.println("Token expiry: " + savedUser.getPasswordResetTokenExpiryDate());
     }
@@ -144,5 +156,11 @@ public class UserService {
         user.setPasswordResetTokenExpiryDate(null);
 
         userRepository.save(user);
+        userChanged(user.getId());
+    }
+
+    // Kes ulogovanih korisnika (AuthenticatedUserResolver) izbacuje izmenjenog korisnika
+    private void userChanged(Long userId) {
+        eventPublisher.publishEvent(new UserChangedEvent(userId));
     }
 }
\ No newline at end of file
@@ -0,0 +1,22 @@
+package com.bsep.pki_system.util;
+
+public class CsvUtil {
+
+    /**
+     * Escapuje jednu CSV vrednost (RFC 4180) za izvoz koji se otvara i u Excel-u / LibreOffice-u.
+     * Tekst koji pocinje sa =, +, -, @ (ili tab / CR) dobija prefiks ' da ga tabela ne izvrsi kao formulu -
+     * subject, SAN i poruke o greskama dolaze od korisnika. Brojevi se ne diraju (npr. -1 nije formula).
+     */
+    public static String escape(Object value) {
+        if (value == null) {
+            return "";
+        }
+        String text = value.toString();
+        if (!(value instanceof Number) && !text.isEmpty() && "=+-@\t\r".indexOf(text.charAt(0)) >= 0) {
+            text = "'" + text;
+        }
+        return text.contains(",") || text.contains("\"") || text.contains("\n") || text.contains("\r")
+                ? "\"" + text.replace("\"", "\"\"") + "\""
+                : text;
+    }
+}
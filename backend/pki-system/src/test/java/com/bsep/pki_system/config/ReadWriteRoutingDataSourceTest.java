@@ -0,0 +1,148 @@
+package com.bsep.pki_system.config;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Dve H2 baze u memoriji kao primarna i replika; svaka vraca svoje ime iz tabele "node"
+class ReadWriteRoutingDataSourceTest {
+
+    private static final long READ_YOUR_WRITES_MS = 5000;
+
+    private MutableClock clock;
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate readWrite;
+    private TransactionTemplate readOnly;
+
+    @BeforeEach
+    void setUp() {
+        clock = new MutableClock();
+        ReadWriteRoutingDataSource routing = new ReadWriteRoutingDataSource(
+                database("primary"), database("replica"), READ_YOUR_WRITES_MS, clock);
+        DataSource dataSource = new LazyConnectionDataSourceProxy(routing);
+
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        readWrite = new TransactionTemplate(transactionManager);
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    private static DataSource database(String name) {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:routing-" + name + "-" + System.nanoTime() + ";DB_CLOSE_DELAY=-1");
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("CREATE TABLE node (name VARCHAR(20))");
+        jdbc.update("INSERT INTO node VALUES (?)", name);
+        return dataSource;
+    }
+
+    private String nodeIn(TransactionTemplate transaction) {
+        return transaction.execute(status -> currentNode());
+    }
+
+    private String currentNode() {
+        return jdbcTemplate.queryForObject("SELECT name FROM node", String.class);
+    }
+
+    private void write() {
+        readWrite.executeWithoutResult(status -> jdbcTemplate.update("UPDATE node SET name = name"));
+    }
+
+    private void loginAs(String email) {
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(email, null, List.of()));
+    }
+
+    @Test
+    void readOnlyTransaction_ShouldUseReplica() {
+        assertEquals("replica", nodeIn(readOnly));
+    }
+
+    @Test
+    void readWriteTransactionAndNoTransaction_ShouldUsePrimary() {
+        assertEquals("primary", nodeIn(readWrite));
+        assertEquals("primary", currentNode());
+    }
+
+    @Test
+    void readAfterOwnWrite_ShouldUsePrimaryUntilLagWindowPasses() {
+        loginAs("ca@example.com");
+        write();
+
+        assertEquals("primary", nodeIn(readOnly));
+
+        clock.advance(READ_YOUR_WRITES_MS);
+        assertEquals("replica", nodeIn(readOnly));
+    }
+
+    @Test
+    void writeByOneUser_ShouldNotPinOtherUsersToPrimary() {
+        loginAs("ca@example.com");
+        write();
+
+        loginAs("user@example.com");
+        assertEquals("replica", nodeIn(readOnly));
+    }
+
+    @Test
+    void rolledBackWrite_ShouldNotPinToPrimary() {
+        loginAs("ca@example.com");
+        readWrite.executeWithoutResult(status -> {
+            jdbcTemplate.update("UPDATE node SET name = name");
+            status.setRollbackOnly();
+        });
+
+        assertEquals("replica", nodeIn(readOnly));
+    }
+
+    private static class MutableClock extends Clock {
+
+        private long millis = Instant.parse("2025-01-01T00:00:00Z").toEpochMilli();
+
+        void advance(long deltaMillis) {
+            millis += deltaMillis;
+        }
+
+        @Override
+        public long millis() {
+            return millis;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+    }
+}
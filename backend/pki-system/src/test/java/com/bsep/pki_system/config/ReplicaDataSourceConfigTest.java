@@ -0,0 +1,71 @@
+package com.bsep.pki_system.config;
+
+import com.bsep.pki_system.model.User;
+import com.bsep.pki_system.model.UserRole;
+import com.bsep.pki_system.repository.UserRepository;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Replika je ista H2 baza (replika bez kasnjenja) - proverava se povezivanje: JPA ide kroz ruter,
+// read-only upiti koriste pool replike, a upisi pool primarne baze.
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:replica-config;DB_CLOSE_DELAY=-1",
+        "datasource.replica.url=jdbc:h2:mem:replica-config;DB_CLOSE_DELAY=-1",
+        "datasource.replica.read-your-writes-ms=0"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(ReplicaDataSourceConfig.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ReplicaDataSourceConfigTest {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    @Qualifier("primaryDataSource")
+    private HikariDataSource primaryDataSource;
+
+    @Autowired
+    @Qualifier("replicaDataSource")
+    private HikariDataSource replicaDataSource;
+
+    @Autowired
+    private LocalContainerEntityManagerFactoryBean entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void repositoryReads_ShouldGoToReplicaAndWritesToPrimary() {
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        assertInstanceOf(ReplicaAwareJpaDialect.class, entityManagerFactory.getJpaDialect());
+        assertTrue(replicaDataSource.isReadOnly());
+
+        User user = new User();
+        user.setEmail("replica@example.com");
+        user.setRole(UserRole.BASIC);
+        user = userRepository.save(user);
+        // Hikari pool se pokrece na prvoj konekciji
+        assertNotNull(primaryDataSource.getHikariPoolMXBean());
+        assertNull(replicaDataSource.getHikariPoolMXBean());
+
+        // Kao UserService.findByEmail - read-only transakcija
+        assertTrue(readOnly.execute(status -> userRepository.findByEmail("replica@example.com")).isPresent());
+        assertNotNull(replicaDataSource.getHikariPoolMXBean());
+
+        userRepository.deleteById(user.getId());
+    }
+}
@@ -0,0 +1,165 @@
+package com.bsep.pki_system.repository;
+
+import com.bsep.pki_system.audit.AuditLog;
+import com.bsep.pki_system.audit.AuditLogRepository;
+import com.bsep.pki_system.model.Certificate;
+import com.bsep.pki_system.model.CertificateStatus;
+import com.bsep.pki_system.model.CertificateType;
+import com.bsep.pki_system.model.IssuanceJob;
+import com.bsep.pki_system.model.IssuanceJobType;
+import com.bsep.pki_system.model.PasswordEntry;
+import com.bsep.pki_system.model.PasswordShare;
+import com.bsep.pki_system.model.User;
+import com.bsep.pki_system.model.UserRole;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Broj JDBC naredbi (round trip-ova) za masovne INSERT-e: tabele sa sekvencom idu u batch-evima,
+// IssuanceJob (i dalje IDENTITY) sluzi kao poredjenje - jedan INSERT po redu.
+@DataJpaTest
+class BatchInsertBenchmarkTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(BatchInsertBenchmarkTest.class);
+
+    private static final int ROWS = 500;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private CertificateRepository certificateRepository;
+
+    @Autowired
+    private AuditLogRepository auditLogRepository;
+
+    @Autowired
+    private PasswordShareRepository passwordShareRepository;
+
+    private Statistics statistics;
+    private User owner;
+
+    @BeforeEach
+    void setUp() {
+        owner = new User();
+        owner.setEmail("batch@example.com");
+        owner.setRole(UserRole.CA);
+        owner.setOrganization("Batch Org");
+        entityManager.persist(owner);
+        entityManager.flush();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    // Insert + flush; vraca broj pripremljenih JDBC naredbi (INSERT batch-evi + nextval pozivi)
+    private long measure(String label, Supplier<Integer> insert) {
+        statistics.clear();
+        long start = System.nanoTime();
+        int rows = insert.get();
+        entityManager.flush();
+        long statements = statistics.getPrepareStatementCount();
+        logger.info("{}: {} rows, {} statements, {} ms", label, rows, statements,
+                (System.nanoTime() - start) / 1_000_000);
+        assertEquals(rows, statistics.getEntityInsertCount());
+        return statements;
+    }
+
+    @Test
+    void certificates_ShouldBeInsertedInBatches() {
+        long statements = measure("certificates", () -> {
+            List<Certificate> certificates = new ArrayList<>();
+            for (int i = 0; i < ROWS; i++) {
+                certificates.add(certificate("BATCH-" + i));
+            }
+            return certificateRepository.saveAll(certificates).size();
+        });
+
+        // 1 batch INSERT + jedan nextval na 50 redova, umesto 500 INSERT-a
+        assertTrue(statements <= 1 + ROWS / 50 + 1, "statements: " + statements);
+    }
+
+    @Test
+    void auditLogs_ShouldBeInsertedInBatches() {
+        long statements = measure("audit_logs", () -> {
+            List<AuditLog> logs = new ArrayList<>();
+            for (int i = 0; i < ROWS; i++) {
+                logs.add(new AuditLog("CERTIFICATE_ISSUED", "Issued " + i, owner.getId(), owner.getEmail(),
+                        "CA", null, "127.0.0.1", "test"));
+            }
+            return auditLogRepository.saveAll(logs).size();
+        });
+
+        assertTrue(statements <= 1 + ROWS / 50 + 1, "statements: " + statements);
+    }
+
+    @Test
+    void passwordShares_ShouldBeInsertedInBatches() {
+        PasswordEntry entry = new PasswordEntry();
+        entry.setSiteName("example.com");
+        entry.setOwner(owner);
+        entityManager.persist(entry);
+        entityManager.flush();
+
+        long statements = measure("password_shares", () -> {
+            List<PasswordShare> shares = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                PasswordShare share = new PasswordShare();
+                share.setPasswordEntry(entry);
+                share.setUser(owner);
+                share.setSharedBy(owner);
+                share.setEncryptedPassword("encrypted-" + i);
+                shares.add(share);
+            }
+            return passwordShareRepository.saveAll(shares).size();
+        });
+
+        assertTrue(statements <= 1 + 100 / 50 + 1, "statements: " + statements);
+    }
+
+    @Test
+    void identityTable_ShouldStillNeedOneStatementPerRow() {
+        long statements = measure("issuance_jobs (IDENTITY)", () -> {
+            for (int i = 0; i < 50; i++) {
+                IssuanceJob job = new IssuanceJob();
+                job.setType(IssuanceJobType.ROOT);
+                job.setPayload("{}");
+                job.setRequestedBy(owner);
+                entityManager.persist(job);
+            }
+            return 50;
+        });
+
+        assertEquals(50, statements);
+    }
+
+    private Certificate certificate(String serial) {
+        Certificate certificate = new Certificate();
+        certificate.setSerialNumber(serial);
+        certificate.setSubject("CN=" + serial);
+        certificate.setIssuer("CN=Batch Root");
+        certificate.setValidFrom(new Date());
+        certificate.setValidTo(new Date(System.currentTimeMillis() + 86400000));
+        certificate.setType(CertificateType.END_ENTITY);
+        certificate.setStatus(CertificateStatus.VALID);
+        certificate.setOwner(owner);
+        return certificate;
+    }
+}
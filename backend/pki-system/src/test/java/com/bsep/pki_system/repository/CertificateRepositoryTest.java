@@ -0,0 +1,301 @@
+package com.bsep.pki_system.repository;
+
+import com.bsep.pki_system.dto.CertificateChainView;
+import com.bsep.pki_system.dto.CertificateListFilter;
+import com.bsep.pki_system.dto.CertificateListItemDTO;
+import com.bsep.pki_system.dto.CertificateResponseDTO;
+import com.bsep.pki_system.model.Certificate;
+import com.bsep.pki_system.model.CertificateListSort;
+import com.bsep.pki_system.model.CertificateStatus;
+import com.bsep.pki_system.model.CertificateType;
+import com.bsep.pki_system.model.User;
+import com.bsep.pki_system.model.UserRole;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+
+import java.time.LocalDateTime;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Rekurzivni upiti se izvrsavaju na H2 bazi (isti SQL kao na PostgreSQL-u)
+@DataJpaTest
+class CertificateRepositoryTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private CertificateRepository certificateRepository;
+
+    private Certificate root;
+    private Certificate intermediate;
+    private Certificate endEntity;
+    private Certificate sibling;
+
+    @BeforeEach
+    void setUp() {
+        User owner = new User();
+        owner.setEmail("ca@example.com");
+        owner.setRole(UserRole.CA);
+        owner.setOrganization("Test Org");
+        entityManager.persist(owner);
+
+        root = persistCertificate("ROOT-1", CertificateType.ROOT, null, owner);
+        intermediate = persistCertificate("INT-1", CertificateType.INTERMEDIATE, root, owner);
+        endEntity = persistCertificate("EE-1", CertificateType.END_ENTITY, intermediate, owner);
+        sibling = persistCertificate("EE-2", CertificateType.END_ENTITY, root, owner);
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    private Certificate persistCertificate(String serial, CertificateType type, Certificate issuer, User owner) {
+        Certificate certificate = new Certificate();
+        certificate.setSerialNumber(serial);
+        certificate.setSubject("CN=" + serial + ",O=Test Org");
+        certificate.setIssuer(issuer != null ? issuer.getSubject() : "CN=" + serial + ",O=Test Org");
+        certificate.setValidFrom(new Date(System.currentTimeMillis() - 86400000));
+        certificate.setValidTo(new Date(System.currentTimeMillis() + 86400000));
+        certificate.setType(type);
+        certificate.setStatus(CertificateStatus.VALID);
+        certificate.setIsCA(type != CertificateType.END_ENTITY);
+        certificate.setIssuerCertificate(issuer);
+        certificate.setOwner(owner);
+        certificate.setPemData("-----BEGIN CERTIFICATE-----");
+        return entityManager.persist(certificate);
+    }
+
+    @Test
+    void findAncestorChain_ShouldReturnChainUpToRootOrderedByDepth() {
+        List<CertificateChainView> chain = certificateRepository.findAncestorChain(endEntity.getId());
+
+        assertEquals(List.of("EE-1", "INT-1", "ROOT-1"),
+                chain.stream().map(CertificateChainView::getSerialNumber).toList());
+        assertEquals(List.of(0, 1, 2), chain.stream().map(CertificateChainView::getDepth).toList());
+        assertEquals(intermediate.getId(), chain.get(0).getIssuerCertificateId());
+        assertNull(chain.get(2).getIssuerCertificateId());
+        assertEquals(CertificateStatus.VALID, chain.get(1).getStatus());
+        assertEquals(CertificateType.ROOT, chain.get(2).getType());
+        assertTrue(chain.get(2).getIsCA());
+    }
+
+    @Test
+    void findAncestorChain_ForRoot_ShouldReturnOnlyRoot() {
+        List<CertificateChainView> chain = certificateRepository.findAncestorChain(root.getId());
+
+        assertEquals(1, chain.size());
+        assertEquals(root.getId(), chain.get(0).getId());
+    }
+
+    @Test
+    void findAncestorChain_WhenCertificateNotFound_ShouldReturnEmpty() {
+        assertTrue(certificateRepository.findAncestorChain(999_999L).isEmpty());
+    }
+
+    @Test
+    void findSubtree_ShouldReturnAllDescendantsWithDepth() {
+        List<CertificateChainView> subtree = certificateRepository.findSubtree(root.getId());
+
+        assertEquals(4, subtree.size());
+        assertEquals(root.getId(), subtree.get(0).getId());
+        assertEquals(0, subtree.get(0).getDepth());
+        CertificateChainView ee = subtree.stream()
+                .filter(view -> view.getId().equals(endEntity.getId()))
+                .findFirst().orElseThrow();
+        assertEquals(2, ee.getDepth());
+        assertTrue(subtree.stream().anyMatch(view -> view.getId().equals(sibling.getId())));
+    }
+
+    @Test
+    void findSubtree_ForIntermediate_ShouldNotIncludeSiblings() {
+        List<CertificateChainView> subtree = certificateRepository.findSubtree(intermediate.getId());
+
+        assertEquals(List.of(intermediate.getId(), endEntity.getId()),
+                subtree.stream().map(CertificateChainView::getId).toList());
+    }
+
+    @Test
+    void findAncestorClosure_ShouldReturnSharedAncestorsOnce() {
+        List<CertificateChainView> closure =
+                certificateRepository.findAncestorClosure(List.of(endEntity.getId(), sibling.getId()));
+
+        assertEquals(4, closure.size());
+        assertEquals(Set.of("ROOT-1", "INT-1", "EE-1", "EE-2"),
+                closure.stream().map(CertificateChainView::getSerialNumber).collect(Collectors.toSet()));
+        CertificateChainView ee = closure.stream().filter(v -> v.getId().equals(endEntity.getId())).findFirst().orElseThrow();
+        assertEquals(intermediate.getId(), ee.getIssuerCertificateId());
+        assertNull(ee.getDepth());
+    }
+
+    @Test
+    void findBySerialNumberIn_ShouldIgnoreUnknownSerials() {
+        List<Certificate> found = certificateRepository.findBySerialNumberIn(List.of("EE-1", "ROOT-1", "UNKNOWN"));
+
+        assertEquals(2, found.size());
+    }
+
+    @Test
+    void revokeAllByIdIn_ShouldRevokeOnlyNotYetRevokedCertificates() {
+        LocalDateTime revokedAt = LocalDateTime.now();
+        certificateRepository.revokeAllByIdIn(List.of(sibling.getId()), "keyCompromise", revokedAt.minusDays(1));
+
+        int updated = certificateRepository.revokeAllByIdIn(
+                List.of(intermediate.getId(), endEntity.getId(), sibling.getId()), "cACompromise", revokedAt);
+
+        assertEquals(2, updated);
+        assertEquals(CertificateStatus.REVOKED, certificateRepository.findById(endEntity.getId()).orElseThrow().getStatus());
+        assertEquals("keyCompromise", certificateRepository.findById(sibling.getId()).orElseThrow().getRevocationReason());
+        assertEquals(CertificateStatus.VALID, certificateRepository.findById(root.getId()).orElseThrow().getStatus());
+    }
+
+    @Test
+    void findExpiredIds_AndMarkExpired_ShouldFlipOnlyExpiredValidCertificates() {
+        Certificate expired = certificateRepository.findById(endEntity.getId()).orElseThrow();
+        expired.setValidTo(new Date(System.currentTimeMillis() - 1000));
+        entityManager.flush();
+
+        List<Long> expiredIds = certificateRepository.findExpiredIds(new Date(), PageRequest.of(0, 10));
+
+        assertEquals(List.of(endEntity.getId()), expiredIds);
+        assertEquals(1, certificateRepository.markExpired(expiredIds));
+        assertEquals(CertificateStatus.EXPIRED, certificateRepository.findById(endEntity.getId()).orElseThrow().getStatus());
+        assertTrue(certificateRepository.findExpiredIds(new Date(), PageRequest.of(0, 10)).isEmpty());
+        assertTrue(certificateRepository.findNextExpiry().after(new Date()));
+    }
+
+    @Test
+    void findAllResponses_ShouldProjectFlatRowsIncludingRootWithoutIssuer() {
+        List<CertificateResponseDTO> responses = certificateRepository.findAllResponses();
+
+        assertEquals(List.of("ROOT-1", "INT-1", "EE-1", "EE-2"),
+                responses.stream().map(CertificateResponseDTO::getSerialNumber).toList());
+        assertNull(responses.get(0).getIssuerId());
+        assertNull(responses.get(0).getIssuerSerialNumber());
+        CertificateResponseDTO ee = responses.get(2);
+        assertEquals(intermediate.getId(), ee.getIssuerId());
+        assertEquals("INT-1", ee.getIssuerSerialNumber());
+        assertEquals(endEntity.getOwner().getId(), ee.getOwnerId());
+    }
+
+    @Test
+    void findResponsesByOwnerIdAndType_ShouldFilterAndFindSingleResponse() {
+        Long ownerId = root.getOwner().getId();
+
+        assertEquals(List.of(endEntity.getId(), sibling.getId()),
+                certificateRepository.findResponsesByOwnerIdAndType(ownerId, CertificateType.END_ENTITY).stream()
+                        .map(CertificateResponseDTO::getId).toList());
+        assertEquals(List.of(root.getId()), certificateRepository.findResponsesByType(CertificateType.ROOT).stream()
+                .map(CertificateResponseDTO::getId).toList());
+        assertEquals("ROOT-1", certificateRepository.findResponseById(sibling.getId()).orElseThrow()
+                .getIssuerSerialNumber());
+        assertTrue(certificateRepository.findResponseById(999_999L).isEmpty());
+    }
+
+    @Test
+    void streamResponses_ShouldReturnSameRowsAsListQueries() {
+        try (Stream<CertificateResponseDTO> all = certificateRepository.streamAllResponses()) {
+            assertEquals(List.of("ROOT-1", "INT-1", "EE-1", "EE-2"),
+                    all.map(CertificateResponseDTO::getSerialNumber).toList());
+        }
+        try (Stream<CertificateResponseDTO> owned = certificateRepository.streamResponsesByOwnerId(root.getOwner().getId())) {
+            assertEquals(4, owned.count());
+        }
+        try (Stream<CertificateResponseDTO> none = certificateRepository.streamResponsesByOwnerId(999_999L)) {
+            assertEquals(0, none.count());
+        }
+    }
+
+    @Test
+    void findCaChainViews_ShouldReturnOnlyRootAndIntermediateCertificates() {
+        assertEquals(Set.of("ROOT-1", "INT-1"), certificateRepository.findCaChainViews().stream()
+                .map(CertificateChainView::getSerialNumber).collect(Collectors.toSet()));
+    }
+
+    @Test
+    void findPage_ById_ShouldWalkAllPagesWithoutGapsOrDuplicates() {
+        CertificateListFilter noFilter = new CertificateListFilter();
+
+        List<CertificateListItemDTO> first = certificateRepository.findPage(noFilter, CertificateListSort.ID, false,
+                null, null, 3);
+        List<CertificateListItemDTO> second = certificateRepository.findPage(noFilter, CertificateListSort.ID, false,
+                null, first.get(2).getId(), 3);
+
+        assertEquals(List.of(root.getId(), intermediate.getId(), endEntity.getId()),
+                first.stream().map(CertificateListItemDTO::getId).toList());
+        assertEquals(List.of(sibling.getId()), second.stream().map(CertificateListItemDTO::getId).toList());
+        // Root nema izdavaoca - FK kolona ne sme da izbaci red
+        assertNull(first.get(0).getIssuerCertificateId());
+        assertEquals(intermediate.getId(), first.get(2).getIssuerCertificateId());
+        assertEquals(CertificateType.END_ENTITY, first.get(2).getType());
+    }
+
+    @Test
+    void findPage_ByValidToDesc_ShouldBreakTiesById() {
+        Date later = new Date(System.currentTimeMillis() + 10 * 86400000L);
+        Date sooner = new Date(System.currentTimeMillis() + 5 * 86400000L);
+        setValidTo(root, later);
+        setValidTo(intermediate, sooner);
+        setValidTo(endEntity, sooner);
+        setValidTo(sibling, sooner);
+        CertificateListFilter noFilter = new CertificateListFilter();
+
+        List<CertificateListItemDTO> first = certificateRepository.findPage(noFilter, CertificateListSort.VALID_TO,
+                true, null, null, 2);
+        CertificateListItemDTO last = first.get(1);
+        List<CertificateListItemDTO> second = certificateRepository.findPage(noFilter, CertificateListSort.VALID_TO,
+                true, last.getValidTo(), last.getId(), 2);
+
+        assertEquals(List.of(root.getId(), sibling.getId()), first.stream().map(CertificateListItemDTO::getId).toList());
+        assertEquals(List.of(endEntity.getId(), intermediate.getId()),
+                second.stream().map(CertificateListItemDTO::getId).toList());
+    }
+
+    @Test
+    void findPage_ShouldApplyTypeIssuerOrganizationAndExpiryFilters() {
+        User other = new User();
+        other.setEmail("other@example.com");
+        other.setRole(UserRole.BASIC);
+        other.setOrganization("Other Org");
+        entityManager.persist(other);
+        Certificate foreign = persistCertificate("EE-3", CertificateType.END_ENTITY, root, other);
+        foreign.setValidTo(new Date(System.currentTimeMillis() + 30 * 86400000L));
+        entityManager.flush();
+
+        CertificateListFilter endEntitiesOfRoot = new CertificateListFilter();
+        endEntitiesOfRoot.setType(CertificateType.END_ENTITY);
+        endEntitiesOfRoot.setIssuerId(root.getId());
+        assertEquals(List.of(sibling.getId(), foreign.getId()), ids(endEntitiesOfRoot));
+
+        CertificateListFilter byOrganization = new CertificateListFilter();
+        byOrganization.setOrganization("Other Org");
+        assertEquals(List.of(foreign.getId()), ids(byOrganization));
+
+        CertificateListFilter byOwner = new CertificateListFilter();
+        byOwner.setOwnerId(other.getId());
+        byOwner.setStatus(CertificateStatus.REVOKED);
+        assertTrue(ids(byOwner).isEmpty());
+
+        CertificateListFilter expiringSoon = new CertificateListFilter();
+        expiringSoon.setExpiresAfter(new Date());
+        expiringSoon.setExpiresBefore(new Date(System.currentTimeMillis() + 7 * 86400000L));
+        assertEquals(List.of(root.getId(), intermediate.getId(), endEntity.getId(), sibling.getId()), ids(expiringSoon));
+    }
+
+    private List<Long> ids(CertificateListFilter filter) {
+        return certificateRepository.findPage(filter, CertificateListSort.ID, false, null, null, 100).stream()
+                .map(CertificateListItemDTO::getId).toList();
+    }
+
+    private void setValidTo(Certificate certificate, Date validTo) {
+        certificateRepository.findById(certificate.getId()).orElseThrow().setValidTo(validTo);
+        entityManager.flush();
+    }
+}
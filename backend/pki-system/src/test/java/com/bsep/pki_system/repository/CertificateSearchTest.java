@@ -0,0 +1,202 @@
+package com.bsep.pki_system.repository;
+
+import com.bsep.pki_system.dto.CertificateListFilter;
+import com.bsep.pki_system.dto.CertificateListItemDTO;
+import com.bsep.pki_system.dto.CertificateSearchQuery;
+import com.bsep.pki_system.model.Certificate;
+import com.bsep.pki_system.model.CertificateListSort;
+import com.bsep.pki_system.model.CertificateNameType;
+import com.bsep.pki_system.model.CertificateSearchMatch;
+import com.bsep.pki_system.model.CertificateStatus;
+import com.bsep.pki_system.model.CertificateType;
+import com.bsep.pki_system.model.User;
+import com.bsep.pki_system.model.UserRole;
+import com.bsep.pki_system.service.CertificateNameIndexer;
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.asn1.x509.GeneralName;
+import org.bouncycastle.asn1.x509.GeneralNames;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Pretraga preko certificate_names (podupit u findPage); imena se prave istim kodom kao pri izdavanju
+@DataJpaTest
+class CertificateSearchTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private CertificateRepository certificateRepository;
+
+    @Autowired
+    private CertificateNameRepository certificateNameRepository;
+
+    private User owner;
+
+    @BeforeEach
+    void setUp() {
+        owner = new User();
+        owner.setEmail("ca@example.com");
+        owner.setRole(UserRole.CA);
+        owner.setOrganization("Test Org");
+        entityManager.persist(owner);
+
+        persistCertificate("1001", "CN=api.example.com,O=Example Org", "api.example.com", "www.example.com");
+        persistCertificate("1002", "CN=Wildcard,O=Example Org", "*.example.com");
+        persistCertificate("1003", "CN=Payments,OU=Billing,O=Other_Org", "pay.other.net");
+        persistCertificate("2001", "CN=Mail,O=Example Org,E=admin@example.com");
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    private void persistCertificate(String serial, String subject, String... dnsNames) {
+        persistCertificate(serial, subject, null, owner, dnsNames);
+    }
+
+    private Certificate persistCertificate(String serial, String subject, Certificate issuer, User certificateOwner,
+                                           String... dnsNames) {
+        Certificate certificate = new Certificate();
+        certificate.setSerialNumber(serial);
+        certificate.setSubject(subject);
+        certificate.setIssuer(issuer == null ? subject : issuer.getSubject());
+        certificate.setIssuerCertificate(issuer);
+        certificate.setValidFrom(new Date(System.currentTimeMillis() - 86400000));
+        certificate.setValidTo(new Date(System.currentTimeMillis() + 86400000));
+        certificate.setType(CertificateType.END_ENTITY);
+        certificate.setStatus(CertificateStatus.VALID);
+        certificate.setIsCA(false);
+        certificate.setOwner(certificateOwner);
+        entityManager.persist(certificate);
+
+        GeneralNames sans = null;
+        if (dnsNames.length > 0) {
+            GeneralName[] names = new GeneralName[dnsNames.length];
+            for (int i = 0; i < dnsNames.length; i++) {
+                names[i] = new GeneralName(GeneralName.dNSName, dnsNames[i]);
+            }
+            sans = new GeneralNames(names);
+        }
+        certificateNameRepository.saveAll(CertificateNameIndexer.extractNames(certificate.getId(), serial,
+                new X500Name(subject), sans));
+        return certificate;
+    }
+
+    private List<String> search(String term, CertificateNameType field, CertificateSearchMatch match) {
+        CertificateListFilter filter = new CertificateListFilter();
+        filter.setSearch(new CertificateSearchQuery(term, field, match));
+        return certificateRepository.findPage(filter, CertificateListSort.ID, false, null, null, 100).stream()
+                .map(CertificateListItemDTO::getSerialNumber)
+                .toList();
+    }
+
+    @Test
+    void exactDnsSearch_ShouldFindCertificatesCoveringHostIncludingWildcard() {
+        assertEquals(List.of("1001", "1002"), search("api.example.com", CertificateNameType.DNS, CertificateSearchMatch.EXACT));
+        assertEquals(List.of("1002"), search("shop.example.com", CertificateNameType.DNS, CertificateSearchMatch.EXACT));
+        assertEquals(List.of(), search("api.example.org", CertificateNameType.DNS, CertificateSearchMatch.EXACT));
+    }
+
+    @Test
+    void exactSearchWithoutField_ShouldMatchAnyNameOncePerCertificate() {
+        // 1001 ima api.example.com i kao CN i kao SAN - vraca se jednom
+        assertEquals(List.of("1001", "1002"), search("api.example.com", null, CertificateSearchMatch.EXACT));
+        assertEquals(List.of("2001"), search("admin@example.com", null, CertificateSearchMatch.EXACT));
+    }
+
+    @Test
+    void fieldRestriction_ShouldOnlyMatchThatNameType() {
+        assertEquals(List.of("1001"), search("api.example.com", CertificateNameType.COMMON_NAME, CertificateSearchMatch.EXACT));
+        assertEquals(List.of("1003"), search("billing", CertificateNameType.ORGANIZATIONAL_UNIT, CertificateSearchMatch.EXACT));
+        assertEquals(List.of(), search("billing", CertificateNameType.ORGANIZATION, CertificateSearchMatch.EXACT));
+    }
+
+    @Test
+    void prefixSearch_ShouldMatchSerialAndNamePrefixes() {
+        assertEquals(List.of("1001", "1002", "1003"), search("100", CertificateNameType.SERIAL, CertificateSearchMatch.PREFIX));
+        assertEquals(List.of("1001", "1002", "2001"), search("example", CertificateNameType.ORGANIZATION, CertificateSearchMatch.PREFIX));
+    }
+
+    @Test
+    void containsSearch_ShouldMatchSubstringAndTreatWildcardsLiterally() {
+        assertEquals(List.of("1001"), search("w.exa", null, CertificateSearchMatch.CONTAINS));
+        // "_" iz upita nije LIKE dzoker
+        assertEquals(List.of("1003"), search("r_or", null, CertificateSearchMatch.CONTAINS));
+        assertEquals(List.of(), search("%", null, CertificateSearchMatch.CONTAINS));
+    }
+
+    @Test
+    void searchWithOtherFilters_ShouldCombineWithStatusAndOwner() {
+        CertificateListFilter filter = new CertificateListFilter();
+        filter.setSearch(new CertificateSearchQuery("example org", CertificateNameType.ORGANIZATION, CertificateSearchMatch.EXACT));
+        filter.setOwnerId(owner.getId());
+        filter.setStatus(CertificateStatus.VALID);
+
+        List<CertificateListItemDTO> first = certificateRepository.findPage(filter, CertificateListSort.ID, false,
+                null, null, 2);
+        List<CertificateListItemDTO> second = certificateRepository.findPage(filter, CertificateListSort.ID, false,
+                null, first.get(1).getId(), 2);
+
+        assertEquals(List.of("1001", "1002"), first.stream().map(CertificateListItemDTO::getSerialNumber).toList());
+        assertEquals(List.of("2001"), second.stream().map(CertificateListItemDTO::getSerialNumber).toList());
+
+        filter.setStatus(CertificateStatus.REVOKED);
+        assertTrue(certificateRepository.findPage(filter, CertificateListSort.ID, false, null, null, 10).isEmpty());
+    }
+
+    @Test
+    void chainScope_ShouldIncludeForeignDescendantsOfOrganizationCaAndExcludeOwnedForeignChain() {
+        User foreignOwner = new User();
+        foreignOwner.setEmail("partner@example.com");
+        foreignOwner.setRole(UserRole.CA);
+        foreignOwner.setOrganization("Foreign Org");
+        entityManager.persist(foreignOwner);
+
+        // CA organizacije izdaje sertifikat partneru iz druge organizacije
+        Certificate organizationCa = persistCertificate("3001", "CN=Org CA,O=Test Org", null, owner);
+        persistCertificate("3002", "CN=Partner,O=Foreign Org", organizationCa, foreignOwner);
+        // Vlasnik je iz organizacije, ali je sertifikat u tudjem lancu
+        Certificate foreignCa = persistCertificate("3003", "CN=Foreign CA,O=Foreign Org", null, foreignOwner);
+        persistCertificate("3004", "CN=Outsourced,O=Foreign Org", foreignCa, owner);
+        entityManager.flush();
+        entityManager.clear();
+
+        CertificateListFilter chain = new CertificateListFilter();
+        chain.setChainOrganization(CertificateNameIndexer.normalize(CertificateNameType.ORGANIZATION, "Test Org"));
+        chain.setChainIssuerIds(List.of(organizationCa.getId()));
+        assertEquals(List.of("3001", "3002"), certificateRepository.findPage(chain, CertificateListSort.ID, false,
+                null, null, 100).stream().map(CertificateListItemDTO::getSerialNumber).toList());
+
+        // Filter po organizaciji vlasnika daje drugi skup - zato se ne koristi za CA opseg
+        CertificateListFilter byOwnerOrganization = new CertificateListFilter();
+        byOwnerOrganization.setOrganization("Test Org");
+        List<String> owned = certificateRepository.findPage(byOwnerOrganization, CertificateListSort.ID, false,
+                null, null, 100).stream().map(CertificateListItemDTO::getSerialNumber).toList();
+        assertTrue(owned.contains("3004"));
+        assertFalse(owned.contains("3002"));
+    }
+
+    @Test
+    void findIdsWithoutNames_ShouldReturnOnlyUnindexedCertificates() {
+        Certificate legacy = new Certificate();
+        legacy.setSerialNumber("9999");
+        legacy.setSubject("CN=Legacy");
+        legacy.setIssuer("CN=Legacy");
+        legacy.setValidFrom(new Date());
+        legacy.setValidTo(new Date());
+        legacy.setType(CertificateType.ROOT);
+        legacy.setStatus(CertificateStatus.VALID);
+        entityManager.persist(legacy);
+        entityManager.flush();
+
+        assertEquals(List.of(legacy.getId()), certificateRepository.findIdsWithoutNames(PageRequest.of(0, 10)));
+    }
+}
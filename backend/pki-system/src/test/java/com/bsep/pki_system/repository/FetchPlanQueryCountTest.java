@@ -0,0 +1,202 @@
+package com.bsep.pki_system.repository;
+
+import com.bsep.pki_system.model.Certificate;
+import com.bsep.pki_system.model.CertificateStatus;
+import com.bsep.pki_system.model.CertificateTemplate;
+import com.bsep.pki_system.model.CertificateType;
+import com.bsep.pki_system.model.PasswordEntry;
+import com.bsep.pki_system.model.PasswordShare;
+import com.bsep.pki_system.model.User;
+import com.bsep.pki_system.model.UserRole;
+import com.bsep.pki_system.service.CertificateService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Hibernate;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Broj SQL naredbi po slucaju upotrebe (LAZY veze + entity grafovi). Svaki test prazni persistence
+// context pre merenja, pa se broji tacno ono sto bi endpoint izvrsio.
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class FetchPlanQueryCountTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private CertificateRepository certificateRepository;
+
+    @Autowired
+    private CertificateTemplateRepository templateRepository;
+
+    @Autowired
+    private PasswordShareRepository passwordShareRepository;
+
+    private Statistics statistics;
+    private User owner;
+    private Certificate root;
+    private Certificate intermediate;
+    private Certificate endEntity;
+    private PasswordEntry passwordEntry;
+
+    @BeforeEach
+    void setUp() {
+        owner = persistUser("ca@example.com", "Test Org");
+        root = persistCertificate("ROOT-1", CertificateType.ROOT, null, "CN=Root,O=Test Org");
+        intermediate = persistCertificate("INT-1", CertificateType.INTERMEDIATE, root, "CN=Int,O=Unit");
+        endEntity = persistCertificate("EE-1", CertificateType.END_ENTITY, intermediate, "CN=device,O=Customer");
+        for (int i = 0; i < 5; i++) {
+            persistCertificate("EE-X" + i, CertificateType.END_ENTITY, intermediate, "CN=device" + i + ",O=Customer");
+        }
+
+        for (int i = 0; i < 3; i++) {
+            CertificateTemplate template = new CertificateTemplate();
+            template.setName("template-" + i);
+            template.setCaIssuer(intermediate);
+            template.setCreatedBy(owner);
+            entityManager.persist(template);
+        }
+
+        passwordEntry = new PasswordEntry();
+        passwordEntry.setSiteName("example.com");
+        passwordEntry.setOwner(owner);
+        entityManager.persist(passwordEntry);
+        for (int i = 0; i < 3; i++) {
+            PasswordShare share = new PasswordShare();
+            share.setPasswordEntry(passwordEntry);
+            share.setUser(persistUser("user" + i + "@example.com", "Test Org"));
+            share.setSharedBy(owner);
+            share.setEncryptedPassword("encrypted");
+            entityManager.persist(share);
+        }
+
+        entityManager.flush();
+        entityManager.clear();
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    private User persistUser(String email, String organization) {
+        User user = new User();
+        user.setEmail(email);
+        user.setRole(UserRole.CA);
+        user.setOrganization(organization);
+        return entityManager.persist(user);
+    }
+
+    private Certificate persistCertificate(String serial, CertificateType type, Certificate issuer, String subject) {
+        Certificate certificate = new Certificate();
+        certificate.setSerialNumber(serial);
+        certificate.setSubject(subject);
+        certificate.setIssuer(issuer != null ? issuer.getSubject() : subject);
+        certificate.setValidFrom(new Date(System.currentTimeMillis() - 86400000));
+        certificate.setValidTo(new Date(System.currentTimeMillis() + 86400000));
+        certificate.setType(type);
+        certificate.setStatus(CertificateStatus.VALID);
+        certificate.setIsCA(type != CertificateType.END_ENTITY);
+        certificate.setIssuerCertificate(issuer);
+        certificate.setOwner(owner);
+        return entityManager.persist(certificate);
+    }
+
+    @Test
+    void findAll_ShouldNotLoadIssuersOrOwners() {
+        List<Certificate> certificates = certificateRepository.findAll();
+
+        assertEquals(8, certificates.size());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void findAllResponses_ShouldBeSingleQuery() {
+        assertEquals(8, certificateRepository.findAllResponses().size());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void findById_ShouldLoadDirectIssuerAndOwnerButNotTheRestOfTheChain() {
+        Certificate certificate = certificateRepository.findById(endEntity.getId()).orElseThrow();
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertTrue(Hibernate.isInitialized(certificate.getIssuerCertificate()));
+        assertTrue(Hibernate.isInitialized(certificate.getOwner()));
+        assertEquals("Test Org", certificate.getOwner().getOrganization());
+        assertFalse(Hibernate.isInitialized(certificate.getIssuerCertificate().getIssuerCertificate()));
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void findValidIssuers_ShouldLoadIssuersInSameQuery() {
+        List<Certificate> issuers = certificateRepository.findValidIssuers(CertificateStatus.VALID, new Date());
+
+        assertEquals(2, issuers.size());
+        Certificate intermediateIssuer = issuers.stream()
+                .filter(issuer -> issuer.getId().equals(intermediate.getId())).findFirst().orElseThrow();
+        assertEquals("ROOT-1", intermediateIssuer.getIssuerCertificate().getSerialNumber());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void findWithOwnerByIdIn_ShouldLoadOwnersInSameQuery() {
+        List<Certificate> certificates = certificateRepository.findWithOwnerByIdIn(
+                List.of(intermediate.getId(), endEntity.getId()));
+
+        certificates.forEach(certificate -> assertEquals("Test Org", certificate.getOwner().getOrganization()));
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void filterByOrganizationChain_ShouldResolveUnloadedAncestorsWithOneQuery() {
+        CertificateService certificateService = new CertificateService(certificateRepository,
+                null, null, null, null, null, null, null, null);
+        List<Certificate> all = certificateRepository.findAll();
+        statistics.clear();
+
+        List<Certificate> inOrganization = certificateService.filterByOrganizationChain(all, "Test Org");
+
+        assertEquals(8, inOrganization.size());
+        assertTrue(statistics.getPrepareStatementCount() <= 1);
+        assertTrue(certificateService.filterByOrganizationChain(all, "Other Org").isEmpty());
+    }
+
+    @Test
+    void templateQueries_ShouldLoadCaIssuerAndCreatorInSameQuery() {
+        List<CertificateTemplate> templates = templateRepository.findTemplatesForOrganizationCAs("Test Org");
+
+        assertEquals(3, templates.size());
+        templates.forEach(template -> {
+            assertEquals("CN=Int,O=Unit", template.getCaIssuer().getSubject());
+            assertEquals("ca@example.com", template.getCreatedBy().getEmail());
+        });
+        assertEquals(1, statistics.getPrepareStatementCount());
+
+        statistics.clear();
+        CertificateTemplate template = templateRepository.findById(templates.get(0).getId()).orElseThrow();
+        assertTrue(Hibernate.isInitialized(template.getCaIssuer()));
+        assertTrue(Hibernate.isInitialized(template.getCreatedBy()));
+    }
+
+    @Test
+    void findSharesByPasswordEntry_ShouldLoadSharedUsersInSameQuery() {
+        PasswordEntry entry = entityManager.find(PasswordEntry.class, passwordEntry.getId());
+        statistics.clear();
+
+        List<PasswordShare> shares = passwordShareRepository.findByPasswordEntry(entry);
+
+        assertEquals(3, shares.size());
+        shares.forEach(share -> assertTrue(share.getUser().getEmail().endsWith("@example.com")));
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+}
@@ -0,0 +1,107 @@
+package com.bsep.pki_system.repository;
+
+import com.bsep.pki_system.model.IssuanceJob;
+import com.bsep.pki_system.model.IssuanceJobStatus;
+import com.bsep.pki_system.model.IssuanceJobType;
+import com.bsep.pki_system.model.User;
+import com.bsep.pki_system.model.UserRole;
+import org.hibernate.Hibernate;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Preuzimanje, zavrsetak i vracanje poslova u red (UPDATE upiti nad issuance_jobs) i ucitavanje podnosioca
+@DataJpaTest
+class IssuanceJobRepositoryTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private IssuanceJobRepository issuanceJobRepository;
+
+    private User admin;
+
+    @BeforeEach
+    void setUp() {
+        admin = new User();
+        admin.setEmail("admin@example.com");
+        admin.setRole(UserRole.ADMIN);
+        entityManager.persist(admin);
+    }
+
+    private IssuanceJob persistJob() {
+        IssuanceJob job = new IssuanceJob();
+        job.setType(IssuanceJobType.ROOT);
+        job.setPayload("{}");
+        job.setRequestedBy(admin);
+        return entityManager.persistAndFlush(job);
+    }
+
+    private IssuanceJob reload(IssuanceJob job) {
+        entityManager.clear();
+        return entityManager.find(IssuanceJob.class, job.getId());
+    }
+
+    @Test
+    void complete_ShouldOnlySucceedForCurrentClaim() {
+        IssuanceJob job = persistJob();
+        LocalDateTime now = LocalDateTime.now();
+        assertEquals(1, issuanceJobRepository.claim(job.getId(), now.minusMinutes(30), "old-claim"));
+
+        // Posao je proglasen napustenim i preuzet ponovo
+        assertEquals(1, issuanceJobRepository.requeueStale(now.minusMinutes(10)));
+        assertEquals(1, issuanceJobRepository.claim(job.getId(), now, "new-claim"));
+
+        assertEquals(0, issuanceJobRepository.complete(job.getId(), "old-claim", 5L, "12345", now));
+        assertEquals(0, issuanceJobRepository.fail(job.getId(), "old-claim", "error", now));
+        assertEquals(1, issuanceJobRepository.complete(job.getId(), "new-claim", 6L, "67890", now));
+
+        IssuanceJob completed = reload(job);
+        assertEquals(IssuanceJobStatus.COMPLETED, completed.getStatus());
+        assertEquals(6L, completed.getCertificateId());
+        assertEquals("67890", completed.getSerialNumber());
+    }
+
+    @Test
+    void requeueStale_ShouldSkipJobsThatAlreadyHaveCertificate() {
+        IssuanceJob issued = persistJob();
+        IssuanceJob abandoned = persistJob();
+        LocalDateTime longAgo = LocalDateTime.now().minusMinutes(30);
+        issuanceJobRepository.claim(issued.getId(), longAgo, "claim-1");
+        issuanceJobRepository.claim(abandoned.getId(), longAgo, "claim-2");
+        IssuanceJob withCertificate = reload(issued);
+        withCertificate.setCertificateId(5L);
+        entityManager.flush();
+
+        assertEquals(1, issuanceJobRepository.requeueStale(LocalDateTime.now().minusMinutes(10)));
+
+        assertEquals(IssuanceJobStatus.RUNNING, reload(issued).getStatus());
+        IssuanceJob requeued = reload(abandoned);
+        assertEquals(IssuanceJobStatus.QUEUED, requeued.getStatus());
+        assertNull(requeued.getClaimToken());
+    }
+
+    @Test
+    void requestedBy_ShouldBeLazyAndFetchedOnlyForWorker() {
+        IssuanceJob job = persistJob();
+        entityManager.clear();
+
+        IssuanceJob polled = issuanceJobRepository.findById(job.getId()).orElseThrow();
+        assertFalse(Hibernate.isInitialized(polled.getRequestedBy()));
+        // Provera vlasnika posla ne ucitava korisnika
+        assertEquals(admin.getId(), polled.getRequestedBy().getId());
+        assertFalse(Hibernate.isInitialized(polled.getRequestedBy()));
+
+        entityManager.clear();
+        IssuanceJob processed = issuanceJobRepository.findWithRequesterById(job.getId()).orElseThrow();
+        assertTrue(Hibernate.isInitialized(processed.getRequestedBy()));
+        assertEquals("admin@example.com", processed.getRequestedBy().getEmail());
+    }
+}
@@ -0,0 +1,180 @@
+package com.bsep.pki_system.repository;
+
+import com.bsep.pki_system.model.Certificate;
+import com.bsep.pki_system.model.CertificateStatus;
+import com.bsep.pki_system.model.CertificateTemplate;
+import com.bsep.pki_system.model.CertificateType;
+import com.bsep.pki_system.model.User;
+import com.bsep.pki_system.model.UserRole;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Second-level i query cache rade samo sa potvrdjenim transakcijama, pa test ne koristi
+// @DataJpaTest rollback: svaki poziv repozitorijuma je zasebna sesija, a podaci se brisu posle testa.
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class SecondLevelCacheTest {
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private CertificateRepository certificateRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CertificateTemplateRepository templateRepository;
+
+    private TransactionTemplate transaction;
+    private Statistics statistics;
+    private User owner;
+    private Certificate root;
+
+    @BeforeEach
+    void setUp() {
+        transaction = new TransactionTemplate(transactionManager);
+        owner = new User();
+        owner.setEmail("cache@example.com");
+        owner.setRole(UserRole.CA);
+        owner.setOrganization("Cache Org");
+        owner = userRepository.save(owner);
+        root = certificateRepository.save(certificate("CACHE-ROOT"));
+
+        SessionFactory sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+        sessionFactory.getCache().evictAllRegions();
+        statistics = sessionFactory.getStatistics();
+        statistics.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        templateRepository.deleteAllInBatch();
+        certificateRepository.deleteAllInBatch();
+        userRepository.deleteAllInBatch();
+    }
+
+    private Certificate certificate(String serial) {
+        Certificate certificate = new Certificate();
+        certificate.setSerialNumber(serial);
+        certificate.setSubject("CN=" + serial + ",O=Cache Org");
+        certificate.setIssuer("CN=" + serial + ",O=Cache Org");
+        certificate.setValidFrom(new Date(System.currentTimeMillis() - 86400000));
+        certificate.setValidTo(new Date(System.currentTimeMillis() + 86400000));
+        certificate.setType(CertificateType.ROOT);
+        certificate.setStatus(CertificateStatus.VALID);
+        certificate.setIsCA(true);
+        certificate.setOwner(owner);
+        return certificate;
+    }
+
+    private CertificateTemplate template(String name) {
+        CertificateTemplate template = new CertificateTemplate();
+        template.setName(name);
+        template.setCaIssuer(root);
+        template.setCreatedBy(owner);
+        return template;
+    }
+
+    @Test
+    void findById_SecondTime_ShouldBeServedFromCache() {
+        certificateRepository.findById(root.getId()).orElseThrow();
+        long statements = statistics.getPrepareStatementCount();
+
+        Certificate cached = certificateRepository.findById(root.getId()).orElseThrow();
+
+        assertEquals("CACHE-ROOT", cached.getSerialNumber());
+        assertEquals(statements, statistics.getPrepareStatementCount());
+        assertTrue(statistics.getSecondLevelCacheHitCount() > 0);
+    }
+
+    @Test
+    void findBySerialNumber_SecondTime_ShouldNotHitDatabase() {
+        certificateRepository.findBySerialNumber("CACHE-ROOT").orElseThrow();
+        long statements = statistics.getPrepareStatementCount();
+
+        Certificate cached = certificateRepository.findBySerialNumber("CACHE-ROOT").orElseThrow();
+
+        assertEquals(root.getId(), cached.getId());
+        assertEquals(statements, statistics.getPrepareStatementCount());
+        assertEquals(1, statistics.getQueryCacheHitCount());
+    }
+
+    @Test
+    void bulkRevoke_ShouldInvalidateCachedCertificate() {
+        certificateRepository.findById(root.getId()).orElseThrow();
+        certificateRepository.findBySerialNumber("CACHE-ROOT").orElseThrow();
+
+        certificateRepository.revokeAllByIdIn(List.of(root.getId()), "keyCompromise", LocalDateTime.now());
+
+        assertEquals(CertificateStatus.REVOKED,
+                certificateRepository.findById(root.getId()).orElseThrow().getStatus());
+        assertEquals(CertificateStatus.REVOKED,
+                certificateRepository.findBySerialNumber("CACHE-ROOT").orElseThrow().getStatus());
+    }
+
+    @Test
+    void entityUpdate_ShouldBeVisibleThroughCachedQuery() {
+        Certificate cached = certificateRepository.findBySerialNumber("CACHE-ROOT").orElseThrow();
+        cached.setStatus(CertificateStatus.REVOKED);
+        cached.setRevocationReason("superseded");
+        certificateRepository.save(cached);
+
+        Certificate reloaded = certificateRepository.findBySerialNumber("CACHE-ROOT").orElseThrow();
+
+        assertEquals(CertificateStatus.REVOKED, reloaded.getStatus());
+        assertEquals("superseded", reloaded.getRevocationReason());
+    }
+
+    @Test
+    void findByEmail_ShouldBeCachedAndSeeUpdates() {
+        userRepository.findByEmail("cache@example.com").orElseThrow();
+        long statements = statistics.getPrepareStatementCount();
+        User cached = userRepository.findByEmail("cache@example.com").orElseThrow();
+        assertEquals(statements, statistics.getPrepareStatementCount());
+
+        cached.setOrganization("Renamed Org");
+        userRepository.save(cached);
+
+        assertEquals("Renamed Org", userRepository.findByEmail("cache@example.com").orElseThrow().getOrganization());
+    }
+
+    @Test
+    void findTemplatesForOrganizationCAs_ShouldBeCachedAndInvalidatedOnInsert() {
+        templateRepository.save(template("cache-template-1"));
+        assertEquals(1, templateRepository.findTemplatesForOrganizationCAs("Cache Org").size());
+        long statements = statistics.getPrepareStatementCount();
+
+        // Pogodak iz kesa i dalje daje CA izdavaoca i kreatora (u okviru transakcije servisa)
+        transaction.executeWithoutResult(status -> {
+            CertificateTemplate cached = templateRepository.findTemplatesForOrganizationCAs("Cache Org").get(0);
+            assertEquals("CACHE-ROOT", cached.getCaIssuer().getSerialNumber());
+            assertEquals("cache@example.com", cached.getCreatedBy().getEmail());
+        });
+        assertEquals(statements, statistics.getPrepareStatementCount());
+
+        templateRepository.save(template("cache-template-2"));
+
+        assertEquals(2, templateRepository.findTemplatesForOrganizationCAs("Cache Org").size());
+    }
+}
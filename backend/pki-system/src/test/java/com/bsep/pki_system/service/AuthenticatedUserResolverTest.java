@@ -0,0 +1,159 @@
+package com.bsep.pki_system.service;
+
+import com.bsep.pki_system.jwt.UserPrincipal;
+import com.bsep.pki_system.model.User;
+import com.bsep.pki_system.model.UserRole;
+import com.bsep.pki_system.repository.UserRepository;
+import com.google.common.base.Ticker;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AuthenticatedUserResolverTest {
+
+    private static final long TTL_MS = 30000;
+
+    @Mock
+    private UserRepository userRepository;
+
+    private MutableTicker ticker;
+    private AuthenticatedUserResolver resolver;
+    private User user;
+    private UserPrincipal principal;
+
+    @BeforeEach
+    void setUp() {
+        ticker = new MutableTicker();
+        resolver = new AuthenticatedUserResolver(userRepository, TTL_MS, 100, ticker);
+
+        user = new User();
+        user.setId(1L);
+        user.setEmail("ca@example.com");
+        user.setRole(UserRole.CA);
+        user.setOrganization("Test Org");
+        principal = new UserPrincipal(1L, "ca@example.com", UserRole.CA, "Test Org");
+    }
+
+    @AfterEach
+    void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    void resolve_ShouldLoadOnceAndServeFromCacheWithinTtl() {
+        when(userRepository.findById(1L)).thenReturn(Optional.of(user));
+
+        assertSame(user, resolver.resolve(principal).orElseThrow());
+        ticker.advance(TTL_MS - 1);
+        assertSame(user, resolver.resolve(principal).orElseThrow());
+
+        verify(userRepository, times(1)).findById(1L);
+        verify(userRepository, never()).findByEmail(any());
+    }
+
+    @Test
+    void resolve_AfterTtl_ShouldReload() {
+        when(userRepository.findById(1L)).thenReturn(Optional.of(user));
+
+        resolver.resolve(principal);
+        ticker.advance(TTL_MS);
+        resolver.resolve(principal);
+
+        verify(userRepository, times(2)).findById(1L);
+    }
+
+    @Test
+    void userChangedEvent_ShouldEvictUser() {
+        when(userRepository.findById(1L)).thenReturn(Optional.of(user));
+
+        resolver.resolve(principal);
+        resolver.onUserChanged(new UserChangedEvent(1L));
+        assertEquals(0, resolver.size());
+        resolver.resolve(principal);
+
+        verify(userRepository, times(2)).findById(1L);
+    }
+
+    @Test
+    void resolve_WhenEmailDoesNotMatchToken_ShouldReturnEmptyAndNotCache() {
+        User other = new User();
+        other.setId(1L);
+        other.setEmail("someone-else@example.com");
+        when(userRepository.findById(1L)).thenReturn(Optional.of(other));
+
+        assertTrue(resolver.resolve(principal).isEmpty());
+        assertEquals(0, resolver.size());
+    }
+
+    @Test
+    void resolve_WhenTokenHasNoUserId_ShouldFallBackToEmail() {
+        UserPrincipal legacy = new UserPrincipal(null, "ca@example.com", UserRole.CA);
+        when(userRepository.findByEmail("ca@example.com")).thenReturn(Optional.of(user));
+
+        assertSame(user, resolver.resolve(legacy).orElseThrow());
+        verify(userRepository, never()).findById(any());
+    }
+
+    @Test
+    void resolve_WithinRequest_ShouldBeMemoizedEvenAfterEviction() {
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+        when(userRepository.findById(1L)).thenReturn(Optional.of(user));
+
+        resolver.resolve(principal);
+        resolver.invalidateAll();
+        assertSame(user, resolver.resolve(principal).orElseThrow());
+
+        verify(userRepository, times(1)).findById(1L);
+    }
+
+    @Test
+    void resolvePrincipal_WhenTokenCarriesOrganization_ShouldNotLoadUser() {
+        assertSame(principal, resolver.resolvePrincipal(principal).orElseThrow());
+        verifyNoInteractions(userRepository);
+    }
+
+    @Test
+    void resolvePrincipal_ForLegacyTokenWithoutOrganization_ShouldFillFromUser() {
+        when(userRepository.findById(1L)).thenReturn(Optional.of(user));
+
+        UserPrincipal resolved = resolver.resolvePrincipal(new UserPrincipal(1L, "ca@example.com", UserRole.CA))
+                .orElseThrow();
+
+        assertEquals(1L, resolved.getId());
+        assertEquals(UserRole.CA, resolved.getRole());
+        assertEquals("Test Org", resolved.getOrganization());
+    }
+
+    @Test
+    void resolve_WithoutPrincipal_ShouldReturnEmpty() {
+        assertTrue(resolver.resolve(null).isEmpty());
+        verifyNoInteractions(userRepository);
+    }
+
+    private static class MutableTicker extends Ticker {
+
+        private long nanos;
+
+        void advance(long millis) {
+            nanos += TimeUnit.MILLISECONDS.toNanos(millis);
+        }
+
+        @Override
+        public long read() {
+            return nanos;
+        }
+    }
+}
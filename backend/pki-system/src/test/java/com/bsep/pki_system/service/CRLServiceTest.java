@@ -11,7 +11,6 @@ import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
@@ -36,7 +35,13 @@ class CRLServiceTest {
     @Mock
     private KeystoreService keystoreService;
 
-    @InjectMocks
+    @Mock
+    private CertificateService certificateService;
+
+    @Mock
+    private CertificateDerService certificateDerService;
+
+    // Pravi kes potpisnog konteksta nad mock keystore-om (kljuc CA se otkljucava kroz keystoreService)
     private CRLService crlService;
 
     private Certificate rootCertificate;
@@ -48,6 +53,9 @@ class CRLServiceTest {
 
     @BeforeEach
     void setUp() throws Exception {
+        crlService = new CRLService(certificateRepository, new SigningContextCache(keystoreService, certificateService,
+                certificateDerService));
+
         // Generate real key pair for testing
         KeyPairGenerator keyGen = KeyPairGenerator.getInstance("RSA");
         keyGen.initialize(2048);
@@ -0,0 +1,148 @@
+package com.bsep.pki_system.service;
+
+import com.bsep.pki_system.model.Certificate;
+import com.bsep.pki_system.model.CertificateDer;
+import com.bsep.pki_system.model.CertificateType;
+import com.bsep.pki_system.repository.CertificateDerRepository;
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.cert.jcajce.JcaX509CertificateConverter;
+import org.bouncycastle.cert.jcajce.JcaX509v3CertificateBuilder;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigInteger;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.cert.X509Certificate;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CertificateDerServiceTest {
+
+    @Mock
+    private CertificateDerRepository certificateDerRepository;
+
+    @Mock
+    private KeystoreService keystoreService;
+
+    @Mock
+    private CertificateNameIndexer certificateNameIndexer;
+
+    @InjectMocks
+    private CertificateDerService certificateDerService;
+
+    private Certificate caCertificate;
+    private Certificate endEntityCertificate;
+    private X509Certificate caX509;
+    private X509Certificate endEntityX509;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        KeyPairGenerator keyGen = KeyPairGenerator.getInstance("RSA");
+        keyGen.initialize(2048);
+        KeyPair keys = keyGen.generateKeyPair();
+        caX509 = selfSigned("CN=Root CA", keys, 100L);
+        endEntityX509 = selfSigned("CN=User", keys, 300L);
+
+        caCertificate = createCertificate(1L, "100", CertificateType.ROOT);
+        endEntityCertificate = createCertificate(3L, "300", CertificateType.END_ENTITY);
+    }
+
+    private Certificate createCertificate(Long id, String serial, CertificateType type) {
+        Certificate certificate = new Certificate();
+        certificate.setId(id);
+        certificate.setSerialNumber(serial);
+        certificate.setType(type);
+        certificate.setIsCA(type != CertificateType.END_ENTITY);
+        return certificate;
+    }
+
+    private X509Certificate selfSigned(String subject, KeyPair keys, long serial) throws Exception {
+        Date now = new Date();
+        JcaX509v3CertificateBuilder builder = new JcaX509v3CertificateBuilder(new X500Name(subject),
+                BigInteger.valueOf(serial), now, new Date(now.getTime() + 86400000), new X500Name(subject), keys.getPublic());
+        return new JcaX509CertificateConverter().getCertificate(
+                builder.build(new JcaContentSignerBuilder("SHA256WithRSAEncryption").build(keys.getPrivate())));
+    }
+
+    @Test
+    void getX509_ForCa_ShouldReadDatabaseOnceAndThenUseCache() throws Exception {
+        when(certificateDerRepository.findById(1L)).thenReturn(Optional.of(new CertificateDer(1L, caX509.getEncoded())));
+
+        X509Certificate first = certificateDerService.getX509(caCertificate);
+        X509Certificate second = certificateDerService.getCaX509(1L, "100");
+
+        assertEquals(caX509, first);
+        assertSame(first, second);
+        verify(certificateDerRepository, times(1)).findById(1L);
+        verifyNoInteractions(keystoreService);
+    }
+
+    @Test
+    void getX509_ForEndEntity_ShouldNotBeCached() throws Exception {
+        when(certificateDerRepository.findById(3L))
+                .thenReturn(Optional.of(new CertificateDer(3L, endEntityX509.getEncoded())));
+
+        certificateDerService.getX509(endEntityCertificate);
+        assertArrayEquals(endEntityX509.getEncoded(), certificateDerService.getDer(endEntityCertificate));
+
+        verify(certificateDerRepository, times(2)).findById(3L);
+    }
+
+    @Test
+    void getX509_WhenMissingFromDatabase_ShouldFallBackToKeystoreAndBackfill() throws Exception {
+        when(certificateDerRepository.findById(3L)).thenReturn(Optional.empty());
+        when(keystoreService.getCertificate("EE_300")).thenReturn(endEntityX509);
+
+        assertEquals(endEntityX509, certificateDerService.getX509(endEntityCertificate));
+
+        ArgumentCaptor<CertificateDer> captor = ArgumentCaptor.forClass(CertificateDer.class);
+        verify(certificateDerRepository).save(captor.capture());
+        assertEquals(3L, captor.getValue().getCertificateId());
+        assertArrayEquals(endEntityX509.getEncoded(), captor.getValue().getDer());
+    }
+
+    @Test
+    void save_ForCa_ShouldPersistAndCache() throws Exception {
+        certificateDerService.save(caCertificate, caX509);
+
+        assertSame(caX509, certificateDerService.getX509(caCertificate));
+        verify(certificateDerRepository).save(any(CertificateDer.class));
+        verify(certificateNameIndexer).index(caCertificate, caX509);
+        verify(certificateDerRepository, never()).findById(anyLong());
+    }
+
+    @Test
+    void getX509s_ShouldUseCacheThenOneQueryThenKeystoreForLegacy() throws Exception {
+        Certificate intermediate = createCertificate(2L, "200", CertificateType.INTERMEDIATE);
+        certificateDerService.save(caCertificate, caX509);
+        when(certificateDerRepository.findAllById(Set.of(2L, 3L)))
+                .thenReturn(List.of(new CertificateDer(3L, endEntityX509.getEncoded())));
+        when(keystoreService.getCertificates(List.of("CA_200"))).thenReturn(Map.of("CA_200", caX509));
+
+        Map<Long, X509Certificate> result = certificateDerService.getX509s(
+                List.of(caCertificate, intermediate, endEntityCertificate));
+
+        assertEquals(3, result.size());
+        assertSame(caX509, result.get(1L));
+        assertEquals(endEntityX509, result.get(3L));
+        assertEquals(caX509, result.get(2L));
+        // CA iz save + backfill za legacy CA
+        verify(certificateDerRepository, times(2)).save(any(CertificateDer.class));
+    }
+}
@@ -0,0 +1,96 @@
+package com.bsep.pki_system.service;
+
+import com.bsep.pki_system.repository.CertificateRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CertificateExpirySweeperTest {
+
+    @Mock
+    private CertificateRepository certificateRepository;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private TaskScheduler taskScheduler;
+
+    @InjectMocks
+    private CertificateExpirySweeper sweeper;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(sweeper, "batchSize", 2);
+        ReflectionTestUtils.setField(sweeper, "maxDelayMs", 60000L);
+    }
+
+    @Test
+    void sweep_ShouldMarkExpiredInBatchesAndPublishEventPerBatch() {
+        when(certificateRepository.findExpiredIds(any(Date.class), eq(PageRequest.of(0, 2))))
+                .thenReturn(List.of(1L, 2L))
+                .thenReturn(List.of(3L));
+        when(certificateRepository.markExpired(List.of(1L, 2L))).thenReturn(2);
+        when(certificateRepository.markExpired(List.of(3L))).thenReturn(1);
+
+        int total = sweeper.sweep();
+
+        assertEquals(3, total);
+        ArgumentCaptor<CertificatesExpiredEvent> captor = ArgumentCaptor.forClass(CertificatesExpiredEvent.class);
+        verify(eventPublisher, times(2)).publishEvent(captor.capture());
+        assertEquals(List.of(1L, 2L), captor.getAllValues().get(0).getCertificateIds());
+        assertEquals(List.of(3L), captor.getAllValues().get(1).getCertificateIds());
+    }
+
+    @Test
+    void sweep_WhenNothingExpired_ShouldNotUpdateOrPublish() {
+        when(certificateRepository.findExpiredIds(any(Date.class), any())).thenReturn(Collections.emptyList());
+
+        assertEquals(0, sweeper.sweep());
+        verify(certificateRepository, never()).markExpired(any());
+        verifyNoInteractions(eventPublisher);
+    }
+
+    @Test
+    void nextRunAfter_ShouldUseEarliestExpiryWhenSooner() {
+        Instant now = Instant.now();
+        Date nextExpiry = Date.from(now.plusSeconds(10));
+        when(certificateRepository.findNextExpiry()).thenReturn(nextExpiry);
+
+        assertEquals(nextExpiry.toInstant(), sweeper.nextRunAfter(now));
+    }
+
+    @Test
+    void nextRunAfter_ShouldBeCappedByMaxDelay() {
+        Instant now = Instant.now();
+        when(certificateRepository.findNextExpiry()).thenReturn(Date.from(now.plusSeconds(3600)));
+
+        assertEquals(now.plusMillis(60000), sweeper.nextRunAfter(now));
+    }
+
+    @Test
+    void nextRunAfter_WhenNoValidCertificates_ShouldUseMaxDelay() {
+        Instant now = Instant.now();
+        when(certificateRepository.findNextExpiry()).thenReturn(null);
+
+        assertEquals(now.plusMillis(60000), sweeper.nextRunAfter(now));
+    }
+}
@@ -0,0 +1,121 @@
+package com.bsep.pki_system.service;
+
+import com.bsep.pki_system.dto.CertificateResponseDTO;
+import com.bsep.pki_system.jwt.UserPrincipal;
+import com.bsep.pki_system.model.CertificateExportFormat;
+import com.bsep.pki_system.model.CertificateStatus;
+import com.bsep.pki_system.model.CertificateType;
+import com.bsep.pki_system.model.UserRole;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CertificateExportServiceTest {
+
+    @Mock
+    private CertificateService certificateService;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private CertificateExportService exportService;
+    private UserPrincipal user;
+
+    @BeforeEach
+    void setUp() {
+        exportService = new CertificateExportService(certificateService, objectMapper);
+
+        user = new UserPrincipal(1L, "ca@example.com", UserRole.CA, "Test Org");
+    }
+
+    private CertificateResponseDTO response(Long id, String serialNumber, String subject) {
+        CertificateResponseDTO response = new CertificateResponseDTO();
+        response.setId(id);
+        response.setSerialNumber(serialNumber);
+        response.setSubject(subject);
+        response.setIssuer("CN=Root CA,O=Test Org");
+        response.setType(CertificateType.END_ENTITY);
+        response.setStatus(CertificateStatus.VALID);
+        response.setValidFrom(new Date(0));
+        response.setValidTo(new Date(86400000));
+        response.setIsCA(false);
+        response.setIssuerId(4L);
+        response.setOwnerId(1L);
+        return response;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void streamRows(CertificateResponseDTO... rows) {
+        when(certificateService.streamCertificateChainResponsesForUser(eq(user), any())).thenAnswer(invocation -> {
+            Consumer<CertificateResponseDTO> consumer = invocation.getArgument(1);
+            for (CertificateResponseDTO row : rows) {
+                consumer.accept(row);
+            }
+            return (long) rows.length;
+        });
+    }
+
+    @Test
+    void export_AsCsv_ShouldWriteHeaderAndQuoteSubjectsWithCommas() throws Exception {
+        streamRows(response(10L, "1001", "CN=api.example.com,O=Test Org"),
+                response(11L, "1002", "CN=Say \"hi\""));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        assertEquals(2, exportService.export(user, CertificateExportFormat.CSV, out));
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(3, lines.length);
+        assertTrue(lines[0].startsWith("id,serialNumber,subject,issuer,type,status,validFrom,validTo,isCA,"));
+        assertTrue(lines[1].startsWith("10,1001,\"CN=api.example.com,O=Test Org\",\"CN=Root CA,O=Test Org\","
+                + "END_ENTITY,VALID,1970-01-01T00:00:00Z,1970-01-02T00:00:00Z,false,"));
+        assertTrue(lines[1].endsWith(",4,,1"));
+        assertTrue(lines[2].startsWith("11,1002,\"CN=Say \"\"hi\"\"\","));
+    }
+
+    @Test
+    void export_AsNdjson_ShouldWriteOneJsonObjectPerLine() throws Exception {
+        streamRows(response(10L, "1001", "CN=a"), response(11L, "1002", "CN=b"));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        assertEquals(2, exportService.export(user, CertificateExportFormat.NDJSON, out));
+
+        List<String> lines = out.toString(StandardCharsets.UTF_8).lines().toList();
+        assertEquals(2, lines.size());
+        JsonNode first = objectMapper.readTree(lines.get(0));
+        assertEquals(10L, first.get("id").asLong());
+        assertEquals("1001", first.get("serialNumber").asText());
+        assertEquals("1002", objectMapper.readTree(lines.get(1)).get("serialNumber").asText());
+    }
+
+    @Test
+    void export_WhenClientDisconnects_ShouldRethrowIOException() {
+        streamRows(response(10L, "1001", "CN=a"));
+        OutputStream broken = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("Broken pipe");
+            }
+        };
+
+        // Prvi red staje u bafer; greska se vidi najkasnije pri flush-u
+        IOException e = assertThrows(IOException.class,
+                () -> exportService.export(user, CertificateExportFormat.NDJSON, broken));
+        assertEquals("Broken pipe", e.getMessage());
+    }
+}
@@ -1,29 +1,48 @@
 package com.bsep.pki_system.service;
 
+import com.bsep.pki_system.dto.BatchCsrItemDTO;
+import com.bsep.pki_system.dto.CertificateChainView;
 import com.bsep.pki_system.dto.CreateCertificateDTO;
+import com.bsep.pki_system.dto.KeygenSubjectDTO;
 import com.bsep.pki_system.model.Certificate;
 import com.bsep.pki_system.model.CertificateStatus;
+import com.bsep.pki_system.model.CertificateTemplate;
 import com.bsep.pki_system.model.CertificateType;
+import com.bsep.pki_system.model.KeyAlgorithm;
 import com.bsep.pki_system.model.User;
 import com.bsep.pki_system.model.UserRole;
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
 import org.bouncycastle.pkcs.PKCS10CertificationRequest;
+import org.bouncycastle.pkcs.jcajce.JcaPKCS10CertificationRequestBuilder;
+import org.bouncycastle.util.io.pem.PemObject;
+import org.bouncycastle.util.io.pem.PemReader;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.io.StringReader;
 import java.security.KeyPair;
 import java.security.KeyPairGenerator;
 import java.security.PrivateKey;
 import java.security.PublicKey;
 import java.security.cert.X509Certificate;
+import java.security.interfaces.ECPublicKey;
+import java.util.ArrayList;
 import java.util.Base64;
 import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyMap;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
 
@@ -36,7 +55,16 @@ class CertificateGeneratorServiceTest {
     @Mock
     private CertificateService certificateService;
 
-    @InjectMocks
+    @Mock
+    private CertificateDerService certificateDerService;
+
+    // Pool koji nije pokrenut - svaki zahtev sinhrono generise par kljuceva
+    @Spy
+    private KeyPairPool keyPairPool;
+
+    // Pravi kes potpisnog konteksta nad mock keystore-om i servisom
+    private SigningContextCache signingContextCache;
+
     private CertificateGeneratorService certificateGeneratorService;
 
     private User testUser;
@@ -49,6 +77,10 @@ class CertificateGeneratorServiceTest {
 
     @BeforeEach
     void setUp() throws Exception {
+        signingContextCache = new SigningContextCache(keystoreService, certificateService, certificateDerService);
+        certificateGeneratorService = new CertificateGeneratorService(keystoreService, certificateService,
+                keyPairPool, signingContextCache, certificateDerService);
+
         // Setup test users
         testUser = new User();
         testUser.setId(1L);
@@ -137,6 +169,7 @@ class CertificateGeneratorServiceTest {
         assertFalse(result.getSerialNumber().isEmpty());
         verify(certificateService, times(1)).saveCertificate(any(Certificate.class));
         verify(keystoreService, times(1)).savePrivateKey(anyString(), any(PrivateKey.class), any(X509Certificate.class), anyString());
+        verify(certificateDerService, times(1)).save(any(Certificate.class), any(X509Certificate.class));
     }
 
     @Test
@@ -163,7 +196,13 @@ class CertificateGeneratorServiceTest {
         when(keystoreService.getPrivateKey("CA_ROOT-123", "ROOT-123"))
                 .thenReturn(testKeyPair.getPrivate());
         doNothing().when(keystoreService).savePrivateKeyWithChain(anyString(), any(PrivateKey.class), any(), anyString());
-        when(keystoreService.getCertificate("CA_ROOT-123")).thenReturn(mock(X509Certificate.class));
+        when(certificateDerService.getCaX509(1L, "ROOT-123")).thenReturn(mock(X509Certificate.class));
+
+        // Lanac izdavaoca dolazi iz rekurzivnog upita
+        CertificateChainView rootView = mock(CertificateChainView.class);
+        when(rootView.getId()).thenReturn(1L);
+        when(rootView.getSerialNumber()).thenReturn("ROOT-123");
+        when(certificateService.findAncestorChain(rootCertificate.getId())).thenReturn(List.of(rootView));
 
         // Mock certificate service
         when(certificateService.saveCertificate(any(Certificate.class))).thenAnswer(invocation ->
@@ -254,6 +293,250 @@ class CertificateGeneratorServiceTest {
         assertDoesNotThrow(() -> Base64.getDecoder().decode(result.getPublicKey()));
     }
 
+    @Test
+    void generateRootCertificate_WithEcP384_ShouldSignWithEcdsa() throws Exception {
+        createCertDTO.setKeyAlgorithm(KeyAlgorithm.EC_P384);
+        when(certificateService.saveCertificate(any(Certificate.class))).thenAnswer(invocation ->
+                invocation.getArgument(0)
+        );
+
+        Certificate result = certificateGeneratorService.generateRootCertificate(createCertDTO, adminUser);
+
+        ArgumentCaptor<X509Certificate> captor = ArgumentCaptor.forClass(X509Certificate.class);
+        verify(keystoreService).savePrivateKey(anyString(), any(PrivateKey.class), captor.capture(), anyString());
+        X509Certificate x509 = captor.getValue();
+        assertEquals("SHA384WITHECDSA", x509.getSigAlgName().toUpperCase());
+        PublicKey publicKey = KeyAlgorithm.decodePublicKey(result.getPublicKey());
+        assertInstanceOf(ECPublicKey.class, publicKey);
+        assertDoesNotThrow(() -> x509.verify(publicKey));
+    }
+
+    @Test
+    void generateIntermediateCertificate_WithEd25519Issuer_ShouldSignWithIssuerAlgorithm() throws Exception {
+        KeyPair issuerKeys = KeyAlgorithm.ED25519.generateKeyPair();
+        rootCertificate.setPublicKey(Base64.getEncoder().encodeToString(issuerKeys.getPublic().getEncoded()));
+        createCertDTO.setKeyAlgorithm(KeyAlgorithm.EC_P256);
+        when(keystoreService.getPrivateKey("CA_ROOT-123", "ROOT-123")).thenReturn(issuerKeys.getPrivate());
+        when(certificateDerService.getCaX509(1L, "ROOT-123")).thenReturn(mock(X509Certificate.class));
+        CertificateChainView rootView = mock(CertificateChainView.class);
+        when(rootView.getId()).thenReturn(1L);
+        when(rootView.getSerialNumber()).thenReturn("ROOT-123");
+        when(certificateService.findAncestorChain(rootCertificate.getId())).thenReturn(List.of(rootView));
+        when(certificateService.saveCertificate(any(Certificate.class))).thenAnswer(invocation ->
+                invocation.getArgument(0)
+        );
+
+        Certificate result = certificateGeneratorService.generateIntermediateCertificate(
+                createCertDTO, adminUser, rootCertificate);
+
+        ArgumentCaptor<java.security.cert.Certificate[]> captor = ArgumentCaptor.forClass(java.security.cert.Certificate[].class);
+        verify(keystoreService).savePrivateKeyWithChain(anyString(), any(PrivateKey.class), captor.capture(), anyString());
+        X509Certificate x509 = (X509Certificate) captor.getValue()[0];
+        assertEquals("Ed25519", x509.getSigAlgName());
+        assertDoesNotThrow(() -> x509.verify(issuerKeys.getPublic()));
+        assertInstanceOf(ECPublicKey.class, KeyAlgorithm.decodePublicKey(result.getPublicKey()));
+    }
+
+    @Test
+    void generateEECertificateFromCsr_WithEcKey_ShouldUseSignatureOnlyKeyUsage() throws Exception {
+        KeyPair issuerKeys = KeyAlgorithm.EC_P256.generateKeyPair();
+        rootCertificate.setPublicKey(Base64.getEncoder().encodeToString(issuerKeys.getPublic().getEncoded()));
+        when(keystoreService.getPrivateKey("CA_ROOT-123", "ROOT-123")).thenReturn(issuerKeys.getPrivate());
+        when(certificateService.saveEndEntityCertificate(any(Certificate.class), any(X509Certificate.class)))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+
+        String csrPem = csrPem(KeyAlgorithm.EC_P256.generateKeyPair(), "CN=ec.example.com,O=Test Org", "SHA256withECDSA");
+
+        Certificate result = certificateGeneratorService.generateEECertificateFromCsr(csrPem,
+                createCertDTO.getValidFrom(), createCertDTO.getValidTo(), rootCertificate, testUser);
+
+        assertEquals("digitalSignature", result.getKeyUsage());
+        ArgumentCaptor<X509Certificate> captor = ArgumentCaptor.forClass(X509Certificate.class);
+        verify(keystoreService).saveTrustedCertificate(anyString(), captor.capture());
+        assertEquals("SHA256WITHECDSA", captor.getValue().getSigAlgName().toUpperCase());
+        assertDoesNotThrow(() -> captor.getValue().verify(issuerKeys.getPublic()));
+    }
+
+    private String csrPem(KeyPair keys, String subject, String signatureAlgorithm) throws Exception {
+        PKCS10CertificationRequest csr = new JcaPKCS10CertificationRequestBuilder(new X500Name(subject), keys.getPublic())
+                .build(new JcaContentSignerBuilder(signatureAlgorithm).build(keys.getPrivate()));
+        return "-----BEGIN CERTIFICATE REQUEST-----\n"
+                + Base64.getMimeEncoder().encodeToString(csr.getEncoded())
+                + "\n-----END CERTIFICATE REQUEST-----";
+    }
+
+    @Test
+    void generateEECertificatesFromCsrs_ShouldUnlockIssuerOnceAndWriteKeystoreOnce() throws Exception {
+        when(keystoreService.getPrivateKey("CA_ROOT-123", "ROOT-123")).thenReturn(testKeyPair.getPrivate());
+        when(certificateService.saveEndEntityCertificates(anyList(), anyList())).thenAnswer(invocation -> {
+            List<Certificate> certificates = invocation.getArgument(0);
+            for (int i = 0; i < certificates.size(); i++) {
+                certificates.get(i).setId(100L + i);
+            }
+            return certificates;
+        });
+
+        List<String> csrs = List.of(
+                csrPem(KeyAlgorithm.EC_P256.generateKeyPair(), "CN=device-1,O=Test Org", "SHA256withECDSA"),
+                "invalid csr",
+                csrPem(testKeyPair, "CN=device-2,O=Test Org", "SHA256WithRSAEncryption"));
+
+        List<BatchCsrItemDTO> results = certificateGeneratorService.generateEECertificatesFromCsrs(csrs,
+                createCertDTO.getValidFrom(), createCertDTO.getValidTo(), rootCertificate, testUser);
+
+        assertEquals(3, results.size());
+        assertEquals(100L, results.get(0).getCertificateId());
+        assertEquals("CN=device-1,O=Test Org", results.get(0).getSubject());
+        assertNull(results.get(0).getError());
+        assertNotNull(results.get(1).getError());
+        assertNull(results.get(1).getCertificateId());
+        assertEquals(101L, results.get(2).getCertificateId());
+        assertEquals(2, results.get(2).getIndex());
+
+        verify(keystoreService, times(1)).getPrivateKey(anyString(), anyString());
+        verify(certificateService, times(1)).saveEndEntityCertificates(anyList(), anyList());
+        ArgumentCaptor<Map<String, java.security.cert.Certificate>> captor = ArgumentCaptor.forClass(Map.class);
+        verify(keystoreService, times(1)).saveTrustedCertificates(captor.capture());
+        assertEquals(2, captor.getValue().size());
+        verify(keystoreService, never()).saveTrustedCertificate(anyString(), any());
+    }
+
+    @Test
+    void generateEECertificatesFromPemObjects_ShouldOffsetIndexesAndRejectNonCsrObjects() throws Exception {
+        when(keystoreService.getPrivateKey("CA_ROOT-123", "ROOT-123")).thenReturn(testKeyPair.getPrivate());
+        when(certificateService.saveEndEntityCertificates(anyList(), anyList())).thenAnswer(invocation -> {
+            List<Certificate> certificates = invocation.getArgument(0);
+            certificates.forEach(certificate -> certificate.setId(7L));
+            return certificates;
+        });
+
+        // Bundle sa CRLF prelomima, kakav stize iz Windows alata
+        String bundle = (csrPem(testKeyPair, "CN=device-1,O=Test Org", "SHA256WithRSAEncryption") + "\n"
+                + "-----BEGIN CERTIFICATE-----\nAAAA\n-----END CERTIFICATE-----\n").replace("\n", "\r\n");
+        List<PemObject> objects = new ArrayList<>();
+        try (PemReader reader = new PemReader(new StringReader(bundle))) {
+            PemObject pemObject;
+            while ((pemObject = reader.readPemObject()) != null) {
+                objects.add(pemObject);
+            }
+        }
+
+        List<BatchCsrItemDTO> results = certificateGeneratorService.generateEECertificatesFromPemObjects(objects, 500,
+                createCertDTO.getValidFrom(), createCertDTO.getValidTo(), rootCertificate, testUser, null);
+
+        assertEquals(2, results.size());
+        assertEquals(500, results.get(0).getIndex());
+        assertEquals(7L, results.get(0).getCertificateId());
+        assertEquals(501, results.get(1).getIndex());
+        assertTrue(results.get(1).getError().startsWith("Invalid PEM type"));
+    }
+
+    @Test
+    void parseCsr_WithCrLfLineEndings_ShouldParse() throws Exception {
+        String csrPem = csrPem(testKeyPair, "CN=windows,O=Test Org", "SHA256WithRSAEncryption").replace("\n", "\r\n");
+
+        assertEquals(new X500Name("CN=windows,O=Test Org"), certificateGeneratorService.parseCsr(csrPem).getSubject());
+    }
+
+    @Test
+    void generateEECertificateFromCsr_ShouldReuseCachedIssuerSigningContext() throws Exception {
+        when(keystoreService.getPrivateKey("CA_ROOT-123", "ROOT-123")).thenReturn(testKeyPair.getPrivate());
+        when(certificateService.saveEndEntityCertificate(any(Certificate.class), any(X509Certificate.class)))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+
+        for (int i = 0; i < 3; i++) {
+            String csrPem = csrPem(KeyAlgorithm.EC_P256.generateKeyPair(), "CN=device-" + i + ",O=Test Org", "SHA256withECDSA");
+            certificateGeneratorService.generateEECertificateFromCsr(csrPem,
+                    createCertDTO.getValidFrom(), createCertDTO.getValidTo(), rootCertificate, testUser);
+        }
+
+        // Kljuc izdavaoca se otkljucava samo za prvi sertifikat
+        verify(keystoreService, times(1)).getPrivateKey(anyString(), anyString());
+        ArgumentCaptor<X509Certificate> captor = ArgumentCaptor.forClass(X509Certificate.class);
+        verify(keystoreService, times(3)).saveTrustedCertificate(anyString(), captor.capture());
+        for (X509Certificate x509 : captor.getAllValues()) {
+            assertDoesNotThrow(() -> x509.verify(testKeyPair.getPublic()));
+        }
+    }
+
+    @Test
+    void generateEECertificateFromCsr_WithTemplate_ShouldApplyTemplateExtensions() throws Exception {
+        when(keystoreService.getPrivateKey("CA_ROOT-123", "ROOT-123")).thenReturn(testKeyPair.getPrivate());
+        when(certificateService.saveEndEntityCertificate(any(Certificate.class), any(X509Certificate.class)))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+
+        String cnRegex = "^[a-zA-Z0-9-]+\\.bsep\\.com$";
+        CertificateTemplate template = new CertificateTemplate();
+        template.setName("Web server");
+        template.setCaIssuer(rootCertificate);
+        template.setCommonNameRegex(cnRegex);
+        template.setKeyUsage(List.of(true, false, false, false, false, false, false, false, false));
+        template.setExtendedKeyUsage("serverAuth");
+        template.setBasicConstraints("CA:FALSE");
+        CompiledTemplate compiled = CompiledTemplate.compile(template, Map.of(cnRegex, Pattern.compile(cnRegex)));
+
+        String csrPem = csrPem(testKeyPair, "CN=api.bsep.com,O=Test Org", "SHA256WithRSAEncryption");
+        Certificate result = certificateGeneratorService.generateEECertificateFromCsr(csrPem,
+                createCertDTO.getValidFrom(), createCertDTO.getValidTo(), rootCertificate, testUser, compiled);
+
+        assertEquals("digitalSignature", result.getKeyUsage());
+        assertEquals("serverAuth", result.getExtendedKeyUsage());
+        ArgumentCaptor<X509Certificate> captor = ArgumentCaptor.forClass(X509Certificate.class);
+        verify(keystoreService).saveTrustedCertificate(anyString(), captor.capture());
+        assertEquals(List.of("1.3.6.1.5.5.7.3.1"), captor.getValue().getExtendedKeyUsage());
+        assertFalse(captor.getValue().getKeyUsage()[2]);
+
+        String otherCsr = csrPem(testKeyPair, "CN=api.example.com,O=Test Org", "SHA256WithRSAEncryption");
+        assertThrows(IllegalArgumentException.class, () -> certificateGeneratorService.generateEECertificateFromCsr(
+                otherCsr, createCertDTO.getValidFrom(), createCertDTO.getValidTo(), rootCertificate, testUser, compiled));
+    }
+
+    @Test
+    void generateEECertificatesWithKeys_ShouldGenerateEcKeysOnTheFlyAndApplyTemplate() throws Exception {
+        when(keystoreService.getPrivateKey("CA_ROOT-123", "ROOT-123")).thenReturn(testKeyPair.getPrivate());
+        when(certificateService.saveEndEntityCertificates(anyList(), anyList())).thenAnswer(invocation -> {
+            List<Certificate> certificates = invocation.getArgument(0);
+            certificates.forEach(certificate -> certificate.setId(9L));
+            return certificates;
+        });
+
+        String cnRegex = "^[a-zA-Z0-9-]+\\.bsep\\.com$";
+        CertificateTemplate template = new CertificateTemplate();
+        template.setName("IoT device");
+        template.setCaIssuer(rootCertificate);
+        template.setCommonNameRegex(cnRegex);
+        template.setKeyAlgorithm(KeyAlgorithm.EC_P256);
+        template.setBasicConstraints("CA:FALSE");
+        CompiledTemplate compiled = CompiledTemplate.compile(template, Map.of(cnRegex, Pattern.compile(cnRegex)));
+
+        List<KeygenSubjectDTO> subjects = List.of(
+                new KeygenSubjectDTO("sensor-1.bsep.com", "Test Org", null, "RS", null,
+                        List.of("sensor-1.bsep.com", "10.0.0.7"), null),
+                new KeygenSubjectDTO("sensor.example.com", "Test Org", null, "RS", null, null, null));
+
+        List<GeneratedKeyCertificate> results = certificateGeneratorService.generateEECertificatesWithKeys(subjects, 100,
+                createCertDTO.getValidFrom(), createCertDTO.getValidTo(), rootCertificate, testUser, compiled);
+
+        assertEquals(2, results.size());
+        GeneratedKeyCertificate issued = results.get(0);
+        assertNull(issued.error());
+        assertEquals(100, issued.index());
+        assertEquals(9L, issued.certificate().getId());
+        assertEquals(new X500Name("CN=sensor-1.bsep.com,O=Test Org,C=RS"),
+                X500Name.getInstance(issued.x509().getSubjectX500Principal().getEncoded()));
+        assertEquals(2, issued.x509().getSubjectAlternativeNames().size());
+        assertInstanceOf(ECPublicKey.class, issued.x509().getPublicKey());
+        assertEquals(issued.x509().getPublicKey().getAlgorithm(), issued.privateKey().getAlgorithm());
+        assertDoesNotThrow(() -> issued.x509().verify(testKeyPair.getPublic()));
+        assertEquals(101, results.get(1).index());
+        assertNotNull(results.get(1).error());
+
+        // EC kljuc se generise odmah (ne iz pool-a); u keystore ide samo sertifikat
+        verify(keyPairPool, never()).acquire(any());
+        verify(keystoreService, times(1)).saveTrustedCertificates(anyMap());
+        verify(keystoreService, never()).savePrivateKey(anyString(), any(), any(), anyString());
+    }
+
     // ===== SERIAL NUMBER GENERATION TESTS =====
 
     @Test
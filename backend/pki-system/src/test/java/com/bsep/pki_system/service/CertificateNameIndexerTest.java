@@ -0,0 +1,154 @@
+package com.bsep.pki_system.service;
+
+import com.bsep.pki_system.model.Certificate;
+import com.bsep.pki_system.model.CertificateName;
+import com.bsep.pki_system.model.CertificateNameType;
+import com.bsep.pki_system.model.CertificateType;
+import com.bsep.pki_system.repository.CertificateNameRepository;
+import com.bsep.pki_system.repository.CertificateRepository;
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.asn1.x509.Extension;
+import org.bouncycastle.asn1.x509.GeneralName;
+import org.bouncycastle.asn1.x509.GeneralNames;
+import org.bouncycastle.cert.jcajce.JcaX509CertificateConverter;
+import org.bouncycastle.cert.jcajce.JcaX509v3CertificateBuilder;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.TaskScheduler;
+
+import java.math.BigInteger;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.cert.X509Certificate;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CertificateNameIndexerTest {
+
+    @Mock
+    private CertificateNameRepository certificateNameRepository;
+
+    @Mock
+    private CertificateRepository certificateRepository;
+
+    @Mock
+    private CertificateDerService certificateDerService;
+
+    @Mock
+    private TaskScheduler taskScheduler;
+
+    private CertificateNameIndexer indexer;
+    private KeyPair keys;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        indexer = new CertificateNameIndexer(certificateNameRepository, certificateRepository, certificateDerService,
+                taskScheduler);
+
+        KeyPairGenerator keyGen = KeyPairGenerator.getInstance("RSA");
+        keyGen.initialize(2048);
+        keys = keyGen.generateKeyPair();
+    }
+
+    private X509Certificate certificate(String subject, GeneralNames sans) throws Exception {
+        Date now = new Date();
+        JcaX509v3CertificateBuilder builder = new JcaX509v3CertificateBuilder(new X500Name(subject),
+                BigInteger.valueOf(300), now, new Date(now.getTime() + 86400000), new X500Name(subject), keys.getPublic());
+        if (sans != null) {
+            builder.addExtension(Extension.subjectAlternativeName, false, sans);
+        }
+        return new JcaX509CertificateConverter().getCertificate(
+                builder.build(new JcaContentSignerBuilder("SHA256WithRSAEncryption").build(keys.getPrivate())));
+    }
+
+    private Certificate createCertificate(Long id, String serial, String subject) {
+        Certificate certificate = new Certificate();
+        certificate.setId(id);
+        certificate.setSerialNumber(serial);
+        certificate.setSubject(subject);
+        certificate.setType(CertificateType.END_ENTITY);
+        certificate.setIsCA(false);
+        return certificate;
+    }
+
+    private static List<String> describe(List<CertificateName> names) {
+        return names.stream().map(name -> name.getType() + "=" + name.getValue()).toList();
+    }
+
+    @Test
+    void extractNames_ShouldNormalizeSubjectComponentsAndSans() throws Exception {
+        GeneralNames sans = new GeneralNames(new GeneralName[]{
+                new GeneralName(GeneralName.dNSName, "API.Example.com."),
+                new GeneralName(GeneralName.dNSName, "*.example.com"),
+                new GeneralName(GeneralName.iPAddress, "2001:db8:0:0:0:0:0:1"),
+                new GeneralName(GeneralName.rfc822Name, "Admin@Example.com"),
+                new GeneralName(GeneralName.uniformResourceIdentifier, "https://example.com/app")
+        });
+        X509Certificate x509 = certificate(
+                "CN=API.example.com,OU=Platform,O=Example Org,E=admin@example.com", sans);
+
+        List<CertificateName> names = CertificateNameIndexer.extractNames(createCertificate(3L, "300", null), x509);
+
+        assertEquals(List.of(
+                "SERIAL=300",
+                "COMMON_NAME=api.example.com",
+                "ORGANIZATIONAL_UNIT=platform",
+                "ORGANIZATION=example org",
+                "EMAIL=admin@example.com",
+                "DNS=api.example.com",
+                "DNS=*.example.com",
+                "IP=2001:db8::1",
+                "URI=https://example.com/app"), describe(names));
+        assertTrue(names.stream().allMatch(name -> name.getCertificateId().equals(3L)));
+    }
+
+    @Test
+    void extractNames_WithoutSans_ShouldIndexSubjectAndSerial() throws Exception {
+        List<CertificateName> names = CertificateNameIndexer.extractNames(createCertificate(1L, "100", null),
+                certificate("CN=Root CA,O=Test Org", null));
+
+        assertEquals(List.of("SERIAL=100", "COMMON_NAME=root ca", "ORGANIZATION=test org"), describe(names));
+    }
+
+    @Test
+    void normalize_ShouldMatchIndexedForm() {
+        assertEquals("api.example.com", CertificateNameIndexer.normalize(CertificateNameType.DNS, " API.example.COM. "));
+        assertEquals("10.0.0.1", CertificateNameIndexer.normalize(null, "10.0.0.1"));
+        assertEquals("2001:db8::1", CertificateNameIndexer.normalize(CertificateNameType.IP, "2001:DB8:0:0:0:0:0:1"));
+        assertNull(CertificateNameIndexer.normalize(null, "   "));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void backfill_ShouldIndexFromDerAndFallBackToStoredSubject() throws Exception {
+        Certificate withDer = createCertificate(1L, "100", "CN=Root CA,O=Test Org");
+        Certificate withoutDer = createCertificate(2L, "200", "CN=Legacy,O=Test Org");
+        X509Certificate x509 = certificate("CN=Root CA,O=Test Org",
+                new GeneralNames(new GeneralName(GeneralName.dNSName, "ca.example.com")));
+        when(certificateRepository.findIdsWithoutNames(any(Pageable.class))).thenReturn(List.of(1L, 2L));
+        when(certificateRepository.findAllById(List.of(1L, 2L))).thenReturn(List.of(withDer, withoutDer));
+        when(certificateDerService.getX509s(List.of(withDer, withoutDer))).thenReturn(Map.of(1L, x509));
+
+        assertEquals(2, indexer.backfill());
+
+        ArgumentCaptor<List<CertificateName>> captor = ArgumentCaptor.forClass(List.class);
+        verify(certificateNameRepository).saveAll(captor.capture());
+        assertEquals(List.of(
+                "SERIAL=100", "COMMON_NAME=root ca", "ORGANIZATION=test org", "DNS=ca.example.com",
+                "SERIAL=200", "COMMON_NAME=legacy", "ORGANIZATION=test org"), describe(captor.getValue()));
+        // Manje od punog paketa - nema sledeceg upita
+        verify(certificateRepository, times(1)).findIdsWithoutNames(any(Pageable.class));
+    }
+}
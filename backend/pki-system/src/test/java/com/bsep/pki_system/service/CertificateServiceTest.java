@@ -1,7 +1,20 @@
 package com.bsep.pki_system.service;
 
+import com.bsep.pki_system.dto.BatchCsrItemDTO;
+import com.bsep.pki_system.dto.CertificateChainView;
+import com.bsep.pki_system.dto.CertificateListFilter;
+import com.bsep.pki_system.dto.CertificateListItemDTO;
+import com.bsep.pki_system.dto.CertificatePageDTO;
+import com.bsep.pki_system.dto.CertificateResponseDTO;
+import com.bsep.pki_system.dto.CertificateSearchQuery;
+import com.bsep.pki_system.dto.CertificateValidityDTO;
 import com.bsep.pki_system.dto.CreateCertificateDTO;
+import com.bsep.pki_system.dto.RevocationSummaryDTO;
+import com.bsep.pki_system.jwt.UserPrincipal;
 import com.bsep.pki_system.model.Certificate;
+import com.bsep.pki_system.model.CertificateListSort;
+import com.bsep.pki_system.model.CertificateNameType;
+import com.bsep.pki_system.model.CertificateSearchMatch;
 import com.bsep.pki_system.model.CertificateStatus;
 import com.bsep.pki_system.model.CertificateType;
 import com.bsep.pki_system.model.User;
@@ -13,11 +26,19 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 
+import java.io.StringReader;
+import java.time.Duration;
 import java.util.*;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -35,6 +56,18 @@ class CertificateServiceTest {
     @Mock
     private CRLService crlService;
 
+    @Mock
+    private CertificateValidityService certificateValidityService;
+
+    @Mock
+    private PkixValidationService pkixValidationService;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private CertificateDerService certificateDerService;
+
     @InjectMocks
     private CertificateService certificateService;
 
@@ -267,13 +300,119 @@ class CertificateServiceTest {
         verify(certificateRepository, never()).save(any());
     }
 
+    @Test
+    void revokeSubtree_ShouldRevokeDescendantsAndRegenerateEachIssuerCrlOnce() throws Exception {
+        CertificateChainView intermediateView = chainView(5L, 4L, CertificateStatus.VALID);
+        CertificateChainView ee1View = chainView(10L, 5L, CertificateStatus.VALID);
+        CertificateChainView ee2View = chainView(11L, 5L, CertificateStatus.VALID);
+        CertificateChainView revokedView = chainView(12L, 5L, CertificateStatus.REVOKED);
+        when(certificateRepository.findSubtree(5L)).thenReturn(List.of(intermediateView, ee1View, ee2View, revokedView));
+        when(certificateRepository.revokeAllByIdIn(eq(List.of(5L, 10L, 11L)), eq("cACompromise"), any()))
+                .thenReturn(3);
+        when(certificateRepository.findAllById(Set.of(4L, 5L)))
+                .thenReturn(List.of(rootCertificate, intermediateCertificate));
+
+        RevocationSummaryDTO summary = certificateService.revokeSubtree(5L, "cACompromise");
+
+        assertEquals(3, summary.getRevokedCount());
+        assertEquals(1, summary.getAlreadyRevokedCount());
+        assertEquals(List.of("ROOT-123", "INTERMEDIATE-123"), summary.getRegeneratedCrlIssuers());
+        verify(crlService, times(1)).regenerateCRL(rootCertificate);
+        verify(crlService, times(1)).regenerateCRL(intermediateCertificate);
+    }
+
+    @Test
+    void revokeSubtree_WhenCertificateNotExists_ShouldThrowException() {
+        when(certificateRepository.findSubtree(999L)).thenReturn(Collections.emptyList());
+
+        assertThrows(IllegalArgumentException.class, () -> certificateService.revokeSubtree(999L, "superseded"));
+        verify(certificateRepository, never()).revokeAllByIdIn(any(), any(), any());
+    }
+
+    @Test
+    void revokeCertificates_ShouldGroupByIssuerAndRegenerateEachCrlOnce() throws Exception {
+        Certificate secondEE = new Certificate();
+        secondEE.setId(7L);
+        secondEE.setStatus(CertificateStatus.VALID);
+        secondEE.setIssuerCertificate(intermediateCertificate);
+        validCertificate.setIssuerCertificate(intermediateCertificate);
+        revokedCertificate.setIssuerCertificate(intermediateCertificate);
+        when(certificateRepository.revokeAllByIdIn(eq(List.of(1L, 7L)), eq("keyCompromise"), any())).thenReturn(2);
+        when(certificateRepository.findAllById(Set.of(5L))).thenReturn(List.of(intermediateCertificate));
+
+        RevocationSummaryDTO summary = certificateService.revokeCertificates(
+                List.of(validCertificate, secondEE, revokedCertificate), "keyCompromise");
+
+        assertEquals(2, summary.getRevokedCount());
+        assertEquals(1, summary.getAlreadyRevokedCount());
+        assertEquals(List.of("INTERMEDIATE-123"), summary.getRegeneratedCrlIssuers());
+        verify(certificateRepository, times(1)).revokeAllByIdIn(any(), any(), any());
+        verify(crlService, times(1)).regenerateCRL(intermediateCertificate);
+    }
+
+    @Test
+    void streamCertificateChainResponsesForUser_ForCa_ShouldKeepOrganizationChainWithoutLoadingAll() {
+        CertificateChainView root = caView(10L, null, "CN=Root,O=Other Org");
+        CertificateChainView orgIntermediate = caView(11L, 10L, "CN=Int,O=CA Org");
+        CertificateChainView subIntermediate = caView(12L, 11L, "CN=Sub,O=Other Org");
+        CertificateChainView foreignIntermediate = caView(13L, 10L, "CN=Foreign,O=Other Org");
+        when(certificateRepository.findCaChainViews())
+                .thenReturn(List.of(root, orgIntermediate, subIntermediate, foreignIntermediate));
+        when(certificateRepository.streamAllResponses()).thenReturn(Stream.of(
+                response(10L, "CN=Root,O=Other Org", null),
+                response(11L, "CN=Int,O=CA Org", 10L),
+                response(12L, "CN=Sub,O=Other Org", 11L),
+                response(13L, "CN=Foreign,O=Other Org", 10L),
+                response(20L, "CN=EE under org,O=Other Org", 12L),
+                response(21L, "CN=EE of org,O=CA Org", 13L),
+                response(22L, "CN=Foreign EE,O=Other Org", 13L)));
+
+        List<Long> exported = new ArrayList<>();
+        long count = certificateService.streamCertificateChainResponsesForUser(UserPrincipal.from(caUser),
+                response -> exported.add(response.getId()));
+
+        assertEquals(List.of(11L, 12L, 20L, 21L), exported);
+        assertEquals(4, count);
+        verify(certificateRepository, never()).findAll();
+    }
+
+    @Test
+    void streamCertificateChainResponsesForUser_ForBasic_ShouldStreamOnlyOwnCertificates() {
+        when(certificateRepository.streamResponsesByOwnerId(1L))
+                .thenReturn(Stream.of(response(1L, "CN=Test User,O=Test Org", 5L)));
+
+        List<Long> exported = new ArrayList<>();
+        assertEquals(1, certificateService.streamCertificateChainResponsesForUser(UserPrincipal.from(testUser),
+                response -> exported.add(response.getId())));
+
+        assertEquals(List.of(1L), exported);
+        verify(certificateRepository, never()).streamAllResponses();
+        verify(certificateRepository, never()).findCaChainViews();
+    }
+
+    private CertificateChainView caView(Long id, Long issuerId, String subject) {
+        CertificateChainView view = mock(CertificateChainView.class);
+        lenient().when(view.getId()).thenReturn(id);
+        lenient().when(view.getIssuerCertificateId()).thenReturn(issuerId);
+        lenient().when(view.getSubject()).thenReturn(subject);
+        return view;
+    }
+
+    private CertificateChainView chainView(Long id, Long issuerId, CertificateStatus status) {
+        CertificateChainView view = mock(CertificateChainView.class);
+        lenient().when(view.getId()).thenReturn(id);
+        lenient().when(view.getIssuerCertificateId()).thenReturn(issuerId);
+        lenient().when(view.getStatus()).thenReturn(status);
+        return view;
+    }
+
     // ===== AUTHORIZATION TESTS =====
 
     @Test
     void canUserAccessCertificate_WhenAdminUser_ShouldReturnTrue() {
         when(certificateRepository.findById(1L)).thenReturn(Optional.of(validCertificate));
 
-        boolean result = certificateService.canUserAccessCertificate(1L, adminUser);
+        boolean result = certificateService.canUserAccessCertificate(1L, UserPrincipal.from(adminUser));
 
         assertTrue(result);
     }
@@ -282,7 +421,7 @@ class CertificateServiceTest {
     void canUserAccessCertificate_WhenBasicUserOwnsCertificate_ShouldReturnTrue() {
         when(certificateRepository.findById(1L)).thenReturn(Optional.of(validCertificate));
 
-        boolean result = certificateService.canUserAccessCertificate(1L, testUser);
+        boolean result = certificateService.canUserAccessCertificate(1L, UserPrincipal.from(testUser));
 
         assertTrue(result);
     }
@@ -295,7 +434,7 @@ class CertificateServiceTest {
 
         when(certificateRepository.findById(1L)).thenReturn(Optional.of(validCertificate));
 
-        boolean result = certificateService.canUserAccessCertificate(1L, otherUser);
+        boolean result = certificateService.canUserAccessCertificate(1L, UserPrincipal.from(otherUser));
 
         assertFalse(result);
     }
@@ -309,7 +448,7 @@ class CertificateServiceTest {
 
         when(certificateRepository.findById(6L)).thenReturn(Optional.of(certInSameOrg));
 
-        boolean result = certificateService.canUserAccessCertificate(6L, caUser);
+        boolean result = certificateService.canUserAccessCertificate(6L, UserPrincipal.from(caUser));
 
         assertTrue(result);
     }
@@ -438,13 +577,43 @@ class CertificateServiceTest {
         when(certificateRepository.findValidIssuers(eq(CertificateStatus.VALID), any(Date.class)))
                 .thenReturn(validIssuers);
 
-        List<Certificate> result = certificateService.findValidIssuersForUser(adminUser);
+        List<Certificate> result = certificateService.findValidIssuersForUser(UserPrincipal.from(adminUser));
 
         assertNotNull(result);
         // Može biti manje od 2 zbog dodatnih filtera u servisu
         verify(certificateRepository, times(1)).findValidIssuers(eq(CertificateStatus.VALID), any(Date.class));
     }
 
+    @Test
+    void findValidIssuersForUser_ShouldKeepOnlyIssuersWithValidChain() {
+        List<Certificate> validIssuers = Arrays.asList(rootCertificate, intermediateCertificate);
+        when(certificateRepository.findValidIssuers(eq(CertificateStatus.VALID), any(Date.class)))
+                .thenReturn(validIssuers);
+        when(certificateValidityService.validate(eq(validIssuers), any(Duration.class))).thenReturn(Map.of(
+                4L, new CertificateValidityDTO(4L, "ROOT-123", CertificateStatus.VALID, true, null),
+                5L, new CertificateValidityDTO(5L, "INTERMEDIATE-123", CertificateStatus.VALID, false, "ISSUER_REVOKED")));
+
+        List<Certificate> result = certificateService.findValidIssuersForUser(UserPrincipal.from(adminUser));
+
+        assertEquals(List.of(rootCertificate), result);
+    }
+
+    @Test
+    void findValidIssuersForUser_WhenCAUser_ShouldValidateOnlyOrganizationIssuers() {
+        Certificate otherOrgRoot = new Certificate();
+        otherOrgRoot.setId(6L);
+        otherOrgRoot.setSubject("CN=Other Root,O=Other Org");
+        caUser.setOrganization("Test Org");
+        when(certificateRepository.findValidIssuers(eq(CertificateStatus.VALID), any(Date.class)))
+                .thenReturn(Arrays.asList(rootCertificate, otherOrgRoot));
+        when(certificateValidityService.validate(eq(List.of(rootCertificate)), any(Duration.class))).thenReturn(Map.of(
+                4L, new CertificateValidityDTO(4L, "ROOT-123", CertificateStatus.VALID, true, null)));
+
+        List<Certificate> result = certificateService.findValidIssuersForUser(UserPrincipal.from(caUser));
+
+        assertEquals(List.of(rootCertificate), result);
+    }
+
     @Test
     void findCertificateChainForUser_WhenAdminUser_ShouldReturnAllCertificates() {
         List<Certificate> allCerts = Arrays.asList(validCertificate, rootCertificate, intermediateCertificate);
@@ -465,4 +634,166 @@ class CertificateServiceTest {
         assertEquals(1, result.size());
         assertEquals(testUser.getId(), result.get(0).getOwner().getId());
     }
-}
\ No newline at end of file
+
+    @Test
+    void findCertificateChainResponsesForUser_WhenAdmin_ShouldUseProjectionWithoutLoadingEntities() {
+        CertificateResponseDTO response = new CertificateResponseDTO();
+        response.setId(4L);
+        when(certificateRepository.findAllResponses()).thenReturn(List.of(response));
+
+        assertEquals(List.of(response), certificateService.findCertificateChainResponsesForUser(UserPrincipal.from(adminUser)));
+        verify(certificateRepository, never()).findAll();
+    }
+
+    @Test
+    void findCertificateChainResponsesForUser_WhenCAUser_ShouldFollowChainThroughProjectionOnly() {
+        caUser.setOrganization("Test Org");
+        CertificateResponseDTO root = response(4L, "CN=Root CA,O=Test Org", null);
+        CertificateResponseDTO endEntity = response(7L, "CN=device,O=Customer", 4L);
+        CertificateResponseDTO otherRoot = response(8L, "CN=Other Root,O=Other Org", null);
+        when(certificateRepository.findAllResponses()).thenReturn(List.of(root, endEntity, otherRoot));
+
+        List<CertificateResponseDTO> result = certificateService.findCertificateChainResponsesForUser(UserPrincipal.from(caUser));
+
+        assertEquals(List.of(root, endEntity), result);
+        verify(certificateRepository, never()).findAll();
+        verify(certificateRepository, never()).findAncestorClosure(any());
+    }
+
+    @Test
+    void findValidIssuerResponsesForUser_ShouldMapIssuerToFlatResponse() {
+        when(certificateRepository.findValidIssuers(eq(CertificateStatus.VALID), any(Date.class)))
+                .thenReturn(List.of(intermediateCertificate));
+        when(certificateValidityService.validate(any(), any(Duration.class))).thenReturn(Map.of(
+                5L, new CertificateValidityDTO(5L, "INTERMEDIATE-123", CertificateStatus.VALID, true, null)));
+
+        List<CertificateResponseDTO> result = certificateService.findValidIssuerResponsesForUser(UserPrincipal.from(adminUser));
+
+        assertEquals(1, result.size());
+        assertEquals(5L, result.get(0).getId());
+        assertEquals(4L, result.get(0).getIssuerId());
+        assertEquals("ROOT-123", result.get(0).getIssuerSerialNumber());
+        assertTrue(result.get(0).getIsCA());
+    }
+
+    private static CertificateResponseDTO response(Long id, String subject, Long issuerId) {
+        CertificateResponseDTO response = new CertificateResponseDTO();
+        response.setId(id);
+        response.setSubject(subject);
+        response.setIssuerId(issuerId);
+        return response;
+    }
+
+    @Test
+    void createAndSaveEECertificatesFromCsrBundle_ShouldIssueInChunksWithContinuousIndexes() throws Exception {
+        // 501 PEM objekata: dva dela (500 + 1); sadrzaj CSR-a ovde nije bitan jer je generator mock
+        StringBuilder bundle = new StringBuilder();
+        for (int i = 0; i < 501; i++) {
+            bundle.append("-----BEGIN CERTIFICATE REQUEST-----\r\nAAAA\r\n-----END CERTIFICATE REQUEST-----\r\n");
+        }
+        Date validFrom = new Date();
+        Date validTo = new Date(validFrom.getTime() + 86400000L);
+        EEIssuanceTarget target = new EEIssuanceTarget(intermediateCertificate, null);
+        when(certificateGeneratorService.generateEECertificatesFromPemObjects(anyList(), anyInt(), eq(validFrom),
+                eq(validTo), eq(intermediateCertificate), eq(testUser), isNull())).thenAnswer(invocation -> {
+            List<?> chunk = invocation.getArgument(0);
+            int firstIndex = invocation.getArgument(1);
+            List<BatchCsrItemDTO> items = new ArrayList<>();
+            for (int i = 0; i < chunk.size(); i++) {
+                items.add(new BatchCsrItemDTO(firstIndex + i, null, null, null, "test"));
+            }
+            return items;
+        });
+
+        List<List<BatchCsrItemDTO>> received = new ArrayList<>();
+        certificateService.createAndSaveEECertificatesFromCsrBundle(new StringReader(bundle.toString()),
+                validFrom, validTo, target, testUser, received::add);
+
+        assertEquals(2, received.size());
+        assertEquals(500, received.get(0).size());
+        assertEquals(1, received.get(1).size());
+        assertEquals(500, received.get(1).get(0).getIndex());
+        verify(certificateGeneratorService).generateEECertificatesFromPemObjects(anyList(), eq(0), any(), any(),
+                any(), any(), isNull());
+        verify(certificateGeneratorService).generateEECertificatesFromPemObjects(anyList(), eq(500), any(), any(),
+                any(), any(), isNull());
+    }
+
+    @Test
+    void findPage_ShouldFetchOneExtraRowAndReturnCursorForNextPage() {
+        Date validTo = new Date(1_700_000_000_000L);
+        when(certificateRepository.findPage(any(), eq(CertificateListSort.VALID_TO), eq(false), isNull(), isNull(), eq(3)))
+                .thenReturn(List.of(listItem(1L, validTo), listItem(2L, validTo), listItem(3L, validTo)));
+        when(certificateRepository.findPage(any(), eq(CertificateListSort.VALID_TO), eq(false), eq(validTo), eq(2L), eq(3)))
+                .thenReturn(List.of(listItem(3L, validTo)));
+
+        CertificatePageDTO first = certificateService.findPage(new CertificateListFilter(), CertificateListSort.VALID_TO,
+                false, null, 2, UserPrincipal.from(adminUser));
+        CertificatePageDTO second = certificateService.findPage(new CertificateListFilter(), CertificateListSort.VALID_TO,
+                false, first.getNextCursor(), 2, UserPrincipal.from(adminUser));
+
+        assertEquals(List.of(1L, 2L), first.getItems().stream().map(CertificateListItemDTO::getId).toList());
+        assertNotNull(first.getNextCursor());
+        assertEquals(List.of(3L), second.getItems().stream().map(CertificateListItemDTO::getId).toList());
+        assertNull(second.getNextCursor());
+    }
+
+    @Test
+    void findPage_ShouldRestrictNonAdminsAndRejectForeignCursor() {
+        when(certificateRepository.findPage(any(), any(), anyBoolean(), any(), any(), anyInt())).thenReturn(List.of());
+        CertificateListFilter basicFilter = new CertificateListFilter();
+        basicFilter.setOwnerId(99L);
+        CertificateListFilter caFilter = new CertificateListFilter();
+        caFilter.setChainOrganization("other org");
+        List<CertificateChainView> caViews = List.of(
+                caView(10L, null, "CN=Root,O=Other Org"),
+                caView(11L, 10L, "CN=Int,O=CA Org"),
+                caView(12L, 11L, "CN=Sub,O=Other Org"));
+        when(certificateRepository.findCaChainViews()).thenReturn(caViews);
+
+        certificateService.findPage(basicFilter, CertificateListSort.ID, false, null, 10_000, UserPrincipal.from(testUser));
+        certificateService.findPage(caFilter, CertificateListSort.ID, false, null, null, UserPrincipal.from(caUser));
+
+        assertEquals(testUser.getId(), basicFilter.getOwnerId());
+        // CA je ogranicen na lanac svoje organizacije (kao /my-chain i /export), ne na organizaciju vlasnika
+        assertEquals("ca org", caFilter.getChainOrganization());
+        assertEquals(Set.of(11L, 12L), Set.copyOf(caFilter.getChainIssuerIds()));
+        assertNull(caFilter.getOrganization());
+        verify(certificateRepository).findPage(basicFilter, CertificateListSort.ID, false, null, null,
+                CertificateService.MAX_PAGE_SIZE + 1);
+        verify(certificateRepository).findPage(caFilter, CertificateListSort.ID, false, null, null,
+                CertificateService.DEFAULT_PAGE_SIZE + 1);
+        String idCursor = Base64.getUrlEncoder().encodeToString("I:5".getBytes());
+        assertThrows(IllegalArgumentException.class, () -> certificateService.findPage(new CertificateListFilter(),
+                CertificateListSort.VALID_TO, false, idCursor, null, UserPrincipal.from(adminUser)));
+        assertThrows(IllegalArgumentException.class, () -> certificateService.findPage(new CertificateListFilter(),
+                CertificateListSort.ID, false, "not a cursor", null, UserPrincipal.from(adminUser)));
+    }
+
+    @Test
+    void findPage_WithSearch_ShouldNormalizeTermAndRejectTooShortContains() {
+        when(certificateRepository.findPage(any(), any(), anyBoolean(), any(), any(), anyInt())).thenReturn(List.of());
+        CertificateListFilter filter = new CertificateListFilter();
+        filter.setSearch(new CertificateSearchQuery(" API.Example.com. ", CertificateNameType.DNS, null));
+
+        certificateService.findPage(filter, CertificateListSort.ID, false, null, null, UserPrincipal.from(adminUser));
+
+        assertEquals(new CertificateSearchQuery("api.example.com", CertificateNameType.DNS, CertificateSearchMatch.EXACT),
+                filter.getSearch());
+        CertificateListFilter shortContains = new CertificateListFilter();
+        shortContains.setSearch(new CertificateSearchQuery("ab", null, CertificateSearchMatch.CONTAINS));
+        assertThrows(IllegalArgumentException.class, () -> certificateService.findPage(shortContains,
+                CertificateListSort.ID, false, null, null, UserPrincipal.from(adminUser)));
+        CertificateListFilter blank = new CertificateListFilter();
+        blank.setSearch(new CertificateSearchQuery("  ", null, CertificateSearchMatch.PREFIX));
+        assertThrows(IllegalArgumentException.class, () -> certificateService.findPage(blank,
+                CertificateListSort.ID, false, null, null, UserPrincipal.from(adminUser)));
+    }
+
+    private static CertificateListItemDTO listItem(Long id, Date validTo) {
+        CertificateListItemDTO item = new CertificateListItemDTO();
+        item.setId(id);
+        item.setValidTo(validTo);
+        return item;
+    }
+}
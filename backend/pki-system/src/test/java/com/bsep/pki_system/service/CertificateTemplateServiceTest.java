@@ -7,6 +7,9 @@ import com.bsep.pki_system.model.CertificateTemplate;
 import com.bsep.pki_system.model.User;
 import com.bsep.pki_system.model.UserRole;
 import com.bsep.pki_system.repository.CertificateTemplateRepository;
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.asn1.x509.GeneralName;
+import org.bouncycastle.asn1.x509.GeneralNames;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -15,6 +18,7 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.util.Arrays;
+import java.util.Date;
 import java.util.List;
 import java.util.Optional;
 
@@ -486,4 +490,69 @@ class CertificateTemplateServiceTest {
 
         assertTrue(result);
     }
-}
\ No newline at end of file
+
+    // ===== COMPILED TEMPLATE TESTS =====
+
+    private void useAllowedPatterns() {
+        testTemplate.setCommonNameRegex("^[a-zA-Z0-9-]+\\.bsep\\.com$");
+        testTemplate.setSansRegex(".*\\.bsep\\.com");
+        testTemplate.setKeyUsage(Arrays.asList(true, false, true, false, false, false, false, false, false));
+    }
+
+    @Test
+    void getCompiledTemplate_ShouldCompileOnceAndValidateWithPrecompiledPatterns() {
+        useAllowedPatterns();
+        when(templateRepository.findById(1L)).thenReturn(Optional.of(testTemplate));
+
+        CompiledTemplate first = certificateTemplateService.getCompiledTemplate(1L, caUser);
+        CompiledTemplate second = certificateTemplateService.getCompiledTemplate(1L, caUser);
+
+        assertSame(first, second);
+        verify(templateRepository, times(1)).findById(1L);
+        assertFalse(first.isCa());
+        assertEquals("digitalSignature, keyEncipherment", first.getKeyUsageDescription());
+        assertEquals("serverAuth,clientAuth", first.getExtendedKeyUsageDescription());
+        assertNull(first.validateNames(new X500Name("CN=api.bsep.com,O=Test Org"),
+                new GeneralNames(new GeneralName(GeneralName.dNSName, "www.bsep.com"))));
+        assertNotNull(first.validateNames(new X500Name("CN=api.example.com,O=Test Org"), null));
+        assertNotNull(first.validateNames(new X500Name("CN=api.bsep.com"),
+                new GeneralNames(new GeneralName(GeneralName.dNSName, "www.example.com"))));
+    }
+
+    @Test
+    void getCompiledTemplate_ShouldEnforceMaxValidity() {
+        useAllowedPatterns();
+        when(templateRepository.findById(1L)).thenReturn(Optional.of(testTemplate));
+
+        CompiledTemplate compiled = certificateTemplateService.getCompiledTemplate(1L, caUser);
+        Date now = new Date();
+
+        assertNull(compiled.validateValidity(now, new Date(now.getTime() + 30L * 86400000)));
+        assertNotNull(compiled.validateValidity(now, new Date(now.getTime() + 400L * 86400000)));
+    }
+
+    @Test
+    void getCompiledTemplate_WithNonCreator_ShouldThrowException() {
+        useAllowedPatterns();
+        User differentCAUser = new User();
+        differentCAUser.setId(4L);
+        differentCAUser.setRole(UserRole.CA);
+        when(templateRepository.findById(1L)).thenReturn(Optional.of(testTemplate));
+
+        assertThrows(IllegalArgumentException.class,
+                () -> certificateTemplateService.getCompiledTemplate(1L, differentCAUser));
+    }
+
+    @Test
+    void deleteTemplate_ShouldEvictCompiledTemplate() {
+        useAllowedPatterns();
+        when(templateRepository.findById(1L)).thenReturn(Optional.of(testTemplate));
+
+        certificateTemplateService.getCompiledTemplate(1L, caUser);
+        certificateTemplateService.deleteTemplate(1L, caUser);
+        certificateTemplateService.getCompiledTemplate(1L, caUser);
+
+        // findById: kompajliranje, provera pri brisanju, ponovno kompajliranje
+        verify(templateRepository, times(3)).findById(1L);
+    }
+}
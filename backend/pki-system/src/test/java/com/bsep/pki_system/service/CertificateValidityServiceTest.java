@@ -0,0 +1,150 @@
+package com.bsep.pki_system.service;
+
+import com.bsep.pki_system.dto.CertificateChainView;
+import com.bsep.pki_system.dto.CertificateValidityDTO;
+import com.bsep.pki_system.model.Certificate;
+import com.bsep.pki_system.model.CertificateStatus;
+import com.bsep.pki_system.model.CertificateType;
+import com.bsep.pki_system.repository.CertificateRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CertificateValidityServiceTest {
+
+    @Mock
+    private CertificateRepository certificateRepository;
+
+    @Mock
+    private PkixValidationService pkixValidationService;
+
+    @InjectMocks
+    private CertificateValidityService certificateValidityService;
+
+    private Certificate root;
+    private Certificate intermediate;
+    private Certificate endEntity1;
+    private Certificate endEntity2;
+    private Certificate otherRoot;
+    private Certificate revokedEndEntity;
+
+    @BeforeEach
+    void setUp() {
+        root = createCertificate(1L, "ROOT-1", CertificateType.ROOT, CertificateStatus.VALID);
+        intermediate = createCertificate(2L, "INT-1", CertificateType.INTERMEDIATE, CertificateStatus.VALID);
+        endEntity1 = createCertificate(3L, "EE-1", CertificateType.END_ENTITY, CertificateStatus.VALID);
+        endEntity2 = createCertificate(4L, "EE-2", CertificateType.END_ENTITY, CertificateStatus.VALID);
+        otherRoot = createCertificate(5L, "ROOT-2", CertificateType.ROOT, CertificateStatus.VALID);
+        revokedEndEntity = createCertificate(6L, "EE-3", CertificateType.END_ENTITY, CertificateStatus.REVOKED);
+    }
+
+    private Certificate createCertificate(Long id, String serial, CertificateType type, CertificateStatus status) {
+        Certificate certificate = new Certificate();
+        certificate.setId(id);
+        certificate.setSerialNumber(serial);
+        certificate.setType(type);
+        certificate.setStatus(status);
+        certificate.setValidFrom(new Date(System.currentTimeMillis() - 86400000));
+        certificate.setValidTo(new Date(System.currentTimeMillis() + 86400000));
+        return certificate;
+    }
+
+    private CertificateChainView view(Long id, Long issuerId) {
+        CertificateChainView view = mock(CertificateChainView.class);
+        when(view.getId()).thenReturn(id);
+        when(view.getIssuerCertificateId()).thenReturn(issuerId);
+        return view;
+    }
+
+    @Test
+    void validateBatch_ShouldValidateEachTreeWithPkixInOneCall() {
+        // Arrange
+        when(certificateRepository.findAllById(List.of(3L, 4L))).thenReturn(List.of(endEntity1, endEntity2));
+        List<CertificateChainView> closure = List.of(view(3L, 2L), view(4L, 2L), view(2L, 1L), view(1L, null));
+        when(certificateRepository.findAncestorClosure(anyCollection())).thenReturn(closure);
+        Map<Long, String> reasons = new HashMap<>();
+        reasons.put(3L, null);
+        reasons.put(4L, null);
+        when(pkixValidationService.validateAll(anyList())).thenReturn(reasons);
+
+        // Act
+        Map<String, CertificateValidityDTO> results = certificateValidityService.validateBatch(List.of(3L, 4L), null);
+
+        // Assert
+        assertTrue(results.get("3").isValid());
+        assertTrue(results.get("4").isValid());
+        verify(pkixValidationService, times(1)).validateAll(anyList());
+        // Preci se ne ucitavaju - lanac gradi PKIX iz trust materijala
+        verify(certificateRepository, times(1)).findAllById(anyCollection());
+    }
+
+    @Test
+    void validateBatch_WhenPkixRejectsChain_ShouldReportItsReason() {
+        // Arrange
+        when(certificateRepository.findBySerialNumberIn(List.of("EE-1", "EE-2")))
+                .thenReturn(List.of(endEntity1, endEntity2));
+        List<CertificateChainView> closure = List.of(view(3L, 2L), view(4L, 2L), view(2L, 1L), view(1L, null));
+        when(certificateRepository.findAncestorClosure(anyCollection())).thenReturn(closure);
+        Map<Long, String> reasons = new HashMap<>();
+        reasons.put(3L, PkixValidationService.REASON_PATH_NOT_FOUND);
+        reasons.put(4L, "REVOKED");
+        when(pkixValidationService.validateAll(anyList())).thenReturn(reasons);
+
+        // Act
+        Map<String, CertificateValidityDTO> results =
+                certificateValidityService.validateBatch(null, List.of("EE-1", "EE-2"));
+
+        // Assert
+        assertFalse(results.get("EE-1").isValid());
+        assertEquals(PkixValidationService.REASON_PATH_NOT_FOUND, results.get("EE-1").getReason());
+        assertEquals("REVOKED", results.get("EE-2").getReason());
+    }
+
+    @Test
+    void validateBatch_ShouldReportOwnStatusAndMissingCertificates() {
+        // Arrange
+        when(certificateRepository.findAllById(List.of(6L, 5L, 99L))).thenReturn(List.of(revokedEndEntity, otherRoot));
+        List<CertificateChainView> closure = List.of(view(6L, 5L), view(5L, null));
+        when(certificateRepository.findAncestorClosure(anyCollection())).thenReturn(closure);
+        when(pkixValidationService.validateAll(List.of(otherRoot))).thenReturn(Collections.singletonMap(5L, null));
+
+        // Act
+        Map<String, CertificateValidityDTO> results =
+                certificateValidityService.validateBatch(List.of(6L, 5L, 99L), List.of());
+
+        // Assert
+        assertEquals(List.of("6", "5", "99"), new ArrayList<>(results.keySet()));
+        assertEquals(CertificateValidityService.REASON_REVOKED, results.get("6").getReason());
+        assertTrue(results.get("5").isValid());
+        assertEquals(CertificateValidityService.REASON_NOT_FOUND, results.get("99").getReason());
+        assertNull(results.get("99").getStatus());
+        // Povuceni sertifikat ne ide na proveru lanca
+        verify(pkixValidationService, never()).validateAll(List.of(revokedEndEntity, otherRoot));
+    }
+
+    @Test
+    void validateBatch_WhenTooManyCertificates_ShouldThrowException() {
+        // Arrange
+        List<Long> ids = new ArrayList<>();
+        for (long i = 0; i <= CertificateValidityService.MAX_BATCH_SIZE; i++) {
+            ids.add(i);
+        }
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class,
+                () -> certificateValidityService.validateBatch(ids, null));
+        verifyNoInteractions(certificateRepository);
+    }
+}
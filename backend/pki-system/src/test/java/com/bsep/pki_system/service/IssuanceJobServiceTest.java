@@ -0,0 +1,187 @@
+package com.bsep.pki_system.service;
+
+import com.bsep.pki_system.audit.AuditLogService;
+import com.bsep.pki_system.dto.CreateCertificateDTO;
+import com.bsep.pki_system.model.Certificate;
+import com.bsep.pki_system.model.IssuanceJob;
+import com.bsep.pki_system.model.IssuanceJobStatus;
+import com.bsep.pki_system.model.IssuanceJobType;
+import com.bsep.pki_system.model.User;
+import com.bsep.pki_system.model.UserRole;
+import com.bsep.pki_system.repository.IssuanceJobRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDateTime;
+import java.util.Date;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class IssuanceJobServiceTest {
+
+    @Mock
+    private IssuanceJobRepository issuanceJobRepository;
+
+    @Mock
+    private CertificateService certificateService;
+
+    @Mock
+    private CertificateGeneratorService certificateGeneratorService;
+
+    @Mock
+    private AuditLogService auditLogService;
+
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper();
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @InjectMocks
+    private IssuanceJobService issuanceJobService;
+
+    private User admin;
+    private CreateCertificateDTO request;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(issuanceJobService, "maxQueueDepth", 2);
+
+        admin = new User();
+        admin.setId(1L);
+        admin.setEmail("admin@example.com");
+        admin.setRole(UserRole.ADMIN);
+
+        request = new CreateCertificateDTO();
+        request.setSubjectCommonName("Root CA");
+        request.setSubjectOrganization("Test Org");
+        request.setSubjectCountry("RS");
+        request.setValidFrom(new Date());
+        request.setValidTo(new Date(System.currentTimeMillis() + 86400000));
+        request.setBasicConstraints("CA:TRUE");
+    }
+
+    private IssuanceJob runningJob() throws Exception {
+        IssuanceJob job = new IssuanceJob();
+        job.setId(10L);
+        job.setType(IssuanceJobType.ROOT);
+        job.setStatus(IssuanceJobStatus.RUNNING);
+        job.setPayload(objectMapper.writeValueAsString(request));
+        job.setRequestedBy(admin);
+        job.setClaimToken("claim-1");
+        return job;
+    }
+
+    @Test
+    void submit_WhenQueueIsFull_ShouldRejectWithoutSaving() {
+        when(issuanceJobRepository.countByStatusIn(anyCollection())).thenReturn(2L);
+
+        assertThrows(IssuanceQueueFullException.class,
+                () -> issuanceJobService.submit(IssuanceJobType.ROOT, request, admin));
+        verify(issuanceJobRepository, never()).save(any());
+    }
+
+    @Test
+    void submit_ShouldPersistQueuedJobWithPayload() throws Exception {
+        when(issuanceJobRepository.countByStatusIn(anyCollection())).thenReturn(1L);
+        when(issuanceJobRepository.save(any(IssuanceJob.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        IssuanceJob job = issuanceJobService.submit(IssuanceJobType.ROOT, request, admin);
+
+        assertEquals(IssuanceJobStatus.QUEUED, job.getStatus());
+        assertEquals(admin, job.getRequestedBy());
+        CreateCertificateDTO stored = objectMapper.readValue(job.getPayload(), CreateCertificateDTO.class);
+        assertEquals("Root CA", stored.getSubjectCommonName());
+    }
+
+    @Test
+    void process_ShouldCompleteJobWithIssuedCertificate() throws Exception {
+        IssuanceJob job = runningJob();
+        when(issuanceJobRepository.findWithRequesterById(10L)).thenReturn(Optional.of(job));
+        Certificate certificate = new Certificate();
+        certificate.setId(5L);
+        certificate.setSerialNumber("12345");
+        when(certificateGeneratorService.generateRootCertificate(any(CreateCertificateDTO.class), eq(admin)))
+                .thenReturn(certificate);
+        when(issuanceJobRepository.complete(eq(10L), eq("claim-1"), eq(5L), eq("12345"), any(LocalDateTime.class)))
+                .thenReturn(1);
+
+        issuanceJobService.process(10L);
+
+        // Zavrsetak je deo iste transakcije kao izdavanje
+        InOrder inOrder = inOrder(transactionManager, certificateGeneratorService, issuanceJobRepository);
+        inOrder.verify(transactionManager).getTransaction(any());
+        inOrder.verify(certificateGeneratorService).generateRootCertificate(any(CreateCertificateDTO.class), eq(admin));
+        inOrder.verify(issuanceJobRepository).complete(eq(10L), eq("claim-1"), eq(5L), eq("12345"), any(LocalDateTime.class));
+        inOrder.verify(transactionManager).commit(any());
+        verify(issuanceJobRepository, never()).fail(any(), any(), any(), any());
+        verify(auditLogService).logSecurityEvent(eq(AuditLogService.EVENT_CERTIFICATE_ISSUED),
+                eq("Certificate created by issuance job"), eq(true), any(), isNull(), eq(admin));
+    }
+
+    @Test
+    void process_WhenIssuanceFails_ShouldMarkJobFailed() throws Exception {
+        IssuanceJob job = runningJob();
+        job.setType(IssuanceJobType.INTERMEDIATE);
+        when(issuanceJobRepository.findWithRequesterById(10L)).thenReturn(Optional.of(job));
+        when(certificateService.createAndSaveIntermediateCertificate(any(CreateCertificateDTO.class), eq(admin)))
+                .thenThrow(new IllegalArgumentException("Issuer certificate with ID 7 not found."));
+        when(issuanceJobRepository.fail(eq(10L), eq("claim-1"), eq("Issuer certificate with ID 7 not found."),
+                any(LocalDateTime.class))).thenReturn(1);
+
+        issuanceJobService.process(10L);
+
+        verify(transactionManager).rollback(any());
+        verify(issuanceJobRepository, never()).complete(any(), any(), any(), any(), any());
+        verify(auditLogService).logSecurityEvent(eq(AuditLogService.EVENT_CERTIFICATE_ISSUED),
+                eq("Issuance job failed"), eq(false), any(), isNull(), eq(admin));
+    }
+
+    @Test
+    void process_WhenJobWasReclaimed_ShouldRollBackIssuanceWithoutMarkingJob() throws Exception {
+        IssuanceJob job = runningJob();
+        when(issuanceJobRepository.findWithRequesterById(10L)).thenReturn(Optional.of(job));
+        Certificate certificate = new Certificate();
+        certificate.setId(5L);
+        certificate.setSerialNumber("12345");
+        when(certificateGeneratorService.generateRootCertificate(any(CreateCertificateDTO.class), eq(admin)))
+                .thenReturn(certificate);
+        // Posao je u medjuvremenu vracen u red i preuzet drugom oznakom
+        when(issuanceJobRepository.complete(eq(10L), eq("claim-1"), eq(5L), eq("12345"), any(LocalDateTime.class)))
+                .thenReturn(0);
+        when(issuanceJobRepository.fail(eq(10L), eq("claim-1"), any(), any(LocalDateTime.class))).thenReturn(0);
+
+        issuanceJobService.process(10L);
+
+        verify(transactionManager).rollback(any());
+        verify(transactionManager, never()).commit(any());
+        verifyNoInteractions(auditLogService);
+    }
+
+    @Test
+    void findForUser_ShouldHideOtherUsersJobs() throws Exception {
+        IssuanceJob job = runningJob();
+        when(issuanceJobRepository.findById(10L)).thenReturn(Optional.of(job));
+        User other = new User();
+        other.setId(2L);
+        other.setRole(UserRole.BASIC);
+
+        assertTrue(issuanceJobService.findForUser(10L, other).isEmpty());
+        assertTrue(issuanceJobService.findForUser(10L, admin).isPresent());
+    }
+}
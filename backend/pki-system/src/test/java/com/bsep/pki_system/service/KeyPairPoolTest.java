@@ -0,0 +1,79 @@
+package com.bsep.pki_system.service;
+
+import com.bsep.pki_system.dto.KeyPairPoolStatsDTO;
+import com.bsep.pki_system.model.KeyAlgorithm;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.security.KeyPair;
+import java.security.interfaces.ECPublicKey;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KeyPairPoolTest {
+
+    private KeyPairPool keyPairPool;
+
+    @BeforeEach
+    void setUp() {
+        keyPairPool = new KeyPairPool();
+        ReflectionTestUtils.setField(keyPairPool, "enabled", true);
+        ReflectionTestUtils.setField(keyPairPool, "capacities", "EC_P256=2");
+    }
+
+    private KeyPairPoolStatsDTO awaitFull() throws InterruptedException {
+        for (int i = 0; i < 200; i++) {
+            KeyPairPoolStatsDTO stats = keyPairPool.getStats().get(0);
+            if (stats.getAvailable() == stats.getCapacity()) {
+                return stats;
+            }
+            Thread.sleep(50);
+        }
+        fail("Pool was not refilled in time");
+        return null;
+    }
+
+    @Test
+    void acquire_WhenNotStarted_ShouldGenerateSynchronously() throws Exception {
+        KeyPair keyPair = keyPairPool.acquire(KeyAlgorithm.EC_P256);
+
+        assertEquals(256, ((ECPublicKey) keyPair.getPublic()).getParams().getCurve().getField().getFieldSize());
+        assertTrue(keyPairPool.getStats().isEmpty());
+    }
+
+    @Test
+    void start_ShouldFillPoolAndServeHitsFromIt() throws Exception {
+        keyPairPool.start();
+        KeyPairPoolStatsDTO filled = awaitFull();
+        assertEquals("EC_P256", filled.getKeyAlgorithm());
+        assertEquals(2, filled.getGenerated());
+
+        KeyPair keyPair = keyPairPool.acquire(KeyAlgorithm.EC_P256);
+
+        assertNotNull(keyPair);
+        KeyPairPoolStatsDTO stats = keyPairPool.getStats().get(0);
+        assertEquals(1, stats.getHits());
+        assertEquals(0, stats.getMisses());
+
+        // Posle uzimanja pool se dopunjava u pozadini
+        assertEquals(3, awaitFull().getGenerated());
+    }
+
+    @Test
+    void acquire_ForUnconfiguredSpec_ShouldNotCreatePool() throws Exception {
+        keyPairPool.start();
+
+        assertNotNull(keyPairPool.acquire(KeyAlgorithm.ED25519));
+        assertEquals(1, keyPairPool.getStats().size());
+    }
+
+    @Test
+    void start_WhenDisabled_ShouldNotCreatePools() {
+        ReflectionTestUtils.setField(keyPairPool, "enabled", false);
+
+        keyPairPool.start();
+
+        assertTrue(keyPairPool.getStats().isEmpty());
+    }
+}
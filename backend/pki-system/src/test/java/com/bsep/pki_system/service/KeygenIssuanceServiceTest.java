@@ -0,0 +1,213 @@
+package com.bsep.pki_system.service;
+
+import com.bsep.pki_system.dto.KeygenSubjectDTO;
+import com.bsep.pki_system.model.Certificate;
+import com.bsep.pki_system.model.User;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.cert.jcajce.JcaX509CertificateConverter;
+import org.bouncycastle.cert.jcajce.JcaX509v3CertificateBuilder;
+import org.bouncycastle.cms.CMSEnvelopedData;
+import org.bouncycastle.cms.RecipientInformation;
+import org.bouncycastle.cms.jcajce.JcePasswordEnvelopedRecipient;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.KeyStore;
+import java.security.PrivateKey;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class KeygenIssuanceServiceTest {
+
+    private static final char[] SECRET = "manifest-secret-1".toCharArray();
+
+    @Mock
+    private CertificateGeneratorService certificateGeneratorService;
+
+    private KeygenIssuanceService keygenIssuanceService;
+
+    private EEIssuanceTarget target;
+    private User owner;
+    private KeyPair keys;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        keygenIssuanceService = new KeygenIssuanceService(certificateGeneratorService, new ObjectMapper());
+        Certificate issuer = new Certificate();
+        issuer.setId(1L);
+        target = new EEIssuanceTarget(issuer, null);
+        owner = new User();
+        owner.setId(5L);
+        keys = com.bsep.pki_system.model.KeyAlgorithm.EC_P256.generateKeyPair();
+    }
+
+    @Test
+    void readSubjects_FromCsv_ShouldMapColumnsByHeaderName() throws Exception {
+        String csv = "sans,commonName,organization\n"
+                + "\"a.bsep.com;10.0.0.1\",a.bsep.com,\"Test, Org\"\n"
+                + "\n"
+                + ",b.bsep.com,\n";
+
+        List<KeygenSubjectDTO> subjects = toList(keygenIssuanceService.readSubjects(
+                new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), true));
+
+        assertEquals(2, subjects.size());
+        assertEquals("a.bsep.com", subjects.get(0).getCommonName());
+        assertEquals("Test, Org", subjects.get(0).getOrganization());
+        assertEquals(List.of("a.bsep.com", "10.0.0.1"), subjects.get(0).getSans());
+        assertEquals("b.bsep.com", subjects.get(1).getCommonName());
+        assertNull(subjects.get(1).getOrganization());
+        assertNull(subjects.get(1).getSans());
+    }
+
+    @Test
+    void readSubjects_FromJsonArray_ShouldStreamObjects() throws Exception {
+        String json = "[{\"commonName\":\"a.bsep.com\",\"sans\":[\"a.bsep.com\"]},{\"commonName\":\"b.bsep.com\"}]";
+
+        List<KeygenSubjectDTO> subjects = toList(keygenIssuanceService.readSubjects(
+                new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)), false));
+
+        assertEquals(2, subjects.size());
+        assertEquals(List.of("a.bsep.com"), subjects.get(0).getSans());
+        assertEquals("b.bsep.com", subjects.get(1).getCommonName());
+    }
+
+    @Test
+    void writeZip_ShouldWritePasswordProtectedPkcs12PerCertificateAndManifest() throws Exception {
+        X509Certificate x509 = selfSigned("CN=a.bsep.com");
+        Certificate saved = new Certificate();
+        saved.setSerialNumber("777");
+        when(certificateGeneratorService.generateEECertificatesWithKeys(anyList(), anyInt(), any(), any(), any(),
+                any(), any())).thenReturn(List.of(
+                new GeneratedKeyCertificate(0, saved, x509, keys.getPrivate(), new java.security.cert.Certificate[0], null),
+                GeneratedKeyCertificate.failed(1, "Common Name does not match template 'IoT'")));
+
+        List<KeygenSubjectDTO> subjects = List.of(
+                new KeygenSubjectDTO("a.bsep.com", null, null, null, null, null, null),
+                new KeygenSubjectDTO("b.example.com", null, null, null, null, null, null));
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        KeygenIssuanceService.KeygenSummary summary = keygenIssuanceService.writeZip(subjects.iterator(),
+                new Date(), new Date(), target, owner, SECRET, output);
+
+        assertEquals(1, summary.issuedCount());
+        assertEquals(1, summary.failedCount());
+        Map<String, byte[]> entries = unzip(output.toByteArray());
+        assertEquals(List.of("000000-777.p12", "manifest.csv", "passwords.csv.p7m"),
+                new ArrayList<>(entries.keySet()));
+
+        String[] manifest = new String(entries.get("manifest.csv"), StandardCharsets.UTF_8).split("\n");
+        assertEquals("index,serialNumber,file,error", manifest[0]);
+        assertEquals("0,777,000000-777.p12,", manifest[1]);
+        assertTrue(manifest[2].startsWith("1,,,Common Name does not match"));
+
+        // Lozinke su samo u sifrovanom CMS fajlu
+        String[] passwords = new String(decrypt(entries.get("passwords.csv.p7m"), SECRET), StandardCharsets.UTF_8)
+                .split("\n");
+        assertEquals("index,serialNumber,file,password", passwords[0]);
+        assertEquals(2, passwords.length);
+        String[] passwordLine = passwords[1].split(",");
+        assertEquals("000000-777.p12", passwordLine[2]);
+        char[] password = passwordLine[3].toCharArray();
+
+        KeyStore pkcs12 = KeyStore.getInstance("PKCS12");
+        pkcs12.load(new ByteArrayInputStream(entries.get("000000-777.p12")), password);
+        PrivateKey privateKey = (PrivateKey) pkcs12.getKey("777", password);
+        assertArrayEquals(keys.getPrivate().getEncoded(), privateKey.getEncoded());
+        assertEquals(x509, pkcs12.getCertificate("777"));
+    }
+
+    @Test
+    void writeZip_ShouldIssueInChunksWithContinuousIndexes() throws Exception {
+        when(certificateGeneratorService.generateEECertificatesWithKeys(anyList(), anyInt(), any(), any(), any(),
+                any(), any())).thenAnswer(invocation -> {
+            List<?> chunk = invocation.getArgument(0);
+            int firstIndex = invocation.getArgument(1);
+            List<GeneratedKeyCertificate> results = new ArrayList<>();
+            for (int i = 0; i < chunk.size(); i++) {
+                results.add(GeneratedKeyCertificate.failed(firstIndex + i, "test"));
+            }
+            return results;
+        });
+        List<KeygenSubjectDTO> subjects = new ArrayList<>();
+        for (int i = 0; i < 150; i++) {
+            subjects.add(new KeygenSubjectDTO("device-" + i, null, null, null, null, null, null));
+        }
+
+        KeygenIssuanceService.KeygenSummary summary = keygenIssuanceService.writeZip(subjects.iterator(),
+                new Date(), new Date(), target, owner, SECRET, new ByteArrayOutputStream());
+
+        assertEquals(150, summary.failedCount());
+        verify(certificateGeneratorService).generateEECertificatesWithKeys(argThat(list -> list.size() == 100),
+                eq(0), any(), any(), any(), any(), any());
+        verify(certificateGeneratorService).generateEECertificatesWithKeys(argThat(list -> list.size() == 50),
+                eq(100), any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void writeZip_ShouldRejectShortPasswordsSecret() {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        assertThrows(IllegalArgumentException.class, () -> keygenIssuanceService.writeZip(
+                List.<KeygenSubjectDTO>of().iterator(), new Date(), new Date(), target, owner,
+                "short".toCharArray(), output));
+        assertEquals(0, output.size());
+        verifyNoInteractions(certificateGeneratorService);
+    }
+
+    private static byte[] decrypt(byte[] envelope, char[] secret) throws Exception {
+        RecipientInformation recipient = new CMSEnvelopedData(envelope).getRecipientInfos().getRecipients()
+                .iterator().next();
+        return recipient.getContent(new JcePasswordEnvelopedRecipient(secret).setProvider(new BouncyCastleProvider()));
+    }
+
+    private X509Certificate selfSigned(String subject) throws Exception {
+        Date now = new Date();
+        JcaX509v3CertificateBuilder builder = new JcaX509v3CertificateBuilder(new X500Name(subject), BigInteger.ONE,
+                now, new Date(now.getTime() + 86400000), new X500Name(subject), keys.getPublic());
+        return new JcaX509CertificateConverter().getCertificate(
+                builder.build(new JcaContentSignerBuilder("SHA256withECDSA").build(keys.getPrivate())));
+    }
+
+    private static <T> List<T> toList(Iterator<T> iterator) {
+        List<T> list = new ArrayList<>();
+        iterator.forEachRemaining(list::add);
+        return list;
+    }
+
+    private static Map<String, byte[]> unzip(byte[] zip) throws Exception {
+        Map<String, byte[]> entries = new LinkedHashMap<>();
+        try (ZipInputStream input = new ZipInputStream(new ByteArrayInputStream(zip))) {
+            ZipEntry entry;
+            while ((entry = input.getNextEntry()) != null) {
+                entries.put(entry.getName(), input.readAllBytes());
+            }
+        }
+        return entries;
+    }
+}
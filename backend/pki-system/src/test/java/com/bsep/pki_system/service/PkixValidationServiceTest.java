@@ -0,0 +1,252 @@
+package com.bsep.pki_system.service;
+
+import com.bsep.pki_system.model.Certificate;
+import com.bsep.pki_system.model.CertificateStatus;
+import com.bsep.pki_system.model.CertificateType;
+import com.bsep.pki_system.repository.CertificateRepository;
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.asn1.x509.BasicConstraints;
+import org.bouncycastle.asn1.x509.Extension;
+import org.bouncycastle.asn1.x509.KeyUsage;
+import org.bouncycastle.cert.X509v3CertificateBuilder;
+import org.bouncycastle.cert.jcajce.JcaX509CertificateConverter;
+import org.bouncycastle.cert.jcajce.JcaX509ExtensionUtils;
+import org.bouncycastle.cert.jcajce.JcaX509v3CertificateBuilder;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigInteger;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.cert.X509Certificate;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PkixValidationServiceTest {
+
+    @Mock
+    private CertificateRepository certificateRepository;
+
+    @Mock
+    private CertificateDerService certificateDerService;
+
+    @Mock
+    private CRLService crlService;
+
+    @InjectMocks
+    private PkixValidationService pkixValidationService;
+
+    private Certificate rootCertificate;
+    private Certificate intermediateCertificate;
+    private Certificate endEntityCertificate;
+    private X509Certificate rootX509;
+    private X509Certificate intermediateX509;
+    private X509Certificate endEntityX509;
+    private KeyPair rootKeys;
+    private KeyPair intermediateKeys;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        KeyPairGenerator keyGen = KeyPairGenerator.getInstance("RSA");
+        keyGen.initialize(2048);
+        rootKeys = keyGen.generateKeyPair();
+        intermediateKeys = keyGen.generateKeyPair();
+        KeyPair endEntityKeys = keyGen.generateKeyPair();
+
+        rootX509 = issue("CN=Root CA,O=Test Org", rootKeys, "CN=Root CA,O=Test Org", rootKeys, null, 100L, true);
+        intermediateX509 = issue("CN=Intermediate CA,O=Test Org", intermediateKeys, "CN=Root CA,O=Test Org",
+                rootKeys, rootX509, 200L, true);
+        endEntityX509 = issue("CN=User,O=Test Org", endEntityKeys, "CN=Intermediate CA,O=Test Org",
+                intermediateKeys, intermediateX509, 300L, false);
+
+        rootCertificate = createCertificate(1L, "100", CertificateType.ROOT, null);
+        intermediateCertificate = createCertificate(2L, "200", CertificateType.INTERMEDIATE, rootCertificate);
+        endEntityCertificate = createCertificate(3L, "300", CertificateType.END_ENTITY, intermediateCertificate);
+    }
+
+    private Certificate createCertificate(Long id, String serial, CertificateType type, Certificate issuer) {
+        Certificate certificate = new Certificate();
+        certificate.setId(id);
+        certificate.setSerialNumber(serial);
+        certificate.setType(type);
+        certificate.setStatus(CertificateStatus.VALID);
+        certificate.setIsCA(type != CertificateType.END_ENTITY);
+        certificate.setIssuerCertificate(issuer);
+        return certificate;
+    }
+
+    private X509Certificate issue(String subject, KeyPair subjectKeys, String issuer, KeyPair issuerKeys,
+                                  X509Certificate issuerCert, long serial, boolean ca) throws Exception {
+        return issue(subject, subjectKeys, issuer, issuerKeys, issuerCert, serial, new BasicConstraints(ca));
+    }
+
+    private X509Certificate issue(String subject, KeyPair subjectKeys, String issuer, KeyPair issuerKeys,
+                                  X509Certificate issuerCert, long serial, BasicConstraints constraints)
+            throws Exception {
+        boolean ca = constraints.isCA();
+        Date from = new Date(System.currentTimeMillis() - 86400000);
+        Date to = new Date(System.currentTimeMillis() + 86400000);
+        X509v3CertificateBuilder builder = new JcaX509v3CertificateBuilder(new X500Name(issuer),
+                BigInteger.valueOf(serial), from, to, new X500Name(subject), subjectKeys.getPublic());
+        JcaX509ExtensionUtils utils = new JcaX509ExtensionUtils();
+        builder.addExtension(Extension.basicConstraints, true, constraints);
+        builder.addExtension(Extension.keyUsage, true, ca
+                ? new KeyUsage(KeyUsage.keyCertSign | KeyUsage.cRLSign)
+                : new KeyUsage(KeyUsage.digitalSignature | KeyUsage.keyEncipherment));
+        builder.addExtension(Extension.subjectKeyIdentifier, false, utils.createSubjectKeyIdentifier(subjectKeys.getPublic()));
+        builder.addExtension(Extension.authorityKeyIdentifier, false, issuerCert != null
+                ? utils.createAuthorityKeyIdentifier(issuerCert)
+                : utils.createAuthorityKeyIdentifier(issuerKeys.getPublic()));
+        return new JcaX509CertificateConverter().getCertificate(
+                builder.build(new JcaContentSignerBuilder("SHA256WithRSAEncryption").build(issuerKeys.getPrivate())));
+    }
+
+    private void stubAuthorities() throws Exception {
+        when(certificateRepository.findValidIssuers(eq(CertificateStatus.VALID), any(Date.class)))
+                .thenReturn(List.of(rootCertificate, intermediateCertificate));
+        when(certificateDerService.getX509s(List.of(rootCertificate, intermediateCertificate)))
+                .thenReturn(Map.of(1L, rootX509, 2L, intermediateX509));
+    }
+
+    @Test
+    void validate_WhenChainIsValid_ShouldReturnNull() throws Exception {
+        stubAuthorities();
+        when(certificateDerService.getX509(endEntityCertificate)).thenReturn(endEntityX509);
+        when(crlService.isSerialRevoked(any(BigInteger.class), any(Certificate.class))).thenReturn(false);
+
+        assertNull(pkixValidationService.validate(endEntityCertificate));
+        verify(crlService).isSerialRevoked(BigInteger.valueOf(200), rootCertificate);
+        verify(crlService).isSerialRevoked(BigInteger.valueOf(300), intermediateCertificate);
+    }
+
+    @Test
+    void validateAll_ShouldShareTrustMaterialAndLoadX509sOnce() throws Exception {
+        stubAuthorities();
+        when(certificateDerService.getX509s(List.of(intermediateCertificate, endEntityCertificate)))
+                .thenReturn(Map.of(2L, intermediateX509, 3L, endEntityX509));
+        when(crlService.isSerialRevoked(any(BigInteger.class), any(Certificate.class))).thenReturn(false);
+        when(crlService.isSerialRevoked(BigInteger.valueOf(300), intermediateCertificate)).thenReturn(true);
+
+        Map<Long, String> reasons = pkixValidationService.validateAll(
+                List.of(rootCertificate, intermediateCertificate, endEntityCertificate));
+
+        assertEquals(3, reasons.size());
+        assertNull(reasons.get(1L));
+        assertNull(reasons.get(2L));
+        assertEquals("REVOKED", reasons.get(3L));
+        verify(certificateRepository, times(1)).findValidIssuers(any(), any());
+        verify(certificateDerService, never()).getX509(any());
+    }
+
+    @Test
+    void validateAll_ShouldValidateSharedAncestorOncePerBatch() throws Exception {
+        stubAuthorities();
+        KeyPairGenerator keyGen = KeyPairGenerator.getInstance("RSA");
+        keyGen.initialize(2048);
+        List<Certificate> leaves = new ArrayList<>();
+        Map<Long, X509Certificate> leafX509s = new HashMap<>();
+        for (long i = 0; i < 3; i++) {
+            Certificate leaf = createCertificate(10L + i, String.valueOf(300 + i), CertificateType.END_ENTITY,
+                    intermediateCertificate);
+            leaves.add(leaf);
+            leafX509s.put(leaf.getId(), i == 0 ? endEntityX509 : issue("CN=User " + i + ",O=Test Org",
+                    keyGen.generateKeyPair(), "CN=Intermediate CA,O=Test Org", intermediateKeys, intermediateX509,
+                    300 + i, false));
+        }
+        when(certificateDerService.getX509s(leaves)).thenReturn(leafX509s);
+        when(crlService.isSerialRevoked(any(BigInteger.class), any(Certificate.class))).thenReturn(false);
+
+        Map<Long, String> reasons = pkixValidationService.validateAll(leaves);
+
+        assertEquals(3, reasons.size());
+        reasons.values().forEach(Assertions::assertNull);
+        // Intermediate (karika ka Root-u) se proverava jednom za ceo paket, svaki list samo svoju kariku
+        verify(crlService, times(1)).isSerialRevoked(BigInteger.valueOf(200), rootCertificate);
+        for (long i = 0; i < 3; i++) {
+            verify(crlService, times(1)).isSerialRevoked(BigInteger.valueOf(300 + i), intermediateCertificate);
+        }
+    }
+
+    @Test
+    void validateAll_ShouldApplyAncestorPathLengthLikeFullValidation() throws Exception {
+        KeyPairGenerator keyGen = KeyPairGenerator.getInstance("RSA");
+        keyGen.initialize(2048);
+        KeyPair subKeys = keyGen.generateKeyPair();
+        KeyPair leafKeys = keyGen.generateKeyPair();
+        // Root -> Intermediate (pathLen 0) -> Sub CA -> EE: Sub CA sme da postoji samo kao krajnji sertifikat
+        X509Certificate restrictedX509 = issue("CN=Intermediate CA,O=Test Org", intermediateKeys,
+                "CN=Root CA,O=Test Org", rootKeys, rootX509, 200L, new BasicConstraints(0));
+        X509Certificate subX509 = issue("CN=Sub CA,O=Test Org", subKeys, "CN=Intermediate CA,O=Test Org",
+                intermediateKeys, restrictedX509, 400L, true);
+        X509Certificate leafX509 = issue("CN=Device,O=Test Org", leafKeys, "CN=Sub CA,O=Test Org",
+                subKeys, subX509, 500L, false);
+        Certificate subCertificate = createCertificate(4L, "400", CertificateType.INTERMEDIATE, intermediateCertificate);
+        Certificate leafCertificate = createCertificate(5L, "500", CertificateType.END_ENTITY, subCertificate);
+
+        when(certificateRepository.findValidIssuers(eq(CertificateStatus.VALID), any(Date.class)))
+                .thenReturn(List.of(rootCertificate, intermediateCertificate, subCertificate));
+        when(certificateDerService.getX509s(List.of(rootCertificate, intermediateCertificate, subCertificate)))
+                .thenReturn(Map.of(1L, rootX509, 2L, restrictedX509, 4L, subX509));
+        when(certificateDerService.getX509s(List.of(subCertificate, leafCertificate)))
+                .thenReturn(Map.of(4L, subX509, 5L, leafX509));
+        when(certificateDerService.getX509(leafCertificate)).thenReturn(leafX509);
+        when(crlService.isSerialRevoked(any(BigInteger.class), any(Certificate.class))).thenReturn(false);
+
+        Map<Long, String> reasons = pkixValidationService.validateAll(List.of(subCertificate, leafCertificate));
+
+        assertNull(reasons.get(4L));
+        assertEquals("PATH_TOO_LONG", reasons.get(5L));
+        assertEquals(pkixValidationService.validate(leafCertificate), reasons.get(5L));
+    }
+
+    @Test
+    void validate_WhenCertificateOnIssuerCrl_ShouldReturnRevoked() throws Exception {
+        stubAuthorities();
+        when(certificateDerService.getX509(endEntityCertificate)).thenReturn(endEntityX509);
+        when(crlService.isSerialRevoked(BigInteger.valueOf(200), rootCertificate)).thenReturn(false);
+        when(crlService.isSerialRevoked(BigInteger.valueOf(300), intermediateCertificate)).thenReturn(true);
+
+        assertEquals("REVOKED", pkixValidationService.validate(endEntityCertificate));
+    }
+
+    @Test
+    void validate_WhenIntermediateMissingFromStore_ShouldReturnPathNotFound() throws Exception {
+        when(certificateRepository.findValidIssuers(eq(CertificateStatus.VALID), any(Date.class)))
+                .thenReturn(List.of(rootCertificate));
+        when(certificateDerService.getX509s(List.of(rootCertificate))).thenReturn(Map.of(1L, rootX509));
+        when(certificateDerService.getX509(endEntityCertificate)).thenReturn(endEntityX509);
+
+        assertEquals(PkixValidationService.REASON_PATH_NOT_FOUND, pkixValidationService.validate(endEntityCertificate));
+    }
+
+    @Test
+    void validate_ShouldBuildTrustMaterialOnceUntilInvalidated() throws Exception {
+        stubAuthorities();
+        when(certificateDerService.getX509(intermediateCertificate)).thenReturn(intermediateX509);
+        when(crlService.isSerialRevoked(any(BigInteger.class), any(Certificate.class))).thenReturn(false);
+
+        pkixValidationService.validate(intermediateCertificate);
+        pkixValidationService.validate(intermediateCertificate);
+        verify(certificateRepository, times(1)).findValidIssuers(any(), any());
+
+        pkixValidationService.onCertificatesRevoked(new CertificatesRevokedEvent(List.of(5L)));
+        pkixValidationService.validate(intermediateCertificate);
+        verify(certificateRepository, times(2)).findValidIssuers(any(), any());
+    }
+
+    @Test
+    void validate_ForRoot_ShouldNotTouchTrustMaterial() {
+        assertNull(pkixValidationService.validate(rootCertificate));
+        verifyNoInteractions(certificateRepository, certificateDerService, crlService);
+    }
+}
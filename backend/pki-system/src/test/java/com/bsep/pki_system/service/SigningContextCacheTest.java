@@ -0,0 +1,152 @@
+package com.bsep.pki_system.service;
+
+import com.bsep.pki_system.dto.CertificateChainView;
+import com.bsep.pki_system.model.Certificate;
+import com.bsep.pki_system.model.CertificateStatus;
+import com.bsep.pki_system.model.CertificateType;
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.cert.X509CertificateHolder;
+import org.bouncycastle.cert.jcajce.JcaX509CertificateConverter;
+import org.bouncycastle.cert.jcajce.JcaX509v3CertificateBuilder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigInteger;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.cert.X509Certificate;
+import java.util.Base64;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SigningContextCacheTest {
+
+    @Mock
+    private KeystoreService keystoreService;
+
+    @Mock
+    private CertificateService certificateService;
+
+    @Mock
+    private CertificateDerService certificateDerService;
+
+    private SigningContextCache signingContextCache;
+    private Certificate caCertificate;
+    private KeyPair caKeys;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        signingContextCache = new SigningContextCache(keystoreService, certificateService, certificateDerService);
+
+        KeyPairGenerator keyGen = KeyPairGenerator.getInstance("RSA");
+        keyGen.initialize(2048);
+        caKeys = keyGen.generateKeyPair();
+
+        caCertificate = new Certificate();
+        caCertificate.setId(7L);
+        caCertificate.setSerialNumber("1001");
+        caCertificate.setSubject("CN=Intermediate CA,O=Test Org,C=RS");
+        caCertificate.setType(CertificateType.INTERMEDIATE);
+        caCertificate.setStatus(CertificateStatus.VALID);
+        caCertificate.setIsCA(true);
+        caCertificate.setPublicKey(Base64.getEncoder().encodeToString(caKeys.getPublic().getEncoded()));
+    }
+
+    @Test
+    void get_ShouldUnlockKeyOnceAndSignRepeatedly() throws Exception {
+        when(keystoreService.getPrivateKey("CA_1001", "1001")).thenReturn(caKeys.getPrivate());
+
+        SigningContext first = signingContextCache.get(caCertificate);
+        SigningContext second = signingContextCache.get(caCertificate);
+
+        assertSame(first, second);
+        assertEquals(new X500Name("CN=Intermediate CA,O=Test Org,C=RS"), first.getIssuerName());
+        assertNotNull(first.getAuthorityKeyIdentifier().getKeyIdentifier());
+        for (int i = 0; i < 2; i++) {
+            X509Certificate x509 = sign(second, BigInteger.valueOf(i + 1));
+            assertDoesNotThrow(() -> x509.verify(caKeys.getPublic()));
+        }
+        verify(keystoreService, times(1)).getPrivateKey(anyString(), anyString());
+    }
+
+    @Test
+    void get_WhenPrivateKeyMissing_ShouldThrowAndNotCache() throws Exception {
+        when(keystoreService.getPrivateKey("CA_1001", "1001")).thenReturn(null);
+
+        RuntimeException exception = assertThrows(RuntimeException.class, () -> signingContextCache.get(caCertificate));
+
+        assertEquals("Private key not found for CA: 1001", exception.getMessage());
+        assertEquals(0, signingContextCache.size());
+    }
+
+    @Test
+    void onCertificatesRevoked_ShouldEvictOnlyRevokedCa() throws Exception {
+        when(keystoreService.getPrivateKey("CA_1001", "1001")).thenReturn(caKeys.getPrivate());
+        signingContextCache.get(caCertificate);
+
+        signingContextCache.onCertificatesRevoked(new CertificatesRevokedEvent(List.of(99L)));
+        assertEquals(1, signingContextCache.size());
+
+        signingContextCache.onCertificatesRevoked(new CertificatesRevokedEvent(List.of(99L, 7L)));
+        assertEquals(0, signingContextCache.size());
+
+        signingContextCache.get(caCertificate);
+        verify(keystoreService, times(2)).getPrivateKey("CA_1001", "1001");
+    }
+
+    @Test
+    void get_WhenCaKeyChanged_ShouldRebuildContext() throws Exception {
+        KeyPairGenerator keyGen = KeyPairGenerator.getInstance("RSA");
+        keyGen.initialize(2048);
+        KeyPair newKeys = keyGen.generateKeyPair();
+        when(keystoreService.getPrivateKey("CA_1001", "1001"))
+                .thenReturn(caKeys.getPrivate())
+                .thenReturn(newKeys.getPrivate());
+
+        SigningContext old = signingContextCache.get(caCertificate);
+        caCertificate.setPublicKey(Base64.getEncoder().encodeToString(newKeys.getPublic().getEncoded()));
+        SigningContext rebuilt = signingContextCache.get(caCertificate);
+
+        assertNotSame(old, rebuilt);
+        X509Certificate x509 = sign(rebuilt, BigInteger.TEN);
+        assertDoesNotThrow(() -> x509.verify(newKeys.getPublic()));
+    }
+
+    @Test
+    void getChain_ShouldLoadAncestorsOnlyOnce() throws Exception {
+        when(keystoreService.getPrivateKey("CA_1001", "1001")).thenReturn(caKeys.getPrivate());
+        CertificateChainView self = mock(CertificateChainView.class);
+        when(self.getId()).thenReturn(7L);
+        when(self.getSerialNumber()).thenReturn("1001");
+        CertificateChainView root = mock(CertificateChainView.class);
+        when(root.getId()).thenReturn(1L);
+        when(root.getSerialNumber()).thenReturn("1");
+        when(certificateService.findAncestorChain(7L)).thenReturn(List.of(self, root));
+        X509Certificate caX509 = mock(X509Certificate.class);
+        X509Certificate rootX509 = mock(X509Certificate.class);
+        when(certificateDerService.getCaX509(7L, "1001")).thenReturn(caX509);
+        when(certificateDerService.getCaX509(1L, "1")).thenReturn(rootX509);
+
+        SigningContext context = signingContextCache.get(caCertificate);
+        java.security.cert.Certificate[] chain = context.getChain();
+        context.getChain();
+
+        assertArrayEquals(new java.security.cert.Certificate[]{caX509, rootX509}, chain);
+        verify(certificateService, times(1)).findAncestorChain(7L);
+    }
+
+    private X509Certificate sign(SigningContext context, BigInteger serial) throws Exception {
+        Date now = new Date();
+        X509CertificateHolder holder = context.sign(new JcaX509v3CertificateBuilder(context.getIssuerName(), serial,
+                now, new Date(now.getTime() + 86400000), new X500Name("CN=Leaf " + serial), caKeys.getPublic()));
+        return new JcaX509CertificateConverter().getCertificate(holder);
+    }
+}
@@ -9,6 +9,7 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
 import java.time.LocalDateTime;
@@ -16,6 +17,7 @@ import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -27,6 +29,9 @@ class UserServiceTest {
     @Mock
     private PasswordEncoder passwordEncoder;
 
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
     @InjectMocks
     private UserService userService;
 
@@ -178,6 +183,8 @@ class UserServiceTest {
         assertEquals(true, result.getIs2faEnabled());
         assertEquals("new-2fa-secret", result.getTwoFactorSecret());
         verify(userRepository, times(1)).save(testUser);
+        verify(eventPublisher).publishEvent(argThat((Object e) -> e instanceof UserChangedEvent changed
+                && changed.getUserId().equals(1L)));
     }
 
     @Test
@@ -298,5 +305,7 @@ class UserServiceTest {
         userService.deleteUser(1L);
 
         verify(userRepository, times(1)).deleteById(1L);
+        verify(eventPublisher).publishEvent(argThat((Object e) -> e instanceof UserChangedEvent changed
+                && changed.getUserId().equals(1L)));
     }
 }
\ No newline at end of file
@@ -0,0 +1,33 @@
+package com.bsep.pki_system.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CsvUtilTest {
+
+    @Test
+    void escape_ShouldQuoteSeparatorsQuotesAndLineBreaks() {
+        assertEquals("", CsvUtil.escape(null));
+        assertEquals("CN=a.bsep.com", CsvUtil.escape("CN=a.bsep.com"));
+        assertEquals("\"CN=a,O=BSEP\"", CsvUtil.escape("CN=a,O=BSEP"));
+        assertEquals("\"say \"\"hi\"\"\"", CsvUtil.escape("say \"hi\""));
+        assertEquals("\"a\nb\"", CsvUtil.escape("a\nb"));
+        assertEquals("\"a\rb\"", CsvUtil.escape("a\rb"));
+    }
+
+    @Test
+    void escape_ShouldPrefixFormulaLikeText() {
+        assertEquals("\"'=HYPERLINK(\"\"x\"\")\"", CsvUtil.escape("=HYPERLINK(\"x\")"));
+        assertEquals("'+1", CsvUtil.escape("+1"));
+        assertEquals("'-cmd", CsvUtil.escape("-cmd"));
+        assertEquals("'@SUM(A1)", CsvUtil.escape("@SUM(A1)"));
+        assertEquals("\"'\rx\"", CsvUtil.escape("\rx"));
+    }
+
+    @Test
+    void escape_ShouldNotPrefixNumbers() {
+        assertEquals("-1", CsvUtil.escape(-1));
+        assertEquals("42", CsvUtil.escape(42L));
+    }
+}
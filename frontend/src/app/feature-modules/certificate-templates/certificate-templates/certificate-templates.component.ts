@@ -59,7 +59,8 @@ export class CertificateTemplatesComponent implements OnInit {
       maxValidityDays: [365, [Validators.required, Validators.min(1), Validators.max(3650)]],
       keyUsage: ['digitalSignature,keyEncipherment'],
       extendedKeyUsage: ['serverAuth,clientAuth'],
-      basicConstraints: ['CA:FALSE']
+      basicConstraints: ['CA:FALSE'],
+      keyAlgorithm: ['RSA_2048']
     });
   }
 
@@ -123,7 +124,8 @@ export class CertificateTemplatesComponent implements OnInit {
       maxValidityDays: formValue.maxValidityDays,
       keyUsage: this.getKeyUsageArray(formValue.keyUsage),
       extendedKeyUsage: formValue.extendedKeyUsage,
-      basicConstraints: formValue.basicConstraints
+      basicConstraints: formValue.basicConstraints,
+      keyAlgorithm: formValue.keyAlgorithm
     };
 
     console.log('KeyUsage format:', templateData.keyUsage);
@@ -166,7 +168,8 @@ export class CertificateTemplatesComponent implements OnInit {
       maxValidityDays: template.maxValidityDays,
       keyUsage: this.getKeyUsageString(template.keyUsage),
       extendedKeyUsage: template.extendedKeyUsage,
-      basicConstraints: template.basicConstraints
+      basicConstraints: template.basicConstraints,
+      keyAlgorithm: template.keyAlgorithm || 'RSA_2048'
     });
   }
 
@@ -270,7 +273,8 @@ export class CertificateTemplatesComponent implements OnInit {
       maxValidityDays: 365,
       keyUsage: 'digitalSignature,keyEncipherment',
       extendedKeyUsage: 'serverAuth,clientAuth',
-      basicConstraints: 'CA:FALSE'
+      basicConstraints: 'CA:FALSE',
+      keyAlgorithm: 'RSA_2048'
     });
     this.isEditing = false;
     this.currentTemplateId = undefined;
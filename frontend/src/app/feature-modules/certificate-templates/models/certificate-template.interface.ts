@@ -10,6 +10,7 @@ export interface CertificateTemplate {
   keyUsage: boolean[];
   extendedKeyUsage: string;
   basicConstraints: string;
+  keyAlgorithm?: string;
   createdAt?: Date;
   createdBy?: string;
   usageCount?: number;
@@ -3,4 +3,5 @@ export interface CreateEeCsrDTO {
   
   validTo: string; // Očekuje se YYYY-MM-DD format na backendu
   issuerCertificateId: number;
+  templateId?: number; // Opciono: izdavanje po šablonu
 }
\ No newline at end of file
@@ -8,4 +8,5 @@ export interface CreateTemplateDTO {
   keyUsage: boolean[];
   extendedKeyUsage: string;
   basicConstraints: string;
+  keyAlgorithm?: string;
 }
\ No newline at end of file
@@ -53,9 +53,9 @@ export class CertificateService {
 
         // 2. korak: Prođi ponovo i poveži decu sa roditeljima
         for (const cert of flatList) {
-          if (cert.issuerCertificate != null) {
+          if (cert.issuerId != null) {
             // Ovo je "dete". Nađi mu roditelja u mapi.
-            const parent = map.get(cert.issuerCertificate.id);
+            const parent = map.get(cert.issuerId);
             if (parent && parent.children) {
               // Dodaj ga u 'children' niz njegovog roditelja
               parent.children.push(cert);
@@ -90,6 +90,7 @@ export class CreateCertificateComponent implements OnInit {
         
         basicConstraints: isCA, // Boolean
         extendedKeyUsage: templateData.extendedKeyUsage, // String
+        keyAlgorithm: templateData.keyAlgorithm || 'RSA_2048',
         
         // Key Usage Booleani (Pretpostavljamo da templateData.keyUsage ima 9 booleana)
         digitalSignature: templateData.keyUsage[0],
@@ -131,6 +132,7 @@ private disableTemplateFields(): void {
     this.certificateForm.get('encipherOnly')?.disable();
     this.certificateForm.get('decipherOnly')?.disable();
     this.certificateForm.get('extendedKeyUsage')?.disable(); 
+    this.certificateForm.get('keyAlgorithm')?.disable();
 }
 
   private setupCNValidation(): void {
@@ -215,6 +217,9 @@ private disableTemplateFields(): void {
       // Validity Period
       validFrom: ['', Validators.required],
       validTo: ['', Validators.required],
+
+      // Algoritam ključa
+      keyAlgorithm: ['RSA_2048', Validators.required],
       
       // Extensions
       basicConstraints: [true], // CA:TRUE by default for Root
@@ -314,7 +319,8 @@ private disableTemplateFields(): void {
       keyUsage: this.getKeyUsageArray(formValue),
       basicConstraints: formValue.basicConstraints ? 'CA:TRUE' : 'CA:FALSE',
       extendedKeyUsage: formValue.extendedKeyUsage,
-      issuerCertificateId: formValue.issuerCertificateId // Sada se uzima vrednost iz forme
+      issuerCertificateId: formValue.issuerCertificateId, // Sada se uzima vrednost iz forme
+      keyAlgorithm: formValue.keyAlgorithm
     };
 
     let apiCall;
@@ -20,21 +20,10 @@ export interface Certificate {
   revocationReason?: string;
   revokedAt?: string;
   
-  // ✅ CRL FIELDS (NOVO)
-  crlNumber?: number;
-  lastCRLUpdate?: string;
-  
-  // Owner information
-  owner?: {
-    id: number;
-    name?: string;
-    email: string;
-    organization?: string;
-    role?: string;
-  };
-  
-  // Issuer certificate reference
-  issuerCertificate?: Certificate;
+  // Povezani entiteti samo kao id-evi (backend vraca ravan DTO, bez ugnjezdenih objekata)
+  issuerId?: number | null;
+  issuerSerialNumber?: string | null; // Za preuzimanje CRL liste izdavaoca
+  ownerId?: number | null;
   children?: Certificate[]; //polje za hijerarhiju
   
   // Parsed subject fields (optional - za lakši prikaz)
@@ -45,7 +34,4 @@ export interface Certificate {
   subjectState?: string;
   subjectLocality?: string;
   subjectEmail?: string;
-  
-  // Public key
-  publicKey?: string;
 }
\ No newline at end of file
@@ -12,4 +12,5 @@ export interface CreateCertificateDTO {
   basicConstraints: string;
   extendedKeyUsage: string;
   issuerCertificateId: number | null;
+  keyAlgorithm?: string; // RSA_2048, RSA_4096, EC_P256, EC_P384, ED25519
 }
\ No newline at end of file
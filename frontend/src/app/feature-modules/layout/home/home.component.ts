@@ -185,7 +185,7 @@ export class HomeComponent implements OnInit {
     });
   }
   downloadCRL(certificate: Certificate): void {
-    const issuerSerial = certificate.issuerCertificate?.serialNumber || certificate.serialNumber;
+    const issuerSerial = certificate.issuerSerialNumber || certificate.serialNumber;
     
     this.certificateService.downloadCRL(issuerSerial).subscribe({
       next: (blob) => {